@@ -0,0 +1,143 @@
+package com.kh.bulk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * CsvChunkReader : CSV 파일을 CHUNK 크기씩 읽어서 행(레코드) 경계에서 자른 덩어리(Chunk)로 넘겨주는 객체
+ *
+ * - 덩어리는 항상 완전한 행들로만 이루어지므로 여러 스레드가 나눠서 따로 분석(MemberCsvParser)할수 있다.
+ * - 따옴표 안의 줄바꿈은 행의 끝이 아니다. ("서울시\n강남구" 같은 값)
+ *   => 따옴표(")와 줄바꿈(\n)은 UTF-8 다른 글자의 일부로 나오지 않으므로 바이트 단위로 찾아도 된다.
+ * - 첫줄(컬럼명)은 getHeader()로 따로 꺼내둔다. (엑셀이 붙이는 BOM은 제거)
+ *
+ * 읽기는 한 스레드에서만 한다. (next()는 스레드에 안전하지 않음)
+ * */
+public class CsvChunkReader implements AutoCloseable {
+
+	private static final int CHUNK = 1 << 20; // 1MB
+
+	private final FileChannel channel;
+	private ByteBuffer buf = ByteBuffer.allocate(CHUNK);
+	private boolean eof;
+	private long records; // 지금까지 넘겨준 행 수 (컬럼명 제외)
+	private final String header;
+
+	public CsvChunkReader(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		String h = "";
+		byte[] first = nextRecords(true);
+		if(first != null) {
+			int len = first.length;
+			while(len > 0 && (first[len - 1] == '\n' || first[len - 1] == '\r')) len--;
+			int from = len >= 3 && (first[0] & 0xFF) == 0xEF && (first[1] & 0xFF) == 0xBB && (first[2] & 0xFF) == 0xBF ? 3 : 0;
+			h = new String(first, from, len - from, StandardCharsets.UTF_8);
+		}
+		this.header = h;
+	}
+
+	public String getHeader() {
+		return header;
+	}
+
+	/**
+	 * 다음 덩어리를 읽어오는 메소드
+	 * @return 덩어리 (파일 끝이라면 null)
+	 */
+	public Chunk next() throws IOException {
+		long firstRecord = records + 1;
+		byte[] data = nextRecords(false);
+		if(data == null) {
+			return null;
+		}
+		return new Chunk(data, firstRecord);
+	}
+
+	/*
+	 * 버퍼를 채운 후 마지막 행 경계까지를 잘라서 돌려주고 나머지는 버퍼 앞으로 옮겨둔다.
+	 * 한 행이 버퍼보다 크다면 버퍼를 두배로 늘린다.
+	 * onlyOne이 true라면 첫번째 행만 잘라서 돌려준다. (컬럼명)
+	 * */
+	private byte[] nextRecords(boolean onlyOne) throws IOException {
+		while(true) {
+			while(!eof && buf.hasRemaining()) {
+				if(channel.read(buf) < 0) {
+					eof = true;
+				}
+			}
+			byte[] a = buf.array();
+			int filled = buf.position();
+			if(filled == 0) {
+				return null;
+			}
+
+			// 따옴표 밖의 마지막 줄바꿈 찾기
+			boolean quoted = false;
+			int end = -1;
+			int count = 0;
+			for(int i = 0; i < filled; i++) {
+				byte b = a[i];
+				if(b == '"') {
+					quoted = !quoted; // "" (따옴표 두번)은 두번 바뀌므로 그대로
+				}else if(b == '\n' && !quoted) {
+					end = i + 1;
+					count++;
+					if(onlyOne) break;
+				}
+			}
+			if(eof && (end < 0 || (!onlyOne && end < filled))) {
+				// 파일의 마지막 행 (끝에 줄바꿈이 없는 경우)
+				end = filled;
+				count++;
+			}
+			if(end < 0) {
+				// 한 행이 버퍼보다 크다 => 버퍼를 늘려서 다시 읽기
+				buf = ByteBuffer.wrap(Arrays.copyOf(a, a.length * 2)).position(filled);
+				continue;
+			}
+
+			byte[] data = Arrays.copyOf(a, end);
+			System.arraycopy(a, end, a, 0, filled - end);
+			buf.position(filled - end);
+			if(!onlyOne) {
+				records += count;
+			}
+			return data;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	 * 완전한 행들로만 이루어진 파일의 일부
+	 * */
+	public static class Chunk {
+		// 더 읽을 덩어리가 없다는 표시 (여러 스레드로 나눠 처리할때 마지막에 넣어준다)
+		public static final Chunk END = new Chunk(new byte[0], 0);
+
+		private final byte[] data;
+		private final long firstRecord;
+
+		private Chunk(byte[] data, long firstRecord) {
+			this.data = data;
+			this.firstRecord = firstRecord;
+		}
+
+		public byte[] getData() {
+			return data;
+		}
+
+		// 덩어리의 첫 행이 파일에서 몇번째 행인지 (컬럼명 다음 행이 1)
+		public long getFirstRecord() {
+			return firstRecord;
+		}
+	}
+}
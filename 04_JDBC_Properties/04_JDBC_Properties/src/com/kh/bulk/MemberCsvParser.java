@@ -0,0 +1,222 @@
+package com.kh.bulk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import com.kh.model.vo.Member;
+
+/*
+ * MemberCsvParser : CSV 덩어리(CsvChunkReader.Chunk)를 행 단위로 나눠서 Member 객체로 바꾸고 검사하는 객체
+ *
+ * - 컬럼은 첫줄(컬럼명)로 찾는다. => 순서가 달라도 되고 필요없는 컬럼(USERNO, ENROLLDATE 등)은 무시
+ *   USERID, USERPWD, USERNAME은 반드시 있어야 하고 나머지(GENDER, AGE, EMAIL, PHONE, ADDRESS, HOBBY)는 선택
+ * - MEMBER 테이블 제약조건(길이, 필수값, GENDER는 M/F)에 맞지 않는 행은 DB에 보내지 않고 reject
+ *   => 길이는 오라클 VARCHAR2(n BYTE) 기준이므로 UTF-8 바이트 수로 센다. (한글 한 글자 = 3바이트)
+ * - 아이디 중복처럼 DB에서만 알수 있는 오류는 INSERT할때 걸러진다. (ImportService)
+ *
+ * 객체 하나를 한 스레드에서만 사용한다. (분석용 버퍼를 재사용하므로)
+ * */
+public class MemberCsvParser {
+
+	/*
+	 * 분석 결과를 받을 객체
+	 * */
+	public interface Sink {
+		void accept(long record, String raw, Member m);
+		void reject(long record, String raw, String reason);
+	}
+
+	private static final String[] NAMES = { "USERID", "USERPWD", "USERNAME", "GENDER", "AGE",
+			"EMAIL", "PHONE", "ADDRESS", "HOBBY" };
+	// MEMBER 테이블 컬럼 길이(바이트)
+	private static final int[] LIMITS = { 15, 20, 20, 1, 0, 30, 11, 100, 50 };
+	private static final int USERID = 0, USERPWD = 1, USERNAME = 2, GENDER = 3, AGE = 4,
+			EMAIL = 5, PHONE = 6, ADDRESS = 7, HOBBY = 8;
+
+	private final int[] index = new int[NAMES.length]; // NAMES[i]가 CSV에서 몇번째 컬럼인지 (없으면 -1)
+	private final int columns;
+	private final String[] fields;
+	private final StringBuilder sb = new StringBuilder();
+	private String reason; // split(), toMember()가 실패한 이유
+
+	/**
+	 * @param header : CSV 첫줄 (컬럼명)
+	 * @throws IllegalArgumentException 필수 컬럼이 없는 경우
+	 */
+	public MemberCsvParser(String header) {
+		String[] names = header.split(",", -1);
+		this.columns = names.length;
+		this.fields = new String[columns];
+		for(int i = 0; i < NAMES.length; i++) {
+			index[i] = -1;
+			for(int c = 0; c < names.length; c++) {
+				if(NAMES[i].equalsIgnoreCase(names[c].replace("\"", "").trim())) {
+					index[i] = c;
+				}
+			}
+		}
+		for(int required : new int[] { USERID, USERPWD, USERNAME }) {
+			if(index[required] < 0) {
+				throw new IllegalArgumentException("CSV 첫줄에 " + NAMES[required] + " 컬럼이 없습니다. : " + header);
+			}
+		}
+	}
+
+	/**
+	 * 덩어리 안의 모든 행을 분석해서 sink로 넘겨주는 메소드 (빈 줄은 건너뜀)
+	 */
+	public void parse(CsvChunkReader.Chunk chunk, Sink sink) {
+		String text = new String(chunk.getData(), StandardCharsets.UTF_8);
+		long record = chunk.getFirstRecord();
+		int start = 0;
+		int len = text.length();
+		while(start < len) {
+			// 따옴표 밖의 줄바꿈까지가 한 행
+			int end = start;
+			boolean quoted = false;
+			while(end < len) {
+				char c = text.charAt(end);
+				if(c == '"') quoted = !quoted;
+				else if(c == '\n' && !quoted) break;
+				end++;
+			}
+			int next = end + 1;
+			if(end > start && text.charAt(end - 1) == '\r') end--;
+
+			if(end > start) {
+				String raw = text.substring(start, end);
+				Member m = split(raw) ? toMember() : null;
+				if(m == null) {
+					sink.reject(record, raw, reason);
+				}else {
+					sink.accept(record, raw, m);
+				}
+			}
+			record++;
+			start = next;
+		}
+	}
+
+	// 한 행을 컬럼별로 나눠서 fields에 담는 메소드 (형식이 틀리면 reason을 남기고 false)
+	private boolean split(String raw) {
+		int n = 0;
+		int i = 0;
+		int len = raw.length();
+		while(true) {
+			if(n == columns) {
+				reason = "컬럼 수가 " + columns + "개보다 많습니다.";
+				return false;
+			}
+			if(i < len && raw.charAt(i) == '"') {
+				// "값" => "" 는 따옴표 한개
+				sb.setLength(0);
+				i++;
+				boolean closed = false;
+				while(i < len) {
+					char c = raw.charAt(i++);
+					if(c == '"') {
+						if(i < len && raw.charAt(i) == '"') {
+							sb.append('"');
+							i++;
+						}else {
+							closed = true;
+							break;
+						}
+					}else {
+						sb.append(c);
+					}
+				}
+				if(!closed || (i < len && raw.charAt(i) != ',')) {
+					reason = "따옴표가 올바르지 않습니다.";
+					return false;
+				}
+				fields[n++] = sb.toString();
+			}else {
+				int comma = raw.indexOf(',', i);
+				if(comma < 0) comma = len;
+				fields[n++] = raw.substring(i, comma);
+				i = comma;
+			}
+			if(i >= len) {
+				break;
+			}
+			i++; // 콤마
+		}
+		if(n != columns) {
+			reason = "컬럼 수가 " + columns + "개보다 적습니다.";
+			return false;
+		}
+		return true;
+	}
+
+	// fields의 값들을 검사해서 Member로 바꾸는 메소드 (맞지 않으면 reason을 남기고 null)
+	private Member toMember() {
+		String[] v = new String[NAMES.length];
+		for(int i = 0; i < NAMES.length; i++) {
+			String s = index[i] < 0 ? "" : fields[index[i]].trim();
+			if(i == PHONE) {
+				s = s.replace("-", "");
+			}
+			if(LIMITS[i] > 0 && utf8Length(s) > LIMITS[i]) {
+				reason = NAMES[i] + "가 " + LIMITS[i] + "바이트를 넘습니다.";
+				return null;
+			}
+			v[i] = s.isEmpty() ? null : s;
+		}
+		for(int required : new int[] { USERID, USERPWD, USERNAME }) {
+			if(v[required] == null) {
+				reason = NAMES[required] + "가 비어있습니다.";
+				return null;
+			}
+		}
+		if(v[GENDER] != null) {
+			v[GENDER] = v[GENDER].toUpperCase(Locale.ROOT);
+			if(!v[GENDER].equals("M") && !v[GENDER].equals("F")) {
+				reason = "GENDER는 M 또는 F여야 합니다.";
+				return null;
+			}
+		}
+		int age = 0;
+		if(v[AGE] != null) {
+			try {
+				age = Integer.parseInt(v[AGE]);
+			} catch (NumberFormatException e) {
+				age = -1;
+			}
+			if(age < 0 || age > 150) {
+				reason = "AGE가 올바른 나이가 아닙니다. : " + v[AGE];
+				return null;
+			}
+		}
+		if(v[EMAIL] != null && v[EMAIL].indexOf('@') < 1) {
+			reason = "EMAIL 형식이 아닙니다.";
+			return null;
+		}
+		if(v[PHONE] != null && !digits(v[PHONE])) {
+			reason = "PHONE은 숫자만 입력해야 합니다.";
+			return null;
+		}
+		return new Member(v[USERID], v[USERPWD], v[USERNAME], v[GENDER], age,
+				v[EMAIL], v[PHONE], v[ADDRESS], v[HOBBY]);
+	}
+
+	private static boolean digits(String s) {
+		for(int i = 0; i < s.length(); i++) {
+			if(s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+		}
+		return true;
+	}
+
+	// UTF-8로 저장했을때의 바이트 수 (문자열을 바이트 배열로 바꾸지 않고 센다.)
+	private static int utf8Length(String s) {
+		int n = 0;
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c < 0x80) n += 1;
+			else if(c < 0x800) n += 2;
+			else if(Character.isHighSurrogate(c)) { n += 4; i++; }
+			else n += 3;
+		}
+		return n;
+	}
+}
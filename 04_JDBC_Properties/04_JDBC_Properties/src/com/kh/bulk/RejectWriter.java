@@ -0,0 +1,52 @@
+package com.kh.bulk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * RejectWriter : 가져오지 못한 행을 이유와 함께 기록하는 객체 (여러 스레드에서 같이 사용)
+ *
+ * 형식(CSV) : 행번호,이유,원본 행 그대로
+ * => 원본 행 부분만 잘라내서 고친 후 첫줄(컬럼명)을 붙이면 다시 가져올수 있다.
+ * */
+public class RejectWriter implements AutoCloseable {
+
+	private final BufferedWriter out;
+	private long count;
+
+	/**
+	 * @param file : 기록할 파일 (이미 있다면 덮어씀)
+	 * @param header : 원본 CSV 첫줄 (그대로 적어둔다)
+	 */
+	public RejectWriter(Path file, String header) throws IOException {
+		this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+		out.write("RECORD,REASON," + header);
+		out.newLine();
+	}
+
+	public synchronized void reject(long record, String raw, String reason) {
+		try {
+			out.write(Long.toString(record));
+			out.write(",\"");
+			out.write(reason == null ? "" : reason.replace("\"", "\"\"").replace('\n', ' ').replace('\r', ' '));
+			out.write("\",");
+			out.write(raw);
+			out.newLine();
+			count++;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,247 @@
+package com.kh.bulk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryFlag;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import com.kh.model.vo.Member;
+
+/*
+ * UpdateJournal : 아직 DB에 쓰지 않은 회원정보 변경(USERID, USERPWD, EMAIL, PHONE, ADDRESS)을
+ *                 파일에 덧붙여(append) 기록해두는 객체 (WriteBehindBuffer용)
+ *
+ * - 파일은 조각(segment) 단위 : 폴더/update-000001.journal, update-000002.journal ...
+ *   => DB에 쓰기 전에 rotate()로 새 조각으로 넘어가고, DB에 commit된 후에 deleteUpTo()로 지난 조각을 지운다.
+ * - 한 건 = [길이 int][CRC32 int][내용] => 쓰는 도중 죽어서 잘린 마지막 건은 복구할때 버린다.
+ * - append()는 파일에 쓰기만 하고, sync()에서 디스크에 내려쓴다.(force)
+ *   => 여러 스레드가 동시에 기록했다면 force 한번으로 같이 내려써진다. (group commit)
+ * - 실행시 recover()로 남아있는 조각을 순서대로 읽어서 DB에 쓰지 못한 변경을 되살린다.
+ * - 변경에는 비밀번호(USERPWD)가 들어있다. (빼면 죽은 후에 비밀번호 변경을 되살릴수 없음)
+ *   => 폴더와 조각 파일을 실행한 계정만 읽고 쓸수 있게 만든다. (POSIX : rwx------ / rw-------, 윈도우 : 소유자만 허용하는 ACL)
+ * */
+public class UpdateJournal implements AutoCloseable {
+
+	private static final String PREFIX = "update-";
+	private static final String SUFFIX = ".journal";
+
+	private final Path dir;
+	private FileChannel channel;
+	private long segment; // 지금 기록중인 조각 번호
+	private long written; // 지금까지 기록한 바이트 (모든 조각 합계)
+	private long synced;  // 디스크에 내려쓴 바이트
+	private final Object syncLock = new Object();
+
+	/**
+	 * @param dir : 조각 파일을 둘 폴더 (없으면 만듦)
+	 */
+	public UpdateJournal(Path dir) throws IOException {
+		this.dir = dir;
+		Files.createDirectories(dir);
+		ownerOnly(dir, true); // 조각 파일을 만들기 전에 폴더부터
+		TreeMap<Long, Path> old = segments();
+		this.segment = old.isEmpty() ? 1 : old.lastKey() + 1;
+		this.channel = open(segment);
+	}
+
+	/**
+	 * 남아있는 지난 조각들(이 객체가 만든 조각 제외)의 기록을 순서대로 읽어오는 메소드
+	 * => 지난 조각은 다음 deleteUpTo()에서 지워진다.
+	 */
+	public List<Member> recover() throws IOException {
+		List<Member> list = new ArrayList<>();
+		for(Map.Entry<Long, Path> e : segments().headMap(segment).entrySet()) {
+			byte[] data = Files.readAllBytes(e.getValue());
+			ByteBuffer buf = ByteBuffer.wrap(data);
+			while(buf.remaining() >= 8) {
+				int len = buf.getInt();
+				int crc = buf.getInt();
+				if(len < 0 || len > buf.remaining()) {
+					break; // 기록 도중 잘림
+				}
+				CRC32 c = new CRC32();
+				c.update(data, buf.position(), len);
+				if((int) c.getValue() != crc) {
+					break;
+				}
+				list.add(decode(new DataInputStream(new ByteArrayInputStream(data, buf.position(), len))));
+				buf.position(buf.position() + len);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * 변경 한 건을 지금 조각에 덧붙이는 메소드 (디스크에 내려쓰려면 sync(반환값))
+	 * @return 이 기록까지의 위치
+	 */
+	public synchronized long append(Member m) throws IOException {
+		byte[] payload = encode(m);
+		CRC32 c = new CRC32();
+		c.update(payload);
+		ByteBuffer buf = ByteBuffer.allocate(8 + payload.length);
+		buf.putInt(payload.length).putInt((int) c.getValue()).put(payload).flip();
+		while(buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		written += 8 + payload.length;
+		return written;
+	}
+
+	/**
+	 * position까지의 기록을 디스크에 내려쓰는 메소드 (이미 다른 스레드가 내려썼다면 바로 반환)
+	 */
+	public void sync(long position) throws IOException {
+		synchronized (syncLock) {
+			if(synced >= position) {
+				return;
+			}
+			long target;
+			FileChannel ch;
+			synchronized (this) {
+				target = written;
+				ch = channel;
+			}
+			ch.force(false);
+			synced = Math.max(synced, target);
+		}
+	}
+
+	/**
+	 * 지금 조각을 닫고 새 조각으로 넘어가는 메소드
+	 * @return 닫은 조각 번호 (DB에 commit된 후 deleteUpTo()에 넘겨줌)
+	 */
+	public long rotate() throws IOException {
+		synchronized (syncLock) {
+			synchronized (this) {
+				channel.force(false);
+				channel.close();
+				synced = written;
+				channel = open(++segment);
+				return segment - 1;
+			}
+		}
+	}
+
+	// 지금 기록중인 조각 번호
+	public synchronized long getSegment() {
+		return segment;
+	}
+
+	/**
+	 * 번호가 id 이하인 조각 파일을 지우는 메소드
+	 */
+	public void deleteUpTo(long id) throws IOException {
+		for(Path p : segments().headMap(id, true).values()) {
+			Files.deleteIfExists(p);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (syncLock) {
+			synchronized (this) {
+				channel.force(false);
+				channel.close();
+			}
+		}
+	}
+
+	private FileChannel open(long id) throws IOException {
+		Path file = dir.resolve(String.format("%s%06d%s", PREFIX, id, SUFFIX));
+		FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		try {
+			ownerOnly(file, false);
+		} catch (IOException e) {
+			ch.close();
+			throw e;
+		}
+		return ch;
+	}
+
+	// 실행한 계정(소유자)만 읽고 쓸수 있게 권한을 바꾸는 메소드
+	private static void ownerOnly(Path p, boolean directory) throws IOException {
+		PosixFileAttributeView posix = Files.getFileAttributeView(p, PosixFileAttributeView.class);
+		if(posix != null) {
+			posix.setPermissions(PosixFilePermissions.fromString(directory ? "rwx------" : "rw-------"));
+			return;
+		}
+		AclFileAttributeView acl = Files.getFileAttributeView(p, AclFileAttributeView.class);
+		if(acl != null) {
+			AclEntry.Builder entry = AclEntry.newBuilder()
+					.setType(AclEntryType.ALLOW)
+					.setPrincipal(acl.getOwner())
+					.setPermissions(AclEntryPermission.values());
+			if(directory) {
+				entry.setFlags(AclEntryFlag.FILE_INHERIT, AclEntryFlag.DIRECTORY_INHERIT);
+			}
+			acl.setAcl(Collections.singletonList(entry.build()));
+		}
+	}
+
+	// 조각 번호 => 파일
+	private TreeMap<Long, Path> segments() throws IOException {
+		TreeMap<Long, Path> map = new TreeMap<>();
+		try(DirectoryStream<Path> ds = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+			for(Path p : ds) {
+				String name = p.getFileName().toString();
+				try {
+					map.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), p);
+				} catch (NumberFormatException e) {
+					// 다른 파일
+				}
+			}
+		}
+		return map;
+	}
+
+	// USERID, USERPWD, EMAIL, PHONE, ADDRESS (null이 될수 있는 값은 앞에 있음/없음 표시)
+	private static byte[] encode(Member m) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeUTF(m.getUserId());
+		for(String s : new String[] { m.getUserPwd(), m.getEmail(), m.getPhone(), m.getAddress() }) {
+			out.writeBoolean(s != null);
+			if(s != null) {
+				out.writeUTF(s);
+			}
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static Member decode(DataInputStream in) throws IOException {
+		try {
+			Member m = new Member();
+			m.setUserId(in.readUTF());
+			m.setUserPwd(in.readBoolean() ? in.readUTF() : null);
+			m.setEmail(in.readBoolean() ? in.readUTF() : null);
+			m.setPhone(in.readBoolean() ? in.readUTF() : null);
+			m.setAddress(in.readBoolean() ? in.readUTF() : null);
+			return m;
+		} catch (EOFException e) {
+			throw new IOException("변경 기록의 형식이 올바르지 않습니다.", e);
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package com.kh.common;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+ * Bulkhead(격벽) : 작업 종류(workload)별로 동시에 사용할수 있는 커넥션 갯수를 따로 정해두는 객체
+ *
+ * 대량 조회(전체조회 export)나 일괄 변경(batch)이 커넥션을 모두 가져가버리면
+ * 화면에서 요청한 아이디 검색(interactive)까지 같이 기다리게 된다.
+ * => 작업 종류마다 커넥션 수(max)와 대기열 길이(queue)를 따로 두어서 서로 영향을 주지 않게 한다.
+ *
+ * driver.properties 예시)
+ *   bulkhead.interactive.max=8
+ *   bulkhead.interactive.queue=32
+ *   bulkhead.interactive.wait.millis=2000
+ *   bulkhead.batch.max=2
+ *   bulkhead.batch.queue=4
+ *   bulkhead.batch.wait.millis=30000
+ *
+ * 사용법)
+ *   - 스레드 단위 : Bulkhead.setWorkload(Bulkhead.BATCH); => 이후 이 스레드의 getConnection()은 batch 몫에서 빌림
+ *   - 호출 단위   : Bulkhead.runAs(Bulkhead.BATCH, () -> new MemberService().selectAll());
+ *   - 여러개 한번에 : bulkhead.reserve(n); try { n번 getConnection() } finally { bulkhead.releaseReserved(); }
+ *     => 모든 샤드에서 커넥션을 하나씩 빌리는 조회(scatter/gather)용 (reserve 참고)
+ * */
+public class Bulkhead {
+
+	public static final String INTERACTIVE = "interactive";
+	public static final String BATCH = "batch";
+
+	// 작업종류 이름 => Bulkhead 객체
+	private static final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+	// 현재 스레드의 작업종류 (지정하지 않았다면 interactive)
+	private static final ThreadLocal<String> workload = ThreadLocal.withInitial(() -> INTERACTIVE);
+	// 현재 스레드가 reserve로 미리 얻어두고 아직 쓰지 않은 사용권한
+	private static final ThreadLocal<Reservation> reserved = new ThreadLocal<>();
+
+	private final String name;
+	private final ResizableSemaphore permits;
+	private volatile int max;
+	private volatile int queueLimit;
+	private volatile long waitMillis;
+
+	// 통계
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	private Bulkhead(String name, int max, int queueLimit, long waitMillis) {
+		this.name = name;
+		this.max = max;
+		this.queueLimit = queueLimit;
+		this.waitMillis = waitMillis;
+		this.permits = new ResizableSemaphore(max);
+	}
+
+	/**
+	 * driver.properties에 적힌 bulkhead.작업종류.xxx 설정을 읽어서 반영하는 메소드
+	 * 이미 있는 작업종류라면 커넥션 수, 대기열 길이만 바꿔준다.(사용중인 커넥션은 그대로 유지)
+	 */
+	public static void configure(Properties prop) {
+		for(String key : prop.stringPropertyNames()) {
+			if(key.startsWith("bulkhead.") && key.endsWith(".max")) {
+				String name = key.substring("bulkhead.".length(), key.length() - ".max".length());
+				int max = Integer.parseInt(prop.getProperty(key).trim());
+				int queue = Integer.parseInt(prop.getProperty("bulkhead." + name + ".queue", "0").trim());
+				long wait = Long.parseLong(prop.getProperty("bulkhead." + name + ".wait.millis", "0").trim());
+				get(name).resize(max, queue, wait);
+			}
+		}
+	}
+
+	/**
+	 * 작업종류 이름에 해당하는 Bulkhead 객체를 반환 (없다면 제한없이 새로 만듦)
+	 */
+	public static Bulkhead get(String name) {
+		return bulkheads.computeIfAbsent(name, n -> new Bulkhead(n, Integer.MAX_VALUE / 2, 0, 0));
+	}
+
+	/**
+	 * 현재 스레드의 작업종류에 해당하는 Bulkhead 객체를 반환
+	 */
+	public static Bulkhead current() {
+		return get(workload.get());
+	}
+
+	public static Collection<Bulkhead> all() {
+		return bulkheads.values();
+	}
+
+	/**
+	 * 현재 스레드의 작업종류를 지정하는 메소드 (null이면 interactive로 되돌림)
+	 */
+	public static void setWorkload(String name) {
+		if(name == null) {
+			workload.remove();
+		}else {
+			workload.set(name);
+		}
+	}
+
+	public static String getWorkload() {
+		return workload.get();
+	}
+
+	/**
+	 * 전달받은 작업을 지정한 작업종류로 실행한 후 원래 작업종류로 되돌려주는 메소드
+	 */
+	public static <T> T runAs(String name, Supplier<T> task) {
+		String before = workload.get();
+		workload.set(name);
+		try {
+			return task.get();
+		} finally {
+			workload.set(before);
+		}
+	}
+
+	/**
+	 * 커넥션 1개를 사용할 수 있는 권한(permit)을 얻는 메소드
+	 * 대기열이 가득 찼거나 정해진 시간안에 얻지 못하면 예외를 발생시킨다.
+	 */
+	public void acquire() throws RejectedException {
+		// reserve로 미리 얻어둔 권한이 있다면 기다리지 않고 그것을 사용
+		Reservation r = reserved.get();
+		if(r != null && r.bulkhead == this && r.remaining > 0) {
+			r.remaining--;
+			return;
+		}
+		acquire(1);
+	}
+
+	/**
+	 * 커넥션 n개의 사용권한을 한번에 얻는 메소드 (얻은 권한은 이 스레드의 다음 n번의 acquire()가 사용)
+	 * 하나씩 얻으면 얻은 권한을 쥔 채로 나머지를 기다리게 되어(hold-and-wait) 동시에 들어온 요청끼리 서로 막고,
+	 * n이 max보다 크면 절대로 다 얻지 못한다. => n개를 한번에 얻거나 하나도 얻지 않는다. (n > max라면 바로 거절)
+	 * 다 쓰지 않은 권한은 releaseReserved()로 돌려줘야 한다. (finally에서)
+	 */
+	public void reserve(int n) throws RejectedException {
+		if(n > max) {
+			rejected.incrementAndGet();
+			throw new RejectedException(name + " 작업의 커넥션 수(" + max + ")보다 많은 커넥션(" + n + ")을 한번에 요청했습니다.");
+		}
+		acquire(n);
+		reserved.set(new Reservation(this, n));
+	}
+
+	/**
+	 * reserve로 얻은 권한중 쓰지 않은 권한을 돌려주는 메소드 (사용중인 커넥션의 권한은 close할때 돌려줌)
+	 */
+	public void releaseReserved() {
+		Reservation r = reserved.get();
+		if(r != null && r.bulkhead == this) {
+			reserved.remove();
+			if(r.remaining > 0) {
+				permits.release(r.remaining);
+			}
+		}
+	}
+
+	private void acquire(int n) throws RejectedException {
+		if(permits.tryAcquire(n)) {
+			acquired.addAndGet(n);
+			return;
+		}
+
+		// 바로 얻지 못했다면 대기열에 줄서기 => 대기열이 가득 찼다면 바로 거절
+		if(queued.incrementAndGet() > queueLimit) {
+			queued.decrementAndGet();
+			rejected.incrementAndGet();
+			throw new RejectedException(name + " 작업의 커넥션 대기열이 가득 찼습니다.");
+		}
+
+		long start = System.nanoTime();
+		try {
+			if(!permits.tryAcquire(n, waitMillis, TimeUnit.MILLISECONDS)) {
+				timeouts.incrementAndGet();
+				throw new RejectedException(name + " 작업의 커넥션 대기시간(" + waitMillis + "ms)을 초과했습니다.");
+			}
+			acquired.addAndGet(n);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RejectedException(name + " 작업의 커넥션 대기중 중단되었습니다.");
+		} finally {
+			queued.decrementAndGet();
+			long waited = System.nanoTime() - start;
+			totalWaitNanos.addAndGet(waited);
+			maxWaitNanos.accumulateAndGet(waited, Math::max);
+		}
+	}
+
+	/**
+	 * 사용이 끝난 커넥션의 권한을 돌려주는 메소드
+	 */
+	public void release() {
+		permits.release();
+	}
+
+	/**
+	 * 실행중에 커넥션 수와 대기열 길이를 바꾸는 메소드
+	 */
+	public synchronized void resize(int max, int queueLimit, long waitMillis) {
+		int delta = max - this.max;
+		if(delta > 0) {
+			permits.release(delta);
+		}else if(delta < 0) {
+			permits.reducePermits(-delta);
+		}
+		this.max = max;
+		this.queueLimit = queueLimit;
+		this.waitMillis = waitMillis;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMax() {
+		return max;
+	}
+
+	public int getQueueLimit() {
+		return queueLimit;
+	}
+
+	public long getWaitMillis() {
+		return waitMillis;
+	}
+
+	// 현재 사용중인 커넥션 수
+	public int getInUse() {
+		return Math.max(0, max - permits.availablePermits());
+	}
+
+	// 현재 대기중인 요청 수
+	public int getQueued() {
+		return queued.get();
+	}
+
+	// 사용률 (사용중 / 최대) => 1.0이면 포화상태
+	public double getSaturation() {
+		return max == 0 ? 1.0 : (double) getInUse() / max;
+	}
+
+	public long getAcquired() {
+		return acquired.get();
+	}
+
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	public double getAverageWaitMillis() {
+		long count = acquired.get() + timeouts.get();
+		return count == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / count;
+	}
+
+	public double getMaxWaitMillis() {
+		return maxWaitNanos.get() / 1_000_000.0;
+	}
+
+	@Override
+	public String toString() {
+		return "Bulkhead [name=" + name + ", inUse=" + getInUse() + "/" + max + ", queued=" + getQueued() + "/" + queueLimit
+				+ ", saturation=" + String.format("%.2f", getSaturation()) + ", acquired=" + getAcquired()
+				+ ", rejected=" + getRejected() + ", timeouts=" + getTimeouts()
+				+ ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis())
+				+ ", maxWaitMs=" + String.format("%.3f", getMaxWaitMillis()) + "]";
+	}
+
+	/*
+	 * 커넥션 사용권한을 얻지 못했을때 발생하는 예외
+	 * => DB 장애가 아니므로 서킷브레이커의 실패로 집계하지 않는다.
+	 * => 일시적인 오류(SQLTransientException, SQLSTATE 08/40)도 아니다. (SqlStates.isTransient == false)
+	 *    이미 바쁜 격벽에 바로 다시 요청하면(Resilience.read의 재시도) 대기열만 더 길어진다.
+	 * */
+	public static class RejectedException extends SQLException {
+		private static final long serialVersionUID = 1L;
+
+		// 53 : 자원 부족(insufficient resources) 클래스 => 연결 오류(08)가 아님
+		public static final String SQL_STATE = "53000";
+
+		public RejectedException(String reason) {
+			super(reason, SQL_STATE);
+		}
+	}
+
+	private static class Reservation {
+		final Bulkhead bulkhead;
+		int remaining;
+
+		Reservation(Bulkhead bulkhead, int remaining) {
+			this.bulkhead = bulkhead;
+			this.remaining = remaining;
+		}
+	}
+
+	// reducePermits가 protected라서 상속받아서 열어줌
+	private static class ResizableSemaphore extends Semaphore {
+		private static final long serialVersionUID = 1L;
+
+		ResizableSemaphore(int permits) {
+			super(permits, true);
+		}
+
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+}
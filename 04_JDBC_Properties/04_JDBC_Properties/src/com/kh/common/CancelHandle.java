@@ -0,0 +1,164 @@
+package com.kh.common;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/*
+ * CancelHandle : 하나의 요청이 실행중인 Statement들을 모아두었다가, 요청이 취소되면
+ *                실행중인 Statement에 cancel()을 호출해서 DB작업을 중단시키는 객체
+ *
+ * 요청을 포기(ex. 비동기 결과를 기다리다 시간초과)하더라도 DB에서는 SQL문이 계속 실행되면서
+ * 커넥션을 붙잡고 있게 된다. => cancel()로 DB에 중단을 요청하면 DAO에서 SQLException이 발생하고
+ * finally블럭에서 Statement, 서비스에서 Connection이 반납된다.
+ *
+ * 사용법)
+ *   CompletableFuture<ArrayList<Member>> f = CancelHandle.async(() -> new MemberService().selectAll(), 3000);
+ *   => 3초 안에 끝나지 않거나 f.cancel(true)를 호출하면 실행중인 SQL문도 취소된다.
+ * */
+public class CancelHandle {
+
+	// 현재 스레드에서 실행중인 요청의 CancelHandle
+	private static final ThreadLocal<CancelHandle> current = new ThreadLocal<>();
+
+	// 비동기 요청을 실행할 스레드들
+	private static final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "async-request");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+	private final Set<CancelHandle> children = ConcurrentHashMap.newKeySet();
+	private volatile boolean cancelled;
+
+	/**
+	 * 현재 스레드에 CancelHandle을 지정하는 메소드 (null이면 해제)
+	 */
+	public static void bind(CancelHandle handle) {
+		if(handle == null) {
+			current.remove();
+		}else {
+			current.set(handle);
+		}
+	}
+
+	public static CancelHandle current() {
+		return current.get();
+	}
+
+	/**
+	 * 현재 스레드에 지정된 CancelHandle에 Statement를 등록하는 메소드 (DAO에서 Statement 생성시 호출)
+	 * 이미 취소된 요청이라면 SQL문을 실행하지 않도록 예외를 발생시킨다.
+	 */
+	public static void register(Statement stmt) throws SQLException {
+		CancelHandle handle = current.get();
+		if(handle == null) return;
+
+		// 먼저 등록한 후에 취소여부를 확인한다. (cancel()은 반대로 cancelled를 먼저 바꾼 후에 등록된 Statement를 취소)
+		// => 확인 후에 등록하면 그 사이에 취소된 요청의 Statement가 취소되지 않고 실행될수 있다.
+		//    이 순서라면 cancel()이 이 Statement를 보거나, 여기서 cancelled = true를 보거나 둘중 하나는 반드시 일어난다.
+		handle.statements.add(stmt);
+		if(handle.cancelled) {
+			handle.statements.remove(stmt);
+			stmt.close();
+			throw new SQLException("취소된 요청입니다.", "HY008");
+		}
+	}
+
+	/**
+	 * 다 쓴 Statement를 등록해제하는 메소드 (JDBCTemplate.close(Statement)에서 호출)
+	 */
+	public static void unregister(Statement stmt) {
+		CancelHandle handle = current.get();
+		if(handle != null) {
+			handle.statements.remove(stmt);
+		}
+	}
+
+	/**
+	 * 요청의 일부(ex. 샤드별 조회)만 따로 취소할수 있는 하위 CancelHandle을 만드는 메소드
+	 * 이 요청이 취소되면 하위도 같이 취소된다. 다 쓴 후에는 detach()로 빼준다.
+	 */
+	public CancelHandle child() {
+		CancelHandle child = new CancelHandle();
+		// register()와 같은 순서 (먼저 추가한 후에 취소여부 확인)
+		children.add(child);
+		if(cancelled) {
+			child.cancel();
+		}
+		return child;
+	}
+
+	public void detach(CancelHandle child) {
+		children.remove(child);
+	}
+
+	/**
+	 * 요청을 취소하는 메소드 => 실행중인 모든 Statement(하위 CancelHandle 포함)에 cancel()을 호출
+	 */
+	public void cancel() {
+		cancelled = true;
+		for(CancelHandle child : children) {
+			child.cancel();
+		}
+		for(Statement stmt : statements) {
+			try {
+				stmt.cancel();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * 전달받은 작업을 다른 스레드에서 실행하고 결과를 CompletableFuture로 돌려주는 메소드
+	 * 제한시간(timeoutMillis)이 지나거나 반환된 future가 취소되면 실행중인 SQL문도 취소된다.
+	 * @param task : 실행할 작업 (ex. () -> new MemberService().selectAll())
+	 * @param timeoutMillis : 제한시간 (0 이하면 제한없음)
+	 */
+	public static <T> CompletableFuture<T> async(Supplier<T> task, long timeoutMillis) {
+		CancelHandle handle = new CancelHandle();
+		// 요청한 스레드의 작업종류(Bulkhead)를 그대로 이어받는다.
+		String workload = Bulkhead.getWorkload();
+		// 추적중인 요청이라면 다른 스레드에서도 같은 요청의 하위 구간으로 이어지도록
+		Span parent = Tracer.current();
+
+		CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+			bind(handle);
+			Span before = Tracer.attach(parent);
+			try {
+				return Bulkhead.runAs(workload, task);
+			} finally {
+				Tracer.attach(before);
+				bind(null);
+			}
+		}, executor);
+
+		if(timeoutMillis > 0) {
+			future = future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		// 시간초과 또는 취소로 끝났다면 DB작업도 중단
+		future.whenComplete((result, e) -> {
+			Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+			if(cause instanceof TimeoutException || cause instanceof CancellationException) {
+				handle.cancel();
+			}
+		});
+		return future;
+	}
+}
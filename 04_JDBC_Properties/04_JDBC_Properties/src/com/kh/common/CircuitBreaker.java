@@ -0,0 +1,117 @@
+package com.kh.common;
+
+import java.sql.SQLTransientConnectionException;
+
+/*
+ * CircuitBreaker(서킷브레이커, 차단기) : DB가 죽어있을때 모든 요청이 접속 타임아웃까지 기다리지 않고
+ *                                     바로 실패(fail fast)하도록 막아주는 객체
+ *
+ * - CLOSED    : 정상 상태. 요청을 그대로 통과시킴
+ *               일시적인 오류가 연속으로 failureThreshold번 발생하면 OPEN으로
+ * - OPEN      : 차단 상태. openMillis 동안 요청을 DB로 보내지 않고 바로 실패시킴
+ * - HALF_OPEN : openMillis가 지나면 요청 1개만 시험삼아 통과시킴
+ *               성공하면 CLOSED, 실패하면 다시 OPEN
+ *               DB에 닿지 못하고 끝난 시험 요청(커넥션 몫 부족, RuntimeException)은 release()로 자리만 돌려준다.
+ *               => 돌려주지 않으면 다음 시험 요청을 영원히 보내지 못함
+ * */
+public class CircuitBreaker {
+
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	private final String name;
+	private volatile int failureThreshold;
+	private volatile long openMillis;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean trialInFlight;
+
+	public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+	}
+
+	/**
+	 * 요청을 DB로 보내기 전에 호출하는 메소드
+	 * 차단 상태라면 DB에 접속하지 않고 바로 예외를 발생시킨다.
+	 * @return 이 요청이 HALF_OPEN의 시험 요청이라면 true (결과를 알리지 못하고 끝나면 release() 해야 함)
+	 */
+	public synchronized boolean beforeCall() throws OpenException {
+		if(state == State.OPEN) {
+			if(System.currentTimeMillis() - openedAt < openMillis) {
+				throw new OpenException(name + " DB 접속이 차단된 상태입니다.(circuit open)");
+			}
+			state = State.HALF_OPEN;
+			trialInFlight = false;
+		}
+		if(state == State.HALF_OPEN) {
+			// 시험 요청은 1개만 보낸다.
+			if(trialInFlight) {
+				throw new OpenException(name + " DB 접속 복구 확인중입니다.(circuit half-open)");
+			}
+			trialInFlight = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 시험 요청이 성공/실패를 알리지 못하고 끝났을때 호출 => 상태는 그대로 두고 다음 요청이 시험할수 있게 함
+	 */
+	public synchronized void release() {
+		if(state == State.HALF_OPEN) {
+			trialInFlight = false;
+		}
+	}
+
+	/**
+	 * 요청이 성공했을때 호출 (영구적인 오류로 실패한 경우도 DB는 살아있으므로 성공으로 본다)
+	 */
+	public synchronized void onSuccess() {
+		consecutiveFailures = 0;
+		trialInFlight = false;
+		state = State.CLOSED;
+	}
+
+	/**
+	 * 일시적인 오류로 요청이 실패했을때 호출
+	 */
+	public synchronized void onFailure() {
+		consecutiveFailures++;
+		trialInFlight = false;
+		if(state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = System.currentTimeMillis();
+		}
+	}
+
+	public void configure(int failureThreshold, long openMillis) {
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	/*
+	 * 차단 상태라서 DB로 요청을 보내지 않았을때 발생하는 예외 => 재시도하지 않고 바로 실패
+	 * */
+	public static class OpenException extends SQLTransientConnectionException {
+		private static final long serialVersionUID = 1L;
+
+		public OpenException(String reason) {
+			super(reason, "08001");
+		}
+	}
+}
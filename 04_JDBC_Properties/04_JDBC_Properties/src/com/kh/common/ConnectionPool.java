@@ -0,0 +1,200 @@
+package com.kh.common;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * ConnectionPool : 접속주소(url) 하나에 대해 다 쓴 커넥션을 닫지않고 모아뒀다가(idle) 다음 요청에 다시 빌려주는 객체
+ *
+ * 요청마다 DriverManager.getConnection()으로 새로 접속하면 매번 TCP 연결 + 로그인 과정을 거치게 된다.
+ * => 반납된 커넥션을 최대 maxIdle개까지 보관해두고 재사용한다.
+ * => 동시에 빌려갈수 있는 갯수는 Bulkhead가 제한하므로 여기서는 보관 갯수만 관리한다.
+ * => idleTimeoutMillis보다 오래 보관된 커넥션은 DB쪽에서 끊었을수 있으므로 닫고 새로 접속한다.
+ * */
+public class ConnectionPool {
+
+	private final String url;
+	private final String username;
+	private final String password;
+
+	private volatile int maxIdle;
+	private volatile long idleTimeoutMillis;
+
+	// 보관중인 커넥션 (최근에 반납된 것이 앞쪽 => 앞에서부터 꺼내서 재사용)
+	private final Deque<Idle> idle = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+
+	// 통계
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong reused = new AtomicLong();
+	private final AtomicLong closed = new AtomicLong();
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong borrowNanos = new AtomicLong();
+	private final AtomicLong maxBorrowNanos = new AtomicLong();
+
+	public ConnectionPool(String url, String username, String password, int maxIdle, long idleTimeoutMillis) {
+		this.url = url;
+		this.username = username;
+		this.password = password;
+		this.maxIdle = maxIdle;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	/**
+	 * 커넥션을 빌려주는 메소드 => 보관중인 커넥션이 있다면 재사용, 없다면 새로 접속
+	 */
+	public Connection borrow() throws SQLException {
+		long start = System.nanoTime();
+		try {
+			Connection conn = pollIdle();
+			if(conn == null) {
+				conn = DriverManager.getConnection(url, username, password);
+				created.incrementAndGet();
+			}else {
+				reused.incrementAndGet();
+			}
+			active.incrementAndGet();
+			return conn;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			borrowCount.incrementAndGet();
+			borrowNanos.addAndGet(elapsed);
+			maxBorrowNanos.accumulateAndGet(elapsed, Math::max);
+		}
+	}
+
+	/**
+	 * 다 쓴 커넥션을 돌려받는 메소드 => 보관할 자리가 있다면 보관, 없다면 닫음
+	 */
+	public void giveBack(Connection conn) {
+		active.decrementAndGet();
+		try {
+			if(conn.isClosed()) {
+				return;
+			}
+			// 다음 사용자를 위해 처음 상태로 (트랜잭션이 남아있다면 취소)
+			if(!conn.getAutoCommit()) {
+				conn.rollback();
+				conn.setAutoCommit(true);
+			}
+			if(idleCount.incrementAndGet() <= maxIdle) {
+				idle.addFirst(new Idle(conn, System.currentTimeMillis()));
+				return;
+			}
+			idleCount.decrementAndGet();
+		} catch (SQLException e) {
+			// 상태를 되돌릴수 없는 커넥션은 보관하지 않고 닫는다.
+		}
+		closeQuietly(conn);
+	}
+
+	// 보관중인 커넥션을 하나 꺼내는 메소드 (너무 오래 보관된 것은 닫음)
+	private Connection pollIdle() {
+		Idle i;
+		while((i = idle.pollFirst()) != null) {
+			idleCount.decrementAndGet();
+			if(System.currentTimeMillis() - i.since < idleTimeoutMillis) {
+				try {
+					if(!i.conn.isClosed()) {
+						return i.conn;
+					}
+				} catch (SQLException e) {
+					// 닫고 다음것
+				}
+			}
+			closeQuietly(i.conn);
+		}
+		return null;
+	}
+
+	/**
+	 * 보관 갯수를 바꾸는 메소드 (줄어든 만큼 보관중인 커넥션을 닫음)
+	 */
+	public void resize(int maxIdle, long idleTimeoutMillis) {
+		this.maxIdle = maxIdle;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		while(idleCount.get() > maxIdle) {
+			Idle i = idle.pollLast();
+			if(i == null) break;
+			idleCount.decrementAndGet();
+			closeQuietly(i.conn);
+		}
+	}
+
+	/**
+	 * 보관중인 커넥션을 모두 닫는 메소드 (설정이 바뀌어서 더이상 쓰지 않는 풀)
+	 */
+	public void clear() {
+		resize(0, idleTimeoutMillis);
+	}
+
+	private void closeQuietly(Connection conn) {
+		try {
+			conn.close();
+			closed.incrementAndGet();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	public long getIdleTimeoutMillis() {
+		return idleTimeoutMillis;
+	}
+
+	// 빌려가서 사용중인 커넥션 수
+	public int getActive() {
+		return active.get();
+	}
+
+	// 보관중인 커넥션 수
+	public int getIdle() {
+		return Math.max(0, idleCount.get());
+	}
+
+	public long getCreated() {
+		return created.get();
+	}
+
+	public long getReused() {
+		return reused.get();
+	}
+
+	public long getClosed() {
+		return closed.get();
+	}
+
+	// 커넥션을 빌려주기까지 걸린 평균시간 (새로 접속한 경우 포함)
+	public double getAverageBorrowMillis() {
+		long count = borrowCount.get();
+		return count == 0 ? 0 : borrowNanos.get() / 1_000_000.0 / count;
+	}
+
+	public double getMaxBorrowMillis() {
+		return maxBorrowNanos.get() / 1_000_000.0;
+	}
+
+	// 보관중인 커넥션 + 보관을 시작한 시간
+	private static class Idle {
+		final Connection conn;
+		final long since;
+
+		Idle(Connection conn, long since) {
+			this.conn = conn;
+			this.since = since;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package com.kh.common;
+
+import java.sql.SQLException;
+
+/*
+ * DataAccessException : 서비스에서 DB작업이 최종적으로 실패했을때 컨트롤러에게 알려주기 위한 예외
+ * - transient가 true라면 일시적인 오류(잠시 후 다시 시도하면 성공할수 있음)
+ * */
+public class DataAccessException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean transientError;
+
+	public DataAccessException(SQLException cause) {
+		super(cause.getMessage(), cause);
+		this.transientError = SqlStates.isTransient(cause);
+	}
+
+	public boolean isTransient() {
+		return transientError;
+	}
+
+	@Override
+	public synchronized SQLException getCause() {
+		return (SQLException) super.getCause();
+	}
+}
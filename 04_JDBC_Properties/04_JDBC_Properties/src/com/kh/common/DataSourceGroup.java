@@ -0,0 +1,243 @@
+package com.kh.common;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * DataSourceGroup : 하나의 primary(쓰기용) DB와 0개 이상의 replica(읽기 전용) DB 접속정보를 묶어서 관리하는 객체
+ *
+ * - 쓰기(INSERT/UPDATE/DELETE)는 항상 primary로 접속
+ * - 읽기(SELECT)는 replica가 설정되어 있다면 replica들 중 하나를 골라서 접속
+ *   > roundrobin  : 순서대로 돌아가면서 선택
+ *   > leastloaded : 현재 빌려간(사용중인) 커넥션 수가 가장 적은 replica를 선택
+ *
+ * driver.properties 예시)
+ *   url=jdbc:oracle:thin:@primary:1521:xe
+ *   replica.url=jdbc:oracle:thin:@replica1:1521:xe,jdbc:oracle:thin:@replica2:1521:xe
+ *   replica.balance=leastloaded
+ *
+ * 접속주소마다 ConnectionPool을 하나씩 두고 반납된 커넥션을 재사용한다.
+ *   pool.maxIdle=8                 (접속주소별로 보관할 커넥션 수, 0이면 매번 새로 접속)
+ *   pool.idleTimeout.millis=300000 (이보다 오래 보관된 커넥션은 닫고 새로 접속)
+ * */
+public class DataSourceGroup {
+
+	public static final String ROUND_ROBIN = "roundrobin";
+	public static final String LEAST_LOADED = "leastloaded";
+
+	// 빌려준 커넥션이 primary 커넥션임을 나타내는 순번
+	private static final int PRIMARY = -1;
+
+	private final String driver;
+	private final String url;
+	private final List<String> replicaUrls;
+	private final String balance;
+
+	// 접속주소별 커넥션 풀
+	private final ConnectionPool primaryPool;
+	private final ConnectionPool[] replicaPools;
+	// primary 풀 + replica 풀 (지표 출력시 매번 만들지 않도록 미리 만들어둠)
+	private final List<ConnectionPool> pools;
+
+	// 순서대로 돌아가며 고르기 위한 카운터
+	private final AtomicInteger next = new AtomicInteger();
+	// replica별 현재 사용중인 커넥션 수
+	private final AtomicInteger[] active;
+	// 빌려준 커넥션 => 몇번 replica인지(primary라면 -1) (반납시 사용중 갯수를 줄이고 알맞은 풀에 돌려주기 위해)
+	private final Map<Connection, Integer> leases = new ConcurrentHashMap<>();
+
+	public DataSourceGroup(String driver, String url, String username, String password,
+							List<String> replicaUrls, String balance, int maxIdle, long idleTimeoutMillis) {
+		this.driver = driver;
+		this.url = url;
+		this.replicaUrls = replicaUrls;
+		this.balance = balance;
+		this.primaryPool = new ConnectionPool(url, username, password, maxIdle, idleTimeoutMillis);
+		this.replicaPools = new ConnectionPool[replicaUrls.size()];
+		this.active = new AtomicInteger[replicaUrls.size()];
+		for(int i = 0; i < active.length; i++) {
+			replicaPools[i] = new ConnectionPool(replicaUrls.get(i), username, password, maxIdle, idleTimeoutMillis);
+			active[i] = new AtomicInteger();
+		}
+		List<ConnectionPool> all = new ArrayList<>();
+		all.add(primaryPool);
+		all.addAll(Arrays.asList(replicaPools));
+		this.pools = Collections.unmodifiableList(all);
+	}
+
+	/**
+	 * Properties 객체로부터 접속정보를 뽑아서 DataSourceGroup 객체를 만들어주는 메소드
+	 * @param prop : driver.properties를 읽어들인 Properties 객체
+	 * @param prefix : 키 앞에 붙는 접두어 (없다면 "")
+	 * @return 생성된 DataSourceGroup 객체
+	 */
+	public static DataSourceGroup load(Properties prop, String prefix) {
+		List<String> replicas = new ArrayList<>();
+		String replicaUrl = prop.getProperty(prefix + "replica.url", "");
+		for(String r : replicaUrl.split(",")) {
+			if(!r.trim().isEmpty()) {
+				replicas.add(r.trim());
+			}
+		}
+
+		return new DataSourceGroup(prop.getProperty("driver"),
+									prop.getProperty(prefix + "url"),
+									prop.getProperty(prefix + "username", prop.getProperty("username")),
+									prop.getProperty(prefix + "password", prop.getProperty("password")),
+									replicas,
+									prop.getProperty(prefix + "replica.balance", ROUND_ROBIN).trim(),
+									Integer.parseInt(prop.getProperty("pool.maxIdle", "8").trim()),
+									Long.parseLong(prop.getProperty("pool.idleTimeout.millis", "300000").trim()));
+	}
+
+	/**
+	 * Properties 객체로부터 샤드별 DataSourceGroup 목록을 만들어주는 메소드
+	 * shard.count가 없거나 0이라면 샤딩을 사용하지 않는것으로 보고 기본 접속정보(url) 하나만 담아서 반환한다.
+	 *
+	 * 샤딩 설정 예시)
+	 *   shard.count=2
+	 *   shard.0.url=jdbc:oracle:thin:@db0:1521:xe
+	 *   shard.1.url=jdbc:oracle:thin:@db1:1521:xe
+	 *   shard.1.replica.url=jdbc:oracle:thin:@db1-replica:1521:xe
+	 * @param prop : driver.properties를 읽어들인 Properties 객체
+	 * @return 샤드 순번 순서대로 담긴 DataSourceGroup 목록
+	 */
+	public static List<DataSourceGroup> loadAll(Properties prop) {
+		List<DataSourceGroup> groups = new ArrayList<>();
+		int count = Integer.parseInt(prop.getProperty("shard.count", "0").trim());
+		if(count <= 0) {
+			groups.add(load(prop, ""));
+		}else {
+			for(int i = 0; i < count; i++) {
+				groups.add(load(prop, "shard." + i + "."));
+			}
+		}
+		return groups;
+	}
+
+	/**
+	 * primary DB와 연결된 Connection 객체를 풀에서 빌려서 반환해주는 메소드
+	 * => 다 쓴 커넥션은 release()로 돌려줘야 한다.(JDBCTemplate.close()에서 호출)
+	 */
+	public Connection getPrimaryConnection() throws ClassNotFoundException, SQLException {
+		Class.forName(driver);
+		Connection conn = primaryPool.borrow();
+		leases.put(conn, PRIMARY);
+		return conn;
+	}
+
+	/**
+	 * replica DB들 중 하나와 연결된 Connection 객체를 풀에서 빌려서 반환해주는 메소드
+	 * replica가 설정되어 있지 않다면 primary와 연결된 Connection을 반환한다.
+	 */
+	public Connection getReplicaConnection() throws ClassNotFoundException, SQLException {
+		if(!hasReplica()) {
+			return getPrimaryConnection();
+		}
+
+		Class.forName(driver);
+
+		int index = choose();
+		active[index].incrementAndGet();
+		try {
+			Connection conn = replicaPools[index].borrow();
+			leases.put(conn, index);
+			return conn;
+		} catch (SQLException e) {
+			active[index].decrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * 이 그룹에서 빌려간 Connection을 풀에 돌려주는 메소드 (replica 커넥션이라면 사용중인 갯수도 줄여줌)
+	 * @return 이 그룹에서 빌려간 커넥션이었다면 true (아니라면 아무것도 하지 않고 false)
+	 */
+	public boolean release(Connection conn) {
+		Integer index = leases.remove(conn);
+		if(index == null) {
+			return false;
+		}
+		if(index == PRIMARY) {
+			primaryPool.giveBack(conn);
+		}else {
+			active[index].decrementAndGet();
+			replicaPools[index].giveBack(conn);
+		}
+		return true;
+	}
+
+	/**
+	 * 모든 풀의 보관 갯수를 바꾸는 메소드 (JMX에서 실행중에 호출)
+	 */
+	public void resizePools(int maxIdle, long idleTimeoutMillis) {
+		for(ConnectionPool pool : getPools()) {
+			pool.resize(maxIdle, idleTimeoutMillis);
+		}
+	}
+
+	/**
+	 * 보관중인 커넥션을 모두 닫는 메소드 (설정이 바뀌어서 새 그룹으로 교체될때)
+	 * => 빌려가서 사용중인 커넥션은 반납될때 닫힌다.
+	 */
+	public void clearPools() {
+		for(ConnectionPool pool : getPools()) {
+			pool.clear();
+		}
+	}
+
+	/**
+	 * primary 풀 + replica 풀 목록
+	 */
+	public List<ConnectionPool> getPools() {
+		return pools;
+	}
+
+	// 설정된 분배방식에 따라 사용할 replica의 순번을 골라주는 메소드
+	private int choose() {
+		if(LEAST_LOADED.equalsIgnoreCase(balance)) {
+			// 사용중인 커넥션이 가장 적은 replica, 같다면 순서대로 돌아가면서 선택
+			int start = Math.floorMod(next.getAndIncrement(), active.length);
+			int best = start;
+			for(int i = 1; i < active.length; i++) {
+				int index = (start + i) % active.length;
+				if(active[index].get() < active[best].get()) {
+					best = index;
+				}
+			}
+			return best;
+		}
+		return Math.floorMod(next.getAndIncrement(), replicaUrls.size());
+	}
+
+	public boolean hasReplica() {
+		return !replicaUrls.isEmpty();
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public List<String> getReplicaUrls() {
+		return replicaUrls;
+	}
+
+	public String getBalance() {
+		return balance;
+	}
+
+	/**
+	 * replica별 현재 사용중인 커넥션 갯수
+	 */
+	public int getActiveCount(int replicaIndex) {
+		return active[replicaIndex].get();
+	}
+}
@@ -1,14 +1,21 @@
 package com.kh.common;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.kh.common.jfr.ConnectionAcquireEvent;
+import com.kh.common.jmx.Jmx;
+import com.kh.common.metrics.MetricsServer;
 
 public class JDBCTemplate {
 
@@ -30,49 +37,367 @@ public class JDBCTemplate {
 	 * 
 	 * */
 	
+	// driver.properties를 읽어서 만든 샤드별 접속정보 묶음(primary + replica)
+	// => 샤딩을 사용하지 않는다면 1개만 담겨있음
+	// => 파일이 수정되면(최종 수정시간이 바뀌면) 다시 읽어들여서 재구동 없이 반영된다.
+	// => 수정여부는 CHECK_INTERVAL_MILLIS에 한번만 확인한다. (커넥션 요청마다 파일 상태를 읽지 않도록)
+	private static final long CHECK_INTERVAL_MILLIS = 1000;
+	private static volatile List<DataSourceGroup> shards;
+	private static long loadedAt = -1;
+	private static volatile long checkedAt;
+	
+	// 리샤딩(샤드간 데이터 이동) 진행중 여부 => true라면 서비스가 다른 샤드까지 찾아본다.
+	private static boolean migrating;
+	
+	// 쓰기 작업 직후에는 방금 쓴 데이터를 replica가 아직 못받았을 수 있으므로
+	// 일정시간(readYourWrites.millis) 동안은 읽기 요청도 primary로 보내준다.
+	private static long readYourWritesMillis;
+	private static final ThreadLocal<Long> lastWriteAt = new ThreadLocal<>();
+	
+	// 실행시 MEMBER 테이블이 없다면 만들어서 넣어둘 가상 회원 수 (내장 DB로 성능 테스트할때)
+	private static int bootstrapMembers;
+	
+	// 회원 변경내역(MEMBER_CHANGE)을 남길지 여부와, 변경내역 조회시 제외할 최근 시간(ms)
+	// => 아직 commit되지 않은 트랜잭션의 변경내역을 건너뛰지 않도록 (ChangeFeedService)
+	private static boolean changeFeedEnabled;
+	private static long changeFeedLagMillis;
+	
+	// 회원정보 변경을 모아뒀다가 나중에 한번에 쓰는 주기(ms, 0이면 사용안함), 묶음 크기, 기록(journal) 폴더
+	private static long writeBehindMillis;
+	private static int writeBehindBatch;
+	private static String writeBehindJournal;
+	
+	// 회원 저장소 (jdbc : DB / log : 내장 저장소 MemberLog)
+	private static String store;
+	private static String storeDir;
+	private static boolean storeSync;
+	private static long storeCompactMillis;
+	
+	// 회원 캐시 스냅샷 파일, 저장 주기(ms, 0이면 사용안함), 이보다 오래된 스냅샷은 읽지 않음(ms)
+	private static String cacheSnapshotFile;
+	private static long cacheSnapshotMillis;
+	private static long cacheSnapshotMaxAgeMillis;
+	// DB 장애중 아이디검색용 회원 색인 파일, 다시 만드는 주기(ms, 0이면 사용안함)
+	private static String degradedIndexFile;
+	private static long degradedIndexMillis;
+	// 회원 데이터가 있는 곳 (저장소 + 샤드별 접속주소) => 다른 DB의 스냅샷을 읽지 않도록
+	private static String sourceId;
+	
+	// 빌려준 커넥션 => 어떤 작업종류(Bulkhead)의 몫에서 빌려갔는지
+	private static final Map<Connection, Bulkhead> bulkheadLeases = new ConcurrentHashMap<>();
+	
 	// 공통부분 뽑아내기
-	// 1. DB와 접속된 Connection객체를 생성해서 반환시켜주는 메소드
+	// 1. DB와 접속된 Connection객체를 생성해서 반환시켜주는 메소드 (쓰기용 => primary)
 	public static Connection getConnection() {
-		// 동적 코딩방식을 적용하기위해서 Properties 객체를 생성한다.
-		Properties prop = new Properties();
-		
-		
-		
+		return getConnection(0);
+	}
+	
+	// 1_1. 읽기 전용(SELECT) 작업용 Connection 객체를 생성해서 반환시켜주는 메소드
+	//      => replica가 설정되어 있다면 replica로, 최근에 쓰기작업을 했다면 primary로 연결
+	public static Connection getReadConnection() {
+		return getReadConnection(0);
+	}
+	
+	// 1_2. 전달받은 순번의 샤드(primary)와 접속된 Connection 객체를 반환시켜주는 메소드
+	public static Connection getConnection(int shard) {
+		try {
+			return openConnection(shard);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	// 1_3. 전달받은 순번의 샤드에서 읽기 전용 Connection 객체를 반환시켜주는 메소드
+	public static Connection getReadConnection(int shard) {
+		try {
+			return openReadConnection(shard);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	// 1_2, 1_3과 같지만 실패시 null 대신 예외를 던져주는 메소드
+	// => 서비스에서 일시적인 오류인지 판단해서 재시도/차단(Resilience)할수 있도록
+	public static Connection openConnection(int shard) throws SQLException {
+		return open(shard, false);
+	}
+	
+	public static Connection openReadConnection(int shard) throws SQLException {
+		return open(shard, true);
+	}
+	
+	// 현재 스레드의 작업종류(Bulkhead) 몫에서 커넥션 사용권한을 얻은 후 DB와 연결하는 메소드
+	private static Connection open(int shard, boolean readOnly) throws SQLException {
 		// Connection 객체를 담을 그릇 생성
 		Connection conn = null;
+		Bulkhead bulkhead = null;
+		boolean permitted = false;
 		
 		// 연결시키기 => 1,2번 스텝 진행
-		
+		long start = System.nanoTime();
+		ConnectionAcquireEvent event = ConnectionAcquireEvent.start(); // JFR 기록중일때만 생성됨
+		Span span = Tracer.start("JDBCTemplate.open", Tracer.JDBC)
+						.attr("shard", shard).attr("readOnly", readOnly).attr("workload", Bulkhead.getWorkload());
 		try {
-			// prop으로부터 load메소드를 이용해서 driver.properties에 있는 정보를 읽어들임.
-			prop.load(new FileInputStream("resources/driver.properties"));
+			DataSourceGroup g = getShards().get(shard);
 			
-			// prop로부터 getProperty함수를 이용해서 각 키값에 해당하는 밸류값을 뽑아서 배치
-			Class.forName(prop.getProperty("driver"));
+			bulkhead = Bulkhead.current();
+			bulkhead.acquire();
+			permitted = true;
 			
-			conn = DriverManager.getConnection(prop.getProperty("url"),
-												prop.getProperty("username"),
-												prop.getProperty("password"));
+			if(readOnly && !recentlyWrote()) {
+				conn = g.getReplicaConnection();
+			}else {
+				conn = g.getPrimaryConnection();
+			}
+			
+			// 반납(close)될때 사용권한도 같이 돌려주기 위해 기록
+			bulkheadLeases.put(conn, bulkhead);
 			
+			// 커넥션을 얻기까지 걸린시간 (느린 SQL문 기록에 같이 남김)
+			QueryMetrics.connectionWait(System.nanoTime() - start);
 		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
-		} catch (SQLException e) {
-			e.printStackTrace();
+			throw new SQLException("JDBC 드라이버를 찾을수 없습니다.", e);
 		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+			throw new SQLException("driver.properties 파일을 찾을수 없습니다.", e);
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new SQLException("driver.properties 파일을 읽을수 없습니다.", e);
+		} finally {
+			// 권한은 얻었는데 연결에 실패했다면 바로 돌려준다.
+			if(conn == null && permitted) {
+				bulkhead.release();
+			}
+			ConnectionAcquireEvent.finish(event, shard, readOnly, Bulkhead.getWorkload(), conn != null);
+			if(conn == null) {
+				span.error("커넥션을 얻지 못했습니다.");
+			}
+			span.close();
 		}
 		// Connection 객체 반환
 		return conn;
 	}
 	
+	// 1_4. 샤드 갯수 (샤딩을 사용하지 않는다면 1)
+	public static int getShardCount() {
+		try {
+			return getShards().size();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 1;
+		}
+	}
+	
+	// 1_5. 아이디가 저장될 샤드의 순번 => USERID의 해시값을 샤드 갯수로 나눈 나머지
+	public static int shardOf(String userId) {
+		return shardOf(userId, getShardCount());
+	}
+	
+	public static int shardOf(String userId, int shardCount) {
+		// String.hashCode()는 자바 명세로 계산식이 고정되어 있어서 JVM이 바뀌어도 같은 값이 나온다.
+		return Math.floorMod(userId.hashCode(), shardCount);
+	}
+	
+	// 1_6. 리샤딩 진행중인지 여부 (driver.properties의 shard.migrating)
+	public static boolean isMigrating() {
+		getShardCount();
+		return migrating;
+	}
+	
+	// 1_7. 실행시 만들어둘 가상 회원 수 (driver.properties의 bootstrap.members, 0이면 사용안함)
+	public static int getBootstrapMembers() {
+		getShardCount();
+		return bootstrapMembers;
+	}
+	
+	// 1_8. 회원 변경내역 사용여부 (driver.properties의 changefeed.enabled)
+	public static boolean isChangeFeedEnabled() {
+		getShardCount();
+		return changeFeedEnabled;
+	}
+	
+	public static long getChangeFeedLagMillis() {
+		getShardCount();
+		return changeFeedLagMillis;
+	}
+	
+	// 1_9. 회원정보 변경 모아쓰기 (driver.properties의 writeBehind.xxx)
+	public static long getWriteBehindMillis() {
+		getShardCount();
+		return writeBehindMillis;
+	}
+	
+	public static int getWriteBehindBatch() {
+		getShardCount();
+		return writeBehindBatch;
+	}
+	
+	public static String getWriteBehindJournal() {
+		getShardCount();
+		return writeBehindJournal;
+	}
+	
+	// 1_10. 회원 저장소 (driver.properties의 store, store.log.xxx)
+	public static String getStore() {
+		getShardCount();
+		return store;
+	}
+	
+	public static String getStoreDir() {
+		getShardCount();
+		return storeDir;
+	}
+	
+	public static boolean isStoreSync() {
+		getShardCount();
+		return storeSync;
+	}
+	
+	public static long getStoreCompactMillis() {
+		getShardCount();
+		return storeCompactMillis;
+	}
+	
+	// 1_11. 회원 캐시 스냅샷 (driver.properties의 cache.member.snapshot.xxx)
+	public static String getCacheSnapshotFile() {
+		getShardCount();
+		return cacheSnapshotFile;
+	}
+	
+	public static long getCacheSnapshotMillis() {
+		getShardCount();
+		return cacheSnapshotMillis;
+	}
+	
+	public static long getCacheSnapshotMaxAgeMillis() {
+		getShardCount();
+		return cacheSnapshotMaxAgeMillis;
+	}
+	
+	// 1_12. 회원 데이터가 있는 곳 => "jdbc:샤드0주소,샤드1주소" 또는 "log:폴더"
+	public static String getSourceId() {
+		getShardCount();
+		return sourceId;
+	}
+	
+	// 1_13. DB 장애중 아이디검색용 회원 색인 (driver.properties의 degraded.index.xxx)
+	public static String getDegradedIndexFile() {
+		getShardCount();
+		return degradedIndexFile;
+	}
+	
+	public static long getDegradedIndexMillis() {
+		getShardCount();
+		return degradedIndexMillis;
+	}
+	
+	// driver.properties로부터 접속정보를 읽어들이는 메소드
+	// => 모든 커넥션 요청이 거치므로 잠금 없이 읽어둔 구성(shards)을 반환하고,
+	//    수정여부 확인(lastModified)은 CHECK_INTERVAL_MILLIS에 한번만 한다. (QueryCache와 같은 방식)
+	private static List<DataSourceGroup> getShards() throws IOException {
+		List<DataSourceGroup> current = shards;
+		if(current != null && System.currentTimeMillis() - checkedAt < CHECK_INTERVAL_MILLIS) {
+			return current;
+		}
+		return reloadIfModified();
+	}
+	
+	// 파일이 수정되었다면(또는 아직 읽지 않았다면) 다시 읽어들이는 메소드
+	private static synchronized List<DataSourceGroup> reloadIfModified() throws IOException {
+		long now = System.currentTimeMillis();
+		if(shards != null && now - checkedAt < CHECK_INTERVAL_MILLIS) {
+			return shards; // 기다리는 동안 다른 스레드가 확인함
+		}
+		checkedAt = now;
+		File file = new File("resources/driver.properties");
+		long modified = file.lastModified();
+		if(shards == null || modified != loadedAt) {
+			// 동적 코딩방식을 적용하기위해서 Properties 객체를 생성한다.
+			Properties prop = new Properties();
+			// prop으로부터 load메소드를 이용해서 driver.properties에 있는 정보를 읽어들임.
+			try(FileInputStream in = new FileInputStream(file)) {
+				prop.load(in);
+			}
+			List<DataSourceGroup> old = shards;
+			List<DataSourceGroup> loaded = DataSourceGroup.loadAll(prop);
+			Bulkhead.configure(prop);
+			Resilience.configure(prop);
+			SlowQueryLog.configure(prop);
+			Tracer.configure(prop);
+			QueryCache.configure(prop);
+			TtlCache.configure(prop);
+			Jmx.configure(prop);
+			Jmx.refresh(loaded);
+			MetricsServer.configure(prop, loaded);
+			migrating = Boolean.parseBoolean(prop.getProperty("shard.migrating", "false").trim());
+			readYourWritesMillis = Long.parseLong(prop.getProperty("readYourWrites.millis", "0").trim());
+			bootstrapMembers = Integer.parseInt(prop.getProperty("bootstrap.members", "0").trim());
+			changeFeedEnabled = Boolean.parseBoolean(prop.getProperty("changefeed.enabled", "false").trim());
+			changeFeedLagMillis = Long.parseLong(prop.getProperty("changefeed.lag.millis", "15000").trim());
+			writeBehindMillis = Long.parseLong(prop.getProperty("writeBehind.flush.millis", "0").trim());
+			writeBehindBatch = Integer.parseInt(prop.getProperty("writeBehind.batch.size", "500").trim());
+			writeBehindJournal = prop.getProperty("writeBehind.journal", "").trim();
+			store = prop.getProperty("store", "jdbc").trim();
+			storeDir = prop.getProperty("store.log.dir", "data/member").trim();
+			storeSync = Boolean.parseBoolean(prop.getProperty("store.log.sync", "true").trim());
+			storeCompactMillis = Long.parseLong(prop.getProperty("store.log.compact.millis", "60000").trim());
+			cacheSnapshotFile = prop.getProperty("cache.member.snapshot.file", "").trim();
+			cacheSnapshotMillis = Long.parseLong(prop.getProperty("cache.member.snapshot.millis", "0").trim());
+			cacheSnapshotMaxAgeMillis = Long.parseLong(prop.getProperty("cache.member.snapshot.maxAge.millis", "600000").trim());
+			degradedIndexFile = prop.getProperty("degraded.index.file", "").trim();
+			degradedIndexMillis = Long.parseLong(prop.getProperty("degraded.index.refresh.millis", "0").trim());
+			StringBuilder source = new StringBuilder(store).append(':');
+			if("log".equalsIgnoreCase(store)) {
+				source.append(storeDir);
+			}else {
+				for(int i = 0; i < loaded.size(); i++) {
+					source.append(i > 0 ? "," : "").append(loaded.get(i).getUrl());
+				}
+			}
+			sourceId = source.toString();
+			loadedAt = modified;
+			// 설정값을 모두 바꾼 후에 마지막으로 바꾼다. => 잠금 없이 새 shards를 읽은 스레드는 위의 설정값도 새것으로 봄 (volatile)
+			shards = loaded;
+			// 이전 구성의 풀에 보관중인 커넥션은 닫는다. (사용중인 커넥션은 반납될때 닫힘)
+			if(old != null) {
+				for(DataSourceGroup g : old) {
+					g.clearPools();
+				}
+			}
+		}
+		return shards;
+	}
+	
+	// 현재 스레드(사용자)가 readYourWrites.millis 이내에 쓰기작업을 했는지 확인하는 메소드
+	private static boolean recentlyWrote() {
+		Long at = lastWriteAt.get();
+		return at != null && System.currentTimeMillis() - at < readYourWritesMillis;
+	}
+	
 	//2. 전달받은 JDBC용 객체를 반납시켜주는 메소드 (객체별로)
 	//2_1) Connection객체를 전달받아서 반납시켜주는 메소드
+	//      => 풀에서 빌린 커넥션이라면 닫지 않고 풀에 돌려준다.
 	public static void close(Connection conn) {
 		
 		try {
-			if(conn != null && !conn.isClosed()) {
+			if(conn == null) {
+				return;
+			}
+			Bulkhead bulkhead = bulkheadLeases.remove(conn);
+			if(bulkhead != null) {
+				bulkhead.release();
+			}
+			List<DataSourceGroup> groups = shards;
+			if(groups != null) {
+				for(DataSourceGroup g : groups) {
+					if(g.release(conn)) {
+						return;
+					}
+				}
+			}
+			// 풀에서 빌린 커넥션이 아니라면(설정이 바뀌기 전에 빌려간 커넥션 등) 닫는다.
+			if(!conn.isClosed()) {
 				conn.close();
 			}
 		} catch (SQLException e) {
@@ -83,6 +408,11 @@ public class JDBCTemplate {
 	//2_2 Statement 객체를 전달받아서 반납시켜주는 메소드(오버로딩적용)
 	//    => 다형성으로 인해 PreparedStatement 객체 또한 매개변수로 전달이 가능함.(UpCasting)
 	public static void close(Statement stmt) {
+		// 요청 취소시 cancel() 대상에서 빼기, 실행시간 측정 끝
+		if(stmt != null) {
+			CancelHandle.unregister(stmt);
+			QueryMetrics.end(stmt);
+		}
 		try {
 			if(stmt != null && !stmt.isClosed()) {
 				stmt.close();
@@ -105,13 +435,25 @@ public class JDBCTemplate {
 	// 3_1) commit메소드
 	public static void commit(Connection conn) {
 		try {
-			if(conn != null && !conn.isClosed())
+			if(conn != null && !conn.isClosed()) {
 				conn.commit();
+				// 쓰기작업 시간을 기록 => 잠시동안 이 스레드의 읽기는 primary로
+				lastWriteAt.set(System.currentTimeMillis());
+			}
 		} catch (SQLException e) {
 			e.printStackTrace();
 		}
 	}
-	//3_2 rollback
+	//3_2 commit (실패하면 예외 발생)
+	//    => commit()은 실패해도 예외를 삼키므로 실패를 알아야 하는 곳에서 사용
+	//       (ex. MEMBER와 MEMBER_CHANGE를 한 트랜잭션으로 쓰는 경우 => 실패를 성공으로 알리면 반납시 rollback되어 둘다 사라짐)
+	public static void commitOrThrow(Connection conn) throws SQLException {
+		if(conn != null) {
+			conn.commit();
+			lastWriteAt.set(System.currentTimeMillis());
+		}
+	}
+	//3_3 rollback
 	public static void rollback(Connection conn) {
 		try {
 			if(conn != null && !conn.isClosed())
@@ -0,0 +1,181 @@
+package com.kh.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * LatencyHistogram : 실행시간(나노초)의 분포를 기록하는 히스토그램 (HdrHistogram 방식)
+ *
+ * - 값의 크기에 따라 구간 폭이 2배씩 넓어지는 구간(bucket)에 나눠서 갯수만 센다. (log-linear)
+ *   => 한 구간 안을 64칸으로 다시 나누므로 오차는 항상 1.6%(1/64) 이하
+ *   => 1ns ~ 약 18분(2^40ns)까지 2,240칸의 long 배열 하나로 기록 가능 (LENGTH = (40 - SUB_BITS + 2) x 64, 약 17.5KB)
+ * - record()는 배열의 한칸을 원자적으로 1 증가시키는 것이 전부라서 객체를 생성하지 않는다.(allocation-free)
+ * - 백분위수(p50, p99 등)는 snapshot()으로 복사한 후에 계산한다.
+ * */
+public class LatencyHistogram {
+
+	// 구간 하나를 나누는 칸 수 = 2^SUB_BITS / 2
+	private static final int SUB_BITS = 7;
+	private static final int SUB_COUNT = 1 << SUB_BITS;   // 128
+	private static final int HALF_COUNT = SUB_COUNT >> 1; // 64
+
+	// 기록할수 있는 최대값 (이보다 큰 값은 최대값으로 기록)
+	private static final long MAX_VALUE = (1L << 40) - 1;
+	private static final int LENGTH = indexOf(MAX_VALUE) + 1; // 2240
+
+	private final AtomicLongArray counts = new AtomicLongArray(LENGTH);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * 실행시간 하나를 기록하는 메소드
+	 * @param nanos : 실행시간(나노초)
+	 */
+	public void record(long nanos) {
+		long v = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+		counts.incrementAndGet(indexOf(v));
+		totalCount.incrementAndGet();
+		totalNanos.addAndGet(v);
+
+		long max = maxNanos.get();
+		while(v > max && !maxNanos.compareAndSet(max, v)) {
+			max = maxNanos.get();
+		}
+	}
+
+	/**
+	 * 기록된 값들을 모두 지우는 메소드
+	 */
+	public void reset() {
+		for(int i = 0; i < LENGTH; i++) {
+			counts.set(i, 0);
+		}
+		totalCount.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+	}
+
+	/**
+	 * 현재까지 기록된 값들을 복사해서 반환하는 메소드 (기록은 계속 진행됨)
+	 */
+	public Snapshot snapshot() {
+		long[] copy = new long[LENGTH];
+		long count = 0;
+		for(int i = 0; i < LENGTH; i++) {
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		return new Snapshot(copy, count, totalNanos.get(), maxNanos.get());
+	}
+
+	/**
+	 * 기록된 값들 중 각 상한값 이하인 값의 갯수를 세어주는 메소드 (Prometheus histogram의 le 구간)
+	 * => snapshot()처럼 배열을 복사하지 않고 기록중인 배열을 한번 훑는다.(기록이 계속되므로 약간 어긋날수 있음)
+	 * => 칸 하나는 그 칸의 가장 큰 값으로 보고 나누므로 상한값 근처는 1.6% 이내의 오차가 있다.
+	 * @param bounds : 상한값들(나노초, 오름차순)
+	 * @param out : 상한값별 누적 갯수를 담을 배열 (bounds와 같은 길이)
+	 * @return 전체 갯수 (+Inf 구간)
+	 */
+	public long cumulativeCounts(long[] bounds, long[] out) {
+		for(int b = 0; b < out.length; b++) {
+			out[b] = 0;
+		}
+		long total = 0;
+		int b = 0;
+		for(int i = 0; i < LENGTH; i++) {
+			long c = counts.get(i);
+			if(c == 0) continue;
+			total += c;
+			long v = highestValueAt(i);
+			while(b < bounds.length && bounds[b] < v) {
+				b++;
+			}
+			if(b < bounds.length) {
+				out[b] += c;
+			}
+		}
+		// 구간별 갯수 => 누적 갯수
+		for(int k = 1; k < out.length; k++) {
+			out[k] += out[k - 1];
+		}
+		return total;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	// 값이 기록될 칸의 순번
+	// => 0~127은 그대로, 그 이상은 상위 7비트만 남기고(exp만큼 오른쪽으로 밀어서) exp*64를 더한 위치
+	static int indexOf(long v) {
+		int exp = Math.max(0, 64 - Long.numberOfLeadingZeros(v) - SUB_BITS);
+		return (exp * HALF_COUNT) + (int) (v >>> exp);
+	}
+
+	// 칸 순번에 해당하는 값의 범위 중 가장 큰 값
+	static long highestValueAt(int index) {
+		if(index < SUB_COUNT) {
+			return index;
+		}
+		int exp = index / HALF_COUNT - 1;
+		long sub = index % HALF_COUNT + HALF_COUNT;
+		return ((sub + 1) << exp) - 1;
+	}
+
+	/*
+	 * 특정 시점에 복사된 히스토그램 => 백분위수, 평균 등을 계산
+	 * */
+	public static class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long totalNanos;
+		private final long maxNanos;
+
+		private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+			this.counts = counts;
+			this.count = count;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public double getMeanNanos() {
+			return count == 0 ? 0 : (double) totalNanos / count;
+		}
+
+		/**
+		 * 백분위수를 구하는 메소드
+		 * @param percentile : 0 ~ 100 (ex. 99.9)
+		 * @return 기록된 값들 중 percentile% 이하에 해당하는 값(나노초)
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if(count == 0) {
+				return 0;
+			}
+			long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+			long seen = 0;
+			for(int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if(seen >= target) {
+					return Math.min(highestValueAt(i), maxNanos);
+				}
+			}
+			return maxNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("count=%d, mean=%.3fms, p50=%.3fms, p90=%.3fms, p99=%.3fms, p99.9=%.3fms, max=%.3fms",
+					count, getMeanNanos() / 1e6, getValueAtPercentile(50) / 1e6, getValueAtPercentile(90) / 1e6,
+					getValueAtPercentile(99) / 1e6, getValueAtPercentile(99.9) / 1e6, maxNanos / 1e6);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.kh.common;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * MethodMetrics : View/Controller/Service 메소드별 실행시간과 실패 횟수를 기록하는 클래스
+ *
+ * Tracer.trace()/run()으로 감싼 메소드는 추적여부(trace.sample)와 상관없이 항상 여기에 집계된다.
+ * => SQL문 단위 통계(QueryMetrics)와 같이 보면 어느 계층에서 시간이 걸렸는지 알수 있다.
+ * */
+public class MethodMetrics {
+
+	// 메소드 이름(ex. MemberService.selectAll) => 통계
+	private static final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+	/**
+	 * 메소드 실행 한번을 기록하는 메소드
+	 * @param name : 메소드 이름
+	 * @param layer : 계층 (Tracer.VIEW, CONTROLLER, SERVICE ...)
+	 * @param nanos : 걸린시간
+	 * @param failed : 예외로 끝났는지 여부
+	 */
+	public static void record(String name, String layer, long nanos, boolean failed) {
+		Stats s = stats.get(name);
+		if(s == null) {
+			s = stats.computeIfAbsent(name, n -> new Stats(n, layer));
+		}
+		s.latency.record(nanos);
+		if(failed) {
+			s.errors.increment();
+		}
+	}
+
+	public static Collection<Stats> all() {
+		return stats.values();
+	}
+
+	/*
+	 * 메소드 하나에 대한 통계
+	 * */
+	public static class Stats {
+		private final String name;
+		private final String layer;
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final LongAdder errors = new LongAdder();
+
+		private Stats(String name, String layer) {
+			this.name = name;
+			this.layer = layer;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getLayer() {
+			return layer;
+		}
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		public long getErrors() {
+			return errors.sum();
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package com.kh.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * QueryCache : query.xml을 한번만 읽어두고 키별 SQL문, 제한시간(키.timeout), 가릴 위치홀더(키.mask)를 보관하는 클래스
+ *
+ * 이전에는 new MemberDao() 할때마다 query.xml을 다시 읽었다.(요청마다 파일 열기 + XML 분석)
+ * => 한번 읽은 내용을 보관해두고, 파일이 수정된 경우(최종 수정시간이 바뀐 경우)에만 다시 읽는다.
+ *    재구동 없이 SQL문을 바꿀수 있는 동적코딩방식은 그대로 유지된다.
+ * => 수정여부 확인도 요청마다 하지 않고 CHECK_INTERVAL_MILLIS에 한번만 한다.
+ *
+ * DB 종류별 SQL문(dialect) : driver.properties의 dialect가 oracle이 아니라면
+ * resources/query-dialect.xml(ex. query-h2.xml)을 같이 읽어서 같은 키의 SQL문을 덮어쓴다.
+ * => 문법이 다른 SQL문만 따로 적어두면 된다.
+ * */
+public class QueryCache {
+
+	private static final File FILE = new File("resources/query.xml");
+	private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+	private static String dialect = "oracle";
+	private static File dialectFile;
+
+	private static Properties prop;
+	private static long loadedAt = -1;
+	private static volatile long checkedAt;
+	// 키 => 분석된 SQL문 정보 (처음 요청된 키만 만들어서 보관)
+	private static volatile Map<String, Query> queries = new ConcurrentHashMap<>();
+
+	// 통계
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+	private static final AtomicLong reloads = new AtomicLong();
+
+	/**
+	 * driver.properties의 dialect 설정을 반영하는 메소드 (JDBCTemplate에서 설정을 읽을때 호출)
+	 * => 바뀌었다면 보관중인 SQL문을 비워서 다음 요청때 다시 읽도록 한다.
+	 */
+	public static synchronized void configure(Properties driverProp) {
+		String d = driverProp.getProperty("dialect", "oracle").trim().toLowerCase();
+		if(!d.equals(dialect)) {
+			dialect = d;
+			dialectFile = "oracle".equals(d) ? null : new File("resources/query-" + d + ".xml");
+			clear();
+		}
+	}
+
+	public static synchronized String getDialect() {
+		return dialect;
+	}
+
+	/**
+	 * query.xml의 키에 해당하는 SQL문 정보를 반환하는 메소드
+	 * @param key : query.xml에 적힌 SQL문의 키
+	 */
+	public static Query get(String key) throws SQLException {
+		long now = System.currentTimeMillis();
+		if(prop == null || now - checkedAt >= CHECK_INTERVAL_MILLIS) {
+			reloadIfModified(now);
+		}
+
+		Query q = queries.get(key);
+		if(q != null) {
+			hits.increment();
+			return q;
+		}
+		misses.increment();
+		return queries.computeIfAbsent(key, QueryCache::parse);
+	}
+
+	/**
+	 * 보관중인 SQL문을 모두 비우는 메소드 => 다음 요청시 query.xml을 다시 읽는다.
+	 */
+	public static synchronized void clear() {
+		prop = null;
+		loadedAt = -1;
+		queries = new ConcurrentHashMap<>();
+	}
+
+	// 파일이 수정되었다면 다시 읽어들이는 메소드
+	private static synchronized void reloadIfModified(long now) throws SQLException {
+		checkedAt = now;
+		long modified = lastModified();
+		if(prop != null && modified == loadedAt) {
+			return;
+		}
+		Properties p = new Properties();
+		try(FileInputStream in = new FileInputStream(FILE)) {
+			p.loadFromXML(in);
+		} catch (IOException e) {
+			throw new SQLException("query.xml 파일을 읽을수 없습니다.", e);
+		}
+		// DB 종류별 SQL문으로 덮어쓰기
+		if(dialectFile != null && dialectFile.isFile()) {
+			Properties overlay = new Properties();
+			try(FileInputStream in = new FileInputStream(dialectFile)) {
+				overlay.loadFromXML(in);
+			} catch (IOException e) {
+				throw new SQLException(dialectFile.getName() + " 파일을 읽을수 없습니다.", e);
+			}
+			p.putAll(overlay);
+		}
+		prop = p;
+		loadedAt = modified;
+		queries = new ConcurrentHashMap<>();
+		reloads.incrementAndGet();
+	}
+
+	// query.xml, query-dialect.xml 중 하나라도 수정되면 바뀌는 값
+	private static long lastModified() {
+		long modified = FILE.lastModified();
+		if(dialectFile != null) {
+			modified = modified * 31 + dialectFile.lastModified();
+		}
+		return modified;
+	}
+
+	// 키 하나에 대한 SQL문, 제한시간, 가릴 위치홀더 순번을 분석하는 메소드
+	private static synchronized Query parse(String key) {
+		String sql = prop.getProperty(key);
+
+		// "키.mask" => 느린 SQL문 기록시 가려야할 위치홀더 순번들(콤마로 구분)을 비트로 바꿈
+		String mask = prop.getProperty(key + ".mask");
+		long bits = 0;
+		if(mask != null) {
+			for(String index : mask.split(",")) {
+				bits |= 1L << Integer.parseInt(index.trim());
+			}
+		}
+
+		// 쿼리 제한시간(초) => 0이면 제한없음
+		String timeout = prop.getProperty(key + ".timeout", prop.getProperty("default.timeout", "0"));
+		return new Query(key, sql, Integer.parseInt(timeout.trim()), bits);
+	}
+
+	public static long getHits() {
+		return hits.sum();
+	}
+
+	public static long getMisses() {
+		return misses.sum();
+	}
+
+	public static long getReloads() {
+		return reloads.get();
+	}
+
+	public static int getSize() {
+		return queries.size();
+	}
+
+	/*
+	 * query.xml 키 하나에 해당하는 SQL문 정보
+	 * */
+	public static class Query {
+		private final String key;
+		private final String sql;
+		private final int timeout;
+		private final long mask;
+
+		private Query(String key, String sql, int timeout, long mask) {
+			this.key = key;
+			this.sql = sql;
+			this.timeout = timeout;
+			this.mask = mask;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		// 쿼리 제한시간(초)
+		public int getTimeout() {
+			return timeout;
+		}
+
+		// 가릴 위치홀더 순번들 (비트로 표시, 1 << 순번)
+		public long getMask() {
+			return mask;
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package com.kh.common;
+
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.kh.common.jfr.StatementExecuteEvent;
+import com.kh.common.jmx.Jmx;
+
+/*
+ * QueryMetrics : query.xml의 키(insertMember, selectAll ...)별로 SQL문의 실행시간, 처리된 행 수, 오류 수를 기록하는 클래스
+ *
+ * 기록 순서 (MemberDao, JDBCTemplate에서 호출)
+ *  1) begin(키, SQL문, stmt, mask) : Statement를 만들때 => 시작시간 기록
+ *  2) rows(행 수)     : SQL문이 성공적으로 끝났을때 => 조회/처리된 행 수 기록
+ *  3) end(stmt)       : Statement를 반납(close)할때 => 걸린시간 기록, rows()가 호출되지 않았다면 오류로 집계
+ *                       걸린시간이 slowQuery.millis 이상이라면 SlowQueryLog에 기록
+ *  begin ~ end 사이는 추적(Tracer)중인 요청의 DAO 구간으로도 기록된다.
+ *
+ * 요청마다 호출되는 부분이므로 객체를 새로 만들지 않는다.
+ * => 진행중인 정보는 스레드별로 하나씩만 만들어둔 Tracker 객체에 덮어쓰고
+ *    통계는 미리 만들어둔 카운터/히스토그램 배열에 더하기만 한다.
+ * */
+public class QueryMetrics {
+
+	// query.xml 키 => 통계
+	private static final Map<String, Stats> stats = new ConcurrentHashMap<>();
+	// 스레드별로 현재 실행중인 SQL문 정보
+	private static final ThreadLocal<Tracker> tracker = ThreadLocal.withInitial(Tracker::new);
+
+	/**
+	 * SQL문 실행 시작을 기록하는 메소드
+	 * @param key : query.xml 키
+	 * @param sql : 실행할 SQL문
+	 * @param stmt : SQL문을 실행할 Statement
+	 * @param mask : 느린 SQL문 기록시 가려야하는 위치홀더 순번들 (비트로 표시, 1 << 순번)
+	 */
+	public static void begin(String key, String sql, Statement stmt, long mask) {
+		Tracker t = tracker.get();
+		t.key = key;
+		t.sql = sql;
+		t.stmt = stmt;
+		t.mask = mask;
+		t.bindCount = 0;
+		t.start = System.nanoTime();
+		t.rows = -1;
+		// JFR 기록중이라면 이벤트 시작 (기록중이 아니라면 null)
+		t.event = StatementExecuteEvent.start();
+		// 추적중인 요청이라면 DAO 구간 시작 (추적중이 아니라면 아무것도 기록하지 않는 구간)
+		t.span = Tracer.start(key, Tracer.DAO);
+	}
+	
+	/**
+	 * 위치홀더에 셋팅된 값을 기록하는 메소드 (느린 SQL문 기록을 사용할때만 호출됨)
+	 */
+	public static void bind(int index, Object value) {
+		Tracker t = tracker.get();
+		if(index > 0 && index < t.binds.length) {
+			t.binds[index] = value;
+			t.bindCount = Math.max(t.bindCount, index);
+		}
+	}
+	
+	/**
+	 * 커넥션을 얻기까지 걸린시간(Bulkhead 대기 + DB 접속)을 기록하는 메소드 (JDBCTemplate에서 호출)
+	 */
+	public static void connectionWait(long nanos) {
+		tracker.get().connectionWaitNanos = nanos;
+	}
+
+	/**
+	 * SQL문이 성공적으로 끝났을때 조회/처리된 행 수를 기록하는 메소드
+	 */
+	public static void rows(int rows) {
+		tracker.get().rows = rows;
+	}
+
+	/**
+	 * Statement 반납시 걸린시간과 결과를 통계에 더하는 메소드
+	 */
+	public static void end(Statement stmt) {
+		Tracker t = tracker.get();
+		if(t.stmt != stmt || t.key == null) {
+			return;
+		}
+
+		long elapsed = System.nanoTime() - t.start;
+		Stats s = stats(t.key);
+		s.latency.record(elapsed);
+		if(t.rows >= 0) {
+			s.rows.add(t.rows);
+		}else {
+			s.errors.increment();
+		}
+		
+		StatementExecuteEvent.finish(t.event, t.key, t.rows);
+		t.event = null;
+		
+		t.span.attr("rows", t.rows);
+		if(t.rows < 0) {
+			t.span.error("SQL문 실행 실패");
+		}
+		t.span.close();
+		t.span = null;
+		
+		if(SlowQueryLog.isSlow(elapsed)) {
+			SlowQueryLog.offer(t.key, t.sql, t.binds, t.bindCount, t.mask, elapsed, t.rows, t.connectionWaitNanos);
+		}
+
+		t.key = null;
+		t.stmt = null;
+		for(int i = 1; i <= t.bindCount; i++) {
+			t.binds[i] = null;
+		}
+	}
+
+	/**
+	 * query.xml 키에 해당하는 통계 객체를 반환하는 메소드 (없다면 새로 만듦)
+	 */
+	public static Stats stats(String key) {
+		Stats s = stats.get(key);
+		if(s == null) {
+			Stats created = new Stats(key);
+			s = stats.putIfAbsent(key, created);
+			if(s == null) {
+				s = created;
+				// 처음 실행된 키라면 JMX에도 등록
+				Jmx.registerQuery(s);
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * 현재까지의 통계를 키 순서대로 복사해서 반환하는 메소드
+	 */
+	public static Map<String, Snapshot> snapshot() {
+		Map<String, Snapshot> result = new TreeMap<>();
+		for(Stats s : stats.values()) {
+			result.put(s.key, s.snapshot());
+		}
+		return result;
+	}
+
+	/**
+	 * 키별 통계 객체들 (복사하지 않음 => Prometheus 출력처럼 자주 읽는 곳에서 사용)
+	 */
+	public static Collection<Stats> all() {
+		return stats.values();
+	}
+
+	/**
+	 * 모든 통계를 초기화하는 메소드
+	 */
+	public static void reset() {
+		for(Stats s : stats.values()) {
+			s.reset();
+		}
+	}
+
+	/*
+	 * query.xml 키 하나에 대한 통계
+	 * */
+	public static class Stats {
+		private final String key;
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final LongAdder rows = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		// 집계를 시작한 시간 (처리량 계산용)
+		private volatile long since = System.currentTimeMillis();
+
+		private Stats(String key) {
+			this.key = key;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		public long getRows() {
+			return rows.sum();
+		}
+
+		public long getErrors() {
+			return errors.sum();
+		}
+
+		public Snapshot snapshot() {
+			return new Snapshot(key, latency.snapshot(), rows.sum(), errors.sum(), System.currentTimeMillis() - since);
+		}
+
+		public void reset() {
+			latency.reset();
+			rows.reset();
+			errors.reset();
+			since = System.currentTimeMillis();
+		}
+	}
+
+	/*
+	 * 특정 시점에 복사된 통계
+	 * */
+	public static class Snapshot {
+		private final String key;
+		private final LatencyHistogram.Snapshot latency;
+		private final long rows;
+		private final long errors;
+		private final long elapsedMillis;
+
+		private Snapshot(String key, LatencyHistogram.Snapshot latency, long rows, long errors, long elapsedMillis) {
+			this.key = key;
+			this.latency = latency;
+			this.rows = rows;
+			this.errors = errors;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public LatencyHistogram.Snapshot getLatency() {
+			return latency;
+		}
+
+		// 실행 횟수 (성공 + 오류)
+		public long getExecutions() {
+			return latency.getCount();
+		}
+
+		public long getRows() {
+			return rows;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		// 초당 실행 횟수 (집계를 시작한 후부터의 평균)
+		public double getThroughput() {
+			return elapsedMillis <= 0 ? 0 : latency.getCount() * 1000.0 / elapsedMillis;
+		}
+
+		@Override
+		public String toString() {
+			return key + " [" + latency + ", rows=" + rows + ", errors=" + errors + "]";
+		}
+	}
+
+	// 스레드별로 재사용되는 실행중인 SQL문 정보
+	private static class Tracker {
+		String key;
+		String sql;
+		Statement stmt;
+		long start;
+		int rows;
+		long mask;
+		// 위치홀더 값 => binds[순번] (순번은 1부터)
+		final Object[] binds = new Object[32];
+		int bindCount;
+		long connectionWaitNanos;
+		StatementExecuteEvent event;
+		Span span;
+	}
+}
@@ -0,0 +1,146 @@
+package com.kh.common;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Resilience : 서비스의 DB작업을 감싸서 일시적인 오류에 대응해주는 클래스
+ *
+ * - read  : 여러번 실행해도 결과가 같은(멱등) 조회 작업 => 일시적인 오류라면 간격을 늘려가며 재시도
+ *           재시도 간격 = 0 ~ min(retry.maxDelay.millis, retry.baseDelay.millis * 2^(시도횟수-1)) 사이의 임의의 값
+ *           (여러 사용자가 동시에 같은 간격으로 재시도해서 DB에 몰리지 않도록 무작위(jitter)로 흩어줌)
+ * - write : INSERT/UPDATE/DELETE => 이미 반영됐는데 응답만 못받았을 수 있으므로 재시도하지 않음
+ * - 둘다 샤드별 서킷브레이커를 거치므로 DB가 죽어있다면 접속을 기다리지 않고 바로 실패한다.
+ * - 최종적으로 실패하면 DataAccessException을 발생시켜서 컨트롤러가 실패 이유를 알수 있게 한다.
+ *
+ * driver.properties 예시)
+ *   retry.maxAttempts=3
+ *   retry.baseDelay.millis=50
+ *   retry.maxDelay.millis=1000
+ *   breaker.failureThreshold=5
+ *   breaker.open.millis=10000
+ * */
+public class Resilience {
+
+	/*
+	 * SQLException을 발생시킬수 있는 DB작업
+	 * */
+	public interface SqlWork<T> {
+		T run() throws SQLException;
+	}
+
+	private static volatile int maxAttempts = 3;
+	private static volatile long baseDelayMillis = 50;
+	private static volatile long maxDelayMillis = 1000;
+	private static volatile int failureThreshold = 5;
+	private static volatile long openMillis = 10000;
+
+	// 샤드 순번 => 서킷브레이커
+	private static final Map<Integer, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+	/**
+	 * driver.properties의 retry.xxx, breaker.xxx 설정을 반영하는 메소드
+	 */
+	public static void configure(Properties prop) {
+		maxAttempts = Integer.parseInt(prop.getProperty("retry.maxAttempts", "3").trim());
+		baseDelayMillis = Long.parseLong(prop.getProperty("retry.baseDelay.millis", "50").trim());
+		maxDelayMillis = Long.parseLong(prop.getProperty("retry.maxDelay.millis", "1000").trim());
+		failureThreshold = Integer.parseInt(prop.getProperty("breaker.failureThreshold", "5").trim());
+		openMillis = Long.parseLong(prop.getProperty("breaker.open.millis", "10000").trim());
+		for(CircuitBreaker b : breakers.values()) {
+			b.configure(failureThreshold, openMillis);
+		}
+	}
+
+	public static CircuitBreaker breaker(int shard) {
+		return breakers.computeIfAbsent(shard, s -> new CircuitBreaker("shard-" + s, failureThreshold, openMillis));
+	}
+
+	public static Map<Integer, CircuitBreaker> breakers() {
+		return breakers;
+	}
+
+	/**
+	 * 조회(멱등) 작업을 실행하는 메소드 => 일시적인 오류라면 재시도
+	 * @param shard : 작업할 샤드 순번
+	 * @param work : 커넥션 얻기 ~ 반납까지 포함된 DB작업
+	 */
+	public static <T> T read(int shard, SqlWork<T> work) {
+		CircuitBreaker breaker = breaker(shard);
+		for(int attempt = 1; ; attempt++) {
+			try {
+				return call(breaker, work);
+			} catch (SQLException e) {
+				if(!SqlStates.isTransient(e) || e instanceof CircuitBreaker.OpenException
+						|| attempt >= maxAttempts || cancelled()) {
+					throw new DataAccessException(e);
+				}
+				if(!backoff(attempt)) {
+					throw new DataAccessException(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 쓰기 작업을 실행하는 메소드 => 재시도 없이 서킷브레이커만 거친다.
+	 */
+	public static <T> T write(int shard, SqlWork<T> work) {
+		try {
+			return call(breaker(shard), work);
+		} catch (SQLException e) {
+			throw new DataAccessException(e);
+		}
+	}
+
+	private static <T> T call(CircuitBreaker breaker, SqlWork<T> work) throws SQLException {
+		boolean trial = breaker.beforeCall();
+		boolean recorded = false;
+		try {
+			T result = work.run();
+			breaker.onSuccess();
+			recorded = true;
+			return result;
+		} catch (SQLException e) {
+			if(e instanceof Bulkhead.RejectedException) {
+				// 커넥션 몫이 부족한것은 DB 장애가 아니므로 집계하지 않음
+			}else if(SqlStates.isDbFailure(e)) {
+				// 타임아웃은 재시도하지 않지만(read) DB가 느리다는 신호이므로 실패로 집계
+				breaker.onFailure();
+				recorded = true;
+			}else {
+				// 영구적인 오류(아이디 중복 등)는 DB가 정상적으로 응답한 것
+				breaker.onSuccess();
+				recorded = true;
+			}
+			throw e;
+		} finally {
+			// 결과를 알리지 못한 시험 요청(커넥션 몫 부족, RuntimeException)은 시험 자리를 돌려준다.
+			if(trial && !recorded) {
+				breaker.release();
+			}
+		}
+	}
+
+	// 재시도 전에 잠시 기다리는 메소드 => 중간에 인터럽트되면 false
+	private static boolean backoff(int attempt) {
+		long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+		long sleep = ThreadLocalRandom.current().nextLong(ceiling + 1);
+		try {
+			Thread.sleep(sleep);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	// 요청이 이미 취소되었다면 재시도하지 않는다.
+	private static boolean cancelled() {
+		CancelHandle handle = CancelHandle.current();
+		return handle != null && handle.isCancelled();
+	}
+}
@@ -0,0 +1,236 @@
+package com.kh.common;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * SlowQueryLog : 정해진 시간(slowQuery.millis)보다 오래 걸린 SQL문을 파일에 기록하는 클래스
+ *
+ * - 한 줄에 하나씩 JSON 형태로 기록 (query.xml 키, SQL문, 위치홀더 값, 걸린시간, 조회/처리된 행 수, 커넥션 대기시간)
+ * - 비밀번호(USERPWD)처럼 남기면 안되는 위치홀더 값은 query.xml의 "키.mask"에 적힌 순번을 "****"로 가려서 기록
+ * - 요청 스레드는 크기가 정해진 대기열(ring buffer)에 넣기만 하고, 파일 쓰기는 별도의 스레드가 한다.
+ *   => 대기열이 가득 차면 기다리지 않고 버린다.(버린 갯수는 getDropped()로 확인)
+ * - 켜져있으면 느린지와 상관없이 모든 PreparedStatement가 Proxy로 감싸진다. (capturing)
+ *   느린지는 실행이 끝나야 알수 있는데 위치홀더 값은 실행 전에 셋팅되므로 미리 모아둘수밖에 없다.
+ *   => 기본값은 꺼짐(0), 느린 SQL문을 조사할때만 켠다.
+ *
+ * driver.properties 예시)
+ *   slowQuery.millis=500          (0이면 사용안함)
+ *   slowQuery.file=logs/slow-query.log
+ *   slowQuery.buffer=1024
+ * */
+public class SlowQueryLog {
+
+	private static final String MASK = "****";
+
+	private static volatile long thresholdNanos;
+	private static volatile File file = new File("logs/slow-query.log");
+	private static volatile BlockingQueue<Entry> buffer = new ArrayBlockingQueue<>(1024);
+
+	private static final AtomicLong written = new AtomicLong();
+	private static final AtomicLong dropped = new AtomicLong();
+	private static Thread writer;
+
+	/**
+	 * driver.properties의 slowQuery.xxx 설정을 반영하는 메소드
+	 */
+	public static synchronized void configure(Properties prop) {
+		thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(prop.getProperty("slowQuery.millis", "0").trim()));
+		file = new File(prop.getProperty("slowQuery.file", "logs/slow-query.log").trim());
+
+		int capacity = Integer.parseInt(prop.getProperty("slowQuery.buffer", "1024").trim());
+		if(capacity != buffer.remainingCapacity() + buffer.size()) {
+			BlockingQueue<Entry> old = buffer;
+			buffer = new ArrayBlockingQueue<>(capacity);
+			old.drainTo(buffer, capacity);
+		}
+
+		if(isEnabled() && writer == null) {
+			writer = new Thread(SlowQueryLog::writeLoop, "slow-query-log");
+			writer.setDaemon(true);
+			writer.start();
+		}
+	}
+
+	public static boolean isEnabled() {
+		return thresholdNanos > 0;
+	}
+
+	public static boolean isSlow(long elapsedNanos) {
+		return thresholdNanos > 0 && elapsedNanos >= thresholdNanos;
+	}
+
+	/**
+	 * 느린 SQL문 하나를 기록 대기열에 넣는 메소드 (요청 스레드에서 호출, 기다리지 않음)
+	 * @param key : query.xml 키
+	 * @param sql : 실행한 SQL문
+	 * @param binds : 위치홀더 순번(1부터)별 값 => binds[순번]
+	 * @param bindCount : 마지막 위치홀더 순번
+	 * @param mask : 가려야하는 위치홀더 순번들 (비트로 표시, 1 << 순번)
+	 * @param elapsedNanos : 걸린시간
+	 * @param rows : 조회/처리된 행 수 (-1이면 오류로 끝남)
+	 * @param connectionWaitNanos : 커넥션을 얻기까지 걸린시간
+	 */
+	public static void offer(String key, String sql, Object[] binds, int bindCount, long mask,
+							long elapsedNanos, int rows, long connectionWaitNanos) {
+		// 위치홀더 값은 재사용되는 배열이므로 여기서 복사 (가릴 값은 복사하지 않음)
+		String[] values = new String[bindCount];
+		for(int i = 1; i <= bindCount; i++) {
+			if((mask & (1L << i)) != 0) {
+				values[i - 1] = MASK;
+			}else {
+				values[i - 1] = binds[i] == null ? null : String.valueOf(binds[i]);
+			}
+		}
+		
+		Entry e = new Entry(System.currentTimeMillis(), Thread.currentThread().getName(), key, sql,
+							values, elapsedNanos, rows, connectionWaitNanos);
+		if(!buffer.offer(e)) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * 위치홀더에 셋팅되는 값(setString, setInt ...)을 QueryMetrics에 기록하도록 감싼 PreparedStatement를 반환하는 메소드
+	 * => 느린 SQL문 기록을 사용할때(slowQuery.millis > 0)만 감싼다. (꺼져있다면 pstmt 그대로 => 추가 비용 없음)
+	 */
+	public static PreparedStatement capturing(PreparedStatement pstmt) {
+		if(!isEnabled()) {
+			return pstmt;
+		}
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if(args != null && args.length >= 2 && method.getName().startsWith("set") && args[0] instanceof Integer) {
+						QueryMetrics.bind((Integer) args[0], args[1]);
+					}
+					try {
+						return method.invoke(pstmt, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	public static long getWritten() {
+		return written.get();
+	}
+
+	public static long getDropped() {
+		return dropped.get();
+	}
+
+	// 대기열에서 꺼내서 파일에 쓰는 스레드
+	private static void writeLoop() {
+		while(true) {
+			try {
+				Entry e = buffer.poll(1, TimeUnit.SECONDS);
+				if(e == null) continue;
+
+				File f = file;
+				if(f.getParentFile() != null) {
+					f.getParentFile().mkdirs();
+				}
+				try(BufferedWriter bw = Files.newBufferedWriter(f.toPath(), StandardCharsets.UTF_8,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+					// 쌓여있는 것들은 한번에 쓴다.
+					do {
+						bw.write(e.toJson());
+						bw.newLine();
+						written.incrementAndGet();
+					} while((e = buffer.poll()) != null);
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/*
+	 * 대기열에 들어가는 느린 SQL문 기록 하나 => JSON 문자열로 바꾸는 작업은 파일 쓰는 스레드에서 한다.
+	 * */
+	private static class Entry {
+		final long time;
+		final String thread;
+		final String key;
+		final String sql;
+		final String[] binds;
+		final long elapsedNanos;
+		final int rows;
+		final long connectionWaitNanos;
+
+		Entry(long time, String thread, String key, String sql, String[] binds,
+				long elapsedNanos, int rows, long connectionWaitNanos) {
+			this.time = time;
+			this.thread = thread;
+			this.key = key;
+			this.sql = sql;
+			this.binds = binds;
+			this.elapsedNanos = elapsedNanos;
+			this.rows = rows;
+			this.connectionWaitNanos = connectionWaitNanos;
+		}
+
+		String toJson() {
+			StringBuilder sb = new StringBuilder(256);
+			sb.append("{\"time\":\"").append(Instant.ofEpochMilli(time)).append('"');
+			sb.append(",\"thread\":");
+			json(sb, thread);
+			sb.append(",\"key\":");
+			json(sb, key);
+			sb.append(",\"sql\":");
+			json(sb, sql == null ? null : sql.trim().replaceAll("\\s+", " "));
+			sb.append(",\"binds\":[");
+			for(int i = 0; i < binds.length; i++) {
+				if(i > 0) sb.append(',');
+				json(sb, binds[i]);
+			}
+			sb.append("],\"elapsedMs\":").append(String.format("%.3f", elapsedNanos / 1e6));
+			sb.append(",\"rows\":").append(rows);
+			sb.append(",\"error\":").append(rows < 0);
+			sb.append(",\"connectionWaitMs\":").append(String.format("%.3f", connectionWaitNanos / 1e6));
+			sb.append('}');
+			return sb.toString();
+		}
+	}
+
+	// JSON 문자열로 바꿔서 붙이기 (", \, 제어문자 처리) => Tracer에서도 사용
+	static void json(StringBuilder sb, String s) {
+		if(s == null) {
+			sb.append("null");
+			return;
+		}
+		sb.append('"');
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch(c) {
+			case '"' : sb.append("\\\""); break;
+			case '\\' : sb.append("\\\\"); break;
+			case '\n' : sb.append("\\n"); break;
+			case '\r' : sb.append("\\r"); break;
+			case '\t' : sb.append("\\t"); break;
+			default :
+				if(c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				}else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+	}
+}
@@ -0,0 +1,111 @@
+package com.kh.common;
+
+/*
+ * Span : 추적(Tracer)되는 구간 하나 (ex. MemberController.selectAll 실행, selectAll SQL문 실행)
+ *
+ * - 같은 요청(메뉴 한번 선택)에서 만들어진 Span들은 같은 traceId를 가지고
+ *   parentId로 어느 구간 안에서 실행되었는지(View > Controller > Service > DAO)를 나타낸다.
+ * - close()하면 끝난시간이 기록되고 파일로 내보낼 대기열에 들어간다.
+ *   => try(Span span = Tracer.start(...)) { ... } 형태로 사용
+ * */
+public class Span implements AutoCloseable {
+
+	// 추적하지 않는 구간 (추적을 사용하지 않거나, 추적하지 않기로 정해진 요청의 하위 구간)
+	static final Span NOOP = new Span(null, 0, 0, 0, null, null, false);
+
+	final Span parent;
+	final long traceIdHigh;
+	final long traceIdLow;
+	final long spanId;
+	final String name;
+	final String layer;
+	final boolean sampled;
+	final String thread;
+	final long startNanos;
+	long endNanos;
+
+	// 속성 => [키, 값, 키, 값 ...] (필요할때만 만듦)
+	Object[] attributes;
+	int attributeCount;
+	String error;
+
+	Span(Span parent, long traceIdHigh, long traceIdLow, long spanId, String name, String layer, boolean sampled) {
+		this.parent = parent;
+		this.traceIdHigh = traceIdHigh;
+		this.traceIdLow = traceIdLow;
+		this.spanId = spanId;
+		this.name = name;
+		this.layer = layer;
+		this.sampled = sampled;
+		this.thread = sampled ? Thread.currentThread().getName() : null;
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * 구간에 속성을 추가하는 메소드 (ex. span.attr("shard", 0))
+	 */
+	public Span attr(String key, Object value) {
+		if(!sampled) {
+			return this;
+		}
+		if(attributes == null) {
+			attributes = new Object[8];
+		}else if(attributeCount * 2 == attributes.length) {
+			Object[] bigger = new Object[attributes.length * 2];
+			System.arraycopy(attributes, 0, bigger, 0, attributes.length);
+			attributes = bigger;
+		}
+		attributes[attributeCount * 2] = key;
+		attributes[attributeCount * 2 + 1] = value;
+		attributeCount++;
+		return this;
+	}
+
+	/**
+	 * 구간이 실패로 끝났음을 기록하는 메소드
+	 */
+	public void error(Throwable e) {
+		error(e.getMessage() == null ? e.getClass().getName() : e.getMessage().trim());
+	}
+
+	public void error(String message) {
+		if(sampled) {
+			error = message;
+		}
+	}
+
+	public boolean isSampled() {
+		return sampled;
+	}
+
+	// 32자리 16진수 traceId (추적 파일에서 같은 요청을 찾을때 사용)
+	public String getTraceId() {
+		return hex(traceIdHigh) + hex(traceIdLow);
+	}
+
+	public String getSpanId() {
+		return hex(spanId);
+	}
+
+	/**
+	 * 구간을 끝내는 메소드 => 현재 구간을 부모 구간으로 되돌리고 내보낼 대기열에 넣는다.
+	 */
+	@Override
+	public void close() {
+		if(this == NOOP) {
+			return;
+		}
+		endNanos = System.nanoTime();
+		Tracer.end(this);
+	}
+
+	static String hex(long v) {
+		String s = Long.toHexString(v);
+		return "0000000000000000".substring(s.length()) + s;
+	}
+
+	@Override
+	public String toString() {
+		return "Span [name=" + name + ", layer=" + layer + ", traceId=" + getTraceId() + ", spanId=" + getSpanId() + "]";
+	}
+}
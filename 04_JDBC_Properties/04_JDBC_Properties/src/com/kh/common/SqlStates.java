@@ -0,0 +1,105 @@
+package com.kh.common;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.Set;
+
+/*
+ * SqlStates : 발생한 SQLException이 일시적인(transient) 오류인지, 영구적인(permanent) 오류인지 구분하는 클래스
+ *
+ * - 일시적인 오류 : 잠시 후 다시 시도하면 성공할수 있는 오류 => 재시도 대상, 서킷브레이커 실패로 집계
+ *   ex) 네트워크 끊김, DB 재시작중, 리스너 없음, 교착상태(deadlock)
+ * - 타임아웃 : 재시도하지 않음, 서킷브레이커 실패로는 집계 (isDbFailure)
+ *   ex) 쿼리 타임아웃(HYT00), 접속 타임아웃(HYT01), SQLTimeoutException
+ *   => 제한시간만큼 기다린 요청을 다시 보내면 이미 느린 DB에 같은 부하를 다시 주고, 사용자는 제한시간 x 시도횟수만큼 기다리게 된다.
+ * - 영구적인 오류 : 몇번을 다시 시도해도 같은 결과가 나오는 오류 => 재시도하지 않음
+ *   ex) 아이디 중복(무결성 제약조건 위배), NOT NULL 위배, SQL 문법 오류
+ * */
+public class SqlStates {
+
+	// 오라클 에러코드(ORA-xxxxx) 중 일시적인 오류
+	private static final Set<Integer> TRANSIENT_ORACLE_CODES = Set.of(
+			60,    // ORA-00060 deadlock detected
+			1012,  // ORA-01012 not logged on
+			1033,  // ORA-01033 ORACLE initialization or shutdown in progress
+			1034,  // ORA-01034 ORACLE not available
+			1089,  // ORA-01089 immediate shutdown in progress
+			3113,  // ORA-03113 end-of-file on communication channel
+			3114,  // ORA-03114 not connected to ORACLE
+			3135,  // ORA-03135 connection lost contact
+			8177,  // ORA-08177 can't serialize access for this transaction
+			12170, // ORA-12170 TNS:Connect timeout occurred
+			12514, // ORA-12514 TNS:listener does not currently know of service
+			12516, // ORA-12516 TNS:listener could not find available handler
+			12519, // ORA-12519 TNS:no appropriate service handler found
+			12520, // ORA-12520 TNS:listener could not find available handler
+			12528, // ORA-12528 TNS:listener: all appropriate instances are blocking new connections
+			12537, // ORA-12537 TNS:connection closed
+			12541, // ORA-12541 TNS:no listener
+			12571, // ORA-12571 TNS:packet writer failure
+			17002, // IO 예외 (오라클 JDBC 드라이버)
+			17008, // 접속 종료 (Closed Connection)
+			17410  // 소켓에서 읽을 데이터가 없음
+	);
+
+	/**
+	 * 전달받은 SQLException이 일시적인 오류인지 확인하는 메소드
+	 * @return 일시적인 오류라면 true, 영구적인 오류라면 false
+	 */
+	public static boolean isTransient(SQLException e) {
+		if(isTimeout(e)) {
+			return false;
+		}
+		// 원인(getNextException)까지 따라가면서 하나라도 일시적인 오류라면 일시적인 오류로 본다.
+		for(SQLException ex = e; ex != null; ex = ex.getNextException()) {
+			if(isTransientOne(ex)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 전달받은 SQLException이 타임아웃인지 확인하는 메소드 (원인까지 따라가면서 하나라도)
+	 */
+	public static boolean isTimeout(SQLException e) {
+		for(SQLException ex = e; ex != null; ex = ex.getNextException()) {
+			if(ex instanceof SQLTimeoutException || "HYT00".equals(ex.getSQLState()) || "HYT01".equals(ex.getSQLState())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * DB쪽 장애(일시적인 오류 또는 타임아웃)인지 확인하는 메소드 => 서킷브레이커 실패로 집계
+	 * false라면 DB가 정상적으로 응답한 오류(제약조건 위배 등)
+	 */
+	public static boolean isDbFailure(SQLException e) {
+		return isTransient(e) || isTimeout(e);
+	}
+
+	private static boolean isTransientOne(SQLException e) {
+		if(e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+			return true;
+		}
+		if(TRANSIENT_ORACLE_CODES.contains(e.getErrorCode())) {
+			return true;
+		}
+		if(e instanceof SQLNonTransientException) {
+			return false;
+		}
+
+		String state = e.getSQLState();
+		if(state == null || state.length() < 2) {
+			return false;
+		}
+		// SQLSTATE 클래스(앞 2자리)
+		// 08 : 연결 오류, 40 : 트랜잭션 롤백(교착상태, 직렬화 실패)
+		String stateClass = state.substring(0, 2);
+		return "08".equals(stateClass) || "40".equals(stateClass);
+	}
+}
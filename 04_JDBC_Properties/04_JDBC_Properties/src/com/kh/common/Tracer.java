@@ -0,0 +1,287 @@
+package com.kh.common;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+ * Tracer : 메뉴 한번 선택(요청)이 View > Controller > Service > JDBCTemplate/DAO를 거치는 동안
+ *          계층별로 걸린시간을 구간(Span)으로 기록해서 파일로 내보내는 클래스
+ *
+ * - 현재 스레드에서 진행중인 구간을 기억해두었다가 새 구간을 시작하면 그 구간의 하위 구간으로 만든다.
+ * - 다른 스레드로 넘어가는 작업(CancelHandle.async, 샤드 동시조회)은 current()로 얻은 구간을
+ *   넘겨받은 스레드에서 attach()해서 이어간다.
+ * - 끝난 구간은 크기가 정해진 대기열에 넣고 별도의 스레드가 파일에 쓴다.(가득 차면 버림)
+ * - 파일 형식은 OpenTelemetry의 OTLP/JSON (한 줄에 ExportTraceServiceRequest 하나)
+ *   => Jaeger, Grafana Tempo, otel-collector(otlpjsonfile receiver) 등에서 그대로 읽을수 있다.
+ *
+ * driver.properties 예시)
+ *   trace.sample=0.1              (추적할 요청의 비율 0 ~ 1, 0이면 사용안함)
+ *   trace.file=logs/trace.jsonl
+ *   trace.buffer=4096
+ *
+ * 사용법)
+ *   return Tracer.trace("MemberService.selectAll", Tracer.SERVICE, () -> { ... });
+ *   try(Span span = Tracer.start("JDBCTemplate.open", Tracer.JDBC)) { ... }
+ * */
+public class Tracer {
+
+	// 계층 이름 (구간의 layer 속성 => 계층별로 나눠서 볼수 있다.)
+	public static final String VIEW = "view";
+	public static final String CONTROLLER = "controller";
+	public static final String SERVICE = "service";
+	public static final String JDBC = "jdbc";
+	public static final String DAO = "dao";
+
+	private static final String SERVICE_NAME = "member-jdbc";
+
+	// 현재 스레드에서 진행중인 구간
+	private static final ThreadLocal<Span> current = new ThreadLocal<>();
+	// System.nanoTime() => 1970년 기준 나노초로 바꾸기 위한 차이값
+	private static final long EPOCH_OFFSET_NANOS = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+	private static volatile boolean configured;
+	private static volatile double sampleRate;
+	private static volatile File file = new File("logs/trace.jsonl");
+	private static volatile BlockingQueue<Span> buffer = new ArrayBlockingQueue<>(4096);
+
+	private static final AtomicLong exported = new AtomicLong();
+	private static final AtomicLong dropped = new AtomicLong();
+	private static Thread writer;
+
+	/**
+	 * driver.properties의 trace.xxx 설정을 반영하는 메소드 (JDBCTemplate에서 설정을 읽을때 호출)
+	 */
+	public static synchronized void configure(Properties prop) {
+		sampleRate = Double.parseDouble(prop.getProperty("trace.sample", "0").trim());
+		file = new File(prop.getProperty("trace.file", "logs/trace.jsonl").trim());
+
+		int capacity = Integer.parseInt(prop.getProperty("trace.buffer", "4096").trim());
+		if(capacity != buffer.remainingCapacity() + buffer.size()) {
+			BlockingQueue<Span> old = buffer;
+			buffer = new ArrayBlockingQueue<>(capacity);
+			old.drainTo(buffer, capacity);
+		}
+
+		if(sampleRate > 0 && writer == null) {
+			writer = new Thread(Tracer::writeLoop, "trace-export");
+			writer.setDaemon(true);
+			writer.start();
+		}
+		configured = true;
+	}
+
+	/**
+	 * 새 구간을 시작하는 메소드
+	 * - 현재 스레드에 진행중인 구간이 있다면 그 하위 구간으로, 없다면 새 요청(trace)의 시작 구간으로 만든다.
+	 * - 추적하지 않는 요청이라면 아무것도 기록하지 않는 구간을 반환한다.
+	 * @param name : 구간 이름 (ex. MemberService.selectAll)
+	 * @param layer : 계층 (Tracer.VIEW, CONTROLLER, SERVICE, JDBC, DAO)
+	 */
+	public static Span start(String name, String layer) {
+		if(!configured) {
+			// View에서 시작하는 첫 요청은 아직 driver.properties를 읽기 전이므로 먼저 읽어서 trace.xxx 설정을 반영
+			configured = true;
+			JDBCTemplate.getShardCount();
+		}
+
+		Span parent = current.get();
+		Span span;
+		if(parent != null) {
+			if(!parent.sampled) {
+				return Span.NOOP;
+			}
+			span = new Span(parent, parent.traceIdHigh, parent.traceIdLow, nextId(), name, layer, true);
+		}else {
+			if(sampleRate <= 0) {
+				return Span.NOOP;
+			}
+			// 추적여부는 요청의 시작 구간에서 정하고 하위 구간은 그대로 따른다.
+			ThreadLocalRandom r = ThreadLocalRandom.current();
+			boolean sampled = sampleRate >= 1 || r.nextDouble() < sampleRate;
+			span = new Span(null, r.nextLong(), r.nextLong(), nextId(), name, layer, sampled);
+		}
+		current.set(span);
+		return span;
+	}
+
+	/**
+	 * 전달받은 작업을 하나의 구간으로 기록하면서 실행하는 메소드 (실패하면 오류로 기록)
+	 * => 추적여부와 상관없이 메소드별 실행시간은 MethodMetrics에 집계된다.
+	 */
+	public static <T> T trace(String name, String layer, Supplier<T> task) {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try(Span span = start(name, layer)) {
+			try {
+				T result = task.get();
+				failed = false;
+				return result;
+			} catch (RuntimeException e) {
+				span.error(e);
+				throw e;
+			}
+		} finally {
+			MethodMetrics.record(name, layer, System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * 반환값이 없는 작업을 하나의 구간으로 기록하면서 실행하는 메소드
+	 */
+	public static void run(String name, String layer, Runnable task) {
+		trace(name, layer, () -> {
+			task.run();
+			return null;
+		});
+	}
+
+	/**
+	 * 현재 스레드에서 진행중인 구간 (다른 스레드로 넘겨줄때 사용)
+	 */
+	public static Span current() {
+		return current.get();
+	}
+
+	/**
+	 * 다른 스레드에서 넘겨받은 구간을 현재 스레드의 진행중인 구간으로 지정하는 메소드
+	 * @return 원래 진행중이던 구간 => 작업이 끝나면 다시 attach()해서 되돌려준다.
+	 */
+	public static Span attach(Span span) {
+		Span before = current.get();
+		if(span == null) {
+			current.remove();
+		}else {
+			current.set(span);
+		}
+		return before;
+	}
+
+	public static long getExported() {
+		return exported.get();
+	}
+
+	public static long getDropped() {
+		return dropped.get();
+	}
+
+	// 구간이 끝났을때 호출 (Span.close()에서 호출)
+	static void end(Span span) {
+		if(current.get() == span) {
+			attach(span.parent);
+		}
+		if(span.sampled && !buffer.offer(span)) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	private static long nextId() {
+		long id;
+		do {
+			id = ThreadLocalRandom.current().nextLong();
+		} while(id == 0);
+		return id;
+	}
+
+	// 대기열에서 꺼내서 파일에 쓰는 스레드
+	private static void writeLoop() {
+		List<Span> batch = new ArrayList<>();
+		while(true) {
+			try {
+				Span first = buffer.poll(1, TimeUnit.SECONDS);
+				if(first == null) continue;
+
+				// 쌓여있는 것들은 한 줄(요청 하나)로 묶어서 쓴다.
+				batch.add(first);
+				buffer.drainTo(batch, 511);
+
+				File f = file;
+				if(f.getParentFile() != null) {
+					f.getParentFile().mkdirs();
+				}
+				try(BufferedWriter bw = Files.newBufferedWriter(f.toPath(), StandardCharsets.UTF_8,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+					bw.write(toOtlpJson(batch));
+					bw.newLine();
+					exported.addAndGet(batch.size());
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	// 구간들을 OTLP/JSON 형식의 문자열로 바꾸는 메소드
+	private static String toOtlpJson(List<Span> spans) {
+		StringBuilder sb = new StringBuilder(256 * spans.size());
+		sb.append("{\"resourceSpans\":[{\"resource\":{\"attributes\":[");
+		attribute(sb, "service.name", SERVICE_NAME);
+		sb.append("]},\"scopeSpans\":[{\"scope\":{\"name\":\"").append(Tracer.class.getName()).append("\"},\"spans\":[");
+		for(int i = 0; i < spans.size(); i++) {
+			if(i > 0) sb.append(',');
+			Span s = spans.get(i);
+			sb.append("{\"traceId\":\"").append(s.getTraceId());
+			sb.append("\",\"spanId\":\"").append(s.getSpanId()).append('"');
+			if(s.parent != null) {
+				sb.append(",\"parentSpanId\":\"").append(s.parent.getSpanId()).append('"');
+			}
+			sb.append(",\"name\":");
+			SlowQueryLog.json(sb, s.name);
+			// 1 = INTERNAL, 3 = CLIENT(DB 호출)
+			sb.append(",\"kind\":").append(JDBC.equals(s.layer) || DAO.equals(s.layer) ? 3 : 1);
+			sb.append(",\"startTimeUnixNano\":\"").append(EPOCH_OFFSET_NANOS + s.startNanos);
+			sb.append("\",\"endTimeUnixNano\":\"").append(EPOCH_OFFSET_NANOS + s.endNanos);
+			sb.append("\",\"attributes\":[");
+			attribute(sb, "layer", s.layer);
+			sb.append(',');
+			attribute(sb, "thread.name", s.thread);
+			for(int j = 0; j < s.attributeCount; j++) {
+				sb.append(',');
+				attribute(sb, (String) s.attributes[j * 2], s.attributes[j * 2 + 1]);
+			}
+			sb.append("],\"status\":");
+			if(s.error != null) {
+				sb.append("{\"code\":2,\"message\":");
+				SlowQueryLog.json(sb, s.error);
+				sb.append('}');
+			}else {
+				sb.append("{\"code\":1}");
+			}
+			sb.append('}');
+		}
+		sb.append("]}]}]}");
+		return sb.toString();
+	}
+
+	// {"key":"...","value":{"stringValue":"..."}} (정수는 intValue, 참/거짓은 boolValue)
+	private static void attribute(StringBuilder sb, String key, Object value) {
+		sb.append("{\"key\":");
+		SlowQueryLog.json(sb, key);
+		sb.append(",\"value\":{");
+		if(value instanceof Integer || value instanceof Long) {
+			sb.append("\"intValue\":\"").append(value).append('"');
+		}else if(value instanceof Boolean) {
+			sb.append("\"boolValue\":").append(value);
+		}else {
+			sb.append("\"stringValue\":");
+			SlowQueryLog.json(sb, value == null ? null : String.valueOf(value));
+		}
+		sb.append("}}");
+	}
+}
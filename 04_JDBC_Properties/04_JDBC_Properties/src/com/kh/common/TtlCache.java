@@ -0,0 +1,246 @@
+package com.kh.common;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * TtlCache : 최근에 조회된 결과를 정해진 갯수(size)와 시간(ttl)만큼 보관해두는 캐시
+ *
+ * - 가득 차면 가장 오래 사용되지 않은 것부터 버린다.(LRU)
+ * - ttl.millis보다 오래된 값은 DB가 바뀌었을수 있으므로 버리고 다시 조회한다.
+ * - 값을 변경/삭제하는 작업은 invalidate()로 바로 지워줘야 한다.
+ *   DB에서 읽어서 넣는 쪽은 읽기 전에 epoch()를 받아두고 put(key, value, epoch)로 넣는다.
+ *   => 읽는 동안 다른 스레드가 변경 후 invalidate했다면 넣지 않는다. (읽은 값이 변경 전의 값일수 있으므로)
+ * - size가 0이면 아무것도 보관하지 않는다.(사용안함)
+ *
+ * driver.properties 예시)
+ *   cache.member.size=1000
+ *   cache.member.ttl.millis=30000
+ * */
+public class TtlCache<K, V> {
+
+	// 캐시 이름 => TtlCache 객체
+	private static final Map<String, TtlCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+	private final String name;
+	private volatile int maxSize;
+	private volatile long ttlMillis;
+	private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+	private long epoch; // invalidate/clear할때마다 1씩 증가 (map으로 동기화)
+
+	// 통계
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private TtlCache(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * 이름에 해당하는 캐시를 반환 (없다면 사용안함(size=0) 상태로 새로 만듦)
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> TtlCache<K, V> named(String name) {
+		return (TtlCache<K, V>) caches.computeIfAbsent(name, TtlCache::new);
+	}
+
+	public static Collection<TtlCache<?, ?>> all() {
+		return caches.values();
+	}
+
+	/**
+	 * driver.properties에 적힌 cache.이름.xxx 설정을 읽어서 반영하는 메소드
+	 */
+	public static void configure(Properties prop) {
+		for(String key : prop.stringPropertyNames()) {
+			if(key.startsWith("cache.") && key.endsWith(".size")) {
+				String name = key.substring("cache.".length(), key.length() - ".size".length());
+				int size = Integer.parseInt(prop.getProperty(key).trim());
+				long ttl = Long.parseLong(prop.getProperty("cache." + name + ".ttl.millis", "0").trim());
+				named(name).resize(size, ttl);
+			}
+		}
+	}
+
+	/**
+	 * 보관중인 값을 반환하는 메소드 (없거나 ttl이 지났다면 null)
+	 */
+	public V get(K key) {
+		if(maxSize <= 0) {
+			return null;
+		}
+		synchronized (map) {
+			Entry<V> e = map.get(key);
+			if(e != null && System.currentTimeMillis() < e.expiresAt) {
+				hits.incrementAndGet();
+				return e.value;
+			}
+			if(e != null) {
+				map.remove(key);
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * 값을 보관하는 메소드 (가득 찼다면 가장 오래 사용되지 않은 값을 버림)
+	 */
+	public void put(K key, V value) {
+		if(maxSize <= 0 || value == null) {
+			return;
+		}
+		synchronized (map) {
+			map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+			trim(maxSize);
+		}
+	}
+
+	/**
+	 * epoch를 받은 후에 invalidate/clear가 없었을때만 값을 보관하는 메소드
+	 * @param epoch : 값을 DB에서 읽기 전에 받아둔 epoch()
+	 */
+	public void put(K key, V value, long epoch) {
+		if(maxSize <= 0 || value == null) {
+			return;
+		}
+		synchronized (map) {
+			if(this.epoch != epoch) {
+				return;
+			}
+			map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+			trim(maxSize);
+		}
+	}
+
+	/**
+	 * 현재 epoch를 반환하는 메소드 (put(key, value, epoch)용)
+	 */
+	public long epoch() {
+		synchronized (map) {
+			return epoch;
+		}
+	}
+
+	/**
+	 * 변경/삭제된 값을 지우는 메소드
+	 */
+	public void invalidate(K key) {
+		synchronized (map) {
+			map.remove(key);
+			epoch++;
+		}
+	}
+
+	/**
+	 * 보관중인 값을 모두 지우는 메소드
+	 */
+	public void clear() {
+		synchronized (map) {
+			map.clear();
+			epoch++;
+		}
+	}
+
+	/**
+	 * 보관중인(ttl이 지나지 않은) 값들을 복사해서 반환하는 메소드 (스냅샷용)
+	 * => 가장 오래 사용되지 않은 것부터 최근에 사용된 순서, 이 순서대로 put()하면 사용순서가 그대로 살아남
+	 */
+	public List<Map.Entry<K, V>> entries() {
+		long now = System.currentTimeMillis();
+		synchronized (map) {
+			List<Map.Entry<K, V>> list = new ArrayList<>(map.size());
+			for(Map.Entry<K, Entry<V>> e : map.entrySet()) {
+				if(now < e.getValue().expiresAt) {
+					list.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue().value));
+				}
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * 실행중에 보관 갯수와 시간을 바꾸는 메소드 (줄어든 만큼 오래된 값을 버림)
+	 */
+	public void resize(int maxSize, long ttlMillis) {
+		synchronized (map) {
+			this.maxSize = maxSize;
+			this.ttlMillis = ttlMillis;
+			trim(Math.max(0, maxSize));
+		}
+	}
+
+	// 가장 오래 사용되지 않은 것부터 limit개만 남기고 버림
+	private void trim(int limit) {
+		Iterator<K> it = map.keySet().iterator();
+		while(map.size() > limit && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getTtlMillis() {
+		return ttlMillis;
+	}
+
+	public int getSize() {
+		synchronized (map) {
+			return map.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	// 적중률 (적중 / 전체 조회) => 조회가 없었다면 0
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	@Override
+	public String toString() {
+		return "TtlCache [name=" + name + ", size=" + getSize() + "/" + maxSize + ", ttlMillis=" + ttlMillis
+				+ ", hits=" + getHits() + ", misses=" + getMisses() + ", hitRate=" + String.format("%.2f", getHitRate())
+				+ ", evictions=" + getEvictions() + "]";
+	}
+
+	// 보관중인 값 + 만료시간
+	private static class Entry<V> {
+		final V value;
+		final long expiresAt;
+
+		Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
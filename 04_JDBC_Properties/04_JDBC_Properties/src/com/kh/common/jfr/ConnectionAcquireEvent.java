@@ -0,0 +1,58 @@
+package com.kh.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * JFR(Java Flight Recorder) 이벤트 : JDBCTemplate에서 커넥션 하나를 얻기까지 (Bulkhead 대기 + DB 접속)
+ * */
+@Name("com.kh.ConnectionAcquire")
+@Label("Connection Acquire")
+@Description("JDBCTemplate에서 커넥션을 얻기까지 걸린시간 (Bulkhead 대기 + DB 접속)")
+@Category({ "KH Member", "JDBC" })
+@StackTrace(false)
+public class ConnectionAcquireEvent extends Event {
+
+	private static final EventType TYPE = EventType.getEventType(ConnectionAcquireEvent.class);
+
+	@Label("Shard")
+	int shard;
+
+	@Label("Read Only")
+	boolean readOnly;
+
+	@Label("Workload")
+	String workload;
+
+	@Label("Success")
+	boolean success;
+
+	/**
+	 * 기록중일때만 이벤트를 만들어서 시작시간을 찍고 반환 (기록중이 아니라면 null => 객체를 만들지 않음)
+	 */
+	public static ConnectionAcquireEvent start() {
+		if(!TYPE.isEnabled()) {
+			return null;
+		}
+		ConnectionAcquireEvent e = new ConnectionAcquireEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void finish(ConnectionAcquireEvent e, int shard, boolean readOnly, String workload, boolean success) {
+		if(e == null) return;
+		e.end();
+		if(e.shouldCommit()) {
+			e.shard = shard;
+			e.readOnly = readOnly;
+			e.workload = workload;
+			e.success = success;
+			e.commit();
+		}
+	}
+}
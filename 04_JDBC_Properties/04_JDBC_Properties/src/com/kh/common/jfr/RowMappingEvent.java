@@ -0,0 +1,45 @@
+package com.kh.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * JFR 이벤트 : MemberDao에서 ResultSet의 행들을 Member 객체로 옮겨담기까지 (rset.next() 포함)
+ * */
+@Name("com.kh.RowMapping")
+@Label("Row Mapping")
+@Description("ResultSet의 행들을 읽어서 Member 객체로 옮겨담기까지 걸린시간")
+@Category({ "KH Member", "JDBC" })
+public class RowMappingEvent extends Event {
+
+	private static final EventType TYPE = EventType.getEventType(RowMappingEvent.class);
+
+	@Label("Query Key")
+	String queryKey;
+
+	@Label("Rows")
+	int rows;
+
+	public static RowMappingEvent start() {
+		if(!TYPE.isEnabled()) {
+			return null;
+		}
+		RowMappingEvent e = new RowMappingEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void finish(RowMappingEvent e, String queryKey, int rows) {
+		if(e == null) return;
+		e.end();
+		if(e.shouldCommit()) {
+			e.queryKey = queryKey;
+			e.rows = rows;
+			e.commit();
+		}
+	}
+}
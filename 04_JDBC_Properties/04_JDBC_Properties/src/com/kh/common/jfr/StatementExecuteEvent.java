@@ -0,0 +1,51 @@
+package com.kh.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * JFR 이벤트 : MemberDao에서 Statement 하나를 만들고 반납하기까지 (위치홀더 셋팅 + 실행 + 결과 읽기)
+ * */
+@Name("com.kh.StatementExecute")
+@Label("Statement Execute")
+@Description("MemberDao의 SQL문 하나가 실행되고 Statement가 반납되기까지 걸린시간")
+@Category({ "KH Member", "JDBC" })
+public class StatementExecuteEvent extends Event {
+
+	private static final EventType TYPE = EventType.getEventType(StatementExecuteEvent.class);
+
+	@Label("Query Key")
+	@Description("query.xml의 키")
+	String queryKey;
+
+	@Label("Rows")
+	@Description("조회/처리된 행 수 (-1이면 오류)")
+	int rows;
+
+	@Label("Error")
+	boolean error;
+
+	public static StatementExecuteEvent start() {
+		if(!TYPE.isEnabled()) {
+			return null;
+		}
+		StatementExecuteEvent e = new StatementExecuteEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void finish(StatementExecuteEvent e, String queryKey, int rows) {
+		if(e == null) return;
+		e.end();
+		if(e.shouldCommit()) {
+			e.queryKey = queryKey;
+			e.rows = rows;
+			e.error = rows < 0;
+			e.commit();
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.kh.common.jmx;
+
+/*
+ * BulkheadMXBean : 작업종류별 동시 커넥션 수 제한 상태 (com.kh:type=Bulkhead,name=작업종류)
+ * */
+public interface BulkheadMXBean {
+
+	int getMax();
+
+	int getQueueLimit();
+
+	long getWaitMillis();
+
+	int getInUse();
+
+	int getQueued();
+
+	double getSaturation();
+
+	long getAcquired();
+
+	long getRejected();
+
+	long getTimeouts();
+
+	double getAverageWaitMillis();
+
+	double getMaxWaitMillis();
+
+	// 동시 커넥션 수, 대기열 길이, 최대 대기시간을 바꿈 (사용중인 커넥션은 그대로 유지)
+	void resize(int max, int queueLimit, long waitMillis);
+}
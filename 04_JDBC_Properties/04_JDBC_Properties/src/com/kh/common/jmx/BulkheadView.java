@@ -0,0 +1,75 @@
+package com.kh.common.jmx;
+
+import com.kh.common.Bulkhead;
+
+/*
+ * Bulkhead 객체를 JMX로 보여주는 객체
+ * */
+public class BulkheadView implements BulkheadMXBean {
+
+	private final Bulkhead bulkhead;
+
+	public BulkheadView(Bulkhead bulkhead) {
+		this.bulkhead = bulkhead;
+	}
+
+	@Override
+	public int getMax() {
+		return bulkhead.getMax();
+	}
+
+	@Override
+	public int getQueueLimit() {
+		return bulkhead.getQueueLimit();
+	}
+
+	@Override
+	public long getWaitMillis() {
+		return bulkhead.getWaitMillis();
+	}
+
+	@Override
+	public int getInUse() {
+		return bulkhead.getInUse();
+	}
+
+	@Override
+	public int getQueued() {
+		return bulkhead.getQueued();
+	}
+
+	@Override
+	public double getSaturation() {
+		return bulkhead.getSaturation();
+	}
+
+	@Override
+	public long getAcquired() {
+		return bulkhead.getAcquired();
+	}
+
+	@Override
+	public long getRejected() {
+		return bulkhead.getRejected();
+	}
+
+	@Override
+	public long getTimeouts() {
+		return bulkhead.getTimeouts();
+	}
+
+	@Override
+	public double getAverageWaitMillis() {
+		return bulkhead.getAverageWaitMillis();
+	}
+
+	@Override
+	public double getMaxWaitMillis() {
+		return bulkhead.getMaxWaitMillis();
+	}
+
+	@Override
+	public void resize(int max, int queueLimit, long waitMillis) {
+		bulkhead.resize(max, queueLimit, waitMillis);
+	}
+}
@@ -0,0 +1,27 @@
+package com.kh.common.jmx;
+
+/*
+ * CacheMXBean : 조회결과 캐시 상태 (com.kh:type=Cache,name=캐시이름)
+ * */
+public interface CacheMXBean {
+
+	int getSize();
+
+	int getMaxSize();
+
+	long getTtlMillis();
+
+	long getHits();
+
+	long getMisses();
+
+	double getHitRate();
+
+	long getEvictions();
+
+	// 보관중인 값을 모두 지움
+	void clear();
+
+	// 보관 갯수와 보관시간을 바꿈 (0이면 사용안함)
+	void resize(int maxSize, long ttlMillis);
+}
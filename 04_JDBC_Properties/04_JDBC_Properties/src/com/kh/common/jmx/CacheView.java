@@ -0,0 +1,60 @@
+package com.kh.common.jmx;
+
+import com.kh.common.TtlCache;
+
+/*
+ * TtlCache 객체를 JMX로 보여주는 객체
+ * */
+public class CacheView implements CacheMXBean {
+
+	private final TtlCache<?, ?> cache;
+
+	public CacheView(TtlCache<?, ?> cache) {
+		this.cache = cache;
+	}
+
+	@Override
+	public int getSize() {
+		return cache.getSize();
+	}
+
+	@Override
+	public int getMaxSize() {
+		return cache.getMaxSize();
+	}
+
+	@Override
+	public long getTtlMillis() {
+		return cache.getTtlMillis();
+	}
+
+	@Override
+	public long getHits() {
+		return cache.getHits();
+	}
+
+	@Override
+	public long getMisses() {
+		return cache.getMisses();
+	}
+
+	@Override
+	public double getHitRate() {
+		return cache.getHitRate();
+	}
+
+	@Override
+	public long getEvictions() {
+		return cache.getEvictions();
+	}
+
+	@Override
+	public void clear() {
+		cache.clear();
+	}
+
+	@Override
+	public void resize(int maxSize, long ttlMillis) {
+		cache.resize(maxSize, ttlMillis);
+	}
+}
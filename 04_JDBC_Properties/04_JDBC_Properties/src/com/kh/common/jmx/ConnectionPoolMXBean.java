@@ -0,0 +1,39 @@
+package com.kh.common.jmx;
+
+/*
+ * ConnectionPoolMXBean : 접속주소별 커넥션 풀 상태 (com.kh:type=ConnectionPool,shard=샤드순번,role=primary|replica-N)
+ * */
+public interface ConnectionPoolMXBean {
+
+	int getShard();
+
+	String getRole();
+
+	String getUrl();
+
+	// 빌려가서 사용중인 커넥션 수
+	int getActive();
+
+	// 보관중인 커넥션 수
+	int getIdle();
+
+	int getMaxIdle();
+
+	long getIdleTimeoutMillis();
+
+	long getCreated();
+
+	long getReused();
+
+	long getClosed();
+
+	double getAverageBorrowMillis();
+
+	double getMaxBorrowMillis();
+
+	// 보관 갯수와 보관시간을 바꿈
+	void resize(int maxIdle, long idleTimeoutMillis);
+
+	// 보관중인 커넥션을 모두 닫음
+	void clear();
+}
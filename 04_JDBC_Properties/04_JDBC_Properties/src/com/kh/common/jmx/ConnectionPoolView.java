@@ -0,0 +1,89 @@
+package com.kh.common.jmx;
+
+import com.kh.common.ConnectionPool;
+
+/*
+ * ConnectionPool 객체를 JMX로 보여주는 객체
+ * */
+public class ConnectionPoolView implements ConnectionPoolMXBean {
+
+	private final int shard;
+	private final String role;
+	private final ConnectionPool pool;
+
+	public ConnectionPoolView(int shard, String role, ConnectionPool pool) {
+		this.shard = shard;
+		this.role = role;
+		this.pool = pool;
+	}
+
+	@Override
+	public int getShard() {
+		return shard;
+	}
+
+	@Override
+	public String getRole() {
+		return role;
+	}
+
+	@Override
+	public String getUrl() {
+		return pool.getUrl();
+	}
+
+	@Override
+	public int getActive() {
+		return pool.getActive();
+	}
+
+	@Override
+	public int getIdle() {
+		return pool.getIdle();
+	}
+
+	@Override
+	public int getMaxIdle() {
+		return pool.getMaxIdle();
+	}
+
+	@Override
+	public long getIdleTimeoutMillis() {
+		return pool.getIdleTimeoutMillis();
+	}
+
+	@Override
+	public long getCreated() {
+		return pool.getCreated();
+	}
+
+	@Override
+	public long getReused() {
+		return pool.getReused();
+	}
+
+	@Override
+	public long getClosed() {
+		return pool.getClosed();
+	}
+
+	@Override
+	public double getAverageBorrowMillis() {
+		return pool.getAverageBorrowMillis();
+	}
+
+	@Override
+	public double getMaxBorrowMillis() {
+		return pool.getMaxBorrowMillis();
+	}
+
+	@Override
+	public void resize(int maxIdle, long idleTimeoutMillis) {
+		pool.resize(maxIdle, idleTimeoutMillis);
+	}
+
+	@Override
+	public void clear() {
+		pool.clear();
+	}
+}
@@ -0,0 +1,106 @@
+package com.kh.common.jmx;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Properties;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.kh.common.Bulkhead;
+import com.kh.common.ConnectionPool;
+import com.kh.common.DataSourceGroup;
+import com.kh.common.QueryMetrics;
+import com.kh.common.TtlCache;
+
+/*
+ * Jmx : 커넥션 풀, Bulkhead, 캐시, SQL문 통계를 JMX(jconsole, VisualVM 등)로 볼수 있도록 등록하는 클래스
+ *
+ * 등록되는 이름 (도메인 com.kh)
+ *   com.kh:type=ConnectionPool,shard=0,role=primary      => 사용중/보관중 커넥션 수, 커넥션 대기시간, resize()
+ *   com.kh:type=Bulkhead,name=interactive               => 작업종류별 동시 커넥션 수, resize()
+ *   com.kh:type=Cache,name=member                       => 회원 캐시 적중률, clear()
+ *   com.kh:type=QueryCache                              => query.xml SQL문 보관 적중률, clear()
+ *   com.kh:type=Query,name=selectAll                    => query.xml 키별 처리량, 실행시간
+ *
+ * driver.properties 예시)
+ *   jmx.enabled=true
+ * */
+public class Jmx {
+
+	public static final String DOMAIN = "com.kh";
+
+	private static volatile boolean enabled;
+
+	/**
+	 * driver.properties의 jmx.enabled 설정을 반영하는 메소드
+	 */
+	public static void configure(Properties prop) {
+		enabled = Boolean.parseBoolean(prop.getProperty("jmx.enabled", "false").trim());
+	}
+
+	/**
+	 * driver.properties를 다시 읽을때마다 호출 => 새로 만들어진 풀, Bulkhead, 캐시로 다시 등록한다.
+	 * @param shards : 샤드 순번 순서대로 담긴 DataSourceGroup 목록
+	 */
+	public static synchronized void refresh(List<DataSourceGroup> shards) {
+		if(!enabled) {
+			return;
+		}
+
+		// 이전 구성의 풀은 더이상 사용하지 않으므로 지우고 다시 등록
+		unregisterAll(DOMAIN + ":type=ConnectionPool,*");
+		for(int i = 0; i < shards.size(); i++) {
+			List<ConnectionPool> pools = shards.get(i).getPools();
+			for(int j = 0; j < pools.size(); j++) {
+				String role = j == 0 ? "primary" : "replica-" + (j - 1);
+				register(DOMAIN + ":type=ConnectionPool,shard=" + i + ",role=" + role,
+						new ConnectionPoolView(i, role, pools.get(j)));
+			}
+		}
+
+		for(Bulkhead b : Bulkhead.all()) {
+			register(DOMAIN + ":type=Bulkhead,name=" + b.getName(), new BulkheadView(b));
+		}
+		for(TtlCache<?, ?> c : TtlCache.all()) {
+			register(DOMAIN + ":type=Cache,name=" + c.getName(), new CacheView(c));
+		}
+		register(DOMAIN + ":type=QueryCache", new QueryCacheView());
+	}
+
+	/**
+	 * query.xml 키별 통계가 처음 만들어질때 호출 (QueryMetrics에서 호출)
+	 */
+	public static void registerQuery(QueryMetrics.Stats stats) {
+		if(!enabled) {
+			return;
+		}
+		register(DOMAIN + ":type=Query,name=" + stats.getKey(), new QueryView(stats));
+	}
+
+	// 같은 이름으로 이미 등록되어 있다면 교체
+	private static void register(String name, Object bean) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName on = new ObjectName(name);
+			if(server.isRegistered(on)) {
+				server.unregisterMBean(on);
+			}
+			server.registerMBean(bean, on);
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void unregisterAll(String pattern) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			for(ObjectName on : server.queryNames(new ObjectName(pattern), null)) {
+				server.unregisterMBean(on);
+			}
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.kh.common.jmx;
+
+/*
+ * QueryCacheMXBean : query.xml SQL문 보관 상태 (com.kh:type=QueryCache)
+ * */
+public interface QueryCacheMXBean {
+
+	// 보관중인 SQL문 수
+	int getSize();
+
+	long getHits();
+
+	long getMisses();
+
+	double getHitRate();
+
+	// query.xml을 다시 읽은 횟수
+	long getReloads();
+
+	// 보관중인 SQL문을 모두 비움 => 다음 요청시 query.xml을 다시 읽음
+	void clear();
+
+	// 모든 query.xml 키별 실행 통계 초기화
+	void resetQueryStatistics();
+}
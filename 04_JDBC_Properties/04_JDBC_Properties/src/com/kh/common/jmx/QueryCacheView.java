@@ -0,0 +1,47 @@
+package com.kh.common.jmx;
+
+import com.kh.common.QueryCache;
+import com.kh.common.QueryMetrics;
+
+/*
+ * QueryCache를 JMX로 보여주는 객체
+ * */
+public class QueryCacheView implements QueryCacheMXBean {
+
+	@Override
+	public int getSize() {
+		return QueryCache.getSize();
+	}
+
+	@Override
+	public long getHits() {
+		return QueryCache.getHits();
+	}
+
+	@Override
+	public long getMisses() {
+		return QueryCache.getMisses();
+	}
+
+	@Override
+	public double getHitRate() {
+		long hits = QueryCache.getHits();
+		long total = hits + QueryCache.getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public long getReloads() {
+		return QueryCache.getReloads();
+	}
+
+	@Override
+	public void clear() {
+		QueryCache.clear();
+	}
+
+	@Override
+	public void resetQueryStatistics() {
+		QueryMetrics.reset();
+	}
+}
@@ -0,0 +1,27 @@
+package com.kh.common.jmx;
+
+/*
+ * QueryMXBean : query.xml 키별 실행 통계 (com.kh:type=Query,name=키)
+ * */
+public interface QueryMXBean {
+
+	long getExecutions();
+
+	long getRows();
+
+	long getErrors();
+
+	// 초당 실행 횟수 (집계를 시작한 후부터의 평균)
+	double getThroughput();
+
+	double getMeanMillis();
+
+	double getP50Millis();
+
+	double getP99Millis();
+
+	double getMaxMillis();
+
+	// 통계 초기화
+	void reset();
+}
@@ -0,0 +1,60 @@
+package com.kh.common.jmx;
+
+import com.kh.common.QueryMetrics;
+
+/*
+ * QueryMetrics.Stats 객체를 JMX로 보여주는 객체
+ * */
+public class QueryView implements QueryMXBean {
+
+	private final QueryMetrics.Stats stats;
+
+	public QueryView(QueryMetrics.Stats stats) {
+		this.stats = stats;
+	}
+
+	@Override
+	public long getExecutions() {
+		return stats.snapshot().getExecutions();
+	}
+
+	@Override
+	public long getRows() {
+		return stats.snapshot().getRows();
+	}
+
+	@Override
+	public long getErrors() {
+		return stats.snapshot().getErrors();
+	}
+
+	@Override
+	public double getThroughput() {
+		return stats.snapshot().getThroughput();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return stats.snapshot().getLatency().getMeanNanos() / 1e6;
+	}
+
+	@Override
+	public double getP50Millis() {
+		return stats.snapshot().getLatency().getValueAtPercentile(50) / 1e6;
+	}
+
+	@Override
+	public double getP99Millis() {
+		return stats.snapshot().getLatency().getValueAtPercentile(99) / 1e6;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return stats.snapshot().getLatency().getMaxNanos() / 1e6;
+	}
+
+	@Override
+	public void reset() {
+		stats.reset();
+	}
+}
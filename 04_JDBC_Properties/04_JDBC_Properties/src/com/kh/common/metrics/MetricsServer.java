@@ -0,0 +1,306 @@
+package com.kh.common.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.kh.common.Bulkhead;
+import com.kh.common.CircuitBreaker;
+import com.kh.common.ConnectionPool;
+import com.kh.common.DataSourceGroup;
+import com.kh.common.LatencyHistogram;
+import com.kh.common.MethodMetrics;
+import com.kh.common.QueryCache;
+import com.kh.common.QueryMetrics;
+import com.kh.common.Resilience;
+import com.kh.common.SlowQueryLog;
+import com.kh.common.Tracer;
+import com.kh.common.TtlCache;
+
+/*
+ * MetricsServer : Prometheus가 수집(scrape)해갈수 있도록 지표를 HTTP로 보여주는 작은 서버
+ *
+ * GET http://127.0.0.1:포트/metrics
+ *   => 커넥션 풀, Bulkhead, 서킷브레이커, SQL문(query.xml 키)별 실행시간, 캐시, 메소드별 실행시간
+ *
+ * - 스레드 하나(daemon)가 요청을 하나씩 처리한다. => 수집은 몇초에 한번이므로 충분하고
+ *   PrometheusWriter와 구간별 누적갯수 배열을 재사용할수 있다.
+ *   (재사용하는 버퍼는 서버(스레드)마다 따로 => 포트가 바뀌어 새 서버가 뜰때 응답중인 이전 스레드와 나눠쓰지 않음)
+ * - /metrics 외의 경로(/metricsX 등)는 404
+ * - 통계를 복사(snapshot)하지 않고 기록중인 값을 바로 읽어서 쓰므로 요청 처리에 영향을 주지 않는다.
+ *
+ * driver.properties 예시)
+ *   metrics.port=9404          (0이면 사용안함)
+ *   metrics.host=127.0.0.1     (외부에서 수집한다면 0.0.0.0)
+ * */
+public class MetricsServer {
+
+	// histogram 구간 상한값 (1ms ~ 10s)
+	private static final long[] BOUNDS_NANOS = {
+			TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(10),
+			TimeUnit.MILLISECONDS.toNanos(25), TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100),
+			TimeUnit.MILLISECONDS.toNanos(250), TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.SECONDS.toNanos(1),
+			TimeUnit.MILLISECONDS.toNanos(2500), TimeUnit.SECONDS.toNanos(5), TimeUnit.SECONDS.toNanos(10) };
+
+	private static final byte[] OK = ("HTTP/1.1 200 OK\r\n"
+			+ "Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n"
+			+ "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] NOT_FOUND = ("HTTP/1.1 404 Not Found\r\n"
+			+ "Content-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+	private static volatile List<DataSourceGroup> shards = Collections.emptyList();
+	private static ServerSocket server;
+	private static String boundTo;
+
+	// 이 서버의 요청 처리 스레드에서만 사용 (재사용)
+	private final PrometheusWriter writer = new PrometheusWriter();
+	private final long[] cumulative = new long[BOUNDS_NANOS.length];
+	private final byte[] request = new byte[1024];
+
+	private MetricsServer() {
+	}
+
+	/**
+	 * driver.properties의 metrics.xxx 설정을 반영하는 메소드 (포트가 바뀌었다면 다시 시작)
+	 * @param groups : 지표를 보여줄 샤드별 DataSourceGroup 목록
+	 */
+	public static synchronized void configure(Properties prop, List<DataSourceGroup> groups) {
+		shards = groups;
+
+		int port = Integer.parseInt(prop.getProperty("metrics.port", "0").trim());
+		String host = prop.getProperty("metrics.host", "127.0.0.1").trim();
+		String address = port > 0 ? host + ":" + port : null;
+		if(Objects.equals(address, boundTo)) {
+			return;
+		}
+
+		stop();
+		if(address == null) {
+			return;
+		}
+		try {
+			server = new ServerSocket(port, 16, InetAddress.getByName(host));
+			boundTo = address;
+			ServerSocket s = server;
+			MetricsServer m = new MetricsServer();
+			Thread t = new Thread(() -> m.acceptLoop(s), "metrics-http");
+			t.setDaemon(true);
+			t.start();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void stop() {
+		if(server != null) {
+			try {
+				server.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			server = null;
+			boundTo = null;
+		}
+	}
+
+	private void acceptLoop(ServerSocket s) {
+		while(!s.isClosed()) {
+			try(Socket socket = s.accept()) {
+				socket.setSoTimeout(2000);
+				handle(socket.getInputStream(), socket.getOutputStream());
+			} catch (SocketException e) {
+				// 서버가 닫혔거나(설정 변경) 수집하는 쪽에서 연결을 끊음
+			} catch (SocketTimeoutException e) {
+				// 수집하는 쪽이 요청을 끝까지 보내지 않음 => 이 연결만 닫고 다음 요청
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// 요청줄(GET /metrics HTTP/1.1)만 확인하고 나머지 헤더는 무시
+	private void handle(InputStream in, OutputStream out) throws IOException {
+		int n = 0;
+		while(n < request.length) {
+			int r = in.read(request, n, request.length - n);
+			if(r < 0) break;
+			n += r;
+			if(endOfHeaders(n)) break;
+		}
+		if(!startsWith(n, "GET /metrics ") && !startsWith(n, "GET /metrics?")) {
+			out.write(NOT_FOUND);
+			return;
+		}
+		out.write(OK);
+		writer.reset(out);
+		render(writer);
+		writer.flush();
+	}
+
+	private boolean endOfHeaders(int n) {
+		return n >= 4 && request[n - 4] == '\r' && request[n - 3] == '\n' && request[n - 2] == '\r' && request[n - 1] == '\n';
+	}
+
+	private boolean startsWith(int n, String prefix) {
+		if(n < prefix.length()) return false;
+		for(int i = 0; i < prefix.length(); i++) {
+			if(request[i] != prefix.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 모든 지표를 Prometheus 형식으로 쓰는 메소드
+	 */
+	void render(PrometheusWriter w) throws IOException {
+		renderPools(w);
+		renderBulkheads(w);
+		renderBreakers(w);
+		renderQueries(w);
+		renderCaches(w);
+		renderMethods(w);
+
+		w.type("member_slow_query_log_total", "counter", "느린 SQL문 기록 수 (result=written|dropped)");
+		w.name("member_slow_query_log_total").label("result", "written").value(SlowQueryLog.getWritten());
+		w.name("member_slow_query_log_total").label("result", "dropped").value(SlowQueryLog.getDropped());
+		w.type("member_trace_spans_total", "counter", "내보낸 추적 구간 수 (result=exported|dropped)");
+		w.name("member_trace_spans_total").label("result", "exported").value(Tracer.getExported());
+		w.name("member_trace_spans_total").label("result", "dropped").value(Tracer.getDropped());
+	}
+
+	private void renderPools(PrometheusWriter w) throws IOException {
+		List<DataSourceGroup> groups = shards;
+
+		w.type("member_pool_connections", "gauge", "커넥션 수 (state=active: 사용중, idle: 보관중)");
+		for(int i = 0; i < groups.size(); i++) {
+			List<ConnectionPool> pools = groups.get(i).getPools();
+			for(int j = 0; j < pools.size(); j++) {
+				ConnectionPool p = pools.get(j);
+				w.name("member_pool_connections").label("shard", i).label("url", p.getUrl()).label("state", "active").value(p.getActive());
+				w.name("member_pool_connections").label("shard", i).label("url", p.getUrl()).label("state", "idle").value(p.getIdle());
+			}
+		}
+		w.type("member_pool_connections_opened_total", "counter", "커넥션을 얻은 횟수 (result=created: 새로 접속, reused: 재사용)");
+		for(int i = 0; i < groups.size(); i++) {
+			List<ConnectionPool> pools = groups.get(i).getPools();
+			for(int j = 0; j < pools.size(); j++) {
+				ConnectionPool p = pools.get(j);
+				w.name("member_pool_connections_opened_total").label("shard", i).label("url", p.getUrl()).label("result", "created").value(p.getCreated());
+				w.name("member_pool_connections_opened_total").label("shard", i).label("url", p.getUrl()).label("result", "reused").value(p.getReused());
+			}
+		}
+		w.type("member_pool_borrow_seconds_max", "gauge", "커넥션을 빌려주기까지 걸린 최대시간");
+		for(int i = 0; i < groups.size(); i++) {
+			List<ConnectionPool> pools = groups.get(i).getPools();
+			for(int j = 0; j < pools.size(); j++) {
+				ConnectionPool p = pools.get(j);
+				w.name("member_pool_borrow_seconds_max").label("shard", i).label("url", p.getUrl()).value(p.getMaxBorrowMillis() / 1000.0);
+			}
+		}
+	}
+
+	private void renderBulkheads(PrometheusWriter w) throws IOException {
+		w.type("member_bulkhead_connections", "gauge", "작업종류별 커넥션 사용권한 (state=in_use|queued|max)");
+		for(Bulkhead b : Bulkhead.all()) {
+			w.name("member_bulkhead_connections").label("workload", b.getName()).label("state", "in_use").value(b.getInUse());
+			w.name("member_bulkhead_connections").label("workload", b.getName()).label("state", "queued").value(b.getQueued());
+			w.name("member_bulkhead_connections").label("workload", b.getName()).label("state", "max").value(b.getMax());
+		}
+		w.type("member_bulkhead_acquire_total", "counter", "작업종류별 커넥션 사용권한 요청 결과 (result=acquired|rejected|timeout)");
+		for(Bulkhead b : Bulkhead.all()) {
+			w.name("member_bulkhead_acquire_total").label("workload", b.getName()).label("result", "acquired").value(b.getAcquired());
+			w.name("member_bulkhead_acquire_total").label("workload", b.getName()).label("result", "rejected").value(b.getRejected());
+			w.name("member_bulkhead_acquire_total").label("workload", b.getName()).label("result", "timeout").value(b.getTimeouts());
+		}
+		w.type("member_bulkhead_wait_seconds_max", "gauge", "커넥션 사용권한을 얻기까지 기다린 최대시간");
+		for(Bulkhead b : Bulkhead.all()) {
+			w.name("member_bulkhead_wait_seconds_max").label("workload", b.getName()).value(b.getMaxWaitMillis() / 1000.0);
+		}
+	}
+
+	private void renderBreakers(PrometheusWriter w) throws IOException {
+		w.type("member_circuit_breaker_state", "gauge", "샤드별 서킷브레이커 상태 (0=closed, 1=open, 2=half_open)");
+		for(Map.Entry<Integer, CircuitBreaker> e : Resilience.breakers().entrySet()) {
+			w.name("member_circuit_breaker_state").label("shard", e.getKey()).value(e.getValue().getState().ordinal());
+		}
+	}
+
+	private void renderQueries(PrometheusWriter w) throws IOException {
+		w.type("member_query_duration_seconds", "histogram", "query.xml 키별 SQL문 실행시간 (Statement 생성 ~ 반납)");
+		for(QueryMetrics.Stats s : QueryMetrics.all()) {
+			histogram(w, "member_query_duration_seconds", "query", s.getKey(), null, null, s.getLatency());
+		}
+		w.type("member_query_rows_total", "counter", "query.xml 키별 조회/처리된 행 수");
+		for(QueryMetrics.Stats s : QueryMetrics.all()) {
+			w.name("member_query_rows_total").label("query", s.getKey()).value(s.getRows());
+		}
+		w.type("member_query_errors_total", "counter", "query.xml 키별 실패 횟수");
+		for(QueryMetrics.Stats s : QueryMetrics.all()) {
+			w.name("member_query_errors_total").label("query", s.getKey()).value(s.getErrors());
+		}
+		w.type("member_query_cache_lookups_total", "counter", "query.xml SQL문 보관(QueryCache) 조회 결과 (result=hit|miss)");
+		w.name("member_query_cache_lookups_total").label("result", "hit").value(QueryCache.getHits());
+		w.name("member_query_cache_lookups_total").label("result", "miss").value(QueryCache.getMisses());
+		w.type("member_query_cache_reloads_total", "counter", "query.xml을 다시 읽은 횟수");
+		w.name("member_query_cache_reloads_total").value(QueryCache.getReloads());
+	}
+
+	private void renderCaches(PrometheusWriter w) throws IOException {
+		w.type("member_cache_lookups_total", "counter", "캐시 조회 결과 (result=hit|miss)");
+		for(TtlCache<?, ?> c : TtlCache.all()) {
+			w.name("member_cache_lookups_total").label("cache", c.getName()).label("result", "hit").value(c.getHits());
+			w.name("member_cache_lookups_total").label("cache", c.getName()).label("result", "miss").value(c.getMisses());
+		}
+		w.type("member_cache_evictions_total", "counter", "가득 차서 버려진 값의 수");
+		for(TtlCache<?, ?> c : TtlCache.all()) {
+			w.name("member_cache_evictions_total").label("cache", c.getName()).value(c.getEvictions());
+		}
+		w.type("member_cache_size", "gauge", "보관중인 값의 수");
+		for(TtlCache<?, ?> c : TtlCache.all()) {
+			w.name("member_cache_size").label("cache", c.getName()).value(c.getSize());
+		}
+	}
+
+	private void renderMethods(PrometheusWriter w) throws IOException {
+		w.type("member_method_duration_seconds", "histogram", "View/Controller/Service 메소드별 실행시간");
+		for(MethodMetrics.Stats s : MethodMetrics.all()) {
+			histogram(w, "member_method_duration_seconds", "method", s.getName(), "layer", s.getLayer(), s.getLatency());
+		}
+		w.type("member_method_errors_total", "counter", "메소드별 예외 발생 횟수");
+		for(MethodMetrics.Stats s : MethodMetrics.all()) {
+			w.name("member_method_errors_total").label("method", s.getName()).label("layer", s.getLayer()).value(s.getErrors());
+		}
+	}
+
+	// histogram 한 개 (_bucket{le=...}, _sum, _count) => 라벨은 최대 2개
+	private void histogram(PrometheusWriter w, String metric, String k1, String v1, String k2, String v2,
+									LatencyHistogram h) throws IOException {
+		long count = h.cumulativeCounts(BOUNDS_NANOS, cumulative);
+		for(int i = 0; i < BOUNDS_NANOS.length; i++) {
+			labels(w.name(metric, "_bucket"), k1, v1, k2, v2).labelSeconds("le", BOUNDS_NANOS[i]).value(cumulative[i]);
+		}
+		labels(w.name(metric, "_bucket"), k1, v1, k2, v2).label("le", "+Inf").value(count);
+		labels(w.name(metric, "_sum"), k1, v1, k2, v2).valueSeconds(h.getTotalNanos());
+		labels(w.name(metric, "_count"), k1, v1, k2, v2).value(count);
+	}
+
+	private static PrometheusWriter labels(PrometheusWriter w, String k1, String v1, String k2, String v2) throws IOException {
+		w.label(k1, v1);
+		if(k2 != null) {
+			w.label(k2, v2);
+		}
+		return w;
+	}
+}
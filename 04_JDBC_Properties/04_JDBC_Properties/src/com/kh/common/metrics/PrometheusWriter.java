@@ -0,0 +1,248 @@
+package com.kh.common.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+ * PrometheusWriter : Prometheus 텍스트 형식(exposition format 0.0.4)으로 지표를 써주는 객체
+ *
+ * - 문자열을 만들어서 합치지 않고 고정크기 byte 배열에 바로 쓰다가 가득 차면 소켓으로 보낸다.
+ *   => 지표가 아무리 많아도 한번에 8KB만 사용하고, 숫자도 문자열로 바꾸지 않고 자릿수별로 쓴다.
+ * - 객체 하나를 계속 재사용한다. (MetricsServer는 요청을 한번에 하나씩만 처리)
+ *
+ * 사용법)
+ *   w.type("member_pool_connections", "gauge", "커넥션 수");
+ *   w.name("member_pool_connections").label("shard", 0).label("state", "idle").value(3);
+ *   => member_pool_connections{shard="0",state="idle"} 3
+ * */
+public class PrometheusWriter {
+
+	private static final long[] POW10 = { 1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+											100_000_000L, 1_000_000_000L };
+
+	private final byte[] buf = new byte[8192];
+	private int pos;
+	private OutputStream out;
+	private boolean labelOpen;
+
+	/**
+	 * 새로 응답을 시작할때 출력대상을 지정하는 메소드
+	 */
+	public void reset(OutputStream out) {
+		this.out = out;
+		this.pos = 0;
+		this.labelOpen = false;
+	}
+
+	/**
+	 * # HELP, # TYPE 줄을 쓰는 메소드 (같은 이름의 지표들 앞에 한번만)
+	 * @param type : counter, gauge, histogram
+	 */
+	public void type(String metric, String type, String help) throws IOException {
+		raw("# HELP ");
+		raw(metric);
+		put(' ');
+		text(help, false);
+		raw("\n# TYPE ");
+		raw(metric);
+		put(' ');
+		raw(type);
+		put('\n');
+	}
+
+	/**
+	 * 지표 한 줄을 시작하는 메소드 => label()을 0번 이상 호출한 후 value()로 끝낸다.
+	 */
+	public PrometheusWriter name(String metric) throws IOException {
+		raw(metric);
+		return this;
+	}
+
+	/**
+	 * 지표 이름 뒤에 접미어를 붙여서 시작하는 메소드 (ex. name("member_query_duration_seconds", "_bucket"))
+	 */
+	public PrometheusWriter name(String metric, String suffix) throws IOException {
+		raw(metric);
+		raw(suffix);
+		return this;
+	}
+
+	public PrometheusWriter label(String key, String value) throws IOException {
+		openLabel(key);
+		text(value, true);
+		put('"');
+		return this;
+	}
+
+	public PrometheusWriter label(String key, long value) throws IOException {
+		openLabel(key);
+		number(value);
+		put('"');
+		return this;
+	}
+
+	/**
+	 * 나노초 값을 초 단위로 바꿔서 라벨값으로 쓰는 메소드 (histogram의 le)
+	 */
+	public PrometheusWriter labelSeconds(String key, long nanos) throws IOException {
+		openLabel(key);
+		scaled(nanos, 9);
+		put('"');
+		return this;
+	}
+
+	/**
+	 * 값을 쓰고 줄을 끝내는 메소드
+	 */
+	public void value(long v) throws IOException {
+		closeLabel();
+		number(v);
+		put('\n');
+	}
+
+	public void value(double v) throws IOException {
+		closeLabel();
+		if(Double.isNaN(v)) {
+			raw("NaN");
+		}else if(Double.isInfinite(v)) {
+			raw(v > 0 ? "+Inf" : "-Inf");
+		}else if(Math.abs(v) < 9e9) {
+			// 소수점 아래 9자리까지 (문자열로 바꾸지 않음)
+			scaled(Math.round(v * 1e9), 9);
+		}else {
+			number((long) v);
+		}
+		put('\n');
+	}
+
+	/**
+	 * 나노초 값을 초 단위 값으로 쓰고 줄을 끝내는 메소드
+	 */
+	public void valueSeconds(long nanos) throws IOException {
+		closeLabel();
+		scaled(nanos, 9);
+		put('\n');
+	}
+
+	/**
+	 * 버퍼에 남은 내용을 모두 보내는 메소드
+	 */
+	public void flush() throws IOException {
+		if(pos > 0) {
+			out.write(buf, 0, pos);
+			pos = 0;
+		}
+		out.flush();
+	}
+
+	private void openLabel(String key) throws IOException {
+		put(labelOpen ? ',' : '{');
+		labelOpen = true;
+		raw(key);
+		put('=');
+		put('"');
+	}
+
+	private void closeLabel() throws IOException {
+		if(labelOpen) {
+			put('}');
+			labelOpen = false;
+		}
+		put(' ');
+	}
+
+	// 정수를 자릿수별로 쓰기
+	private void number(long v) throws IOException {
+		if(v < 0) {
+			put('-');
+			if(v == Long.MIN_VALUE) {
+				raw("9223372036854775808");
+				return;
+			}
+			v = -v;
+		}
+		long div = 1;
+		while(div <= v / 10) {
+			div *= 10;
+		}
+		for(; div > 0; div /= 10) {
+			put((char) ('0' + (v / div) % 10));
+		}
+	}
+
+	// units / 10^scale 을 소수로 쓰기 (끝자리 0은 생략) ex. scaled(1500000, 9) => 0.0015
+	private void scaled(long units, int scale) throws IOException {
+		if(units < 0) {
+			put('-');
+			units = -units;
+		}
+		number(units / POW10[scale]);
+		long frac = units % POW10[scale];
+		if(frac == 0) {
+			return;
+		}
+		put('.');
+		int digits = scale;
+		while(frac % 10 == 0) {
+			frac /= 10;
+			digits--;
+		}
+		for(long div = POW10[digits - 1]; div > 0; div /= 10) {
+			put((char) ('0' + (frac / div) % 10));
+		}
+	}
+
+	// 지표 이름, 라벨 이름 등 영문/숫자/_ 로만 된 문자열
+	private void raw(String s) throws IOException {
+		for(int i = 0; i < s.length(); i++) {
+			put(s.charAt(i));
+		}
+	}
+
+	// 라벨값, 설명 => \ " 줄바꿈 처리 + UTF-8 (한글 설명 등)
+	private void text(String s, boolean quoted) throws IOException {
+		if(s == null) {
+			return;
+		}
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c == '\\') {
+				put('\\');
+				put('\\');
+			}else if(c == '\n') {
+				put('\\');
+				put('n');
+			}else if(c == '"' && quoted) {
+				put('\\');
+				put('"');
+			}else if(c < 0x80) {
+				put(c);
+			}else if(c < 0x800) {
+				putByte(0xC0 | (c >> 6));
+				putByte(0x80 | (c & 0x3F));
+			}else if(Character.isHighSurrogate(c) && i + 1 < s.length()) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				putByte(0xF0 | (cp >> 18));
+				putByte(0x80 | ((cp >> 12) & 0x3F));
+				putByte(0x80 | ((cp >> 6) & 0x3F));
+				putByte(0x80 | (cp & 0x3F));
+			}else {
+				putByte(0xE0 | (c >> 12));
+				putByte(0x80 | ((c >> 6) & 0x3F));
+				putByte(0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	private void put(char c) throws IOException {
+		putByte(c);
+	}
+
+	private void putByte(int b) throws IOException {
+		if(pos == buf.length) {
+			out.write(buf, 0, pos);
+			pos = 0;
+		}
+		buf[pos++] = (byte) b;
+	}
+}
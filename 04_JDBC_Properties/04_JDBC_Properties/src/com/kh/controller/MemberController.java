@@ -2,6 +2,9 @@ package com.kh.controller;
 
 import java.util.ArrayList;
 
+import com.kh.common.Bulkhead;
+import com.kh.common.DataAccessException;
+import com.kh.common.Tracer;
 import com.kh.model.dao.MemberDao;
 import com.kh.model.service.MemberService;
 import com.kh.model.vo.Member;
@@ -22,42 +25,58 @@ public class MemberController {
 	 * @param m : 회원의 정보가 담긴 객체
 	 */
 	public void insertMember(Member m) {
-		
-		// 1. 전달받은 userId, userName,userPwd... 정보를 가지고 Member 객체에 담기
-		
-		// 2. Dao의 insertMember 메소드 호출
-		int result = ms.insertMember(m);
-		
-		// result = 0 ==> 데이터 추가 실패
-		// result = 1 ==> 데이터 삽입 성공
-		
-		// 3. 결과값에 의해서 사용자가 보게될 화면(response)를 지정
-		if(result > 0) { // 성공시
-			// 성공메세지를 띄워주는 화면 호출
-			new MemberView().displaySuccess("회원 추가 성공");
-		}else { // 실패시
-			// 실패메세지를 띄워주는 화면 호출
-			new MemberView().displayFail("회원 추가 실패");
-		}
+		Tracer.run("MemberController.insertMember", Tracer.CONTROLLER, () -> {
+			
+			// 1. 전달받은 userId, userName,userPwd... 정보를 가지고 Member 객체에 담기
+			
+			// 2. Dao의 insertMember 메소드 호출
+			int result = 0;
+			try {
+				result = ms.insertMember(m);
+			} catch (DataAccessException e) {
+				new MemberView().displayFail("회원 추가 실패" + reason(e));
+				return;
+			}
+			
+			// result = 0 ==> 데이터 추가 실패
+			// result = 1 ==> 데이터 삽입 성공
+			
+			// 3. 결과값에 의해서 사용자가 보게될 화면(response)를 지정
+			if(result > 0) { // 성공시
+				// 성공메세지를 띄워주는 화면 호출
+				new MemberView().displaySuccess("회원 추가 성공");
+			}else { // 실패시
+				// 실패메세지를 띄워주는 화면 호출
+				new MemberView().displayFail("회원 추가 실패");
+			}
+		});
 	}
 	
 	/**
 	 * 사용자의 회원 전체 조회 요청을 처리해주는 메소드
 	 */
 	public void selectAll() {
-		
-		// 결과값을 담을 변수
-		// SELECT -> ResultSet -> ArrayList<Member>
-		
-		ArrayList<Member> list = ms.selectAll();
-		
-		// 조회 결과가 있는지 없는지 판단한 후 사용자가 보게될 응답화면을 지정
-		if(list.isEmpty()) { // 텅 빈 리스트일 경우 => 조회결과가 없음
-			new MemberView().displayNodata("전체 조회 결과가 없습니다.");
-		}else { // 조회가 되었을 경우 => 조회결과 있음
-			new MemberView().displayList(list);
-		}
-		
+		Tracer.run("MemberController.selectAll", Tracer.CONTROLLER, () -> {
+			
+			// 결과값을 담을 변수
+			// SELECT -> ResultSet -> ArrayList<Member>
+			
+			ArrayList<Member> list = null;
+			try {
+				list = ms.selectAll();
+			} catch (DataAccessException e) {
+				new MemberView().displayFail("전체 조회 실패" + reason(e));
+				return;
+			}
+			
+			// 조회 결과가 있는지 없는지 판단한 후 사용자가 보게될 응답화면을 지정
+			if(list.isEmpty()) { // 텅 빈 리스트일 경우 => 조회결과가 없음
+				new MemberView().displayNodata("전체 조회 결과가 없습니다.");
+			}else { // 조회가 되었을 경우 => 조회결과 있음
+				new MemberView().displayList(list);
+			}
+			
+		});
 	}
 	
 	/**
@@ -66,64 +85,102 @@ public class MemberController {
 	 * @author 민경민
 	 */
 	public void selectByUserId(String userId) {
-		
-		// 결과값을 담을 변수
-		// SELECT => RESULTSET => Member
-		Member m = ms.selectByUserId(userId);
-		
-		//조회 결과가 있는지 없는지 판단한후 사용자가 보게될 화면을 지정
-		if(m == null) { // 조회결과가 없는경우
-			new MemberView().displayNodata(userId+"에 해당하는 검색 결과가 없습니다..");
-		}else { // 조회결과가 있을경우
-			new MemberView().displayOne(m);
-		}
+		Tracer.run("MemberController.selectByUserId", Tracer.CONTROLLER, () -> {
+			
+			// 결과값을 담을 변수
+			// SELECT => RESULTSET => Member
+			Member m = null;
+			try {
+				m = ms.selectByUserId(userId);
+			} catch (DataAccessException e) {
+				new MemberView().displayFail("아이디 검색 실패" + reason(e));
+				return;
+			}
+			
+			//조회 결과가 있는지 없는지 판단한후 사용자가 보게될 화면을 지정
+			if(m == null) { // 조회결과가 없는경우
+				new MemberView().displayNodata(userId+"에 해당하는 검색 결과가 없습니다..");
+			}else { // 조회결과가 있을경우
+				new MemberView().displayOne(m);
+			}
+		});
 	}
 	
 	public void selectByUserName(String keyword) {
-		
-		ArrayList<Member> list = ms.selectByUserName(keyword);
-		
-		if(list.isEmpty()) {
-			new MemberView().displayNodata(keyword+"에 대한 검색 결과가 없습니다.");
-		}else {
-			new MemberView().displayList(list);
-		}
-		
+		Tracer.run("MemberController.selectByUserName", Tracer.CONTROLLER, () -> {
+			
+			ArrayList<Member> list = null;
+			try {
+				list = ms.selectByUserName(keyword);
+			} catch (DataAccessException e) {
+				new MemberView().displayFail("이름 검색 실패" + reason(e));
+				return;
+			}
+			
+			if(list.isEmpty()) {
+				new MemberView().displayNodata(keyword+"에 대한 검색 결과가 없습니다.");
+			}else {
+				new MemberView().displayList(list);
+			}
+			
+		});
 	}
 	
 	public void updateMember(String userId, String userPwd, String email, String phone, String address) {
-		// 넘겨받은값을가지고 가공처리(VO객체로 만들기) 완료
-		Member m = new Member();
-		m.setUserId(userId);
-		m.setAddress(address);
-		m.setEmail(email);
-		m.setPhone(phone);
-		m.setUserPwd(userPwd);
-		
-		int result = ms.updateMember(m);
-		
-		if(result > 0) {
-			new MemberView().displaySuccess("회원 정보 변경 성공");
-		}else {
-			new MemberView().displayFail("회원 정보 변경 실패");
-		}		
+		Tracer.run("MemberController.updateMember", Tracer.CONTROLLER, () -> {
+			// 넘겨받은값을가지고 가공처리(VO객체로 만들기) 완료
+			Member m = new Member();
+			m.setUserId(userId);
+			m.setAddress(address);
+			m.setEmail(email);
+			m.setPhone(phone);
+			m.setUserPwd(userPwd);
+			
+			int result = 0;
+			try {
+				result = ms.updateMember(m);
+			} catch (DataAccessException e) {
+				new MemberView().displayFail("회원 정보 변경 실패" + reason(e));
+				return;
+			}
+			
+			if(result > 0) {
+				new MemberView().displaySuccess("회원 정보 변경 성공");
+			}else {
+				new MemberView().displayFail("회원 정보 변경 실패");
+			}		
+		});
 	}
 	
 	public void deleteMember(String userId, String userPwd) {
-		
-		int result = ms.deleteMember(userId, userPwd);
-		
-		if(result > 0) {
-			new MemberView().displaySuccess("회원 탈퇴 성공");
-		}else {
-			new MemberView().displayFail("회원 탈퇴 실패");
-		}	
+		Tracer.run("MemberController.deleteMember", Tracer.CONTROLLER, () -> {
+			
+			int result = 0;
+			try {
+				result = ms.deleteMember(userId, userPwd);
+			} catch (DataAccessException e) {
+				new MemberView().displayFail("회원 탈퇴 실패" + reason(e));
+				return;
+			}
+			
+			if(result > 0) {
+				new MemberView().displaySuccess("회원 탈퇴 성공");
+			}else {
+				new MemberView().displayFail("회원 탈퇴 실패");
+			}	
+		});
 	}
 	
-	
-	
-	
-	
+	/**
+	 * DB작업 실패 원인을 사용자가 보게될 메세지로 바꿔주는 메소드
+	 * => 일시적인 오류, 커넥션 몫 부족(Bulkhead)이라면 잠시 후 다시 시도하도록 안내 (바로 다시 시도하면 DB에 부하만 늘어남)
+	 */
+	private String reason(DataAccessException e) {
+		if(e.isTransient() || e.getCause() instanceof Bulkhead.RejectedException) {
+			return " (일시적인 오류입니다. 잠시 후 다시 시도해주세요.)";
+		}
+		return e.getMessage() == null ? "" : " (" + e.getMessage().trim() + ")";
+	}
 }
 
 
@@ -0,0 +1,33 @@
+package com.kh.export;
+
+/*
+ * 회원 내보내기(MemberExporter) 파일 형식
+ * - CSV   : 첫줄은 컬럼명, 값에 콤마/따옴표/줄바꿈이 있다면 따옴표로 감싸고 따옴표는 두번 ("")
+ * - JSONL : 한 줄에 회원 한명씩 {"USERNO":1,"USERID":"user01",...} (JSON Lines)
+ * */
+public enum ExportFormat {
+	CSV("csv"),
+	JSONL("jsonl");
+
+	private final String extension;
+
+	private ExportFormat(String extension) {
+		this.extension = extension;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * 이름(csv, jsonl)으로 형식을 찾는 메소드 (대소문자 구분x, 없으면 IllegalArgumentException)
+	 */
+	public static ExportFormat of(String name) {
+		for(ExportFormat f : values()) {
+			if(f.extension.equalsIgnoreCase(name)) {
+				return f;
+			}
+		}
+		throw new IllegalArgumentException("지원하지 않는 형식 : " + name + " (csv, jsonl)");
+	}
+}
@@ -0,0 +1,310 @@
+package com.kh.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * MemberExporter : 조회결과를 한 행씩 받아서 바로 파일(CSV / JSON Lines)에 써주는 객체
+ *
+ * 기존 방식(selectAll => ArrayList<Member> => toString())은 회원 수만큼 메모리가 필요하지만
+ * 이 객체는 행을 받는 즉시 재사용하는 버퍼(BUFFER)에 UTF-8로 옮겨적고, 버퍼가 차면 FileChannel로 쓴다.
+ * => 테이블 크기와 상관없이 메모리 사용량이 일정하다. (버퍼 + gzip 버퍼)
+ * => 값마다 String.getBytes(), Integer.toString() 같은 임시 객체를 만들지 않는다.
+ *
+ * 사용법) DAO가 행마다 COLUMNS 순서대로 value()를 호출하고 endRow()
+ *   try(MemberExporter out = new MemberExporter(file, ExportFormat.CSV, false)) {
+ *       out.value(1); out.value("user01"); ... out.endRow();
+ *   }
+ *
+ * 비밀번호(USERPWD)는 내보내지 않는다.
+ * */
+public class MemberExporter implements AutoCloseable {
+
+	// 내보낼 컬럼 (CSV 첫줄, JSON 키 이름)
+	public static final String[] COLUMNS = { "USERNO", "USERID", "USERNAME", "GENDER", "AGE",
+			"EMAIL", "PHONE", "ADDRESS", "HOBBY", "ENROLLDATE" };
+
+	private static final int BUFFER = 64 * 1024;
+	// 값 하나를 쓰기 전에 남겨둘 여유공간 => JSON 키("ENROLLDATE":) 또는 숫자, 날짜 하나가 충분히 들어가는 크기
+	private static final int RESERVE = 64;
+	// 문자 하나가 차지할수 있는 최대 바이트 (JSON 제어문자 => 역슬래시 + u00XX)
+	private static final int MAX_CHAR = 6;
+	private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private final ExportFormat format;
+	private final FileChannel channel;
+	private final GZIPOutputStream gzip; // 압축하지 않는다면 null
+
+	private final byte[] buf = new byte[BUFFER];
+	private final ByteBuffer view = ByteBuffer.wrap(buf); // buf를 FileChannel로 쓰기 위한 객체 (복사x)
+	private int pos;
+
+	// JSON : 컬럼별로 미리 만들어둔 "키": (두번째 컬럼부터는 앞에 콤마 포함)
+	private final byte[][] keys = new byte[COLUMNS.length][];
+
+	private int column; // 현재 행에서 다음에 쓸 컬럼 순번
+	private long rows;
+	private long bytes; // 압축전 크기
+
+	/**
+	 * @param file : 내보낼 파일 (이미 있다면 덮어씀)
+	 * @param format : CSV / JSONL
+	 * @param gzip : true라면 gzip으로 압축해서 저장
+	 */
+	public MemberExporter(Path file, ExportFormat format, boolean gzip) throws IOException {
+		this.format = format;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		this.gzip = gzip ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER) : null;
+
+		for(int i = 0; i < COLUMNS.length; i++) {
+			keys[i] = ((i == 0 ? "\"" : ",\"") + COLUMNS[i] + "\":").getBytes(StandardCharsets.US_ASCII);
+		}
+		if(format == ExportFormat.CSV) {
+			put(String.join(",", COLUMNS).getBytes(StandardCharsets.US_ASCII));
+			buf[pos++] = '\n';
+		}
+	}
+
+	public void value(int v) throws IOException {
+		beginValue();
+		if(v < 0) {
+			buf[pos++] = '-';
+			if(v == Integer.MIN_VALUE) { // -v가 int 범위를 넘는 경우
+				put("2147483648".getBytes(StandardCharsets.US_ASCII));
+				return;
+			}
+			v = -v;
+		}
+		// 자릿수만큼 자리를 잡고 뒤에서부터 채운다.
+		int end = pos + digits(v);
+		for(int i = end - 1; i >= pos; i--) {
+			buf[i] = (byte) ('0' + v % 10);
+			v /= 10;
+		}
+		pos = end;
+	}
+
+	/**
+	 * 값이 없는(NULL) 컬럼을 쓰는 메소드 => CSV : 빈칸, JSON : null
+	 */
+	public void nullValue() throws IOException {
+		beginValue();
+		if(format == ExportFormat.JSONL) {
+			put(NULL);
+		}
+	}
+
+	public void value(String s) throws IOException {
+		if(s == null) {
+			nullValue();
+			return;
+		}
+		beginValue();
+		if(format == ExportFormat.JSONL) {
+			buf[pos++] = '"';
+			putUtf8(s, true);
+			ensure(1);
+			buf[pos++] = '"';
+		}else if(needsQuote(s)) {
+			buf[pos++] = '"';
+			putUtf8(s, false);
+			ensure(1);
+			buf[pos++] = '"';
+		}else {
+			putUtf8(s, false);
+		}
+	}
+
+	// 날짜 => yyyy-MM-dd
+	public void value(LocalDate d) throws IOException {
+		if(d == null) {
+			nullValue();
+			return;
+		}
+		beginValue();
+		boolean json = format == ExportFormat.JSONL;
+		if(json) buf[pos++] = '"';
+		int year = d.getYear();
+		buf[pos++] = (byte) ('0' + year / 1000 % 10);
+		buf[pos++] = (byte) ('0' + year / 100 % 10);
+		buf[pos++] = (byte) ('0' + year / 10 % 10);
+		buf[pos++] = (byte) ('0' + year % 10);
+		buf[pos++] = '-';
+		buf[pos++] = (byte) ('0' + d.getMonthValue() / 10);
+		buf[pos++] = (byte) ('0' + d.getMonthValue() % 10);
+		buf[pos++] = '-';
+		buf[pos++] = (byte) ('0' + d.getDayOfMonth() / 10);
+		buf[pos++] = (byte) ('0' + d.getDayOfMonth() % 10);
+		if(json) buf[pos++] = '"';
+	}
+
+	/**
+	 * 한 행을 끝내는 메소드 => COLUMNS 갯수만큼 value()를 호출한 후에 호출해야 한다.
+	 */
+	public void endRow() throws IOException {
+		if(column != COLUMNS.length) {
+			throw new IllegalStateException("컬럼 " + COLUMNS.length + "개 중 " + column + "개만 썼습니다.");
+		}
+		ensure(2);
+		if(format == ExportFormat.JSONL) {
+			buf[pos++] = '}';
+		}
+		buf[pos++] = '\n';
+		column = 0;
+		rows++;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	// 압축전 크기 (close 이후에는 전체 크기)
+	public long getBytes() {
+		return bytes + pos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+			if(gzip != null) {
+				gzip.finish(); // gzip 끝부분(CRC, 원본크기) 기록
+			}
+			channel.force(false); // 이름을 바꾸기 전에 디스크까지 (ExportService)
+		} finally {
+			if(gzip != null) {
+				gzip.close(); // channel도 같이 닫힘
+			}else {
+				channel.close();
+			}
+		}
+	}
+
+	// 값 앞에 구분자(CSV : 콤마, JSON : { 또는 ,"키":)를 쓰고 값을 쓸 자리를 확보
+	private void beginValue() throws IOException {
+		if(column == COLUMNS.length) {
+			throw new IllegalStateException("endRow()를 호출하지 않고 다음 행을 썼습니다.");
+		}
+		ensure(RESERVE);
+		if(format == ExportFormat.JSONL) {
+			if(column == 0) buf[pos++] = '{';
+			byte[] key = keys[column];
+			System.arraycopy(key, 0, buf, pos, key.length);
+			pos += key.length;
+		}else if(column > 0) {
+			buf[pos++] = ',';
+		}
+		column++;
+	}
+
+	// 문자열을 UTF-8로 옮겨적기 (json이면 JSON 문자열 규칙으로, 아니면 CSV 규칙(따옴표 두번)으로)
+	private void putUtf8(String s, boolean json) throws IOException {
+		int len = s.length();
+		for(int i = 0; i < len; i++) {
+			ensure(MAX_CHAR);
+			char c = s.charAt(i);
+			if(c < 0x80) {
+				if(json && (c == '"' || c == '\\')) {
+					buf[pos++] = '\\';
+					buf[pos++] = (byte) c;
+				}else if(json && c < 0x20) {
+					putControl(c);
+				}else if(c == '"') { // CSV
+					buf[pos++] = '"';
+					buf[pos++] = '"';
+				}else {
+					buf[pos++] = (byte) c;
+				}
+			}else if(c < 0x800) {
+				buf[pos++] = (byte) (0xC0 | c >> 6);
+				buf[pos++] = (byte) (0x80 | c & 0x3F);
+			}else if(Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				buf[pos++] = (byte) (0xF0 | cp >> 18);
+				buf[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+				buf[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+				buf[pos++] = (byte) (0x80 | cp & 0x3F);
+			}else if(Character.isSurrogate(c)) {
+				buf[pos++] = '?'; // 짝이 맞지 않는 문자 (String.getBytes와 같게 처리)
+			}else {
+				buf[pos++] = (byte) (0xE0 | c >> 12);
+				buf[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+				buf[pos++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+	}
+
+	// JSON 제어문자 => 역슬래시 + n, r, t 또는 u00XX
+	private void putControl(char c) {
+		buf[pos++] = '\\';
+		switch(c) {
+		case '\n': buf[pos++] = 'n'; break;
+		case '\r': buf[pos++] = 'r'; break;
+		case '\t': buf[pos++] = 't'; break;
+		default:
+			buf[pos++] = 'u';
+			buf[pos++] = '0';
+			buf[pos++] = '0';
+			buf[pos++] = HEX[c >> 4];
+			buf[pos++] = HEX[c & 0xF];
+		}
+	}
+
+	// CSV : 콤마, 따옴표, 줄바꿈이 있는 값은 따옴표로 감싸야 한다.
+	private static boolean needsQuote(String s) {
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c == ',' || c == '"' || c == '\n' || c == '\r') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int digits(int v) {
+		int n = 1;
+		while(v >= 10) {
+			v /= 10;
+			n++;
+		}
+		return n;
+	}
+
+	private void put(byte[] b) throws IOException {
+		ensure(b.length);
+		System.arraycopy(b, 0, buf, pos, b.length);
+		pos += b.length;
+	}
+
+	// 버퍼에 n바이트를 쓸 자리가 없다면 지금까지 모인 내용을 파일로 내보낸다.
+	private void ensure(int n) throws IOException {
+		if(pos + n > buf.length) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		if(pos == 0) {
+			return;
+		}
+		if(gzip != null) {
+			gzip.write(buf, 0, pos);
+		}else {
+			view.limit(pos).position(0);
+			while(view.hasRemaining()) {
+				channel.write(view);
+			}
+		}
+		bytes += pos;
+		pos = 0;
+	}
+}
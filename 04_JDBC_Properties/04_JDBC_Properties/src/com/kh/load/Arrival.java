@@ -0,0 +1,17 @@
+package com.kh.load;
+
+/*
+ * 부하 생성기가 보낼 요청 하나 => 언제(시작후 몇 나노초에), 어떤 작업을, 어떤 값으로
+ * */
+public class Arrival {
+
+	final long offsetNanos; // 부하 생성 시작시점부터 이 요청을 보내야 할 시점까지의 시간
+	final Operation operation;
+	final String argument;  // 아이디(조회/변경/탈퇴) 또는 이름 키워드(이름검색), 추가는 null
+
+	public Arrival(long offsetNanos, Operation operation, String argument) {
+		this.offsetNanos = offsetNanos;
+		this.operation = operation;
+		this.argument = argument;
+	}
+}
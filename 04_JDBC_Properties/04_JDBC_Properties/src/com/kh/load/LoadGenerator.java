@@ -0,0 +1,213 @@
+package com.kh.load;
+
+import java.io.PrintStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.kh.common.LatencyHistogram;
+import com.kh.model.service.MemberService;
+import com.kh.model.vo.Member;
+
+/*
+ * LoadGenerator : Workload가 만든 요청들을 정해진 시각에 MemberService로 보내고 작업별 응답시간을 기록하는 객체
+ *
+ * - 개방형(open-loop) 부하 : 앞의 요청이 끝났는지와 상관없이 정해진 시각이 되면 다음 요청을 보낸다.
+ *   => 서버가 느려져도 요청이 줄어들지 않으므로 실제 사용자들이 몰리는 상황과 같다.
+ *   (앞의 요청이 끝나야 다음 요청을 보내는 방식은 느려질수록 부하가 줄어서 지연이 가려진다.)
+ * - 응답시간은 "보냈어야 할 시각"부터 잰다. (coordinated omission 보정)
+ *   => 작업 스레드가 모두 바빠서 늦게 시작된 요청은 기다린 시간까지 응답시간에 포함된다.
+ *   => 비교를 위해 실제로 시작한 시각부터 잰 시간(service time)도 따로 기록한다.
+ * - 동시에 처리중인 요청이 maxOutstanding을 넘으면 보내지 않고 버린 요청(dropped)으로 센다.
+ *
+ * 추가한 회원은 기억해두었다가 탈퇴 요청때 지운다. (테이블 크기가 크게 변하지 않도록)
+ * 지울 회원이 없으면 틀린 비밀번호로 탈퇴 요청을 보낸다. (SQL문은 실행되지만 0건 처리)
+ * */
+public class LoadGenerator {
+
+	private final MemberService service = new MemberService();
+	private final int threads;
+	private final int maxOutstanding;
+	private final Stats[] stats = new Stats[Operation.values().length];
+
+	// 이번 실행에서 추가한 회원 아이디 => USERID(15byte)를 넘지 않도록 짧게 만든다. (L + 실행구분 + _ + 순번)
+	private final String insertPrefix = "L" + Long.toString(System.currentTimeMillis() / 1000 % 1_000_000, 36) + "_";
+	private final AtomicLong insertSequence = new AtomicLong();
+	private final Queue<String> inserted = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private volatile long measureFrom;
+	private long measuredNanos;
+
+	/**
+	 * @param threads : 요청을 처리할 스레드 수 (동시에 DB작업을 할수 있는 최대 요청 수)
+	 * @param maxOutstanding : 처리중 + 대기중인 요청의 최대 갯수
+	 */
+	public LoadGenerator(int threads, int maxOutstanding) {
+		this.threads = threads;
+		this.maxOutstanding = maxOutstanding;
+		for(Operation op : Operation.values()) {
+			stats[op.ordinal()] = new Stats(op);
+		}
+	}
+
+	/**
+	 * 부하를 생성하는 메소드 (끝날때까지 반환하지 않음)
+	 * @param workload : 보낼 요청들
+	 * @param warmupNanos : 처음 이 시간 동안 시작한 요청은 기록하지 않음 (JIT, 커넥션 풀, 캐시 준비)
+	 * @param durationNanos : 전체 실행시간 (warmup 포함, 기록파일이 먼저 끝나면 그때까지)
+	 */
+	public void run(Workload workload, long warmupNanos, long durationNanos) throws InterruptedException {
+		AtomicInteger seq = new AtomicInteger();
+		ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "load-" + seq.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+
+		// 첫 요청 시각은 약간 뒤로 => 요청 생성 준비시간이 첫 요청의 지연으로 잡히지 않도록
+		long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+		long end = start + durationNanos;
+		measureFrom = start + warmupNanos;
+		long last = start;
+
+		Arrival a;
+		while((a = workload.next()) != null) {
+			long intended = start + a.offsetNanos;
+			if(intended >= end) {
+				break;
+			}
+			// 정해진 시각까지 대기
+			long wait;
+			while((wait = intended - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			last = intended;
+
+			if(outstanding.get() >= maxOutstanding) {
+				if(intended >= measureFrom) {
+					stats[a.operation.ordinal()].dropped.increment();
+				}
+				continue;
+			}
+			outstanding.incrementAndGet();
+			Arrival request = a;
+			workers.execute(() -> execute(request, intended));
+		}
+
+		workers.shutdown();
+		workers.awaitTermination(1, TimeUnit.HOURS);
+		measuredNanos = Math.max(1, Math.min(end, last) - measureFrom);
+	}
+
+	// 요청 하나를 실행하고 응답시간을 기록
+	private void execute(Arrival a, long intended) {
+		long started = System.nanoTime();
+		boolean failed = false;
+		try {
+			switch(a.operation) {
+			case INSERT:
+				String userId = insertPrefix + Long.toString(insertSequence.getAndIncrement(), 36);
+				if(service.insertMember(new Member(userId, "load1234", "부하", "M", 30, "load@kh.or.kr",
+													"01012345678", "서울시 강남구", "운동")) > 0) {
+					inserted.offer(userId);
+				}
+				break;
+			case SELECT_BY_ID:
+				service.selectByUserId(a.argument);
+				break;
+			case SELECT_BY_NAME:
+				service.selectByUserName(a.argument);
+				break;
+			case UPDATE:
+				Member m = new Member();
+				m.setUserId(a.argument);
+				m.setUserPwd("load1234");
+				m.setEmail("update@kh.or.kr");
+				m.setPhone("01087654321");
+				m.setAddress("서울시 중구");
+				service.updateMember(m);
+				break;
+			case DELETE:
+				String target = inserted.poll();
+				if(target != null) {
+					service.deleteMember(target, "load1234");
+				}else {
+					service.deleteMember(a.argument, "-");
+				}
+				break;
+			}
+		} catch (RuntimeException e) {
+			// DataAccessException(접속실패, 서킷브레이커 open, bulkhead 대기초과 등)
+			failed = true;
+		} finally {
+			long finished = System.nanoTime();
+			outstanding.decrementAndGet();
+			if(intended >= measureFrom) {
+				stats[a.operation.ordinal()].record(finished - intended, finished - started, failed);
+			}
+		}
+	}
+
+	/**
+	 * 작업별 결과를 표로 출력하는 메소드 (단위 ms)
+	 */
+	public void report(PrintStream out) {
+		double seconds = measuredNanos / 1e9;
+		out.printf("측정시간 %.1f초, 스레드 %d개%n", seconds, threads);
+		out.println("[응답시간 : 보냈어야 할 시각부터 (coordinated omission 보정)]");
+		header(out);
+		for(Stats s : stats) {
+			row(out, s, s.response.snapshot(), seconds);
+		}
+		out.println("[처리시간 : 실제로 시작한 시각부터 (보정 전, 비교용)]");
+		header(out);
+		for(Stats s : stats) {
+			row(out, s, s.service.snapshot(), seconds);
+		}
+	}
+
+	private static void header(PrintStream out) {
+		out.printf("%-18s %9s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+				"작업", "처리량/s", "건수", "실패", "버림", "p50", "p90", "p99", "p99.9", "max");
+	}
+
+	private static void row(PrintStream out, Stats s, LatencyHistogram.Snapshot snap, double seconds) {
+		if(snap.getCount() == 0 && s.dropped.sum() == 0) {
+			return;
+		}
+		out.printf("%-18s %9.1f %9d %7d %7d %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+				s.operation.getMethod(), snap.getCount() / seconds, snap.getCount(), s.errors.sum(), s.dropped.sum(),
+				snap.getValueAtPercentile(50) / 1e6, snap.getValueAtPercentile(90) / 1e6,
+				snap.getValueAtPercentile(99) / 1e6, snap.getValueAtPercentile(99.9) / 1e6, snap.getMaxNanos() / 1e6);
+	}
+
+	/*
+	 * 작업 하나에 대한 기록
+	 * */
+	private static class Stats {
+		private final Operation operation;
+		private final LatencyHistogram response = new LatencyHistogram(); // 보정된 응답시간
+		private final LatencyHistogram service = new LatencyHistogram();  // 실제 처리시간
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder dropped = new LongAdder();
+
+		private Stats(Operation operation) {
+			this.operation = operation;
+		}
+
+		private void record(long responseNanos, long serviceNanos, boolean failed) {
+			response.record(responseNanos);
+			service.record(serviceNanos);
+			if(failed) {
+				errors.increment();
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.kh.load;
+
+/*
+ * 부하 생성기가 MemberService에 보내는 작업 종류
+ * => 이름은 MemberService의 메소드 이름과 같다. (load.mix.메소드이름, 추적파일의 구간이름과 맞추기 위해)
+ * */
+public enum Operation {
+	INSERT("insertMember"),
+	SELECT_BY_ID("selectByUserId"),
+	SELECT_BY_NAME("selectByUserName"),
+	UPDATE("updateMember"),
+	DELETE("deleteMember");
+
+	private final String method;
+
+	private Operation(String method) {
+		this.method = method;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * 메소드 이름으로 작업 종류를 찾는 메소드 (없으면 null)
+	 */
+	public static Operation ofMethod(String method) {
+		for(Operation op : values()) {
+			if(op.method.equals(method)) {
+				return op;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,60 @@
+package com.kh.load;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+import com.kh.model.vo.Member;
+
+/*
+ * SyntheticMembers : 성능 테스트용 가상 회원을 만들어주는 클래스
+ *
+ * - i번째 회원은 항상 같은 값으로 만들어진다. (순번으로 난수 시드를 정하므로 다시 만들어도 같은 데이터)
+ * - 아이디/이름은 부하 생성기(load.properties)의 기본값과 맞춘다. => user0 ~, name0 ~
+ * - 나이, 성별, 주소, 취미, 가입일은 분포가 있도록 섞는다. (통계/분석 기능 테스트용)
+ *   나이 18 ~ 66세(가운데가 많음), 성별 반반, 가입일 2019-01-01부터 5년간 고르게
+ * */
+public class SyntheticMembers {
+
+	public static final String USER_ID_PREFIX = "user";
+	public static final String USER_NAME_PREFIX = "name";
+	public static final String PASSWORD_PREFIX = "pass";
+
+	private static final long SEED = 0x6B68L; // "kh"
+
+	private static final String[] ADDRESSES = { "서울시 강남구", "서울시 마포구", "서울시 송파구", "서울시 종로구",
+												"부산시 해운대구", "인천시 연수구", "대구시 수성구", "대전시 유성구",
+												"광주시 서구", "경기도 성남시", "경기도 수원시", "경기도 고양시" };
+	private static final String[] HOBBIES = { "독서", "운동", "영화감상", "게임", "여행", "요리", "음악감상", "등산" };
+
+	private static final long FIRST_ENROLL_DAY = LocalDate.of(2019, 1, 1).toEpochDay();
+	private static final int ENROLL_DAYS = 5 * 365;
+
+	/**
+	 * i번째(0부터) 가상 회원을 만드는 메소드 => 회원번호는 i + 1
+	 */
+	public static Member member(int i) {
+		SplittableRandom r = new SplittableRandom(SEED + i);
+		return new Member(i + 1,
+						USER_ID_PREFIX + i,
+						PASSWORD_PREFIX + i,
+						USER_NAME_PREFIX + i,
+						r.nextBoolean() ? "M" : "F",
+						18 + r.nextInt(25) + r.nextInt(25),
+						USER_ID_PREFIX + i + "@kh.or.kr",
+						phone(i),
+						ADDRESSES[r.nextInt(ADDRESSES.length)] + " " + (1 + r.nextInt(300)) + "번길",
+						HOBBIES[r.nextInt(HOBBIES.length)],
+						Date.valueOf(LocalDate.ofEpochDay(FIRST_ENROLL_DAY + r.nextInt(ENROLL_DAYS))));
+	}
+
+	// 010 + 8자리 순번 => 회원마다 다른 번호 (String.format보다 빠르게)
+	private static String phone(int i) {
+		char[] c = { '0', '1', '0', '0', '0', '0', '0', '0', '0', '0', '0' };
+		for(int p = c.length - 1; p >= 3 && i > 0; p--) {
+			c[p] = (char) ('0' + i % 10);
+			i /= 10;
+		}
+		return new String(c);
+	}
+}
@@ -0,0 +1,85 @@
+package com.kh.load;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * SyntheticWorkload : 설정값으로 요청을 만들어내는 부하
+ *
+ * - 도착간격 : load.rate(초당 요청수)로 정해진 간격(uniform) 또는
+ *              평균이 같은 지수분포 간격(poisson, 실제 사용자들처럼 몰렸다 뜸했다 함)
+ * - 작업비율 : load.mix.메소드이름 값의 비율로 작업을 고른다. (ex. 조회 70 : 이름검색 10 : ...)
+ * - 대상회원 : 미리 넣어둔 회원(key.prefix + 0 ~ keys-1) 중 Zipf 분포로 고른다.
+ *
+ * 부하 생성 전에 이 아이디/이름으로 회원이 들어있어야 조회/변경이 실제로 처리된다.
+ * */
+public class SyntheticWorkload implements Workload {
+
+	private final Random random;
+	private final double meanIntervalNanos;
+	private final boolean poisson;
+	private final Operation[] operations = Operation.values();
+	private final double[] cumulativeWeights = new double[operations.length];
+	private final Zipf zipf;
+	private final String keyPrefix;
+	private final String namePrefix;
+
+	private double offsetNanos;
+
+	public SyntheticWorkload(Properties prop) {
+		double rate = Double.parseDouble(prop.getProperty("load.rate", "100").trim());
+		if(rate <= 0) {
+			throw new IllegalArgumentException("load.rate는 0보다 커야 합니다.");
+		}
+		this.meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		this.poisson = "poisson".equalsIgnoreCase(prop.getProperty("load.arrival", "poisson").trim());
+
+		double total = 0;
+		for(int i = 0; i < operations.length; i++) {
+			total += Double.parseDouble(prop.getProperty("load.mix." + operations[i].getMethod(), "0").trim());
+			cumulativeWeights[i] = total;
+		}
+		if(total <= 0) {
+			throw new IllegalArgumentException("load.mix.xxx 중 하나 이상은 0보다 커야 합니다.");
+		}
+
+		int keys = Integer.parseInt(prop.getProperty("load.keys", "10000").trim());
+		this.zipf = new Zipf(keys, Double.parseDouble(prop.getProperty("load.zipf.exponent", "0.99").trim()));
+		this.keyPrefix = prop.getProperty("load.key.prefix", "user").trim();
+		this.namePrefix = prop.getProperty("load.name.prefix", "name").trim();
+
+		String seed = prop.getProperty("load.seed", "").trim();
+		this.random = seed.isEmpty() ? new Random() : new Random(Long.parseLong(seed));
+	}
+
+	@Override
+	public Arrival next() {
+		// 지수분포 간격 = -ln(U) * 평균간격
+		offsetNanos += poisson ? -Math.log(1 - random.nextDouble()) * meanIntervalNanos : meanIntervalNanos;
+
+		double pick = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+		Operation op = operations[operations.length - 1];
+		for(int i = 0; i < operations.length; i++) {
+			if(pick < cumulativeWeights[i]) {
+				op = operations[i];
+				break;
+			}
+		}
+		return new Arrival((long) offsetNanos, op, argument(op));
+	}
+
+	/**
+	 * 작업에 넘겨줄 값을 Zipf 분포로 고르는 메소드 (기록파일에 값이 없을때 TraceReplay도 사용)
+	 */
+	public String argument(Operation op) {
+		switch(op) {
+		case INSERT:
+			return null; // 추가할 아이디는 부하 생성기가 겹치지 않게 만듦
+		case SELECT_BY_NAME:
+			return namePrefix + (zipf.next(random) - 1);
+		default:
+			return keyPrefix + (zipf.next(random) - 1);
+		}
+	}
+}
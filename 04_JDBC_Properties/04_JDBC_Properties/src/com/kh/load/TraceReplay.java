@@ -0,0 +1,100 @@
+package com.kh.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * TraceReplay : 기록해둔 요청들을 기록된 간격 그대로(또는 speed배 빠르게) 다시 보내는 부하
+ *
+ * 읽을수 있는 파일)
+ * 1) Tracer가 남긴 추적파일(.jsonl, OTLP/JSON) => 운영중 trace.sample=1.0으로 기록해둔 파일
+ *    - MemberService.xxx 구간의 시작시간과 작업종류만 사용 (아이디 등 값은 기록되지 않으므로
+ *      SyntheticWorkload의 Zipf 분포로 채운다.)
+ * 2) CSV(그 외 확장자) => 한 줄에 "시작후ms,메소드이름[,값]" (#으로 시작하는 줄은 주석)
+ *    ex) 0,selectByUserId,user15
+ *        12,insertMember
+ *        15,selectByUserName,name3
+ * */
+public class TraceReplay implements Workload {
+
+	// Tracer.toOtlpJson()이 쓰는 순서 그대로 => "name":"MemberService.xxx","kind":1,"startTimeUnixNano":"..."
+	private static final Pattern SPAN = Pattern.compile(
+			"\"name\":\"MemberService\\.(\\w+)\",\"kind\":\\d+,\"startTimeUnixNano\":\"(\\d+)\"");
+
+	private final List<Arrival> arrivals;
+	private int next;
+
+	/**
+	 * @param file : 기록파일
+	 * @param speed : 재생속도 (2면 간격을 절반으로 줄여서 2배의 부하)
+	 * @param fill : 기록에 값이 없을때 값을 만들어줄 객체
+	 */
+	public TraceReplay(Path file, double speed, SyntheticWorkload fill) throws IOException {
+		List<Arrival> list = file.toString().endsWith(".jsonl") ? readTrace(file, fill) : readCsv(file, fill);
+
+		// 시간 순서대로 정렬 후 첫 요청을 0으로 맞추고 재생속도 반영
+		list.sort((a, b) -> Long.compare(a.offsetNanos, b.offsetNanos));
+		long first = list.isEmpty() ? 0 : list.get(0).offsetNanos;
+		arrivals = new ArrayList<>(list.size());
+		for(Arrival a : list) {
+			arrivals.add(new Arrival((long) ((a.offsetNanos - first) / speed), a.operation, a.argument));
+		}
+	}
+
+	@Override
+	public Arrival next() {
+		return next < arrivals.size() ? arrivals.get(next++) : null;
+	}
+
+	public int size() {
+		return arrivals.size();
+	}
+
+	private static List<Arrival> readTrace(Path file, SyntheticWorkload fill) throws IOException {
+		List<Arrival> list = new ArrayList<>();
+		try(BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while((line = br.readLine()) != null) {
+				Matcher m = SPAN.matcher(line);
+				while(m.find()) {
+					// selectAll, shardQuery 등 부하 대상이 아닌 구간은 건너뜀
+					Operation op = Operation.ofMethod(m.group(1));
+					if(op != null) {
+						list.add(new Arrival(Long.parseLong(m.group(2)), op, fill.argument(op)));
+					}
+				}
+			}
+		}
+		return list;
+	}
+
+	private static List<Arrival> readCsv(Path file, SyntheticWorkload fill) throws IOException {
+		List<Arrival> list = new ArrayList<>();
+		try(BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			int lineNo = 0;
+			while((line = br.readLine()) != null) {
+				lineNo++;
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")) continue;
+
+				String[] cols = line.split(",", 3);
+				Operation op = cols.length < 2 ? null : Operation.ofMethod(cols[1].trim());
+				if(op == null) {
+					throw new IOException(file + " " + lineNo + "번째 줄 : 작업을 알수 없습니다. => " + line);
+				}
+				long offsetNanos = (long) (Double.parseDouble(cols[0].trim()) * 1_000_000);
+				String argument = cols.length > 2 ? cols[2].trim() : fill.argument(op);
+				list.add(new Arrival(offsetNanos, op, argument));
+			}
+		}
+		return list;
+	}
+}
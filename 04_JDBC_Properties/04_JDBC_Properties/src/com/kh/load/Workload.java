@@ -0,0 +1,14 @@
+package com.kh.load;
+
+/*
+ * 부하 생성기에 보낼 요청들을 시간 순서대로 하나씩 만들어주는 객체
+ * - SyntheticWorkload : 설정한 도착률/작업비율/Zipf 분포로 만들어냄 (끝이 없음)
+ * - TraceReplay       : 기록해둔 파일의 요청을 같은 간격으로 다시 보냄
+ * */
+public interface Workload {
+
+	/**
+	 * 다음 요청 (더 이상 없으면 null) => 부하 생성기의 스레드 하나에서만 호출된다.
+	 */
+	Arrival next();
+}
@@ -0,0 +1,88 @@
+package com.kh.load;
+
+import java.util.Random;
+
+/*
+ * Zipf : 1 ~ n 중 순위가 높을수록(작은 수일수록) 자주 나오는 난수 (순위 k가 나올 확률 ∝ 1 / k^exponent)
+ *
+ * - 실제 서비스처럼 일부 회원(인기 회원, 자주 접속하는 회원)에게 요청이 몰리는 상황을 흉내낸다.
+ *   ex) n = 100,000, exponent = 0.99 => 상위 1%(1,000명)가 전체 요청의 약 60%
+ * - 확률표를 미리 만들지 않는 rejection-inversion 방식 (Hörmann, Derflinger 1996)
+ *   => n이 수백만이어도 메모리를 쓰지 않고, 한번 뽑을때 평균 1.1번 이내로 반복
+ * */
+public class Zipf {
+
+	private final int n;
+	private final double exponent;
+	private final double hIntegralX1;
+	private final double hIntegralN;
+	private final double s;
+
+	/**
+	 * @param n : 뽑을 범위 (1 ~ n)
+	 * @param exponent : 쏠림 정도 (0이면 균등분포, 클수록 상위에 몰림, 보통 0.8 ~ 1.2)
+	 */
+	public Zipf(int n, double exponent) {
+		if(n < 1 || exponent < 0) {
+			throw new IllegalArgumentException("n은 1 이상, exponent는 0 이상이어야 합니다.");
+		}
+		this.n = n;
+		this.exponent = exponent;
+		this.hIntegralX1 = hIntegral(1.5) - 1;
+		this.hIntegralN = hIntegral(n + 0.5);
+		this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+	}
+
+	/**
+	 * 1 ~ n 중 하나를 뽑는 메소드
+	 */
+	public int next(Random random) {
+		while(true) {
+			double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+			double x = hIntegralInverse(u);
+			int k = (int) (x + 0.5);
+			if(k < 1) {
+				k = 1;
+			}else if(k > n) {
+				k = n;
+			}
+			if(k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+				return k;
+			}
+		}
+	}
+
+	// h(x) = 1 / x^exponent 를 적분한 함수
+	private double hIntegral(double x) {
+		double logX = Math.log(x);
+		return helper2((1 - exponent) * logX) * logX;
+	}
+
+	private double h(double x) {
+		return Math.exp(-exponent * Math.log(x));
+	}
+
+	private double hIntegralInverse(double x) {
+		double t = x * (1 - exponent);
+		if(t < -1) {
+			t = -1; // 반올림 오차로 범위를 벗어나는 경우
+		}
+		return Math.exp(helper1(t) * x);
+	}
+
+	// log(1 + x) / x (x가 0에 가까울때도 정확하게)
+	private static double helper1(double x) {
+		if(Math.abs(x) > 1e-8) {
+			return Math.log1p(x) / x;
+		}
+		return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+	}
+
+	// (e^x - 1) / x (x가 0에 가까울때도 정확하게)
+	private static double helper2(double x) {
+		if(Math.abs(x) > 1e-8) {
+			return Math.expm1(x) / x;
+		}
+		return 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+	}
+}
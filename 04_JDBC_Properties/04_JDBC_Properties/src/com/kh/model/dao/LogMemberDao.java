@@ -0,0 +1,199 @@
+package com.kh.model.dao;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.kh.model.vo.Member;
+import com.kh.store.MemberLog;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * LogMemberDao : DB 대신 내장 저장소(MemberLog)를 사용하는 DAO (driver.properties의 store=log)
+ *
+ * 오라클이 없는 환경(현장 장비, 오프라인 성능 측정)에서도 MemberService를 그대로 사용하기 위한 구현
+ * - 커넥션은 사용하지 않는다. (connect()는 null, 받은 conn은 무시)
+ * - 쓰기는 한 건씩 바로 반영된다. => 서비스의 commit/rollback은 의미없음 (한 건짜리 작업뿐이므로 문제없음)
+ * - 오류는 DB와 같이 SQLException으로 돌려준다. => 서비스/컨트롤러의 오류처리(Resilience 등)가 그대로 동작
+ *   아이디 중복 : SQLIntegrityConstraintViolationException (ORA-00001과 같은 SQLSTATE 23000, 에러코드 1)
+ *   파일 읽기/쓰기 오류 : SQLSTATE 58030 (I/O 오류, 재시도하지 않음)
+ * - 지원하지 않는 것 : 샤딩(shard.count > 1), 변경내역(logChange는 0), 컬럼 길이 제한(VARCHAR2 크기)
+ *   => 변경내역 조회(ChangeFeedService), 리샤딩(ReshardService)은 checkSupported()로 바로 실패
+ *      내보내기/가져오기/전체 읽기(Export/Import/ParallelScanService)는 이 저장소를 읽고 쓴다.
+ * - 데이터 파일은 프로세스에 하나 => 처음 사용할때 열고(로그를 읽어서 색인 복구) 계속 사용
+ *   store.log.compact.millis마다 쓸모없는 기록이 절반 이상이면 compact (store-compact 스레드)
+ * */
+public class LogMemberDao implements MemberStore {
+
+	// 이보다 작은 파일은 compact하지 않음
+	private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+	private static MemberLog log;
+	private static ScheduledExecutorService compactor;
+
+	/**
+	 * driver.properties의 store가 log인지 확인하는 메소드
+	 */
+	public static boolean isEnabled() {
+		return "log".equalsIgnoreCase(getStore());
+	}
+
+	/**
+	 * 내장 저장소에서 지원하지 않는 기능(변경내역, 리샤딩 등)이라면 바로 실패시키는 메소드
+	 * => 그대로 실행하면 MemberDao로 내장 저장소가 아닌 DB를 읽고 쓰게 된다.
+	 */
+	public static void checkSupported(String feature) throws SQLException {
+		if(isEnabled()) {
+			throw new SQLException("내장 저장소(store=log)에서는 " + feature + " 기능을 사용할수 없습니다.", "0A000");
+		}
+	}
+
+	/**
+	 * 데이터 파일을 열어서(처음 한번) 반환하는 메소드
+	 */
+	public static synchronized MemberLog open() throws SQLException {
+		if(log == null) {
+			if(getShardCount() > 1) {
+				throw new SQLException("내장 저장소(store=log)는 샤딩(shard.count > 1)을 지원하지 않습니다.", "0A000");
+			}
+			try {
+				long started = System.nanoTime();
+				log = new MemberLog(Paths.get(getStoreDir()), isStoreSync());
+				System.out.println("내장 저장소 " + getStoreDir() + " 를 열었습니다. (회원 " + log.size() + "명, "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms)");
+			} catch (IOException e) {
+				throw ioError(e);
+			}
+			long millis = getStoreCompactMillis();
+			if(millis > 0) {
+				compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+					Thread t = new Thread(r, "store-compact");
+					t.setDaemon(true);
+					return t;
+				});
+				MemberLog target = log;
+				compactor.scheduleWithFixedDelay(() -> {
+					try {
+						target.compactIfNeeded(MIN_COMPACT_BYTES);
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}, millis, millis, TimeUnit.MILLISECONDS);
+			}
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					log.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}, "store-close"));
+		}
+		return log;
+	}
+
+	@Override
+	public Connection connect(int shard, boolean readOnly) throws SQLException {
+		open();
+		return null;
+	}
+
+	@Override
+	public int insertMember(Connection conn, Member m) throws SQLException {
+		try {
+			if(!open().insert(m)) {
+				throw new SQLIntegrityConstraintViolationException("이미 사용중인 아이디입니다. : " + m.getUserId(), "23000", 1);
+			}
+			return 1;
+		} catch (IOException e) {
+			throw ioError(e);
+		}
+	}
+
+	@Override
+	public ArrayList<Member> selectAll(Connection conn) throws SQLException {
+		try {
+			return open().scan(null);
+		} catch (IOException e) {
+			throw ioError(e);
+		}
+	}
+
+	@Override
+	public Member selectByUserId(Connection conn, String userId) throws SQLException {
+		try {
+			return open().get(userId);
+		} catch (IOException e) {
+			throw ioError(e);
+		}
+	}
+
+	@Override
+	public ArrayList<Member> selectByUserName(Connection conn, String keyword) throws SQLException {
+		try {
+			// USERNAME LIKE '%' || keyword || '%'
+			return open().scan(keyword == null ? "" : keyword);
+		} catch (IOException e) {
+			throw ioError(e);
+		}
+	}
+
+	@Override
+	public int updateMember(Connection conn, Member m) throws SQLException {
+		try {
+			return open().update(m);
+		} catch (IOException e) {
+			throw ioError(e);
+		}
+	}
+
+	@Override
+	public int deleteMember(Connection conn, String userId, String userPwd) throws SQLException {
+		try {
+			return open().delete(userId, userPwd);
+		} catch (IOException e) {
+			throw ioError(e);
+		}
+	}
+
+	@Override
+	public int logChange(Connection conn, String op, String userId) {
+		return 0;
+	}
+
+	/**
+	 * 가상 회원용 : 모든 회원을 지우는 메소드
+	 */
+	public void clear() throws SQLException {
+		try {
+			open().clear();
+		} catch (IOException e) {
+			throw ioError(e);
+		}
+	}
+
+	/**
+	 * 가상 회원용 : 회원번호, 가입일을 그대로 두고 한번에 넣는 메소드 (MemberDao.insertMemberBatch와 같은 용도)
+	 */
+	public int insertMemberBatch(List<Member> members) throws SQLException {
+		try {
+			return open().insertAll(members);
+		} catch (IOException e) {
+			throw ioError(e);
+		}
+	}
+
+	public int count() throws SQLException {
+		return open().size();
+	}
+
+	private static SQLException ioError(IOException e) {
+		return new SQLException("내장 저장소 파일을 읽거나 쓰지 못했습니다. : " + e.getMessage(), "58030", e);
+	}
+}
@@ -1,27 +1,33 @@
 package com.kh.model.dao;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.InvalidPropertiesFormatException;
-import java.util.Properties;
+import java.util.List;
 
 import static com.kh.common.JDBCTemplate.*;
+import com.kh.common.CancelHandle;
+import com.kh.common.QueryCache;
+import com.kh.common.QueryMetrics;
+import com.kh.common.SlowQueryLog;
+import com.kh.common.jfr.RowMappingEvent;
+import com.kh.export.MemberExporter;
 import com.kh.model.vo.Member;
+import com.kh.model.vo.MemberChange;
 /* 
  * DAO (Data Access Object)
  * Controller를 통해서 호출
  * Controller에서 요청 받은 실질적인 기능을 수행하기 위해서
  * DB에 직접적으로 접근(Access)후 해당 sql문을 실행하고 결과를 돌려받기 => JDBC
  * */
-public class MemberDao {
+public class MemberDao implements MemberStore {
 	/*
 	 *  기존의 방식: DAO클래스에 사용자가 요청할때마다 실행해야하는 SQL문을 자바 소스코드내에
 	 *             직접적으로 명시적으로 작성했음 ==> 정적코딩방식, 하드코딩
@@ -79,50 +85,53 @@ public class MemberDao {
 	 * 8) 결과값을 Controller로 반환해주기
 	 *     > select문일 경우 6_1)에서 만들어진 결과
 	 *     > 기타 DML문일 경우 - int현 값(처리된 행의 갯수)
+	 *
+	 * * SQLException은 DAO에서 삼키지(printStackTrace) 않고 서비스로 던진다.
+	 *   => 서비스가 일시적인 오류(네트워크 끊김, 타임아웃 등)인지 판단해서 재시도하거나
+	 *      실패를 컨트롤러에게 알려줄수 있도록 (0 또는 빈 리스트로 돌려주면 실패인지 결과가 없는건지 알수 없음)
 	 * 
 	 * * Statement 특징 : 완성된 sql문을 실행할수 있는 객체
 	 * */
 	
-	private Properties prop = new Properties();
-	
-	// new MemberDao().xxx(); 할대마다 MemberDao객체가 생성되면서 xml 파일로부터
-	// Properties객체로 데이터를 읽어들일예정.
+	// query.xml은 QueryCache가 한번만 읽어서 보관해두고 파일이 수정된 경우에만 다시 읽는다.
+	// => new MemberDao()를 할때마다 파일을 다시 읽지 않음
 	public MemberDao() {
-		try {
-			prop.loadFromXML(new FileInputStream("resources/query.xml"));
-		} catch (InvalidPropertiesFormatException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
 	}
 	
+	/**
+	 * 조회만 한다면 replica(getReadConnection), 쓰기라면 primary(getConnection)로 접속
+	 */
+	@Override
+	public Connection connect(int shard, boolean readOnly) throws SQLException {
+		return readOnly ? openReadConnection(shard) : openConnection(shard);
+	}
+	
+	// 내보내기(exportAll)시 DB에서 한번에 받아올 행 수
+	private static final int EXPORT_FETCH_SIZE = 1000;
+	
 	/**
 	 * 사용자가 회원 추가 요청시 입력했던 값을 가지고 INSERT문을 실행하는 메소드
 	 * @param m : 사용자가 입력했던 아이디 ~ 취미까지의 값이 담겨있는 Member 객체
 	 * @return : insert문을 실행한 결과 처리된 행의 갯수
 	 */
-	public int insertMember(Connection conn , Member m) { // INSERT문 => 처리된 행의 갯수를 반환, 트랜잭션처리
+	public int insertMember(Connection conn , Member m) throws SQLException { // INSERT문 => 처리된 행의 갯수를 반환, 트랜잭션처리
 		
 		//0) 필요한 변수들 셋팅
 		int result = 0;// 처리된 결과를 담아줄 변수
 		PreparedStatement pstmt = null; // SQL문 실행시킨 후 결과를 받기 위한 변수 
 		
-		// +필요한 변수 : 실행할 SQL문(완성된 형태로 준비) 
+		// +필요한 변수 : 실행할 SQL문(완성된 형태로 준비) => query.xml의 insertMember
 		//              끝에 세미콜론이 있으면 안됨
 		/*
 		 * INSERT INTO MEMBER
 		 * VALUES(SEQ_USERNO.NEXTVAL, 'XXX','XXX','XXX','X',X,... , DEFAULT);
 		 * 
 		 *  */
-		String sql = prop.getProperty("insertMember");
 		
 		try {
 			
 			//3_1) PreparedStatement 객체 생성(SQL문을 미리 넘겨준다)
-			pstmt = conn.prepareStatement(sql);
+			pstmt = prepare(conn, "insertMember");
 			
 			//3_2) 미완성된 SQL문을 완성시켜주기. 
 			//     pstmt.setXXX(?의 위치, 실제값);
@@ -139,8 +148,7 @@ public class MemberDao {
 			
 			// 4, 5) DB에 완성된 SQL문을 전달하면서 실행 후 결과 받기
 			result = pstmt.executeUpdate();
-		} catch (SQLException e) {
-			e.printStackTrace();
+			QueryMetrics.rows(result);
 		} finally {
 			//7) PreparedStatement 객체 반납.
 			close(pstmt);
@@ -153,7 +161,7 @@ public class MemberDao {
 	 * 사용자가 회우너전체 요청시 select문을 실행해주는 메소드
 	 * @return
 	 */
-	public ArrayList<Member> selectAll(Connection conn) { // SELECT => ResultSet형태 => ArrayList반환
+	public ArrayList<Member> selectAll(Connection conn) throws SQLException { // SELECT => ResultSet형태 => ArrayList반환
 		// 0) 필요한 변수들 셋팅
 		// 조회된 결과를 뽑아서 담아줄 변수 => ArrayList 생성(여러 회원의 정보, 여러 행)
 		ArrayList<Member> list = new ArrayList(); // 현재 텅빈 리스트
@@ -162,17 +170,17 @@ public class MemberDao {
 		//                                      미리 try블럭 밖에다 변수 선언
 		PreparedStatement pstmt  = null; // SQL문 실행후 결과값 돌려받기 위한 변수
 		ResultSet rset = null;  // SELECT문이 실행된 조회결과값들이 처음에 담길 객체
-		String sql = prop.getProperty("selectAll");
 		
 		try {
 			//3) Statement 객체 생성
-			pstmt = conn.prepareStatement(sql);
+			pstmt = prepare(conn, "selectAll");
 			
 			// 4, 5) SQL문(SELECT)를 전달해서 실행 후 결과(ResultSet) 받기
 			rset = pstmt.executeQuery();
 			
 			//6_1) 현재 조회결과가 담긴 ResultSet에서 한행씩 뽑아서 vo객체에 담기
 			//rset.next() : 커서를 한줄 아래로 옮겨주고 해당 행이 존재할 경우 true 없다면 false.
+			RowMappingEvent mapping = RowMappingEvent.start(); // JFR : 행 -> Member 옮겨담기 시작
 			while(rset.next()) {
 				// 현재 rset의 커서가 가리키고 있는 해당 행의 데이터를 하나씩 뽑아서 vo객체에 담기.
 				Member m = new Member();
@@ -204,9 +212,8 @@ public class MemberDao {
 				
 				list.add(m);
 			}
-		} catch (SQLException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			RowMappingEvent.finish(mapping, "selectAll", list.size());
+			QueryMetrics.rows(list.size());
 		} finally {
 			//7) 다쓴 JDBC용 객체 반납(생성된 순서의 역순으로)
 			close(rset);
@@ -216,7 +223,7 @@ public class MemberDao {
 		
 	}
 	
-	public Member selectByUserId(Connection conn, String userId) {
+	public Member selectByUserId(Connection conn, String userId) throws SQLException {
 		// SELECT문 => ResultSet => Member(1개의 행, 반복x)
 		
 		// 0) 필요한 변수 셋팅
@@ -227,12 +234,9 @@ public class MemberDao {
 		PreparedStatement stmt  = null;
 		ResultSet rset  = null;
 		
-		// 실행할 SQL문
-		String sql = prop.getProperty("selectByUserId");
-		
 		try {
 			//3) Statement 객체 생성
-			stmt = conn.prepareStatement(sql);
+			stmt = prepare(conn, "selectByUserId");
 			stmt.setString(1, userId);
 			//SELECT * FROM MEMBER WHERE USERID = 'alsrudals'
 			
@@ -241,6 +245,7 @@ public class MemberDao {
 			
 			//6_1) 현재 조회결과가 담긴 Resultset에서 한행만 뽑아서 VO객체에 담기
 			//     => ID검색은 한행만 조회될것이기 때문에
+			RowMappingEvent mapping = RowMappingEvent.start(); // JFR : 행 -> Member 옮겨담기 시작
 			if(rset.next()) {
 				// 커서를 한행 움직여보고  조회결과가 있다면 true/ 없다면 false
 				m = new Member();
@@ -256,8 +261,8 @@ public class MemberDao {
 				m.setHobby(rset.getString("HOBBY"));
 				m.setEnrollDate(rset.getDate("ENROLLDATE"));
 			}
-		} catch (SQLException e) {
-			e.printStackTrace();
+			RowMappingEvent.finish(mapping, "selectByUserId", m == null ? 0 : 1);
+			QueryMetrics.rows(m == null ? 0 : 1);
 		} finally {
 			close(rset);
 			close(stmt);
@@ -266,7 +271,7 @@ public class MemberDao {
 		return m;
 	}
 	
-	public ArrayList<Member> selectByUserName(Connection conn, String keyword){
+	public ArrayList<Member> selectByUserName(Connection conn, String keyword) throws SQLException {
 		
 		//0) 필요한 변수 셋팅
 		ArrayList<Member> list = new ArrayList();
@@ -275,7 +280,6 @@ public class MemberDao {
 		PreparedStatement stmt  = null;
 		ResultSet rset  = null;
 		
-		String sql = prop.getProperty("selectByUserName");
 		//1) 문자열 앞뒤로 '%'붙여주기 "%" +keyword +"%";
 		//2) 연결연산자활용 '%' || ? || '%'
 		//3) 함수활용      CONCAT(CONCAT('%',?),'%')
@@ -287,13 +291,14 @@ public class MemberDao {
 					//"JDBC","JDBC");
 			
 			//3) Statement 객체 생성
-			stmt = conn.prepareStatement(sql);
+			stmt = prepare(conn, "selectByUserName");
 			//SELECT * FROM MEMBER WHERE USERNAME LIKE '%'경민'%'
 			stmt.setString(1, keyword);
 			
 			// 4, 5) SQL문(SELECT)를 전달해서 실행 후 결과(ResultSet) 받기
 			rset = stmt.executeQuery();
 			
+			RowMappingEvent mapping = RowMappingEvent.start(); // JFR : 행 -> Member 옮겨담기 시작
 			while(rset.next()) {
 				Member m = new Member();
 				m.setUserNo(rset.getInt("USERNO"));
@@ -311,8 +316,8 @@ public class MemberDao {
 				list.add(m);			
 			}
 			
-		} catch (SQLException e) {
-			e.printStackTrace();
+			RowMappingEvent.finish(mapping, "selectByUserName", list.size());
+			QueryMetrics.rows(list.size());
 		} finally {
 			
 			close(rset);
@@ -321,7 +326,7 @@ public class MemberDao {
 		return list;
 	}
 	
-	public int updateMember(Connection conn , Member m) {
+	public int updateMember(Connection conn , Member m) throws SQLException {
 		//UPDATE문 실행 => 처리된 행의 갯수(INT) => DML문호출시 트랜잭션처리필수!
 		
 		//0)
@@ -330,8 +335,6 @@ public class MemberDao {
 		//Connection conn = null;
 		PreparedStatement stmt  = null;
 		
-		String sql = prop.getProperty("updateMember");
-		
 		try {
 			//1) JDBC 드라이버 등록
 			//Class.forName("oracle.jdbc.driver.OracleDriver");
@@ -340,7 +343,7 @@ public class MemberDao {
 					//"JDBC","JDBC");
 			
 			//3) Statement 객체 생성
-			stmt = conn.prepareStatement(sql);
+			stmt = prepare(conn, "updateMember");
 			
 			stmt.setString(1, m.getUserPwd());
 			stmt.setString(2, m.getEmail());
@@ -350,6 +353,7 @@ public class MemberDao {
 			
 			//4) 5)
 			result = stmt.executeUpdate();
+			QueryMetrics.rows(result);
 			
 			//6)
 //			if(result > 0) {
@@ -357,8 +361,6 @@ public class MemberDao {
 //			}else {
 //				conn.rollback();
 //			}
-		} catch (SQLException e) {
-			e.printStackTrace();
 		} finally {
 			close(stmt);
 //			try {
@@ -371,15 +373,13 @@ public class MemberDao {
 		return result;
 	}
 	
-	public int deleteMember(Connection conn, String userId, String userPwd) {
+	public int deleteMember(Connection conn, String userId, String userPwd) throws SQLException {
 		//delete문 => 처리된 행의 갯수 => 트랜잭션
 		int result = 0;
 		
 		//Connection conn = null;
 		PreparedStatement stmt  = null;
 		
-		String sql = prop.getProperty("deleteMember");
-		
 		try {
 			//1) JDBC 드라이버 등록
 			//Class.forName("oracle.jdbc.driver.OracleDriver");
@@ -388,19 +388,18 @@ public class MemberDao {
 					//"JDBC","JDBC");
 			
 			//3) Statement 객체 생성
-			stmt = conn.prepareStatement(sql);
+			stmt = prepare(conn, "deleteMember");
 			stmt.setString(1, userId);
 			stmt.setString(2, userPwd);
 			
 			//4) 5)
 			result = stmt.executeUpdate();
+			QueryMetrics.rows(result);
 //			if(result > 0) {
 //				conn.commit();
 //			}else {
 //				conn.rollback();
 //			}
-		} catch (SQLException e) {
-			e.printStackTrace();
 		} finally {
 //			try {
 //				stmt.close();
@@ -421,4 +420,563 @@ public class MemberDao {
 	
 	
 
+	/**
+	 * 리샤딩용 : 해당 DB(샤드)에 저장된 모든 회원의 아이디만 조회하는 메소드
+	 * @return 아이디 목록
+	 */
+	public ArrayList<String> selectAllUserId(Connection conn) throws SQLException {
+		ArrayList<String> list = new ArrayList<>();
+		
+		PreparedStatement pstmt = null;
+		ResultSet rset = null;
+		
+		
+		try {
+			pstmt = prepare(conn, "selectAllUserId");
+			rset = pstmt.executeQuery();
+			
+			while(rset.next()) {
+				list.add(rset.getString("USERID"));
+			}
+			QueryMetrics.rows(list.size());
+		} finally {
+			close(rset);
+			close(pstmt);
+		}
+		return list;
+	}
+	
+	/**
+	 * 리샤딩용 : 옮기는 동안 다른 사용자가 수정하지 못하도록 행에 잠금(FOR UPDATE)을 걸고 조회하는 메소드
+	 * => 잠금은 conn이 commit/rollback 될때까지 유지된다.(conn의 autoCommit이 false여야함)
+	 */
+	public Member selectByUserIdForUpdate(Connection conn, String userId) throws SQLException {
+		Member m = null;
+		
+		PreparedStatement pstmt = null;
+		ResultSet rset = null;
+		
+		
+		try {
+			pstmt = prepare(conn, "selectByUserIdForUpdate");
+			pstmt.setString(1, userId);
+			
+			rset = pstmt.executeQuery();
+			
+			RowMappingEvent mapping = RowMappingEvent.start(); // JFR : 행 -> Member 옮겨담기 시작
+			if(rset.next()) {
+				m = toMember(rset);
+			}
+			RowMappingEvent.finish(mapping, "selectByUserIdForUpdate", m == null ? 0 : 1);
+			QueryMetrics.rows(m == null ? 0 : 1);
+		} finally {
+			close(rset);
+			close(pstmt);
+		}
+		return m;
+	}
+	
+	/**
+	 * 리샤딩용 : 회원번호, 가입일까지 그대로 INSERT하는 메소드 (시퀀스 사용x)
+	 */
+	public int insertMemberAll(Connection conn, Member m) throws SQLException {
+		int result = 0;
+		PreparedStatement pstmt = null;
+		
+		
+		try {
+			pstmt = prepare(conn, "insertMemberAll");
+			pstmt.setInt(1, m.getUserNo());
+			pstmt.setString(2, m.getUserId());
+			pstmt.setString(3, m.getUserPwd());
+			pstmt.setString(4, m.getUserName());
+			pstmt.setString(5, m.getGender());
+			pstmt.setInt(6, m.getAge());
+			pstmt.setString(7, m.getEmail());
+			pstmt.setString(8, m.getPhone());
+			pstmt.setString(9, m.getAddress());
+			pstmt.setString(10, m.getHobby());
+			pstmt.setDate(11, m.getEnrollDate());
+			
+			result = pstmt.executeUpdate();
+			QueryMetrics.rows(result);
+		} finally {
+			close(pstmt);
+		}
+		return result;
+	}
+	
+	/**
+	 * 리샤딩용 : 비밀번호 확인 없이 아이디로 회원을 삭제하는 메소드(다른 샤드로 옮긴 후 원본 삭제)
+	 */
+	public int deleteByUserId(Connection conn, String userId) throws SQLException {
+		int result = 0;
+		PreparedStatement pstmt = null;
+		
+		
+		try {
+			pstmt = prepare(conn, "deleteByUserId");
+			pstmt.setString(1, userId);
+			
+			result = pstmt.executeUpdate();
+			QueryMetrics.rows(result);
+		} finally {
+			close(pstmt);
+		}
+		return result;
+	}
+	
+	/**
+	 * 대량 추가용 : 회원번호, 가입일까지 그대로 여러명을 한번에 INSERT하는 메소드 (JDBC batch)
+	 * => 한 행씩 실행하면 행마다 DB를 왕복하므로 모아서 한번에 보낸다. (트랜잭션 처리는 서비스에서)
+	 * @return 추가된 행의 갯수
+	 */
+	public int insertMemberBatch(Connection conn, List<Member> members) throws SQLException {
+		int result = 0;
+		PreparedStatement pstmt = null;
+		
+		try {
+			pstmt = prepare(conn, "insertMemberAll");
+			for(Member m : members) {
+				pstmt.setInt(1, m.getUserNo());
+				pstmt.setString(2, m.getUserId());
+				pstmt.setString(3, m.getUserPwd());
+				pstmt.setString(4, m.getUserName());
+				pstmt.setString(5, m.getGender());
+				pstmt.setInt(6, m.getAge());
+				pstmt.setString(7, m.getEmail());
+				pstmt.setString(8, m.getPhone());
+				pstmt.setString(9, m.getAddress());
+				pstmt.setString(10, m.getHobby());
+				pstmt.setDate(11, m.getEnrollDate());
+				pstmt.addBatch();
+			}
+			for(int count : pstmt.executeBatch()) {
+				// SUCCESS_NO_INFO(-2) : 성공했지만 행 수를 알려주지 않는 드라이버(ojdbc6 등)
+				result += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+			}
+			QueryMetrics.rows(result);
+		} finally {
+			close(pstmt);
+		}
+		return result;
+	}
+	
+	/**
+	 * 나눠읽기용 : 가장 작은/큰 회원번호를 조회하는 메소드
+	 * @return {MIN(USERNO), MAX(USERNO)} (회원이 없다면 null)
+	 */
+	public int[] selectUserNoBounds(Connection conn) throws SQLException {
+		int[] bounds = null;
+		PreparedStatement pstmt = null;
+		ResultSet rset = null;
+		
+		try {
+			pstmt = prepare(conn, "selectUserNoBounds");
+			rset = pstmt.executeQuery();
+			
+			if(rset.next()) {
+				int min = rset.getInt(1);
+				if(!rset.wasNull()) {
+					bounds = new int[] { min, rset.getInt(2) };
+				}
+			}
+			QueryMetrics.rows(bounds == null ? 0 : 1);
+		} finally {
+			close(rset);
+			close(pstmt);
+		}
+		return bounds;
+	}
+	
+	/**
+	 * 나눠읽기용 : from <= USERNO <= to 인 회원을 USERNO 오름차순으로 limit명까지 조회하는 메소드
+	 * => 다음 페이지는 마지막 회원번호 + 1부터 다시 조회 (OFFSET 없이 인덱스로 바로 찾아감)
+	 */
+	public ArrayList<Member> selectRange(Connection conn, int from, int to, int limit) throws SQLException {
+		ArrayList<Member> list = new ArrayList<>(limit);
+		PreparedStatement pstmt = null;
+		ResultSet rset = null;
+		
+		try {
+			pstmt = prepare(conn, "selectRange");
+			pstmt.setInt(1, from);
+			pstmt.setInt(2, to);
+			pstmt.setInt(3, limit);
+			pstmt.setFetchSize(limit);
+			rset = pstmt.executeQuery();
+			
+			RowMappingEvent mapping = RowMappingEvent.start(); // JFR : 행 -> Member 옮겨담기 시작
+			while(rset.next()) {
+				list.add(toMember(rset));
+			}
+			RowMappingEvent.finish(mapping, "selectRange", list.size());
+			QueryMetrics.rows(list.size());
+		} finally {
+			close(rset);
+			close(pstmt);
+		}
+		return list;
+	}
+	
+	/**
+	 * 가져오기용 : 여러 회원을 한번에 INSERT하는 메소드 (JDBC batch, 회원번호는 시퀀스, 가입일은 DEFAULT)
+	 * => 한명이라도 실패하면 BatchUpdateException이 발생한다. (트랜잭션 처리는 서비스에서)
+	 * @return 추가된 행의 갯수
+	 */
+	public int insertMembers(Connection conn, List<Member> members) throws SQLException {
+		int result = 0;
+		PreparedStatement pstmt = null;
+		
+		try {
+			pstmt = prepare(conn, "insertMember");
+			for(Member m : members) {
+				pstmt.setString(1, m.getUserId());
+				pstmt.setString(2, m.getUserPwd());
+				pstmt.setString(3, m.getUserName());
+				pstmt.setString(4, m.getGender());
+				pstmt.setInt(5, m.getAge());
+				pstmt.setString(6, m.getEmail());
+				pstmt.setString(7, m.getPhone());
+				pstmt.setString(8, m.getAddress());
+				pstmt.setString(9, m.getHobby());
+				pstmt.addBatch();
+			}
+			for(int count : pstmt.executeBatch()) {
+				result += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+			}
+			QueryMetrics.rows(result);
+		} finally {
+			close(pstmt);
+		}
+		return result;
+	}
+	
+	/**
+	 * 모아쓰기용 : 여러 회원의 정보(비밀번호, 이메일, 전화번호, 주소)를 한번에 UPDATE하는 메소드 (JDBC batch)
+	 * => 없는 회원은 0행으로 처리되고 넘어간다. (트랜잭션 처리는 서비스에서)
+	 * @return 변경된 행의 갯수
+	 */
+	public int updateMembers(Connection conn, List<Member> members) throws SQLException {
+		int result = 0;
+		PreparedStatement pstmt = null;
+		
+		try {
+			pstmt = prepare(conn, "updateMember");
+			for(Member m : members) {
+				pstmt.setString(1, m.getUserPwd());
+				pstmt.setString(2, m.getEmail());
+				pstmt.setString(3, m.getPhone());
+				pstmt.setString(4, m.getAddress());
+				pstmt.setString(5, m.getUserId());
+				pstmt.addBatch();
+			}
+			for(int count : pstmt.executeBatch()) {
+				result += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+			}
+			QueryMetrics.rows(result);
+		} finally {
+			close(pstmt);
+		}
+		return result;
+	}
+	
+	/**
+	 * 내보내기용 : 모든 회원을 USERNO 순서로 조회하면서 한 행씩 바로 out에 쓰는 메소드
+	 * => Member 객체, ArrayList를 만들지 않으므로 회원수와 상관없이 메모리 사용량이 일정하다.
+	 * @return 내보낸 행의 갯수
+	 */
+	public int exportAll(Connection conn, MemberExporter out) throws SQLException, IOException {
+		int count = 0;
+		PreparedStatement pstmt = null;
+		ResultSet rset = null;
+		
+		try {
+			pstmt = prepare(conn, "exportAll");
+			// 한번에 받아올 행 수 (오라클 기본값은 10행 => 10행마다 DB를 왕복함)
+			pstmt.setFetchSize(EXPORT_FETCH_SIZE);
+			rset = pstmt.executeQuery();
+			
+			// SELECT문에 적힌 컬럼 순서(= MemberExporter.COLUMNS)대로 순번으로 꺼낸다.
+			while(rset.next()) {
+				out.value(rset.getInt(1));
+				out.value(rset.getString(2));
+				out.value(rset.getString(3));
+				out.value(rset.getString(4));
+				int age = rset.getInt(5);
+				if(rset.wasNull()) {
+					out.nullValue(); // getInt는 NULL을 0으로 돌려주므로 0살로 내보내지 않도록
+				}else {
+					out.value(age);
+				}
+				out.value(rset.getString(6));
+				out.value(rset.getString(7));
+				out.value(rset.getString(8));
+				out.value(rset.getString(9));
+				Date enrollDate = rset.getDate(10);
+				out.value(enrollDate == null ? null : enrollDate.toLocalDate());
+				out.endRow();
+				count++;
+			}
+			QueryMetrics.rows(count);
+		} finally {
+			close(rset);
+			close(pstmt);
+		}
+		return count;
+	}
+	
+	/**
+	 * 변경내역용 : 아이디에 해당하는 회원의 변경내역을 MEMBER_CHANGE에 남기는 메소드
+	 * => 회원 추가/변경 후, 탈퇴 전에 같은 conn(트랜잭션)으로 호출해야 한다.
+	 * @param op : MemberChange.INSERT / UPDATE / DELETE
+	 * @return 기록된 행의 갯수 (회원이 없다면 0)
+	 */
+	public int logChange(Connection conn, String op, String userId) throws SQLException {
+		int result = 0;
+		PreparedStatement pstmt = null;
+		
+		try {
+			pstmt = prepare(conn, "changeFeed.log");
+			pstmt.setString(1, op);
+			pstmt.setString(2, userId);
+			
+			result = pstmt.executeUpdate();
+			QueryMetrics.rows(result);
+		} finally {
+			close(pstmt);
+		}
+		return result;
+	}
+	
+	/**
+	 * 변경내역용 : 여러 회원의 변경내역을 한번에 남기는 메소드 (JDBC batch, 가져오기용)
+	 */
+	public int logChanges(Connection conn, String op, List<Member> members) throws SQLException {
+		int result = 0;
+		PreparedStatement pstmt = null;
+		
+		try {
+			pstmt = prepare(conn, "changeFeed.log");
+			for(Member m : members) {
+				pstmt.setString(1, op);
+				pstmt.setString(2, m.getUserId());
+				pstmt.addBatch();
+			}
+			for(int count : pstmt.executeBatch()) {
+				result += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+			}
+			QueryMetrics.rows(result);
+		} finally {
+			close(pstmt);
+		}
+		return result;
+	}
+	
+	/**
+	 * 변경내역용 : DB의 현재 시간을 조회하는 메소드 (CHANGED_AT과 같은 시계로 비교하기 위해서)
+	 */
+	public Timestamp selectNow(Connection conn) throws SQLException {
+		Timestamp now = null;
+		PreparedStatement pstmt = null;
+		ResultSet rset = null;
+		
+		try {
+			pstmt = prepare(conn, "changeFeed.now");
+			rset = pstmt.executeQuery();
+			if(rset.next()) {
+				now = rset.getTimestamp(1);
+			}
+			QueryMetrics.rows(1);
+		} finally {
+			close(rset);
+			close(pstmt);
+		}
+		return now;
+	}
+	
+	/**
+	 * 변경내역용 : 변경번호(CHANGE_SEQ)가 since보다 큰 변경내역을 변경번호 순서로 limit개까지 조회하는 메소드
+	 * => 추가/변경 내역에는 지금의 회원 정보(비밀번호 제외)를 같이 담는다. (그 사이 탈퇴했다면 member는 null)
+	 */
+	public ArrayList<MemberChange> selectChanges(Connection conn, int shard, long since, int limit) throws SQLException {
+		ArrayList<MemberChange> list = new ArrayList<>();
+		PreparedStatement pstmt = null;
+		ResultSet rset = null;
+		
+		try {
+			pstmt = prepare(conn, "changeFeed.select");
+			pstmt.setLong(1, since);
+			pstmt.setInt(2, limit);
+			pstmt.setFetchSize(Math.min(limit, EXPORT_FETCH_SIZE));
+			rset = pstmt.executeQuery();
+			
+			RowMappingEvent mapping = RowMappingEvent.start();
+			while(rset.next()) {
+				Member m = null;
+				if(rset.getString("USERID") != null) {
+					m = new Member(rset.getInt("USERNO"), rset.getString("USERID"), null, rset.getString("USERNAME"),
+							rset.getString("GENDER"), rset.getInt("AGE"), rset.getString("EMAIL"), rset.getString("PHONE"),
+							rset.getString("ADDRESS"), rset.getString("HOBBY"), rset.getDate("ENROLLDATE"));
+				}
+				list.add(new MemberChange(shard, rset.getLong("CHANGE_SEQ"), rset.getString("OP"),
+						rset.getInt("CHANGED_USERNO"), rset.getString("CHANGED_USERID"), rset.getTimestamp("CHANGED_AT"), m));
+			}
+			RowMappingEvent.finish(mapping, "changeFeed.select", list.size());
+			QueryMetrics.rows(list.size());
+		} finally {
+			close(rset);
+			close(pstmt);
+		}
+		return list;
+	}
+	
+	/**
+	 * 변경내역용 : before보다 오래된 변경내역을 지우는 메소드
+	 * @return 지운 행의 갯수
+	 */
+	public int purgeChanges(Connection conn, Timestamp before) throws SQLException {
+		int result = 0;
+		PreparedStatement pstmt = null;
+		
+		try {
+			pstmt = prepare(conn, "changeFeed.purge");
+			pstmt.setTimestamp(1, before);
+			
+			result = pstmt.executeUpdate();
+			QueryMetrics.rows(result);
+		} finally {
+			close(pstmt);
+		}
+		return result;
+	}
+	
+	/**
+	 * 테이블 생성용 : MEMBER 테이블이 있는지 확인하는 메소드
+	 */
+	public boolean existsMemberTable(Connection conn) throws SQLException {
+		return existsTable(conn, "MEMBER");
+	}
+	
+	/**
+	 * 테이블 생성용 : MEMBER_CHANGE 테이블이 있는지 확인하는 메소드
+	 */
+	public boolean existsChangeTable(Connection conn) throws SQLException {
+		return existsTable(conn, "MEMBER_CHANGE");
+	}
+	
+	private boolean existsTable(Connection conn, String name) throws SQLException {
+		// 오라클, H2 모두 따옴표 없이 만든 이름은 대문자로 저장됨
+		// 이름의 _는 아무 한글자와 일치하므로(LIKE 패턴) 찾은 이름을 다시 비교한다.
+		try(ResultSet rset = conn.getMetaData().getTables(null, null, name, new String[] { "TABLE" })) {
+			while(rset.next()) {
+				if(name.equals(rset.getString("TABLE_NAME"))) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * 테이블 생성용 : MEMBER 테이블과 SEQ_USERNO 시퀀스(+ 변경내역 테이블/시퀀스)를 만드는 메소드 (DDL은 자동 commit됨)
+	 * @param start : 시퀀스 시작번호
+	 * @param increment : 시퀀스 증가값 (샤드 갯수)
+	 */
+	public void createSchema(Connection conn, long start, int increment) throws SQLException {
+		execute(conn, QueryCache.get("schema.createTable").getSql());
+		execute(conn, QueryCache.get("schema.createSequence").getSql()
+						.replace("{start}", String.valueOf(start))
+						.replace("{increment}", String.valueOf(increment)));
+		createChangeSchema(conn);
+	}
+	
+	/**
+	 * 테이블 생성용 : MEMBER_CHANGE 테이블과 SEQ_MEMBER_CHANGE 시퀀스를 만드는 메소드
+	 */
+	public void createChangeSchema(Connection conn) throws SQLException {
+		execute(conn, QueryCache.get("schema.createChangeTable").getSql());
+		execute(conn, QueryCache.get("schema.createChangeSequence").getSql());
+	}
+	
+	/**
+	 * 테이블 생성용 : MEMBER 테이블과 SEQ_USERNO 시퀀스(+ 변경내역 테이블/시퀀스)를 지우는 메소드 (없는 것은 건너뜀)
+	 */
+	public void dropSchema(Connection conn) throws SQLException {
+		if(existsMemberTable(conn)) {
+			execute(conn, QueryCache.get("schema.dropTable").getSql());
+		}
+		try {
+			execute(conn, QueryCache.get("schema.dropSequence").getSql());
+		} catch (SQLException e) {
+			// 시퀀스가 없는 경우 => 만들때 다시 만들어지므로 무시
+		}
+		if(existsChangeTable(conn)) {
+			execute(conn, QueryCache.get("schema.dropChangeTable").getSql());
+		}
+		try {
+			execute(conn, QueryCache.get("schema.dropChangeSequence").getSql());
+		} catch (SQLException e) {
+			// 시퀀스가 없는 경우
+		}
+	}
+	
+	// 위치홀더가 없는 SQL문(DDL)을 실행하는 메소드
+	private void execute(Connection conn, String sql) throws SQLException {
+		Statement stmt = null;
+		try {
+			stmt = conn.createStatement();
+			stmt.execute(sql);
+		} finally {
+			close(stmt);
+		}
+	}
+	
+	/**
+	 * query.xml의 키에 해당하는 SQL문으로 PreparedStatement 객체를 만들어주는 메소드
+	 * - query.xml에 "키.timeout"(초)가 있다면 그 값으로, 없다면 "default.timeout"으로 쿼리 제한시간을 건다.
+	 *   => 제한시간이 지나면 DB가 실행을 중단하고 SQLException(SQLTimeoutException)이 발생한다.
+	 * - 현재 스레드에 CancelHandle이 지정되어 있다면 등록해서 요청이 취소될때 Statement.cancel()이 호출되게 한다.
+	 * - 느린 SQL문 기록(SlowQueryLog)을 사용한다면 위치홀더 값을 기록하도록 감싸고, "키.mask"에 적힌 순번은 가린다.
+	 * - 실행시간 측정을 시작한다.(QueryMetrics) => 각 메소드는 성공시 QueryMetrics.rows(행 수)를 호출하고
+	 *   close(Statement)에서 측정이 끝난다.
+	 *   측정(DAO 추적 구간)은 마지막에 시작한다. => 제한시간 설정/취소 등록이 실패하면 pstmt를 돌려주지 못해서
+	 *   close(Statement)가 불리지 않으므로, 먼저 시작하면 추적 구간이 끝나지 않고 스레드에 남는다.
+	 * @param key : query.xml에 적힌 SQL문의 키
+	 */
+	private PreparedStatement prepare(Connection conn, String key) throws SQLException {
+		QueryCache.Query q = QueryCache.get(key);
+		PreparedStatement pstmt = SlowQueryLog.capturing(conn.prepareStatement(q.getSql()));
+		try {
+			if(q.getTimeout() > 0) {
+				pstmt.setQueryTimeout(q.getTimeout());
+			}
+			
+			CancelHandle.register(pstmt);
+		} catch (SQLException | RuntimeException e) {
+			close(pstmt);
+			throw e;
+		}
+		
+		QueryMetrics.begin(key, q.getSql(), pstmt, q.getMask());
+		return pstmt;
+	}
+	
+	// ResultSet의 커서가 가리키고 있는 현재 행을 Member 객체로 옮겨담는 메소드
+	private Member toMember(ResultSet rset) throws SQLException {
+		Member m = new Member();
+		m.setUserNo(rset.getInt("USERNO"));
+		m.setUserId(rset.getString("USERID"));
+		m.setUserPwd(rset.getString(3));
+		m.setUserName(rset.getString("USERNAME"));
+		m.setGender(rset.getString("GENDER"));
+		m.setAge(rset.getInt("AGE"));
+		m.setEmail(rset.getString("EMAIL"));
+		m.setPhone(rset.getString("PHONE"));
+		m.setAddress(rset.getString("ADDRESS"));
+		m.setHobby(rset.getString("HOBBY"));
+		m.setEnrollDate(rset.getDate("ENROLLDATE"));
+		return m;
+	}
+	
 }
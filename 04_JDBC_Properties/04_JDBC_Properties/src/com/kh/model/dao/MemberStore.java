@@ -0,0 +1,44 @@
+package com.kh.model.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import com.kh.model.vo.Member;
+
+/*
+ * MemberStore : MemberService가 사용하는 회원 DAO의 공통 기능
+ *
+ * driver.properties의 store에 따라 구현을 바꿔서 사용한다. (MemberService는 그대로)
+ * - jdbc : MemberDao => 오라클(또는 dialect의 DB)에 SQL문 실행
+ * - log  : LogMemberDao => DB없이 파일에 저장하는 내장 저장소(MemberLog)
+ *
+ * 모든 메소드는 connect()로 얻은 커넥션을 받는다. 커넥션이 필요없는 구현은 null을 돌려주고 무시한다.
+ * => JDBCTemplate의 close/commit/rollback은 null이면 아무것도 하지 않으므로 서비스의 트랜잭션 처리도 그대로 둘수 있다.
+ * */
+public interface MemberStore {
+
+	/**
+	 * 작업에 사용할 커넥션을 얻는 메소드
+	 * @param readOnly : 조회만 한다면 true (replica로 접속할수 있음)
+	 */
+	Connection connect(int shard, boolean readOnly) throws SQLException;
+
+	int insertMember(Connection conn, Member m) throws SQLException;
+
+	// USERNO 내림차순
+	ArrayList<Member> selectAll(Connection conn) throws SQLException;
+
+	Member selectByUserId(Connection conn, String userId) throws SQLException;
+
+	ArrayList<Member> selectByUserName(Connection conn, String keyword) throws SQLException;
+
+	// 비밀번호, 이메일, 전화번호, 주소 변경
+	int updateMember(Connection conn, Member m) throws SQLException;
+
+	// 아이디, 비밀번호가 맞는 회원 탈퇴
+	int deleteMember(Connection conn, String userId, String userPwd) throws SQLException;
+
+	// 변경내역(MEMBER_CHANGE) 기록 => 지원하지 않는 구현은 0
+	int logChange(Connection conn, String op, String userId) throws SQLException;
+}
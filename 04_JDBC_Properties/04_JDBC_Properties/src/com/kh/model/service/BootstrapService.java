@@ -0,0 +1,167 @@
+package com.kh.model.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kh.common.Bulkhead;
+import com.kh.common.DataAccessException;
+import com.kh.load.SyntheticMembers;
+import com.kh.model.dao.LogMemberDao;
+import com.kh.model.dao.MemberDao;
+import com.kh.model.vo.Member;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * BootstrapService : MEMBER 테이블, SEQ_USERNO 시퀀스를 만들고 가상 회원을 넣어주는 서비스
+ *
+ * 오라클 없이 내장 DB(dialect=h2)로 실행하거나 성능 테스트용 데이터가 필요할때 사용
+ * - DDL은 query.xml(+ query-dialect.xml)의 schema.xxx를 사용하므로 DB 종류별로 따로 적어둘수 있다.
+ * - 샤딩을 사용한다면 샤드마다 테이블을 만들고, 회원은 아이디에 해당하는 샤드에 넣는다.
+ *   시퀀스는 샤드끼리 USERNO가 겹치지 않도록 START WITH 회원수+샤드순번+1, INCREMENT BY 샤드갯수
+ * - 변경내역 테이블(MEMBER_CHANGE)도 같이 만든다. 가상 회원은 변경내역을 남기지 않음 (처음 상태)
+ * - BATCH명씩 모아서 한번에 INSERT(JDBC batch)하고 commit
+ *   => 내장 DB(H2, 메모리)에서 초당 5만명 안팎 (100만명에 20초 정도)
+ * - 내장 저장소(store=log)라면 테이블 대신 데이터 파일(LogMemberDao)에 넣는다.
+ * - 다시 만들면 회원 캐시 스냅샷(MemberCacheSnapshot)은 맞지 않으므로 지운다.
+ * */
+public class BootstrapService {
+
+	private static final int BATCH = 1000;
+
+	/**
+	 * MEMBER 테이블이 없다면 새로 만들고 회원을 넣는 메소드 (모든 샤드에 있다면 그대로 둠)
+	 * => 한 샤드라도 없다면 샤드끼리 회원번호가 맞지 않으므로 모든 샤드를 다시 만든다.
+	 *    단, 다른 샤드에 이미 회원이 있다면(샤드 추가, 일시적인 조회 오류 등) 지우지 않고 실패한다.
+	 *    (모두 지우고 다시 만들려면 BootstrapRun으로 직접)
+	 * @param members : 넣어둘 가상 회원 수
+	 * @return 새로 넣은 회원 수
+	 * @throws IllegalStateException MEMBER 테이블이 없는 샤드와 회원이 있는 샤드가 섞여있는 경우
+	 */
+	public int ensure(int members) {
+		if(LogMemberDao.isEnabled()) {
+			try {
+				return new LogMemberDao().count() == 0 ? recreate(members) : 0;
+			} catch (SQLException e) {
+				throw new DataAccessException(e);
+			}
+		}
+		MemberDao dao = new MemberDao();
+		List<Integer> missing = new ArrayList<>();
+		List<Integer> populated = new ArrayList<>();
+		for(int shard = 0; shard < getShardCount(); shard++) {
+			Connection conn = null;
+			try {
+				conn = openConnection(shard);
+				if(!dao.existsMemberTable(conn)) {
+					missing.add(shard);
+				}else if(dao.selectUserNoBounds(conn) != null) {
+					populated.add(shard);
+				}
+			} catch (SQLException e) {
+				throw new DataAccessException(e);
+			} finally {
+				close(conn);
+			}
+		}
+		if(missing.isEmpty()) {
+			return 0;
+		}
+		if(!populated.isEmpty()) {
+			throw new IllegalStateException("샤드 " + missing + "에는 MEMBER 테이블이 없지만 샤드 " + populated
+					+ "에는 회원이 있습니다. 회원을 지우지 않도록 가상 회원을 만들지 않습니다."
+					+ " (샤드를 추가했다면 새 샤드에 MEMBER 테이블을 만든 후 ReshardRun, 모두 지우고 다시 만들려면 BootstrapRun)");
+		}
+		return recreate(members);
+	}
+
+	/**
+	 * 모든 샤드의 MEMBER 테이블, 시퀀스를 지우고 다시 만든 후 회원을 넣는 메소드
+	 * @param members : 넣어둘 가상 회원 수 (회원번호 1 ~ members)
+	 * @return 넣은 회원 수
+	 */
+	public int recreate(int members) {
+		MemberCacheSnapshot.discard();
+		if(LogMemberDao.isEnabled()) {
+			return recreateLog(members);
+		}
+		MemberDao dao = new MemberDao();
+		int shardCount = getShardCount();
+
+		// 샤드별 커넥션 (autoCommit을 끄고 BATCH명마다 commit)
+		// => 샤드 갯수만큼의 사용권한을 한번에 얻는다. (MemberService.scatterGather와 같은 이유)
+		Connection[] conns = new Connection[shardCount];
+		List<List<Member>> pending = new ArrayList<>();
+		int inserted = 0;
+		Bulkhead bulkhead = Bulkhead.current();
+		try {
+			bulkhead.reserve(shardCount);
+			try {
+				for(int shard = 0; shard < shardCount; shard++) {
+					conns[shard] = openConnection(shard);
+					dao.dropSchema(conns[shard]);
+					dao.createSchema(conns[shard], members + shard + 1L, shardCount);
+					conns[shard].setAutoCommit(false);
+					pending.add(new ArrayList<>(BATCH));
+				}
+			} finally {
+				bulkhead.releaseReserved();
+			}
+
+			for(int i = 0; i < members; i++) {
+				Member m = SyntheticMembers.member(i);
+				int shard = shardCount > 1 ? shardOf(m.getUserId(), shardCount) : 0;
+				List<Member> batch = pending.get(shard);
+				batch.add(m);
+				if(batch.size() == BATCH) {
+					inserted += flush(dao, conns[shard], batch);
+				}
+			}
+			for(int shard = 0; shard < shardCount; shard++) {
+				inserted += flush(dao, conns[shard], pending.get(shard));
+			}
+		} catch (SQLException e) {
+			for(Connection conn : conns) {
+				rollback(conn);
+			}
+			throw new DataAccessException(e);
+		} finally {
+			for(Connection conn : conns) {
+				close(conn); // 풀에 돌려줄때 autoCommit은 원래대로 돌아감
+			}
+		}
+		return inserted;
+	}
+
+	// 내장 저장소 : 모두 지우고 BATCH명씩 넣기
+	private int recreateLog(int members) {
+		LogMemberDao dao = new LogMemberDao();
+		List<Member> batch = new ArrayList<>(BATCH);
+		int inserted = 0;
+		try {
+			dao.clear();
+			for(int i = 0; i < members; i++) {
+				batch.add(SyntheticMembers.member(i));
+				if(batch.size() == BATCH || i == members - 1) {
+					inserted += dao.insertMemberBatch(batch);
+					batch.clear();
+				}
+			}
+		} catch (SQLException e) {
+			throw new DataAccessException(e);
+		}
+		return inserted;
+	}
+
+	// 모아둔 회원들을 한번에 INSERT 후 commit
+	private int flush(MemberDao dao, Connection conn, List<Member> batch) throws SQLException {
+		if(batch.isEmpty()) {
+			return 0;
+		}
+		int result = dao.insertMemberBatch(conn, batch);
+		commit(conn);
+		batch.clear();
+		return result;
+	}
+}
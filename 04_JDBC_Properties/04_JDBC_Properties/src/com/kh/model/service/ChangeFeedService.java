@@ -0,0 +1,215 @@
+package com.kh.model.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kh.common.Bulkhead;
+import com.kh.common.DataAccessException;
+import com.kh.common.Resilience;
+import com.kh.model.dao.LogMemberDao;
+import com.kh.model.dao.MemberDao;
+import com.kh.model.vo.MemberChange;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * ChangeFeedService : "어떤 시점 이후에 바뀐 회원"만 알려주는 서비스 (변경분 동기화용)
+ *
+ * 다른 시스템이 회원 정보를 맞추려면 selectAll로 전체를 다시 읽어야 했다. (회원 수에 비례)
+ * => 처음 한번만 전체를 받고(ExportService) 그 후로는 변경분만 받는다. (변경 수에 비례)
+ *
+ * - 회원 추가/변경/탈퇴시 MemberService가 같은 트랜잭션에서 MEMBER_CHANGE에 한 행씩 남긴다. (changefeed.enabled)
+ *   CHANGE_SEQ : 샤드별 시퀀스(SEQ_MEMBER_CHANGE) => 변경 순서
+ *   => ENROLLDATE는 추가만 알수 있고(날짜 단위) 변경/탈퇴는 알수 없으므로 변경번호를 따로 둔다.
+ * - 워터마크 : 샤드별로 마지막으로 받은 변경번호를 콤마로 이어붙인 문자열 (ex. "1520,1498")
+ *   처음에는 null(또는 빈 문자열), 그 다음부터는 받은 Page.getWatermark()를 그대로 넘겨주면 된다.
+ * - 추가/변경은 조회시점의 회원 정보를 같이 돌려준다. (변경된 컬럼만이 아니라 행 전체)
+ *   => 한번에 받은 변경내역 중 같은 회원(USERNO)은 마지막 변경만 남긴다.
+ *   => 그 사이 탈퇴한 회원의 추가/변경 내역은 건너뛴다. (뒤에 오는 탈퇴 내역으로 알수 있음)
+ * - 변경번호는 INSERT할때 정해지고 commit은 조금 뒤에 되므로, 번호가 작은 변경이 늦게 보일수 있다.
+ *   => DB 시간 기준으로 changefeed.lag.millis보다 최근의 변경은 다음 조회로 미룬다. (그 뒤는 보지 않음)
+ *      lag.millis는 가장 긴 쓰기 트랜잭션보다 길어야 한다.
+ * - 리샤딩(ReshardService)으로 옮겨진 회원은 기록하지 않는다. (회원 정보가 바뀐것이 아니므로)
+ * - 오래된 변경내역은 purge()로 지운다. => 그보다 오래 동기화하지 않은 시스템은 전체를 다시 받아야 한다.
+ * */
+public class ChangeFeedService {
+
+	/**
+	 * 워터마크 이후의 변경내역을 조회하는 메소드
+	 * @param watermark : 이전 조회의 Page.getWatermark() (처음이라면 null)
+	 * @param limit : 샤드별로 한번에 조회할 최대 변경내역 수
+	 */
+	public Page changesSince(String watermark, int limit) {
+		checkSupported();
+		int shardCount = getShardCount();
+		long[] since = parse(watermark, shardCount);
+		long lag = getChangeFeedLagMillis();
+
+		List<MemberChange> changes = new ArrayList<>();
+		boolean more = false;
+		for(int s = 0; s < shardCount; s++) {
+			int shard = s;
+			List<MemberChange> rows = new ArrayList<>();
+			Timestamp now = Resilience.read(shard, () -> {
+				Connection conn = openReadConnection(shard);
+				try {
+					MemberDao dao = new MemberDao();
+					Timestamp t = dao.selectNow(conn);
+					rows.clear(); // 재시도하는 경우
+					rows.addAll(dao.selectChanges(conn, shard, since[shard], limit));
+					return t;
+				} finally {
+					close(conn);
+				}
+			});
+
+			long cutoff = now.getTime() - lag;
+			Map<Integer, MemberChange> latest = new LinkedHashMap<>();
+			boolean delayed = false;
+			for(MemberChange c : rows) {
+				if(c.getChangedAt().getTime() >= cutoff) {
+					delayed = true; // 아직 commit되지 않은 앞 번호가 있을수 있음 => 여기서 멈춤
+					break;
+				}
+				since[shard] = c.getChangeSeq();
+				// 같은 회원(USERNO)은 마지막 변경의 위치로 => 탈퇴한 아이디로 다시 가입한 회원은 다른 회원 (탈퇴 내역이 남음)
+				latest.remove(c.getUserNo());
+				latest.put(c.getUserNo(), c);
+			}
+			for(MemberChange c : latest.values()) {
+				if(c.isDeleted() || c.getMember() != null) {
+					changes.add(c);
+				}
+			}
+			more |= !delayed && rows.size() == limit;
+		}
+		return new Page(changes, format(since), more);
+	}
+
+	/**
+	 * MEMBER_CHANGE 테이블, SEQ_MEMBER_CHANGE 시퀀스가 없는 샤드에 만들어주는 메소드 (기존 DB용)
+	 * => 테이블을 만든 후에 changefeed.enabled=true로 바꿀것
+	 * @return 새로 만든 샤드 수
+	 */
+	public int install() {
+		checkSupported();
+		MemberDao dao = new MemberDao();
+		int installed = 0;
+		for(int shard = 0; shard < getShardCount(); shard++) {
+			Connection conn = null;
+			try {
+				conn = openConnection(shard);
+				if(!dao.existsChangeTable(conn)) {
+					dao.createChangeSchema(conn);
+					installed++;
+				}
+			} catch (SQLException e) {
+				throw new DataAccessException(e);
+			} finally {
+				close(conn);
+			}
+		}
+		return installed;
+	}
+
+	/**
+	 * days일보다 오래된 변경내역을 모든 샤드에서 지우는 메소드
+	 * @return 지운 변경내역 수
+	 */
+	public int purge(int days) {
+		checkSupported();
+		MemberDao dao = new MemberDao();
+		String before = Bulkhead.getWorkload();
+		Bulkhead.setWorkload(Bulkhead.BATCH);
+		int purged = 0;
+		try {
+			for(int shard = 0; shard < getShardCount(); shard++) {
+				Connection conn = null;
+				try {
+					conn = openConnection(shard);
+					Timestamp now = dao.selectNow(conn);
+					purged += dao.purgeChanges(conn, new Timestamp(now.getTime() - days * 86400000L));
+					commit(conn);
+				} catch (SQLException e) {
+					rollback(conn);
+					throw new DataAccessException(e);
+				} finally {
+					close(conn);
+				}
+			}
+		} finally {
+			Bulkhead.setWorkload(before);
+		}
+		return purged;
+	}
+
+	// 내장 저장소(store=log)에는 변경내역이 없다. => DB(MemberDao)를 읽지 않도록 바로 실패
+	private static void checkSupported() {
+		try {
+			LogMemberDao.checkSupported("변경내역");
+		} catch (SQLException e) {
+			throw new DataAccessException(e);
+		}
+	}
+
+	// "1520,1498" => {1520, 1498}
+	private static long[] parse(String watermark, int shardCount) {
+		long[] since = new long[shardCount];
+		if(watermark == null || watermark.trim().isEmpty()) {
+			return since;
+		}
+		String[] parts = watermark.trim().split(",");
+		if(parts.length != shardCount) {
+			throw new IllegalArgumentException("워터마크의 샤드 수(" + parts.length + ")가 shard.count(" + shardCount
+					+ ")와 다릅니다. 전체를 다시 받아야 합니다. : " + watermark);
+		}
+		for(int i = 0; i < shardCount; i++) {
+			since[i] = Long.parseLong(parts[i].trim());
+		}
+		return since;
+	}
+
+	private static String format(long[] since) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < since.length; i++) {
+			if(i > 0) sb.append(',');
+			sb.append(since[i]);
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * 변경내역 조회 결과
+	 * */
+	public static class Page {
+		private final List<MemberChange> changes;
+		private final String watermark;
+		private final boolean more;
+
+		private Page(List<MemberChange> changes, String watermark, boolean more) {
+			this.changes = Collections.unmodifiableList(changes);
+			this.watermark = watermark;
+			this.more = more;
+		}
+
+		// 샤드 순서, 샤드 안에서는 변경 순서
+		public List<MemberChange> getChanges() {
+			return changes;
+		}
+
+		// 다음 조회때 넘겨줄 워터마크
+		public String getWatermark() {
+			return watermark;
+		}
+
+		// true라면 limit에 걸려서 다 받지 못함 => 바로 다시 조회
+		public boolean hasMore() {
+			return more;
+		}
+	}
+}
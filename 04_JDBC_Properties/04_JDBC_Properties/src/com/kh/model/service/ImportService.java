@@ -0,0 +1,354 @@
+package com.kh.model.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.kh.bulk.CsvChunkReader;
+import com.kh.bulk.MemberCsvParser;
+import com.kh.bulk.RejectWriter;
+import com.kh.common.Bulkhead;
+import com.kh.common.DataAccessException;
+import com.kh.common.SqlStates;
+import com.kh.model.dao.LogMemberDao;
+import com.kh.model.dao.MemberDao;
+import com.kh.model.vo.Member;
+import com.kh.model.vo.MemberChange;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * ImportService : CSV 파일의 회원들을 한번에 가져오는(INSERT) 서비스
+ *
+ * 3단계로 나눠서 동시에 진행한다. (단계 사이는 크기가 정해진 대기열 => 앞 단계가 너무 앞서가지 않음)
+ *  1) 읽기 (요청한 스레드 1개) : 파일을 1MB씩 행 경계에서 잘라서 넘김 (CsvChunkReader)
+ *  2) 분석 (parsers개)        : 행 => Member로 바꾸고 검사, 샤드별로 BATCH명씩 묶어서 넘김 (MemberCsvParser)
+ *  3) 저장 (writers개)        : 묶음마다 커넥션을 빌려서 JDBC batch로 INSERT 후 commit
+ * => 저장은 batch 몫의 커넥션(bulkhead)을 사용하므로 writers가 bulkhead.batch.max보다 많으면 나머지는 기다린다.
+ *
+ * 가져오지 못한 행은 rejects 파일에 이유와 함께 남긴다.
+ * - 형식/길이/필수값 오류 : 분석 단계에서 걸러짐
+ * - 아이디 중복 등 DB 제약조건 오류 : 묶음 INSERT가 실패하면 그 묶음을 rollback하고 한명씩 다시 INSERT해서
+ *   실패한 행만 reject
+ * - DB 접속 끊김, 타임아웃 등 DB 장애 : 가져오기를 멈추고 DataAccessException (이미 commit된 묶음은 남아있음)
+ *
+ * 변경내역(changefeed.enabled)을 사용한다면 추가한 회원마다 같은 트랜잭션에서 변경내역(I)도 남긴다.
+ * 내장 저장소(store=log)라면 묶음 대신 한명씩 저장소에 추가한다. (아이디 중복만 reject, 파일 오류는 멈춤)
+ * */
+public class ImportService {
+
+	private static final int BATCH = 500;
+	private static final long POLL_MILLIS = 100;
+
+	/**
+	 * @param file : 가져올 CSV 파일 (첫줄은 컬럼명)
+	 * @param rejectsFile : 가져오지 못한 행을 기록할 파일
+	 * @param parsers : 분석 스레드 수
+	 * @param writers : 저장 스레드 수 (동시에 사용할 커넥션 수)
+	 */
+	public Result importCsv(Path file, Path rejectsFile, int parsers, int writers) throws IOException, InterruptedException {
+		int shardCount = getShardCount();
+		long start = System.nanoTime();
+
+		BlockingQueue<CsvChunkReader.Chunk> chunks = new ArrayBlockingQueue<>(parsers * 2);
+		BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(writers * 2);
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		AtomicInteger activeParsers = new AtomicInteger(parsers);
+		LongAdder read = new LongAdder();
+		LongAdder inserted = new LongAdder();
+
+		ExecutorService parsePool = Executors.newFixedThreadPool(parsers, named("import-parse"));
+		ExecutorService writePool = Executors.newFixedThreadPool(writers, named("import-write"));
+		try(CsvChunkReader reader = new CsvChunkReader(file);
+			RejectWriter rejects = new RejectWriter(rejectsFile, reader.getHeader())) {
+			String header = reader.getHeader();
+			new MemberCsvParser(header); // 필수 컬럼이 없다면 시작하기 전에 IllegalArgumentException
+
+			List<Future<?>> tasks = new ArrayList<>();
+			for(int i = 0; i < parsers; i++) {
+				tasks.add(parsePool.submit(() -> {
+					try {
+						parse(new MemberCsvParser(header), shardCount, chunks, batches, rejects, read, failure);
+					} catch (RuntimeException e) {
+						failure.compareAndSet(null, e); // 다른 단계도 멈추도록
+						throw e;
+					}
+					// 마지막 분석 스레드가 끝나면 저장 스레드들에게 끝났음을 알린다.
+					if(activeParsers.decrementAndGet() == 0) {
+						for(int w = 0; w < writers; w++) {
+							put(batches, Batch.END, failure);
+						}
+					}
+					return null;
+				}));
+			}
+			for(int i = 0; i < writers; i++) {
+				tasks.add(writePool.submit(() -> {
+					write(batches, rejects, inserted, failure);
+					return null;
+				}));
+			}
+
+			// 1) 읽기
+			try {
+				CsvChunkReader.Chunk chunk;
+				while(failure.get() == null && (chunk = reader.next()) != null) {
+					put(chunks, chunk, failure);
+				}
+			} catch (IOException e) {
+				failure.compareAndSet(null, e);
+			}
+			for(int i = 0; i < parsers; i++) {
+				put(chunks, CsvChunkReader.Chunk.END, failure);
+			}
+
+			for(Future<?> task : tasks) {
+				try {
+					task.get();
+				} catch (ExecutionException e) {
+					failure.compareAndSet(null, e.getCause() instanceof Exception
+							? (Exception) e.getCause() : new IllegalStateException(e.getCause()));
+				}
+			}
+
+			Exception e = failure.get();
+			if(e instanceof IOException) {
+				throw (IOException) e;
+			}else if(e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}else if(e != null) {
+				throw new IllegalStateException(e);
+			}
+			return new Result(read.sum(), inserted.sum(), rejects.getCount(), System.nanoTime() - start);
+		} finally {
+			parsePool.shutdownNow();
+			writePool.shutdownNow();
+		}
+	}
+
+	// 2) 분석 : 덩어리를 Member로 바꿔서 샤드별로 BATCH명씩 묶어 넘긴다.
+	private void parse(MemberCsvParser parser, int shardCount, BlockingQueue<CsvChunkReader.Chunk> chunks,
+			BlockingQueue<Batch> batches, RejectWriter rejects, LongAdder read,
+			AtomicReference<Exception> failure) throws InterruptedException {
+		Batch[] pending = new Batch[shardCount];
+
+		MemberCsvParser.Sink sink = new MemberCsvParser.Sink() {
+			@Override
+			public void accept(long record, String raw, Member m) {
+				read.increment();
+				int shard = shardCount > 1 ? shardOf(m.getUserId(), shardCount) : 0;
+				if(pending[shard] == null) {
+					pending[shard] = new Batch(shard);
+				}
+				pending[shard].add(record, raw, m);
+				if(pending[shard].members.size() == BATCH) {
+					try {
+						put(batches, pending[shard], failure);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt(); // 다음 poll()에서 InterruptedException
+					}
+					pending[shard] = null;
+				}
+			}
+
+			@Override
+			public void reject(long record, String raw, String reason) {
+				read.increment();
+				rejects.reject(record, raw, reason);
+			}
+		};
+
+		while(true) {
+			CsvChunkReader.Chunk chunk = chunks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			if(failure.get() != null) {
+				return;
+			}
+			if(chunk == CsvChunkReader.Chunk.END) {
+				break;
+			}
+			if(chunk != null) {
+				parser.parse(chunk, sink);
+			}
+		}
+		for(Batch b : pending) {
+			if(b != null) {
+				put(batches, b, failure);
+			}
+		}
+	}
+
+	// 3) 저장 : 묶음마다 커넥션을 빌려서 INSERT
+	private void write(BlockingQueue<Batch> batches, RejectWriter rejects, LongAdder inserted,
+			AtomicReference<Exception> failure) throws InterruptedException {
+		Bulkhead.setWorkload(Bulkhead.BATCH);
+		MemberDao dao = new MemberDao();
+		boolean log = LogMemberDao.isEnabled();
+		try {
+			while(failure.get() == null) {
+				Batch b = batches.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if(b == Batch.END) {
+					return;
+				}
+				if(b != null) {
+					inserted.add(log ? insertLog(b, rejects) : insert(dao, b, rejects));
+				}
+			}
+		} catch (RuntimeException e) {
+			failure.compareAndSet(null, e); // DataAccessException 등 => 다른 단계도 멈추도록
+		} finally {
+			Bulkhead.setWorkload(null);
+		}
+	}
+
+	// 묶음을 한번에 INSERT, 제약조건 오류로 실패하면 한명씩 다시 INSERT해서 실패한 행만 reject
+	private int insert(MemberDao dao, Batch b, RejectWriter rejects) {
+		boolean logged = isChangeFeedEnabled();
+		Connection conn = null;
+		try {
+			conn = openConnection(b.shard);
+			conn.setAutoCommit(false);
+			try {
+				int result = dao.insertMembers(conn, b.members);
+				if(logged) {
+					dao.logChanges(conn, MemberChange.INSERT, b.members);
+				}
+				commitOrThrow(conn); // commit이 실패한 묶음을 저장된것으로 세지 않도록
+				return result;
+			} catch (BatchUpdateException e) {
+				rollback(conn);
+				if(SqlStates.isDbFailure(e)) {
+					throw e;
+				}
+			}
+
+			int result = 0;
+			for(int i = 0; i < b.members.size(); i++) {
+				try {
+					int one = dao.insertMember(conn, b.members.get(i));
+					if(logged) {
+						dao.logChange(conn, MemberChange.INSERT, b.members.get(i).getUserId());
+					}
+					commitOrThrow(conn);
+					result += one;
+				} catch (SQLException e) {
+					rollback(conn);
+					if(SqlStates.isDbFailure(e)) {
+						throw e;
+					}
+					rejects.reject(b.records.get(i), b.raws.get(i), e.getMessage());
+				}
+			}
+			return result;
+		} catch (SQLException e) {
+			rollback(conn);
+			throw new DataAccessException(e);
+		} finally {
+			close(conn); // 풀에 돌려줄때 autoCommit은 원래대로 돌아감
+		}
+	}
+
+	// 내장 저장소 : 한명씩 추가 (아이디 중복은 reject, 파일 오류 등은 가져오기를 멈춤)
+	private int insertLog(Batch b, RejectWriter rejects) {
+		LogMemberDao dao = new LogMemberDao();
+		int result = 0;
+		for(int i = 0; i < b.members.size(); i++) {
+			try {
+				result += dao.insertMember(null, b.members.get(i));
+			} catch (SQLIntegrityConstraintViolationException e) {
+				rejects.reject(b.records.get(i), b.raws.get(i), e.getMessage());
+			} catch (SQLException e) {
+				throw new DataAccessException(e);
+			}
+		}
+		return result;
+	}
+
+	// 대기열이 가득 차있다면 자리가 날때까지 기다린다. (다른 단계가 실패했다면 버림)
+	private static <T> void put(BlockingQueue<T> queue, T item, AtomicReference<Exception> failure) throws InterruptedException {
+		while(failure.get() == null) {
+			if(queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+		}
+	}
+
+	private static ThreadFactory named(String prefix) {
+		AtomicInteger seq = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/*
+	 * 한 샤드에 한번에 INSERT할 회원들 (reject 기록을 위해 원본 행과 행번호도 같이)
+	 * */
+	private static class Batch {
+		private static final Batch END = new Batch(-1);
+
+		private final int shard;
+		private final List<Member> members = new ArrayList<>(BATCH);
+		private final List<Long> records = new ArrayList<>(BATCH);
+		private final List<String> raws = new ArrayList<>(BATCH);
+
+		private Batch(int shard) {
+			this.shard = shard;
+		}
+
+		private void add(long record, String raw, Member m) {
+			members.add(m);
+			records.add(record);
+			raws.add(raw);
+		}
+	}
+
+	/*
+	 * 가져오기 결과
+	 * */
+	public static class Result {
+		private final long read;
+		private final long inserted;
+		private final long rejected;
+		private final long elapsedNanos;
+
+		private Result(long read, long inserted, long rejected, long elapsedNanos) {
+			this.read = read;
+			this.inserted = inserted;
+			this.rejected = rejected;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		// 읽은 행 수 (빈 줄 제외)
+		public long getRead() {
+			return read;
+		}
+
+		public long getInserted() {
+			return inserted;
+		}
+
+		public long getRejected() {
+			return rejected;
+		}
+
+		public double getSeconds() {
+			return elapsedNanos / 1e9;
+		}
+	}
+}
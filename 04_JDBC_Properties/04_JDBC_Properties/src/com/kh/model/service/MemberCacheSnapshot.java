@@ -0,0 +1,246 @@
+package com.kh.model.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.kh.common.TtlCache;
+import com.kh.model.vo.Member;
+import com.kh.model.vo.PackedMember;
+import com.kh.store.MemberCodec;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * MemberCacheSnapshot : 아이디검색 캐시(TtlCache "member")를 파일에 저장해두고 실행시 다시 채워주는 클래스
+ *
+ * 배포(재시작) 직후에는 캐시가 비어있어서 모든 아이디검색이 한동안 DB로 몰린다.
+ * => cache.member.snapshot.millis마다(그리고 정상 종료시) 캐시를 파일에 저장해두고, 실행시 읽어서 채운다.
+ *
+ * 파일 형식 (DataOutputStream, big endian)
+ *   [MAGIC int][VERSION int][저장시각 long][데이터 출처 UTF][회원 수 int][내용 CRC32 int]
+ *   [내용 : 회원 수만큼 (MemberCodec 형식의 회원)] => 가장 오래 사용되지 않은 회원부터 (읽은 순서대로 넣으면 사용순서 유지)
+ * - 저장은 .tmp 파일에 다 쓴 후 이름을 바꾼다. => 읽는 쪽은 다 쓴 파일만 본다.
+ * - 읽을때는 파일 전체를 힙 버퍼로 읽은 후 바로 닫는다. (작은 파일)
+ *   매핑(mmap)해두면 매핑이 풀릴때(GC)까지 윈도우에서는 다음 저장의 이름 바꾸기(REPLACE_EXISTING)가 실패한다.
+ * - 아래의 경우는 오래되었거나 믿을수 없는 스냅샷이므로 읽지 않는다.
+ *   파일 형식 버전(VERSION)이 다름 / 접속 DB(getSourceId)가 다름 / maxAge.millis보다 오래됨 / CRC가 맞지 않음
+ * - 파일은 MemberCodec 형식 (캐시 안의 PackedMember 형식이 바뀌어도 스냅샷은 그대로 읽을수 있도록)
+ * - 비밀번호(USERPWD)는 파일에 남기지 않는다. (null로 저장, 읽을때도 null로 채움 => 스냅샷에서 채운 회원은 비밀번호가 없음)
+ *   비밀번호를 확인하는 작업(탈퇴)은 캐시가 아니라 DB에서 확인하므로 영향이 없다.
+ * - 읽어들인 회원은 새로 조회한것과 같이 cache.member.ttl.millis동안 보관된다.
+ *   => 스냅샷의 값은 최대 (maxAge + ttl)만큼 오래된 값일수 있으므로 maxAge는 배포에 걸리는 시간 정도로 짧게 둘것
+ * - 가상 회원을 다시 만들면(BootstrapService.recreate) 데이터가 바뀌었으므로 스냅샷을 지운다. (discard)
+ * */
+public class MemberCacheSnapshot {
+
+	private static final int MAGIC = 0x4B484D43; // "KHMC"
+	private static final int VERSION = 2;        // 형식(MemberCodec 포함)이 바뀌면 올릴것 (2 : 비밀번호 제외)
+
+	private static final TtlCache<String, PackedMember> memberCache = TtlCache.named("member");
+
+	private static ScheduledExecutorService scheduler;
+
+	/**
+	 * 스냅샷을 읽어서 캐시를 채우고, 주기적으로 저장하도록 등록하는 메소드 (실행시 한번)
+	 * @return 캐시에 넣은 회원 수
+	 */
+	public static synchronized int start() {
+		long millis = getCacheSnapshotMillis();
+		String file = getCacheSnapshotFile();
+		if(millis <= 0 || file.isEmpty() || memberCache.getMaxSize() <= 0 || scheduler != null) {
+			return 0;
+		}
+		int restored = restore(Paths.get(file));
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "cache-snapshot");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(MemberCacheSnapshot::saveQuietly, millis, millis, TimeUnit.MILLISECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(MemberCacheSnapshot::saveQuietly, "cache-snapshot-exit"));
+		return restored;
+	}
+
+	/**
+	 * 지금 캐시에 있는 회원을 파일에 저장하는 메소드
+	 * @return 저장한 회원 수
+	 */
+	public static int save(Path file) throws IOException {
+		List<Map.Entry<String, PackedMember>> entries = memberCache.entries();
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream(Math.max(64, entries.size() * 128));
+		DataOutputStream out = new DataOutputStream(body);
+		for(Map.Entry<String, PackedMember> e : entries) {
+			Member m = e.getValue().toMember();
+			m.setUserPwd(null);
+			MemberCodec.write(out, m);
+		}
+		out.flush();
+		byte[] data = body.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		ByteArrayOutputStream head = new ByteArrayOutputStream(128);
+		DataOutputStream h = new DataOutputStream(head);
+		h.writeInt(MAGIC);
+		h.writeInt(VERSION);
+		h.writeLong(System.currentTimeMillis());
+		h.writeUTF(getSourceId());
+		h.writeInt(entries.size());
+		h.writeInt((int) crc.getValue());
+		h.flush();
+
+		Path dir = file.toAbsolutePath().getParent();
+		if(dir != null) {
+			Files.createDirectories(dir);
+		}
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			ByteBuffer[] bufs = { ByteBuffer.wrap(head.toByteArray()), ByteBuffer.wrap(data) };
+			while(bufs[1].hasRemaining()) {
+				ch.write(bufs);
+			}
+			ch.force(false);
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return entries.size();
+	}
+
+	/**
+	 * 스냅샷 파일을 읽어서 캐시에 채우는 메소드 (읽지 않는 스냅샷이라면 이유를 출력하고 0)
+	 * @return 캐시에 넣은 회원 수
+	 */
+	public static int restore(Path file) {
+		if(!Files.isRegularFile(file)) {
+			return 0;
+		}
+		long started = System.nanoTime();
+		ByteBuffer buf;
+		try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(ch.size() > Integer.MAX_VALUE) {
+				System.err.println(file + " : 스냅샷 파일이 너무 큽니다. 읽지 않습니다.");
+				return 0;
+			}
+			buf = ByteBuffer.allocate((int) ch.size());
+			while(buf.hasRemaining() && ch.read(buf) >= 0) {
+				// 끝까지 읽기
+			}
+			buf.flip();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 0;
+		}
+
+		try {
+			String reason = null;
+			if(buf.remaining() < 8 || buf.getInt() != MAGIC) {
+				reason = "스냅샷 파일이 아닙니다.";
+			}else if(buf.getInt() != VERSION) {
+				reason = "파일 형식 버전이 다릅니다.";
+			}
+			if(reason != null) {
+				System.err.println(file + " : " + reason + " 읽지 않습니다.");
+				return 0;
+			}
+
+			DataInputStream in = new DataInputStream(new BufferInput(buf));
+			long savedAt = in.readLong();
+			String source = in.readUTF();
+			int count = in.readInt();
+			int crc = in.readInt();
+
+			long age = System.currentTimeMillis() - savedAt;
+			CRC32 c = new CRC32();
+			c.update(buf.duplicate());
+			if(!source.equals(getSourceId())) {
+				reason = "다른 DB(" + source + ")의 스냅샷입니다.";
+			}else if(age > getCacheSnapshotMaxAgeMillis() || age < 0) {
+				reason = TimeUnit.MILLISECONDS.toSeconds(age) + "초 전의 스냅샷입니다. (maxAge.millis 초과)";
+			}else if((int) c.getValue() != crc) {
+				reason = "내용이 손상되었습니다.";
+			}
+			if(reason != null) {
+				System.err.println(file + " : " + reason + " 읽지 않습니다.");
+				return 0;
+			}
+
+			long epoch = memberCache.epoch(); // 읽는 동안 변경된 회원은 넣지 않음
+			for(int i = 0; i < count; i++) {
+				Member m = MemberCodec.read(in);
+				m.setUserPwd(null);
+				memberCache.put(m.getUserId(), PackedMember.of(m), epoch);
+			}
+			System.out.println("회원 캐시 스냅샷에서 " + count + "명을 읽었습니다. ("
+					+ TimeUnit.SECONDS.convert(age, TimeUnit.MILLISECONDS) + "초 전, "
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms)");
+			return count;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+
+	/**
+	 * 스냅샷 파일을 지우는 메소드 (데이터를 새로 만든 경우)
+	 */
+	public static void discard() {
+		String file = getCacheSnapshotFile();
+		if(file.isEmpty()) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(Paths.get(file));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// ByteBuffer를 InputStream으로 (DataInputStream으로 읽기 위해)
+	private static class BufferInput extends InputStream {
+		private final ByteBuffer buf;
+
+		BufferInput(ByteBuffer buf) {
+			this.buf = buf;
+		}
+
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if(!buf.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, buf.remaining());
+			buf.get(b, off, n);
+			return n;
+		}
+	}
+
+	private static void saveQuietly() {
+		try {
+			save(Paths.get(getCacheSnapshotFile()));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
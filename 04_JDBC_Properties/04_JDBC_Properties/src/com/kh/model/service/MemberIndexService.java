@@ -0,0 +1,156 @@
+package com.kh.model.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.kh.common.Bulkhead;
+import com.kh.common.DataAccessException;
+import com.kh.common.SqlStates;
+import com.kh.model.dao.LogMemberDao;
+import com.kh.model.vo.Member;
+import com.kh.store.MemberIndexFile;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * MemberIndexService : DB 장애중에도 아이디검색은 할수 있도록 회원 색인 파일(MemberIndexFile)을 관리하는 서비스
+ *
+ * 오라클에 접속할수 없으면 모든 기능이 실패하는데, 요청의 대부분은 아이디검색(조회)이다.
+ * => degraded.index.refresh.millis마다 회원 전체를 읽어서(ParallelScanService, batch 몫의 커넥션) 색인 파일을 새로 만들어두고
+ *    아이디검색이 DB 장애(일시적인 오류, 서킷브레이커 open)로 실패하면 색인 파일에서 찾아준다.
+ * - 색인에서 찾은 회원은 isStale() = true, getStaleAsOf() = 색인을 만든 시각 (화면에 최신이 아닐수 있다고 표시)
+ *   비밀번호는 색인에 넣지 않으므로 null
+ * - DB 장애 = 일시적인 오류, 타임아웃(SqlStates.isDbFailure), 서킷브레이커 open, 접속 실패(SQLSTATE 08xxx)
+ *   Bulkhead 거절(작업종류의 커넥션이 모두 사용중)은 DB 장애가 아니므로 색인으로 답하지 않는다.
+ *   장애가 아닌 오류(SQL 오류 등), 색인에 없는 아이디라면 원래의 오류를 그대로 던진다. (없는 회원이라고 답하지 않음)
+ * - 실행시 색인 파일이 있다면 바로 열어서 사용하고, refresh.millis보다 오래되었다면 바로 다시 만든다.
+ * - 색인 파일은 만들때마다 새 세대 파일(degraded.index.file.세대번호)이다. (MemberIndexFile 참고)
+ *   지난 세대는 실행시, 다시 만든 후에 지운다.
+ * - 내장 저장소(store=log)는 DB 장애가 없으므로 사용하지 않는다.
+ * */
+public class MemberIndexService {
+
+	private static volatile MemberIndexFile index;
+	private static ScheduledExecutorService scheduler;
+
+	/**
+	 * 색인 파일을 열고 주기적으로 다시 만들도록 등록하는 메소드 (실행시 한번)
+	 */
+	public static synchronized void start() {
+		long millis = getDegradedIndexMillis();
+		String file = getDegradedIndexFile();
+		if(millis <= 0 || file.isEmpty() || LogMemberDao.isEnabled() || scheduler != null) {
+			return;
+		}
+		long delay = 0;
+		Path path = Paths.get(file);
+		try {
+			// 아직 아무것도 매핑하지 않았으므로 지난 세대를 모두 지울수 있다.
+			Path latest = MemberIndexFile.latest(path);
+			MemberIndexFile.deleteStale(path, latest);
+			if(latest != null) {
+				index = MemberIndexFile.open(latest);
+				delay = Math.max(0, index.getBuiltAt() + millis - System.currentTimeMillis());
+			}
+		} catch (IOException e) {
+			System.err.println(file + " : " + e.getMessage() + " 다시 만듭니다.");
+		}
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "member-index");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				refresh();
+			} catch (RuntimeException e) {
+				e.printStackTrace(); // DB 장애중이라면 다음 주기에 다시
+			}
+		}, delay, millis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 회원 전체를 읽어서 색인 파일을 새로 만들고 교체하는 메소드
+	 * @return 색인에 넣은 회원 수
+	 */
+	public static synchronized int refresh() {
+		Path path = Paths.get(getDegradedIndexFile());
+		long started = System.nanoTime();
+		try(MemberIndexFile.Writer writer = new MemberIndexFile.Writer(path)) {
+			new ParallelScanService().scan(0, false, m -> {
+				try {
+					writer.add(m);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			int count = writer.commit();
+			index = MemberIndexFile.open(writer.getFile());
+			MemberIndexFile.deleteStale(path, writer.getFile()); // 이전 세대가 아직 매핑중이라면 다음에
+			if(writer.getSkipped() > 0) {
+				System.err.println("회원 색인 : 컬럼 크기를 넘는 값이 있는 회원 " + writer.getSkipped() + "명은 넣지 않았습니다.");
+			}
+			System.out.println("회원 색인 " + count + "명을 만들었습니다. ("
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms)");
+			return count;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataAccessException(new SQLException("회원 색인을 만드는 중 중단되었습니다.", "HY008", e));
+		}
+	}
+
+	/**
+	 * 색인에서 아이디로 회원을 찾는 메소드 (색인이 없거나 없는 아이디라면 null)
+	 */
+	public static Member lookup(String userId) {
+		MemberIndexFile idx = index;
+		if(idx == null) {
+			return null;
+		}
+		int rec = idx.find(userId);
+		if(rec < 0) {
+			return null;
+		}
+		Member m = idx.toMember(rec);
+		m.setStaleAsOf(new Timestamp(idx.getBuiltAt()));
+		return m;
+	}
+
+	/**
+	 * 아이디검색이 DB 장애로 실패했을때 색인에서 찾아주는 메소드
+	 * @return 색인에서 찾은 회원 (isStale() = true)
+	 * @throws DataAccessException 장애가 아닌 오류이거나 색인에서 찾지 못했다면 e 그대로
+	 */
+	static Member fallback(String userId, DataAccessException e) {
+		if(!isOutage(e.getCause())) {
+			throw e;
+		}
+		Member m = lookup(userId);
+		if(m == null) {
+			throw e;
+		}
+		return m;
+	}
+
+	// DB에 접속할수 없는 오류인지 (일시적인 오류, 타임아웃, 서킷브레이커 open, 접속 실패)
+	// => Bulkhead 거절은 이 프로세스가 바쁜것이므로 장애가 아님 (최신이 아닌 색인으로 답하지 않음)
+	private static boolean isOutage(Throwable cause) {
+		if(!(cause instanceof SQLException) || cause instanceof Bulkhead.RejectedException) {
+			return false;
+		}
+		SQLException e = (SQLException) cause;
+		String state = e.getSQLState();
+		return SqlStates.isDbFailure(e) || e instanceof SQLNonTransientConnectionException
+				|| (state != null && state.startsWith("08"));
+	}
+}
@@ -1,11 +1,30 @@
 package com.kh.model.service;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.kh.common.Bulkhead;
+import com.kh.common.CancelHandle;
+import com.kh.common.DataAccessException;
 import com.kh.common.JDBCTemplate;
+import com.kh.common.Resilience;
+import com.kh.common.Span;
+import com.kh.common.SqlStates;
+import com.kh.common.Tracer;
+import com.kh.common.TtlCache;
+import com.kh.model.dao.LogMemberDao;
 import com.kh.model.dao.MemberDao;
+import com.kh.model.dao.MemberStore;
 import com.kh.model.vo.Member;
+import com.kh.model.vo.MemberChange;
+import com.kh.model.vo.PackedMember;
 import static com.kh.common.JDBCTemplate.*;
 
 /*
@@ -14,109 +33,360 @@ import static com.kh.common.JDBCTemplate.*;
  *           DAO호출시 커넥션 객체와 기존에 넘기고자 했던 매개변수를 같이 넘겨줌
  *           DAO가 작업이 끝나면 서비스에게 결과를 돌려주고 그에따른 트랜잭션 처리를 같이해줌
  *           => 서비스단을 추가함으로써 DAO에는 순수하게 SQL문을 처리하는 부분만 남게됨
+ *
+ *           조회(SELECT)만 하는 메소드는 getReadConnection()으로 replica에 접속하고
+ *           트랜잭션 처리가 필요한 메소드(INSERT/UPDATE/DELETE)는 getConnection()으로 primary에 접속한다.
+ *
+ *           샤딩(shard.count > 1)을 사용하는 경우
+ *           - 아이디로 찾을수 있는 작업(추가/아이디검색/변경/탈퇴)은 shardOf(USERID) 샤드로만 보내고
+ *           - 전체조회/이름검색은 모든 샤드에 동시에 보낸 후 USERNO 내림차순으로 합친다.
+ *           - USERNO가 샤드끼리 겹치지 않도록 각 샤드의 SEQ_USERNO는
+ *             START WITH 샤드순번+1 INCREMENT BY 샤드갯수 로 만들어둔다.
+ *
+ *           DB작업은 Resilience를 거쳐서 실행한다.
+ *           - 조회는 일시적인 오류(네트워크 끊김 등)라면 잠시 후 재시도, 쓰기는 재시도하지 않음
+ *           - DB가 죽어있다면(서킷브레이커 open) 접속을 기다리지 않고 바로 실패
+ *           - 최종적으로 실패하면 DataAccessException이 발생한다. (컨트롤러에서 처리)
+ *
+ *           아이디검색 결과는 memberCache(cache.member.size, cache.member.ttl.millis)에 잠시 보관하고
+ *           변경/탈퇴시 바로 지운다.
+ *           - 캐시에는 PackedMember(byte[] 하나)로 담는다. => 한 명에 약 450바이트 => 약 160바이트
+ *             꺼낼때마다 새 Member를 만들므로(약 0.3us) 받은 Member를 고쳐도 캐시는 바뀌지 않는다.
+ *           DB 장애로 아이디검색이 실패하면 색인 파일(MemberIndexService)에서 찾아서 돌려준다. (Member.isStale())
+ *
+ *           변경내역(changefeed.enabled)을 사용한다면 추가/변경/탈퇴와 같은 트랜잭션에서 MEMBER_CHANGE에도 기록한다.
+ *           => 회원이 바뀌었는데 변경내역이 없는(또는 그 반대) 경우가 생기지 않도록 (ChangeFeedService)
+ *
+ *           모아쓰기(writeBehind.flush.millis > 0)를 사용한다면 정보 변경은 WriteBehindBuffer에 모아두고 바로 성공으로 응답한다.
+ *
+ *           DAO는 MemberStore로 사용한다. => driver.properties의 store가 log라면 DB 대신 내장 저장소(LogMemberDao)
+ *           커넥션도 DAO에게 받으므로(connect) 아래의 트랜잭션 처리는 저장소와 상관없이 같다.
  *  */
 public class MemberService {
 	
+	// 샤드가 여러개일 경우 전체조회/이름검색을 각 샤드에 동시에 보내기 위한 스레드들
+	private static final ExecutorService shardExecutor = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "shard-query");
+		t.setDaemon(true);
+		return t;
+	});
+	
+	// 여러 샤드의 조회결과를 합칠때 사용할 정렬기준 => ORDER BY USERNO DESC
+	private static final Comparator<Member> USERNO_DESC = Comparator.comparingInt(Member::getUserNo).reversed();
+	
+	// 아이디 => 최근에 조회된 회원 (byte[]로 담아둠, 꺼낼때마다 새 Member)
+	private static final TtlCache<String, PackedMember> memberCache = TtlCache.named("member");
+	
 	public int insertMember(Member m) {
-		// 먼저 Connection 객체 1),2)
-		Connection conn = getConnection();
-		
-		// DAO 호출시 Connection 객체와 기존에 넘기고자했던 매개변수를 함께 전달
-		int result = new MemberDao().insertMember(conn, m);
-		
-		// 트랜잭션처리. 6)
-		if(result > 0) {
-			commit(conn);
-		}else {
-			rollback(conn);
-		}
-		
-		//Connection 객체 반납 7)
-		close(conn);
-		
-		// 결과값을 컨트롤러에게 반환 8)
-		return result;
+		return Tracer.trace("MemberService.insertMember", Tracer.SERVICE, () -> {
+			// 아이디로 저장될 샤드를 정해서 실행
+			return update(shardOf(m.getUserId()), logged(MemberChange.INSERT, m.getUserId(),
+					(dao, conn) -> dao.insertMember(conn, m)));
+		});
 	}
 	
 	public ArrayList<Member> selectAll(){
-		// 1) Connection 객체 생성
-		Connection conn = getConnection();
-		
-		//2) dao호출해서 리턴값 받기.
-		ArrayList<Member> list = new MemberDao().selectAll(conn);
-		
-		//3) 닫기
-		close(conn);
-		
-		//4) 리턴
-		return list;
+		return Tracer.trace("MemberService.selectAll", Tracer.SERVICE, () -> {
+			if(getShardCount() > 1) {
+				// 모든 샤드에 동시에 조회한 후 합치기
+				return scatterGather((dao, conn) -> dao.selectAll(conn));
+			}
+			return query(0, (dao, conn) -> dao.selectAll(conn));
+		});
 	}
 	
 	public Member selectByUserId(String userId) {
-		
-		//  1) Connection객체 생성
-			Connection conn = getConnection();
-		//  2) DAO호출 호출시 conn 객체와, 전달받은 값을 함께 넘겨주기
-			Member m = new MemberDao().selectByUserId(conn, userId);
-		//  3) conn 반납
-			close(conn);
-		//  4) 컨트롤러에게 전달받은값 리턴
-			return m;
+		return Tracer.trace("MemberService.selectByUserId", Tracer.SERVICE, () -> {
+			// 모아둔 변경은 캐시/DB보다 먼저 확인한다. (WriteBehindBuffer.pending 참고)
+			WriteBehindBuffer buffer = WriteBehindBuffer.peek();
+			Member change = buffer == null ? null : buffer.pending(userId);
+			PackedMember cached = memberCache.get(userId);
+			if(cached != null) {
+				return WriteBehindBuffer.overlay(cached.toMember(), change);
+			}
+			
+			Member m;
+			int shard = shardOf(userId);
+			long epoch = memberCache.epoch(); // 조회하는 동안 변경되어 캐시에서 지워졌다면 조회한 값을 넣지 않음
+			try {
+				m = query(shard, (dao, conn) -> dao.selectByUserId(conn, userId));
+			} catch (DataAccessException e) {
+				// DB 장애라면 주기적으로 만들어둔 색인 파일에서 (최신이 아닐수 있음 표시, 캐시에는 넣지 않음)
+				m = MemberIndexService.fallback(userId, e);
+				return WriteBehindBuffer.overlay(m, change);
+			}
+			
+			// 리샤딩중이라면 아직 옮겨지지 않은 회원일수 있으므로 다른 샤드도 찾아본다.
+			if(m == null && isMigrating()) {
+				for(int i = 0; i < getShardCount() && m == null; i++) {
+					if(i == shard) continue;
+					m = query(i, (dao, conn) -> dao.selectByUserId(conn, userId));
+				}
+			}
+			if(m != null) {
+				memberCache.put(userId, PackedMember.of(m), epoch); // 캐시에는 DB의 값을 (모아둔 변경은 쓴 후에 캐시에서 지워짐)
+			}
+			return WriteBehindBuffer.overlay(m, change);
+		});
 	}
 	
 	public ArrayList<Member> selectByUserName(String keyword){
-		
-		Connection conn = getConnection();
-		
-		ArrayList<Member> list = new MemberDao().selectByUserName(conn, keyword);
-		
-		close(conn);
-		
-		return list;
+		return Tracer.trace("MemberService.selectByUserName", Tracer.SERVICE, () -> {
+			if(getShardCount() > 1) {
+				return scatterGather((dao, conn) -> dao.selectByUserName(conn, keyword));
+			}
+			return query(0, (dao, conn) -> dao.selectByUserName(conn, keyword));
+		});
 	}
 	
 	public int updateMember(Member m) {
-		Connection conn = getConnection();
-		
-		int result = new MemberDao().updateMember(conn, m);
-		
-		if(result>0) {
-			commit(conn);
-		}else {
-			rollback(conn);
-		}
-		
-		close(conn);
-		
-		return result;
+		return Tracer.trace("MemberService.updateMember", Tracer.SERVICE, () -> {
+			WriteBehindBuffer buffer = WriteBehindBuffer.get();
+			if(buffer != null) {
+				// 나중에 쓰므로 처리된 행 수를 미리 알수 없다. => 없는 회원인지만 먼저 확인 (캐시/replica)
+				if(selectByUserId(m.getUserId()) == null) {
+					return 0;
+				}
+				buffer.enqueue(m);
+				return 1;
+			}
+			
+			int shard = shardOf(m.getUserId());
+			DaoWork<Integer> work = logged(MemberChange.UPDATE, m.getUserId(), (dao, conn) -> dao.updateMember(conn, m));
+			int result = update(shard, work);
+			
+			// 리샤딩중이라면 아직 옮겨지지 않은 회원일수 있으므로 다른 샤드에서도 시도
+			if(result == 0 && isMigrating()) {
+				for(int i = 0; i < getShardCount() && result == 0; i++) {
+					if(i != shard) result = update(i, work);
+				}
+			}
+			memberCache.invalidate(m.getUserId());
+			return result;
+		});
 	}
 	
 	public int deleteMember(String userId, String userPwd) {
-		Connection conn = getConnection();
-		
-		int result = new MemberDao().deleteMember(conn, userId, userPwd);
-		
-		if(result>0) {
-			commit(conn);
-		}else {
-			rollback(conn);
-		}
-		
-		close(conn);
-		
-		return result;
+		return Tracer.trace("MemberService.deleteMember", Tracer.SERVICE, () -> {
+			// 모아둔 비밀번호 변경이 있을수 있으므로 먼저 쓴다.
+			WriteBehindBuffer buffer = WriteBehindBuffer.peek();
+			if(buffer != null) {
+				buffer.flush();
+			}
+			
+			int shard = shardOf(userId);
+			DaoWork<Integer> work = logged(MemberChange.DELETE, userId, (dao, conn) -> dao.deleteMember(conn, userId, userPwd));
+			int result = update(shard, work);
+			
+			if(result == 0 && isMigrating()) {
+				for(int i = 0; i < getShardCount() && result == 0; i++) {
+					if(i != shard) result = update(i, work);
+				}
+			}
+			memberCache.invalidate(userId);
+			return result;
+		});
 	}
 	
+	/*
+	 * DAO 호출 작업 => 커넥션과 DAO를 받아서 SQL문을 실행한 결과를 돌려준다.
+	 * */
+	private interface DaoWork<T> {
+		T run(MemberStore dao, Connection conn) throws SQLException;
+	}
 	
+	// driver.properties의 store에 따른 DAO
+	private static MemberStore store() {
+		return LogMemberDao.isEnabled() ? new LogMemberDao() : new MemberDao();
+	}
 	
+	/**
+	 * 쓰기작업에 변경내역 기록을 덧붙이는 메소드 (changefeed.enabled가 아니라면 그대로)
+	 * - 추가/변경 : 성공한 경우(처리된 행이 있는 경우)에만 작업 후 기록
+	 * - 탈퇴 : 지우고 나면 USERNO를 알수 없으므로 먼저 기록 => 탈퇴가 실패하면(0행) update()에서 같이 rollback됨
+	 */
+	private static DaoWork<Integer> logged(String op, String userId, DaoWork<Integer> work) {
+		if(!isChangeFeedEnabled()) {
+			return work;
+		}
+		return (dao, conn) -> {
+			if(conn == null) {
+				return work.run(dao, conn); // 커넥션이 없는 저장소 => 변경내역을 지원하지 않음
+			}
+			// 두 SQL문을 한 트랜잭션으로 (풀에 돌려줄때 autoCommit은 원래대로 돌아감)
+			conn.setAutoCommit(false);
+			if(MemberChange.DELETE.equals(op)) {
+				dao.logChange(conn, op, userId);
+				return work.run(dao, conn);
+			}
+			int result = work.run(dao, conn);
+			if(result > 0) {
+				dao.logChange(conn, op, userId);
+			}
+			return result;
+		};
+	}
 	
+	/**
+	 * 조회작업을 실행하는 메소드
+	 * 1) 읽기용 Connection 생성 2) DAO 호출 3) Connection 반납 => 일시적인 오류라면 1)부터 재시도
+	 */
+	private <T> T query(int shard, DaoWork<T> work) {
+		return Resilience.read(shard, () -> {
+			MemberStore dao = store();
+			Connection conn = dao.connect(shard, true);
+			try {
+				return work.run(dao, conn);
+			} finally {
+				close(conn);
+			}
+		});
+	}
 	
+	/**
+	 * INSERT/UPDATE/DELETE 작업을 실행하는 메소드
+	 * 1) Connection 생성 2) DAO 호출 3) 트랜잭션 처리 4) Connection 반납
+	 */
+	private int update(int shard, DaoWork<Integer> work) {
+		return Resilience.write(shard, () -> {
+			MemberStore dao = store();
+			Connection conn = dao.connect(shard, false);
+			try {
+				int result = work.run(dao, conn);
+				
+				if(result > 0) {
+					commitOrThrow(conn); // 실패하면 아래에서 rollback 후 DataAccessException (Resilience)
+				}else {
+					rollback(conn);
+				}
+				return result;
+			} catch (SQLException e) {
+				rollback(conn);
+				throw e;
+			} finally {
+				close(conn);
+			}
+		});
+	}
 	
+	/**
+	 * 모든 샤드에 같은 조회를 동시에 실행(scatter)한 후 결과를 하나로 합쳐서(gather)
+	 * USERNO 내림차순으로 정렬해서 반환하는 메소드
+	 * 일시적인 오류로 실패한 샤드는 요청한 스레드에서 다시 조회한다.
+	 * 다른 오류로 실패하거나 중단되면 아직 실행중인 샤드 조회를 취소하고 끝날때까지 기다린 후에 커넥션을 반납한다.
+	 * => 실행중인 커넥션이 풀로 돌아가서 다른 요청에게 빌려지지 않도록
+	 */
+	private ArrayList<Member> scatterGather(DaoWork<ArrayList<Member>> q) {
+		int count = getShardCount();
+		MemberStore dao = store();
+		
+		// 요청이 취소되면 다른 스레드에서 실행중인 샤드 조회도 같이 취소되도록 하위 CancelHandle을 넘겨준다.
+		// (여기서 실패했을때 샤드 조회만 취소할수 있도록 요청의 CancelHandle을 그대로 넘기지 않음)
+		CancelHandle request = CancelHandle.current();
+		CancelHandle handle = request == null ? new CancelHandle() : request.child();
+		
+		// 커넥션은 요청한 스레드에서 얻어와야 최근 쓰기여부(primary/replica 선택)와 작업종류(Bulkhead)가 올바르게 적용된다.
+		Connection[] conns = new Connection[count];
+		List<Future<ArrayList<Member>>> futures = new ArrayList<>();
+		ArrayList<Member> list = new ArrayList<>();
+		boolean gathered = false;
+		try {
+			// 샤드 갯수만큼의 사용권한을 한번에 얻는다. => 일부만 쥔 채로 나머지를 기다리다 다른 요청과 서로 막히지 않도록
+			// (샤드 갯수가 작업종류의 커넥션 수보다 많다면 바로 거절)
+			Bulkhead bulkhead = Bulkhead.current();
+			try {
+				bulkhead.reserve(count);
+			} catch (Bulkhead.RejectedException e) {
+				throw new DataAccessException(e);
+			}
+			try {
+				for(int i = 0; i < count; i++) {
+					int shard = i;
+					conns[i] = Resilience.read(shard, () -> dao.connect(shard, true));
+				}
+			} finally {
+				bulkhead.releaseReserved();
+			}
+			
+			// 샤드별 조회도 같은 요청의 하위 구간으로 추적되도록 현재 구간을 넘겨준다.
+			Span parent = Tracer.current();
+			
+			for(int i = 0; i < count; i++) {
+				int shard = i;
+				Connection conn = conns[i];
+				futures.add(shardExecutor.submit(() -> {
+					CancelHandle.bind(handle);
+					Span before = Tracer.attach(parent);
+					try(Span span = Tracer.start("MemberService.shardQuery", Tracer.SERVICE)) {
+						span.attr("shard", shard);
+						return q.run(dao, conn);
+					} finally {
+						Tracer.attach(before);
+						CancelHandle.bind(null);
+					}
+				}));
+			}
+			
+			for(int i = 0; i < count; i++) {
+				int shard = i;
+				try {
+					list.addAll(futures.get(i).get());
+				} catch (ExecutionException e) {
+					if(!(e.getCause() instanceof SQLException)) {
+						throw new IllegalStateException(e.getCause());
+					}
+					SQLException cause = (SQLException) e.getCause();
+					if(!SqlStates.isTransient(cause)) {
+						if(SqlStates.isTimeout(cause)) {
+							Resilience.breaker(shard).onFailure(); // 타임아웃은 재시도하지 않고 집계만
+						}
+						throw new DataAccessException(cause);
+					}
+					// 일시적인 오류였다면 서킷브레이커에 알리고 새 커넥션으로 재시도
+					Resilience.breaker(shard).onFailure();
+					list.addAll(query(shard, q));
+				}
+			}
+			gathered = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataAccessException(new SQLException("조회중 중단되었습니다.", "HY008", e));
+		} finally {
+			if(!gathered) {
+				// 실행중인 SQL문을 취소하고(아직 시작하지 않은 조회는 시작하자마자 HY008) 모두 끝날때까지 기다린다.
+				handle.cancel();
+				awaitAll(futures);
+			}
+			if(request != null) {
+				request.detach(handle);
+			}
+			for(Connection conn : conns) {
+				close(conn);
+			}
+		}
+		
+		list.sort(USERNO_DESC);
+		return list;
+	}
 	
+	// 샤드 조회가 모두 끝날때까지 기다리는 메소드 (결과/오류는 무시, 기다리는 중에 인터럽트되어도 끝까지 기다림)
+	private static void awaitAll(List<Future<ArrayList<Member>>> futures) {
+		boolean interrupted = Thread.interrupted();
+		for(Future<ArrayList<Member>> f : futures) {
+			while(true) {
+				try {
+					f.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					break;
+				}
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
 	
-	
-	
-	
-	
-
 }
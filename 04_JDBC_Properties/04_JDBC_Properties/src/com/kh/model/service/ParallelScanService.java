@@ -0,0 +1,276 @@
+package com.kh.model.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import com.kh.common.Bulkhead;
+import com.kh.common.DataAccessException;
+import com.kh.model.dao.LogMemberDao;
+import com.kh.model.dao.MemberDao;
+import com.kh.model.vo.Member;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * ParallelScanService : 회원 전체를 USERNO 구간별로 나눠서 여러 커넥션에서 동시에 읽는 서비스
+ *                       (내보내기, 재색인, 통계처럼 전체 테이블을 읽는 작업용)
+ *
+ * - MIN(USERNO) ~ MAX(USERNO)를 parallelism x RANGES_PER_THREAD개 구간으로 나눈다.
+ *   => 구간을 스레드 수보다 잘게 나눠서, 삭제 등으로 회원이 적은 구간을 먼저 끝낸 스레드가 다음 구간을 가져간다.
+ * - 스레드마다 구간을 하나씩 가져가서 자기 커넥션으로 PAGE명씩 읽는다. (selectRange)
+ * - 읽은 회원은 요청한 스레드에서 consumer로 전달한다. (consumer는 스레드에 안전하지 않아도 됨)
+ *   ordered = true  : USERNO 오름차순 (구간 순서대로, 샤드가 여러개라면 같은 구간의 샤드들을 합쳐서 정렬)
+ *   ordered = false : 먼저 읽힌 페이지부터 (순서가 필요없다면 더 빠름)
+ * - 동시에 읽는 커넥션 수는 batch 몫의 커넥션 수(bulkhead.batch.max)를 넘지 않는다.
+ *   => 화면 요청이 사용할 커넥션(interactive)을 빼앗지 않도록
+ *   단, 샤드가 여러개이고 ordered라면 최소 샤드 갯수만큼 읽어야 하므로 bulkhead.batch.max도 샤드 갯수 이상이어야 한다.
+ * - 대기열 크기가 정해져 있으므로 consumer가 느리면 읽기도 멈춘다. (메모리 = 커넥션 수 x QUEUE_PAGES x PAGE명)
+ * - 내장 저장소(store=log)라면 구간을 나누지 않고 저장소의 전체 조회를 요청한 스레드에서 그대로 전달한다.
+ * */
+public class ParallelScanService {
+
+	private static final int PAGE = 1000;
+	private static final int RANGES_PER_THREAD = 4;
+	private static final int QUEUE_PAGES = 4;
+	private static final long POLL_MILLIS = 100;
+
+	// 구간 하나를 다 읽었다는 표시
+	private static final List<Member> END = Collections.emptyList();
+
+	/**
+	 * @param parallelism : 동시에 읽을 커넥션 수 (0 이하라면 bulkhead.batch.max)
+	 * @param ordered : true라면 USERNO 오름차순으로 전달
+	 * @param consumer : 회원을 받을 객체 (요청한 스레드에서만 호출됨)
+	 * @return 전달한 회원 수
+	 */
+	public long scan(int parallelism, boolean ordered, Consumer<Member> consumer) throws InterruptedException {
+		if(LogMemberDao.isEnabled()) {
+			return scanLog(ordered, consumer);
+		}
+		int shardCount = getShardCount();
+		int max = Bulkhead.get(Bulkhead.BATCH).getMax();
+		parallelism = parallelism <= 0 ? max : Math.min(parallelism, max);
+		if(ordered) {
+			// 같은 구간의 샤드들을 합치려면 그 샤드들을 동시에 읽고 있어야 한다. (아니면 서로 기다림)
+			parallelism = Math.max(parallelism, shardCount);
+		}
+
+		// 1) 전체 USERNO 범위 (모든 샤드)
+		long lo = Long.MAX_VALUE;
+		long hi = Long.MIN_VALUE;
+		for(int shard = 0; shard < shardCount; shard++) {
+			int[] bounds = bounds(shard);
+			if(bounds != null) {
+				lo = Math.min(lo, bounds[0]);
+				hi = Math.max(hi, bounds[1]);
+			}
+		}
+		if(lo > hi) {
+			return 0; // 회원 없음
+		}
+
+		// 2) 구간 나누기 => 작업 = 구간 x 샤드 (구간 순서대로)
+		long ranges = Math.min((long) parallelism * RANGES_PER_THREAD, hi - lo + 1);
+		long width = (hi - lo + ranges) / ranges;
+		List<Task> tasks = new ArrayList<>();
+		for(long from = lo; from <= hi; from += width) {
+			int to = (int) Math.min(from + width - 1, hi);
+			for(int shard = 0; shard < shardCount; shard++) {
+				tasks.add(new Task(shard, (int) from, to));
+			}
+		}
+		// 순서대로 전달할때는 작업마다 대기열을 따로, 아니라면 모든 작업이 하나의 대기열을 같이 사용
+		BlockingQueue<List<Member>> shared = ordered ? null : new ArrayBlockingQueue<>(parallelism * QUEUE_PAGES);
+		for(Task t : tasks) {
+			t.queue = ordered ? new ArrayBlockingQueue<>(QUEUE_PAGES) : shared;
+		}
+
+		// 3) 읽기 => 스레드마다 다음 작업을 가져가서 실행
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		AtomicInteger next = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(parallelism, named("scan"));
+		try {
+			for(int i = 0; i < parallelism; i++) {
+				pool.execute(() -> {
+					Bulkhead.setWorkload(Bulkhead.BATCH);
+					MemberDao dao = new MemberDao();
+					try {
+						for(int n; (n = next.getAndIncrement()) < tasks.size() && failure.get() == null; ) {
+							read(dao, tasks.get(n), failure);
+						}
+					} catch (RuntimeException e) {
+						failure.compareAndSet(null, e);
+					} catch (InterruptedException e) {
+						// 중단 (consumer가 실패했거나 다 읽기 전에 끝남)
+					}
+				});
+			}
+
+			// 4) 전달
+			long count = 0;
+			if(ordered) {
+				for(int i = 0; i < tasks.size(); i += shardCount) {
+					count += merge(tasks.subList(i, i + shardCount), consumer, failure);
+				}
+			}else {
+				for(int done = 0; done < tasks.size(); ) {
+					List<Member> page = take(shared, failure);
+					if(page == END) {
+						done++;
+					}else {
+						page.forEach(consumer);
+						count += page.size();
+					}
+				}
+			}
+			return count;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// 한 구간을 PAGE명씩 읽어서 대기열로 넘긴다.
+	private void read(MemberDao dao, Task t, AtomicReference<RuntimeException> failure) throws InterruptedException {
+		Connection conn = null;
+		try {
+			conn = openReadConnection(t.shard);
+			int from = t.from;
+			while(true) {
+				List<Member> page = dao.selectRange(conn, from, t.to, PAGE);
+				if(!page.isEmpty()) {
+					put(t.queue, page, failure);
+				}
+				int last = page.isEmpty() ? t.to : page.get(page.size() - 1).getUserNo();
+				if(page.size() < PAGE || last >= t.to) {
+					break;
+				}
+				from = last + 1;
+			}
+			put(t.queue, END, failure);
+		} catch (SQLException e) {
+			throw new DataAccessException(e);
+		} finally {
+			close(conn);
+		}
+	}
+
+	// 같은 구간의 샤드별 결과(각각 USERNO 오름차순)를 합쳐서 USERNO 오름차순으로 전달
+	private long merge(List<Task> group, Consumer<Member> consumer, AtomicReference<RuntimeException> failure) throws InterruptedException {
+		long count = 0;
+		if(group.size() == 1) {
+			for(List<Member> page; (page = take(group.get(0).queue, failure)) != END; ) {
+				page.forEach(consumer);
+				count += page.size();
+			}
+			return count;
+		}
+		// 샤드별 현재 페이지와 위치
+		List<List<Member>> pages = new ArrayList<>();
+		int[] pos = new int[group.size()];
+		for(Task t : group) {
+			pages.add(take(t.queue, failure));
+		}
+		while(true) {
+			int min = -1;
+			for(int s = 0; s < group.size(); s++) {
+				if(pages.get(s) != END && pos[s] == pages.get(s).size()) {
+					pages.set(s, take(group.get(s).queue, failure)); // 다음 페이지
+					pos[s] = 0;
+				}
+				if(pages.get(s) != END && (min < 0
+						|| pages.get(s).get(pos[s]).getUserNo() < pages.get(min).get(pos[min]).getUserNo())) {
+					min = s;
+				}
+			}
+			if(min < 0) {
+				return count;
+			}
+			consumer.accept(pages.get(min).get(pos[min]++));
+			count++;
+		}
+	}
+
+	// 내장 저장소 : 전체 조회(USERNO 내림차순)를 그대로, ordered라면 거꾸로
+	private static long scanLog(boolean ordered, Consumer<Member> consumer) {
+		List<Member> list;
+		try {
+			list = new LogMemberDao().selectAll(null);
+		} catch (SQLException e) {
+			throw new DataAccessException(e);
+		}
+		if(ordered) {
+			Collections.reverse(list);
+		}
+		list.forEach(consumer);
+		return list.size();
+	}
+
+	private int[] bounds(int shard) {
+		Connection conn = null;
+		try {
+			conn = openReadConnection(shard);
+			return new MemberDao().selectUserNoBounds(conn);
+		} catch (SQLException e) {
+			throw new DataAccessException(e);
+		} finally {
+			close(conn);
+		}
+	}
+
+	// 읽는 스레드가 실패했다면 기다리지 않고 그 예외를 던진다.
+	private static List<Member> take(BlockingQueue<List<Member>> queue, AtomicReference<RuntimeException> failure) throws InterruptedException {
+		while(true) {
+			if(failure.get() != null) {
+				throw failure.get();
+			}
+			List<Member> page = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			if(page != null) {
+				return page;
+			}
+		}
+	}
+
+	private static void put(BlockingQueue<List<Member>> queue, List<Member> page, AtomicReference<RuntimeException> failure) throws InterruptedException {
+		while(failure.get() == null) {
+			if(queue.offer(page, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+		}
+	}
+
+	private static ThreadFactory named(String prefix) {
+		AtomicInteger seq = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/*
+	 * 한 샤드의 USERNO 구간 from ~ to 읽기
+	 * */
+	private static class Task {
+		private final int shard;
+		private final int from;
+		private final int to;
+		private BlockingQueue<List<Member>> queue;
+
+		private Task(int shard, int from, int to) {
+			this.shard = shard;
+			this.from = from;
+			this.to = to;
+		}
+	}
+}
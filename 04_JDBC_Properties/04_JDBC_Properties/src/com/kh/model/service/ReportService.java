@@ -0,0 +1,39 @@
+package com.kh.model.service;
+
+import java.sql.SQLException;
+
+import com.kh.common.DataAccessException;
+import com.kh.model.dao.LogMemberDao;
+import com.kh.model.vo.Member;
+import com.kh.store.MemberColumns;
+
+/*
+ * ReportService : 통계용 회원 표(MemberColumns)를 만드는 서비스
+ *
+ * - 회원 전체를 나눠읽기(ParallelScanService, 순서 없이)로 읽어서 컬럼별 배열에 담는다.
+ *   => 읽어온 Member는 한 페이지씩만 살아있다가 버려지므로 ArrayList<Member>처럼 전체가 메모리에 남지 않는다.
+ * - 내장 저장소(store=log)라면 저장소의 전체 조회로 읽는다.
+ * - 만든 표는 그 시점의 통계용 => 회원이 바뀌어도 반영되지 않으므로 필요할때 다시 만들것
+ * */
+public class ReportService {
+
+	/**
+	 * 회원 전체를 읽어서 통계용 표를 만드는 메소드
+	 */
+	public MemberColumns load() throws InterruptedException {
+		MemberColumns table = new MemberColumns();
+		if(LogMemberDao.isEnabled()) {
+			try {
+				for(Member m : new LogMemberDao().selectAll(null)) {
+					table.add(m);
+				}
+			} catch (SQLException e) {
+				throw new DataAccessException(e);
+			}
+		}else {
+			new ParallelScanService().scan(0, false, table::add);
+		}
+		table.trim();
+		return table;
+	}
+}
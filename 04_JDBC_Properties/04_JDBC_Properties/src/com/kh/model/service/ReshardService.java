@@ -0,0 +1,134 @@
+package com.kh.model.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kh.common.DataAccessException;
+import com.kh.common.DataSourceGroup;
+import com.kh.model.dao.LogMemberDao;
+import com.kh.model.dao.MemberDao;
+import com.kh.model.vo.Member;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * ReshardService : 샤드 구성(갯수, 접속주소)이 바뀌었을때 회원들을 새로운 샤드로 옮겨주는 서비스
+ *
+ * 서비스를 멈추지 않고(online) 옮기기 위해서 한 회원씩 다음 순서로 이동한다.
+ *  1) 원본 샤드에서 SELECT ... FOR UPDATE로 행 잠금 (옮기는 동안 변경/탈퇴 요청은 대기)
+ *  2) 새로운 샤드에 USERNO, ENROLLDATE까지 그대로 INSERT 후 commit
+ *  3) 원본 샤드에서 DELETE 후 commit (잠금 해제)
+ * 2)의 commit과 3)의 commit 사이에는 회원이 두 샤드에 모두 있다. (값은 같음, 원본은 잠겨있어서 변경/탈퇴는 대기)
+ * 이 사이에 중단되면(프로세스 종료, 원본 DB 장애) 두 샤드에 모두 남는데, 다시 실행하면 이어서 정리된다.
+ * => 대상 샤드에 USERNO까지 같은 회원이 이미 있다면 INSERT하지 않고 원본만 지운다. (같은 아이디인데 USERNO가 다르다면 옮기지 않음)
+ * 옮기는 동안에는 애플리케이션의 driver.properties를 새로운 구성 + shard.migrating=true로 두어서
+ * 아직 옮겨지지 않은 회원도 MemberService가 다른 샤드에서 찾을수 있게 한다.
+ * 모두 옮긴 후 shard.migrating=false로 바꾸면 된다.
+ * */
+public class ReshardService {
+	
+	/**
+	 * 이전 샤드 구성에 있는 회원들 중 새로운 구성에서 저장 위치가 바뀌는 회원들을 옮겨주는 메소드
+	 * @param from : 이전 샤드 구성
+	 * @param to : 새로운 샤드 구성
+	 * @return 옮겨진 회원 수
+	 */
+	public int reshard(List<DataSourceGroup> from, List<DataSourceGroup> to) {
+		try {
+			LogMemberDao.checkSupported("리샤딩");
+		} catch (SQLException e) {
+			throw new DataAccessException(e);
+		}
+		int moved = 0;
+		MemberDao dao = new MemberDao();
+		
+		for(DataSourceGroup source : from) {
+			Connection sourceConn = null;
+			try {
+				sourceConn = source.getPrimaryConnection();
+				sourceConn.setAutoCommit(false);
+				
+				ArrayList<String> ids = dao.selectAllUserId(sourceConn);
+				for(String userId : ids) {
+					DataSourceGroup target = to.get(shardOf(userId, to.size()));
+					
+					// 같은 DB라면 옮길 필요 없음
+					if(target.getUrl().equals(source.getUrl())) continue;
+					
+					if(move(dao, sourceConn, target, userId)) {
+						moved++;
+					}
+				}
+			} catch (ClassNotFoundException e) {
+				e.printStackTrace();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			} finally {
+				// 구성별 DataSourceGroup에서 빌린 커넥션이므로 그 그룹의 풀에 돌려준다.
+				if(sourceConn != null) source.release(sourceConn);
+			}
+		}
+		
+		// 이동이 끝났으므로 보관중인 커넥션 정리
+		for(DataSourceGroup g : from) g.clearPools();
+		for(DataSourceGroup g : to) g.clearPools();
+		return moved;
+	}
+	
+	// 한 회원을 원본 샤드에서 대상 샤드로 옮기는 메소드
+	private boolean move(MemberDao dao, Connection sourceConn, DataSourceGroup target, String userId) {
+		Connection targetConn = null;
+		try {
+			// 1) 원본 행 잠금 (그사이 탈퇴되었다면 옮길것이 없음)
+			Member m = dao.selectByUserIdForUpdate(sourceConn, userId);
+			if(m == null) {
+				rollback(sourceConn);
+				return false;
+			}
+			
+			// 2) 대상 샤드에 그대로 추가 (지난번에 추가까지만 하고 중단되었다면 이미 있음)
+			targetConn = target.getPrimaryConnection();
+			targetConn.setAutoCommit(false);
+			Member copied = dao.selectByUserId(targetConn, userId);
+			if(copied != null) {
+				rollback(targetConn);
+				if(copied.getUserNo() != m.getUserNo()) {
+					System.err.println(userId + " : 대상 샤드에 회원번호가 다른 같은 아이디(" + copied.getUserNo() + ")가 있어서 옮기지 않습니다.");
+					rollback(sourceConn);
+					return false;
+				}
+			}else {
+				if(dao.insertMemberAll(targetConn, m) == 0) {
+					rollback(targetConn);
+					rollback(sourceConn);
+					return false;
+				}
+				// JDBCTemplate.commit()은 실패해도 예외를 삼키므로 직접 호출
+				// => 대상에 commit되지 않았는데 원본을 지우면 회원이 사라진다. (실패하면 아래 catch에서 원본 되돌림)
+				targetConn.commit();
+			}
+			
+			// 3) 원본 삭제 => 잠금 해제
+			int deleted = dao.deleteByUserId(sourceConn, userId);
+			if(deleted != 1) {
+				// 잠근 행이 지워지지 않았다면 원본을 그대로 둔다. (대상의 행은 다시 실행하면 위에서 확인됨)
+				System.err.println(userId + " : 원본 샤드에서 " + deleted + "행이 삭제되어 되돌립니다.");
+				rollback(sourceConn);
+				return false;
+			}
+			// 원본 commit이 실패했다면 옮긴것으로 세지 않는다. (두 샤드에 모두 남고 다시 실행하면 정리됨)
+			sourceConn.commit();
+			return true;
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			rollback(targetConn);
+		} finally {
+			if(targetConn != null) target.release(targetConn);
+		}
+		rollback(sourceConn);
+		return false;
+	}
+}
@@ -0,0 +1,403 @@
+package com.kh.model.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kh.bulk.UpdateJournal;
+import com.kh.common.Bulkhead;
+import com.kh.common.DataAccessException;
+import com.kh.common.Resilience;
+import com.kh.common.SqlStates;
+import com.kh.common.TtlCache;
+import com.kh.model.dao.LogMemberDao;
+import com.kh.model.dao.MemberDao;
+import com.kh.model.vo.Member;
+import com.kh.model.vo.MemberChange;
+import com.kh.model.vo.PackedMember;
+import static com.kh.common.JDBCTemplate.*;
+
+/*
+ * WriteBehindBuffer : 회원정보 변경(updateMember)을 바로 UPDATE하지 않고 모아뒀다가 한번에 쓰는 버퍼
+ *                     (driver.properties의 writeBehind.flush.millis > 0일때만 사용)
+ *
+ * 정보 변경은 짧은 시간에 같은 회원이 여러번 하는 경우가 많은데, 매번 UPDATE + commit을 하면 DB 왕복이 그만큼 생긴다.
+ * - 변경은 journal 파일에 기록(디스크에 내려쓰기)한 후 메모리에 담고 바로 성공으로 응답한다.
+ *   journal에 기록하지 못했다면(디스크 오류, 폴더를 열지 못함) 응답하기 전에 직접 DB에 쓴다. (flush, 실패하면 DataAccessException)
+ * - 같은 회원의 변경이 여러번 오면 마지막 것만 남긴다. (변경은 네 컬럼을 모두 덮어쓰므로 마지막 값 = 최종 결과)
+ * - flush.millis마다, 또는 batch.size명이 모이면 샤드별로 JDBC batch UPDATE 후 commit
+ *   => 변경내역(changefeed.enabled)도 같은 트랜잭션에서 남긴다.
+ * - DB에 쓰지 못했다면(DB 장애 등) 버퍼에 되돌려두고 다음 주기에 다시 쓴다.
+ *   제약조건 오류(값이 너무 긺 등)로 실패한 변경은 한명씩 다시 써보고 그래도 실패하면 버린다.(System.err에 기록)
+ *   모아둔 변경이 batch.size x MAX_BATCHES를 넘으면 요청한 스레드가 직접 쓴다. (메모리가 끝없이 늘지 않도록)
+ * - journal 조각은 그 조각의 변경이 모두 commit된 후에 지운다. => 도중에 죽으면 다음 실행시 남은 조각을 다시 씀
+ *   (이미 commit된 변경을 다시 써도 같은 값으로 덮어쓰므로 결과는 같다.)
+ * - 내장 저장소(store=log)는 쓰기가 파일 끝에 덧붙이기뿐이라 모아쓸 이유가 없으므로 사용하지 않는다.
+ *
+ * 주의)
+ * - 아이디검색(selectByUserId)은 아직 쓰지 않은 변경을 덮어서 보여준다.
+ *   전체조회/이름검색은 flush.millis만큼 늦게 보일수 있다.
+ * - 탈퇴는 비밀번호를 확인하므로 탈퇴 전에 모아둔 변경을 먼저 쓴다. (MemberService.deleteMember)
+ * - 리샤딩중(shard.migrating)에는 사용하지 않는다. (회원이 어느 샤드에 있는지 확인하면서 써야 하므로)
+ * */
+public class WriteBehindBuffer {
+
+	private static final int MAX_BATCHES = 10;
+
+	private static volatile WriteBehindBuffer instance; // 만들때만 WriteBehindBuffer.class로 동기화
+	private static boolean recoveryChecked; // 꺼져있는 상태로 시작했을때 남은 journal을 확인했는지
+
+	private final int batchSize;
+	private final UpdateJournal journal; // 사용하지 않는다면 null
+	private final boolean journalRequired; // journal 폴더를 지정했는지 (열지 못했더라도)
+	private final ScheduledExecutorService scheduler;
+	private final TtlCache<String, PackedMember> memberCache = TtlCache.named("member");
+
+	private LinkedHashMap<String, Member> pending = new LinkedHashMap<>(); // this로 동기화
+	private volatile Map<String, Member> inFlight = Collections.emptyMap(); // 지금 DB에 쓰고 있는 변경
+	private final Object flushLock = new Object();
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+	private volatile boolean started; // 바꿀때는 WriteBehindBuffer.class로 동기화
+
+	// 통계
+	private final AtomicLong accepted = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong flushed = new AtomicLong();
+
+	/**
+	 * 설정이 켜져있다면 버퍼를 반환 (처음 호출시 만들고 journal에 남은 변경을 되살림)
+	 * 꺼져있다면 남아있는 변경(지난 실행의 journal 포함)을 모두 쓰고 null => 바로 UPDATE
+	 */
+	public static WriteBehindBuffer get() {
+		long millis = getWriteBehindMillis();
+		if(millis <= 0 || isMigrating() || LogMemberDao.isEnabled()) {
+			WriteBehindBuffer b = recovered();
+			if(b != null) {
+				// 바로 UPDATE하는 변경보다 먼저 써야 순서가 맞음
+				// => DB에 쓰는 동안 다른 스레드의 get()을 막지 않도록 잠금 밖에서 (flush끼리는 flushLock으로 하나씩)
+				b.flush();
+			}
+			return null;
+		}
+		WriteBehindBuffer b = instance;
+		return b != null && b.started ? b : started(millis);
+	}
+
+	// 꺼져있는 상태 : 처음 한번 지난 실행의 journal이 남아있는지 확인해서 되살림 (없다면 만들어둔 버퍼 그대로)
+	private static synchronized WriteBehindBuffer recovered() {
+		if(instance == null && !recoveryChecked) {
+			recoveryChecked = true;
+			String dir = getWriteBehindJournal();
+			if(!dir.isEmpty() && Files.isDirectory(Paths.get(dir))) {
+				instance = new WriteBehindBuffer(Math.max(1, getWriteBehindBatch()), dir);
+			}
+		}
+		return instance;
+	}
+
+	// 켜져있는 상태 : 버퍼를 만들고(처음 한번) 주기적으로 쓰기 시작
+	private static synchronized WriteBehindBuffer started(long millis) {
+		if(instance == null) {
+			instance = new WriteBehindBuffer(Math.max(1, getWriteBehindBatch()), getWriteBehindJournal());
+		}
+		instance.start(millis);
+		return instance;
+	}
+
+	/**
+	 * 이미 만들어진 버퍼를 반환 (만든적이 없다면 null) => 조회/탈퇴시 모아둔 변경 확인용
+	 */
+	public static WriteBehindBuffer peek() {
+		return instance;
+	}
+
+	private WriteBehindBuffer(int batchSize, String journalDir) {
+		this.batchSize = batchSize;
+		this.journalRequired = !journalDir.isEmpty();
+		UpdateJournal j = null;
+		if(!journalDir.isEmpty()) {
+			try {
+				j = new UpdateJournal(Paths.get(journalDir));
+				List<Member> recovered = j.recover();
+				for(Member m : recovered) {
+					pending.put(m.getUserId(), m);
+				}
+				if(recovered.isEmpty()) {
+					j.deleteUpTo(j.getSegment() - 1); // 빈 조각
+				}else {
+					System.out.println("지난 실행에서 쓰지 못한 회원정보 변경 " + pending.size() + "건을 다시 씁니다.");
+				}
+			} catch (IOException e) {
+				// journal을 사용할수 없다면 변경마다 응답 전에 직접 DB에 쓴다. (enqueue)
+				e.printStackTrace();
+			}
+		}
+		this.journal = j;
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "write-behind");
+			t.setDaemon(true);
+			return t;
+		});
+		// 정상 종료시에는 모아둔 변경을 모두 쓰고 끝낸다.
+		Runtime.getRuntime().addShutdownHook(new Thread(this::flushQuietly, "write-behind-shutdown"));
+	}
+
+	// 주기적으로 쓰기 시작 (이미 시작했다면 그대로 => 주기를 바꾸려면 재시작)
+	private void start(long millis) {
+		if(!started) {
+			started = true;
+			scheduler.scheduleWithFixedDelay(this::flushQuietly, 0, millis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * 변경을 모아두는 메소드 (journal에 기록한 후 반환)
+	 * journal에 기록하지 못했다면 DB에 쓴 후에 반환한다. => 반환되었다면 죽어도 사라지지 않는 변경
+	 * @param m : 아이디, 비밀번호, 이메일, 전화번호, 주소
+	 * @throws DataAccessException journal에 기록하지 못했고 DB에도 쓰지 못한 경우 (변경은 버퍼에 남아서 다음 주기에 다시 씀)
+	 */
+	public void enqueue(Member m) {
+		if(size() >= batchSize * MAX_BATCHES) {
+			flush(); // DB가 느리거나 죽어있는 경우 => 실패하면 DataAccessException (변경은 받지 않음)
+		}
+		Member copy = new Member();
+		copy.setUserId(m.getUserId());
+		copy.setUserPwd(m.getUserPwd());
+		copy.setEmail(m.getEmail());
+		copy.setPhone(m.getPhone());
+		copy.setAddress(m.getAddress());
+
+		long position = 0;
+		boolean journaled = journal != null;
+		int size;
+		synchronized (this) {
+			if(journal != null) {
+				try {
+					position = journal.append(copy);
+				} catch (IOException e) {
+					e.printStackTrace(); // 기록은 못했지만 순서가 바뀌지 않도록 메모리에는 모아둔다. => 아래에서 바로 씀
+					journaled = false;
+				}
+			}
+			if(pending.put(copy.getUserId(), copy) != null) {
+				coalesced.incrementAndGet();
+			}
+			size = pending.size();
+		}
+		if(journaled) {
+			try {
+				journal.sync(position);
+			} catch (IOException e) {
+				e.printStackTrace();
+				journaled = false;
+			}
+		}
+		accepted.incrementAndGet();
+
+		if(journalRequired && !journaled) {
+			// 디스크에 남기지 못한 변경을 성공으로 응답하면 죽었을때 사라진다. => 응답하기 전에 직접 DB에 쓴다.
+			flush();
+			return;
+		}
+
+		if(size >= batchSize && flushRequested.compareAndSet(false, true)) {
+			scheduler.execute(this::flushQuietly);
+		}
+	}
+
+	/**
+	 * 아직 DB에 쓰지 않은 변경을 반환하는 메소드 (없다면 null)
+	 * 캐시/DB에서 회원정보를 읽기 전에 불러야 한다.
+	 * => 읽은 후에 부르면 그 사이에 DB에 쓰여서 변경은 없어졌는데 읽은 값은 쓰기 전의 값일수 있다.
+	 *    (먼저 부르면 : flush는 캐시에서 지운 후에 inFlight를 비우므로, 여기서 못 찾았다면 이후에 읽는 캐시/DB는 새 값)
+	 */
+	public Member pending(String userId) {
+		Member p;
+		synchronized (this) {
+			p = pending.get(userId);
+		}
+		return p != null ? p : inFlight.get(userId);
+	}
+
+	/**
+	 * pending()으로 받아둔 변경을 기존 회원정보에 덮어서 반환하는 메소드 (변경이 null이라면 m 그대로)
+	 */
+	public static Member overlay(Member m, Member p) {
+		if(m == null || p == null) {
+			return m;
+		}
+		Member merged = new Member(m.getUserNo(), m.getUserId(), p.getUserPwd(), m.getUserName(), m.getGender(), m.getAge(),
+				p.getEmail(), p.getPhone(), p.getAddress(), m.getHobby(), m.getEnrollDate());
+		merged.setStaleAsOf(m.getStaleAsOf());
+		return merged;
+	}
+
+	/**
+	 * 모아둔 변경을 모두 DB에 쓰는 메소드 (실패하면 버퍼에 되돌려두고 DataAccessException)
+	 */
+	public void flush() {
+		synchronized (flushLock) {
+			flushRequested.set(false);
+			Map<String, Member> batch;
+			long sealed = -1;
+			synchronized (this) {
+				if(pending.isEmpty()) {
+					return;
+				}
+				batch = pending;
+				pending = new LinkedHashMap<>();
+				inFlight = batch;
+				if(journal != null) {
+					try {
+						sealed = journal.rotate(); // 이후의 변경은 새 조각에 기록
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+
+			try {
+				write(new ArrayList<>(batch.values()));
+				// 쓰기 전에 조회되어 캐시에 남아있는 회원정보는 이제 DB와 다르다.
+				// => inFlight를 비우기 전에 지운다. (비운 후에 지우면 그 사이의 조회는 덮을 변경 없이 캐시의 옛 값을 보게 됨)
+				for(String userId : batch.keySet()) {
+					memberCache.invalidate(userId);
+				}
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					// 그 사이에 들어온 더 최근의 변경이 있다면 그것을 남긴다.
+					for(Map.Entry<String, Member> entry : batch.entrySet()) {
+						pending.putIfAbsent(entry.getKey(), entry.getValue());
+					}
+				}
+				throw e;
+			} finally {
+				inFlight = Collections.emptyMap();
+			}
+
+			if(sealed > 0) {
+				try {
+					journal.deleteUpTo(sealed);
+				} catch (IOException e) {
+					e.printStackTrace(); // 다음 실행시 다시 쓰게 됨 (결과는 같음)
+				}
+			}
+			flushed.addAndGet(batch.size());
+		}
+	}
+
+	// 주기적으로 실행 => 실패해도 다음 주기에 다시 시도
+	private void flushQuietly() {
+		String before = Bulkhead.getWorkload();
+		Bulkhead.setWorkload(Bulkhead.BATCH);
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		} finally {
+			Bulkhead.setWorkload(before);
+		}
+	}
+
+	// 샤드별로 나눠서 한번에 UPDATE 후 commit
+	private void write(List<Member> members) {
+		int shardCount = getShardCount();
+		List<List<Member>> byShard = new ArrayList<>();
+		for(int i = 0; i < shardCount; i++) {
+			byShard.add(new ArrayList<>());
+		}
+		for(Member m : members) {
+			byShard.get(shardCount > 1 ? shardOf(m.getUserId(), shardCount) : 0).add(m);
+		}
+
+		for(int s = 0; s < shardCount; s++) {
+			int shard = s;
+			List<Member> list = byShard.get(shard);
+			if(list.isEmpty()) {
+				continue;
+			}
+			try {
+				Resilience.write(shard, () -> update(shard, list));
+			} catch (DataAccessException e) {
+				if(isDbFailure(e)) {
+					throw e;
+				}
+				// 제약조건 오류(값이 너무 긺 등) => 한명씩 다시 써서 실패한 변경만 버린다.
+				// (계속 실패하는 변경 하나 때문에 버퍼 전체가 막히지 않도록)
+				for(Member m : list) {
+					try {
+						Resilience.write(shard, () -> update(shard, Collections.singletonList(m)));
+					} catch (DataAccessException e2) {
+						if(isDbFailure(e2)) {
+							throw e2;
+						}
+						System.err.println("회원정보 변경을 쓰지 못해서 버립니다. : " + m.getUserId() + " - " + e2.getMessage());
+					}
+				}
+			}
+		}
+	}
+
+	private int update(int shard, List<Member> list) throws SQLException {
+		Connection conn = openConnection(shard);
+		try {
+			conn.setAutoCommit(false);
+			MemberDao dao = new MemberDao();
+			int result = dao.updateMembers(conn, list);
+			if(isChangeFeedEnabled()) {
+				dao.logChanges(conn, MemberChange.UPDATE, list); // 없는 회원은 기록되지 않음
+			}
+			// commit 실패를 알아야 버퍼에 되돌려둘수 있으므로 commit()(예외를 삼킴) 대신 commitOrThrow()
+			commitOrThrow(conn);
+			return result;
+		} catch (SQLException e) {
+			rollback(conn);
+			throw e;
+		} finally {
+			close(conn); // 풀에 돌려줄때 autoCommit은 원래대로 돌아감
+		}
+	}
+
+	// 변경 자체에는 문제가 없는 실패인지 (DB 장애, 커넥션 몫 부족) => 버리지 않고 다음 주기에 다시 씀
+	private static boolean isDbFailure(DataAccessException e) {
+		return SqlStates.isDbFailure(e.getCause()) || e.getCause() instanceof Bulkhead.RejectedException;
+	}
+
+	public synchronized int size() {
+		return pending.size();
+	}
+
+	// 받은 변경 수
+	public long getAccepted() {
+		return accepted.get();
+	}
+
+	// 같은 회원의 이전 변경을 덮어써서 DB에 쓰지 않아도 된 변경 수
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	// DB에 쓴 변경 수
+	public long getFlushed() {
+		return flushed.get();
+	}
+
+	@Override
+	public String toString() {
+		return "WriteBehindBuffer [pending=" + size() + ", accepted=" + getAccepted() + ", coalesced="
+				+ getCoalesced() + ", flushed=" + getFlushed() + "]";
+	}
+}
@@ -1,6 +1,7 @@
 package com.kh.model.vo;
 
 import java.sql.Date;
+import java.sql.Timestamp;
 
 /* 
  * 
@@ -22,6 +23,7 @@ public class Member {
 	private String hobby; // HOBBY VARCHAR2(50 BYTE)
 	private Date enrollDate;// ENROLLDATE DATE
 							// java.sql.Date로 import하기
+	private Timestamp staleAsOf; // DB 장애중 색인 파일(MemberIndexService)에서 읽었다면 그 색인의 시각, DB에서 읽었다면 null
 
 	public Member() {
 
@@ -145,6 +147,19 @@ public class Member {
 		this.enrollDate = enrollDate;
 	}
 
+	// true라면 최신 정보가 아닐수 있음 (getStaleAsOf 시각의 정보)
+	public boolean isStale() {
+		return staleAsOf != null;
+	}
+
+	public Timestamp getStaleAsOf() {
+		return staleAsOf;
+	}
+
+	public void setStaleAsOf(Timestamp staleAsOf) {
+		this.staleAsOf = staleAsOf;
+	}
+
 	@Override
 	public String toString() {
 		return "Member [userNo=" + userNo + ", userId=" + userId + ", userPwd=" + userPwd + ", userName=" + userName
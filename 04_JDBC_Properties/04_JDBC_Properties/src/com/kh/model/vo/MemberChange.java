@@ -0,0 +1,104 @@
+package com.kh.model.vo;
+
+import java.sql.Timestamp;
+
+/*
+ * 회원 변경내역(MEMBER_CHANGE 테이블)의 한 행 + 조회시점의 회원 정보
+ *
+ * op : I(추가) / U(변경) / D(탈퇴)
+ * member : 추가/변경이라면 조회시점의 회원 정보 (비밀번호 제외), 탈퇴라면 null
+ * */
+public class MemberChange {
+	public static final String INSERT = "I";
+	public static final String UPDATE = "U";
+	public static final String DELETE = "D";
+
+	private int shard;
+	private long changeSeq; // CHANGE_SEQ NUMBER (샤드별 SEQ_MEMBER_CHANGE)
+	private String op; // OP CHAR(1 BYTE)
+	private int userNo; // USERNO NUMBER
+	private String userId; // USERID VARCHAR2(15 BYTE)
+	private Timestamp changedAt; // CHANGED_AT TIMESTAMP
+	private Member member;
+
+	public MemberChange() {
+
+	}
+
+	public MemberChange(int shard, long changeSeq, String op, int userNo, String userId, Timestamp changedAt,
+			Member member) {
+		this.shard = shard;
+		this.changeSeq = changeSeq;
+		this.op = op;
+		this.userNo = userNo;
+		this.userId = userId;
+		this.changedAt = changedAt;
+		this.member = member;
+	}
+
+	public int getShard() {
+		return shard;
+	}
+
+	public void setShard(int shard) {
+		this.shard = shard;
+	}
+
+	public long getChangeSeq() {
+		return changeSeq;
+	}
+
+	public void setChangeSeq(long changeSeq) {
+		this.changeSeq = changeSeq;
+	}
+
+	public String getOp() {
+		return op;
+	}
+
+	public void setOp(String op) {
+		this.op = op;
+	}
+
+	public int getUserNo() {
+		return userNo;
+	}
+
+	public void setUserNo(int userNo) {
+		this.userNo = userNo;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Timestamp getChangedAt() {
+		return changedAt;
+	}
+
+	public void setChangedAt(Timestamp changedAt) {
+		this.changedAt = changedAt;
+	}
+
+	public Member getMember() {
+		return member;
+	}
+
+	public void setMember(Member member) {
+		this.member = member;
+	}
+
+	public boolean isDeleted() {
+		return DELETE.equals(op);
+	}
+
+	@Override
+	public String toString() {
+		return "MemberChange [shard=" + shard + ", changeSeq=" + changeSeq + ", op=" + op + ", userNo=" + userNo
+				+ ", userId=" + userId + ", changedAt=" + changedAt + ", member=" + member + "]";
+	}
+}
@@ -0,0 +1,301 @@
+package com.kh.model.vo;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/*
+ * PackedMember : 회원 한 명을 byte[] 하나에 담아두는 클래스 (캐시처럼 회원을 오래, 많이 보관하는 곳용)
+ *
+ * Member는 컬럼마다 객체(String 8개 + Date)가 따로 있어서 회원 한 명에 약 490바이트를 차지한다. (MemberColumns 참고)
+ * => 모든 컬럼을 바이트로 이어붙여서 객체 2개(PackedMember + byte[])로 보관한다.
+ *
+ * 형식 (23바이트 고정 + 문자열)
+ *   0 표시 1바이트 (PHONE_DIGITS : PHONE을 숫자로 담음)
+ *   1 USERNO int / 5 AGE int / 9 ENROLLDATE int (1970-01-01부터의 일수, NO_DATE = null)
+ *   13 GENDER 1바이트 (0 = null, 1 = M, 2 = F, 3 = 그 외 => 문자열로 담음)
+ *   14 PHONE 자릿수 1바이트 / 15 PHONE long => "01012345678"처럼 숫자뿐인 전화번호는 앞의 0까지 자릿수로 되살림
+ *   23 문자열 : USERID, USERPWD, USERNAME, EMAIL, ADDRESS, HOBBY, [PHONE], [GENDER] ([]는 숫자/코드로 담지 못했을때만)
+ *      문자열 하나 = [머리말 2바이트][바이트]
+ *      머리말 = 0xFFFF(null) 또는 바이트 수(최대 32766) | 0x8000(UTF-8)
+ *      => 영문/숫자뿐이라면 Latin-1(한 글자 1바이트, String이 그대로 복사해서 만듦), 한글이 있다면 UTF-8
+ * - 값은 바꿀수 없다. (getter만 있음) => 여러 스레드에서 같이 읽어도 된다.
+ * - getXxx()는 부를때마다 그 컬럼만 꺼내서 새로 만든다. 회원 전체가 필요할때는 toMember() (매번 새 Member)
+ * - staleAsOf(DB 장애중 색인)는 담지 않는다.
+ * */
+public class PackedMember {
+
+	public static final int NO_DATE = Integer.MIN_VALUE;
+
+	private static final int FLAGS = 0;
+	private static final int USERNO = 1;
+	private static final int AGE = 5;
+	private static final int ENROLLDATE = 9;
+	private static final int GENDER = 13;
+	private static final int PHONE_LENGTH = 14;
+	private static final int PHONE = 15;
+	private static final int STRINGS = 23;
+
+	private static final int PHONE_DIGITS = 1;
+	private static final int GENDER_OTHER = 3;
+
+	// 문자열 순서
+	private static final int USERID = 0, USERPWD = 1, USERNAME = 2, EMAIL = 3, ADDRESS = 4, HOBBY = 5, EXTRA = 6;
+
+	private static final int NULL = 0xFFFF;
+	private static final int UTF8 = 0x8000;
+	private static final int LENGTH = 0x7FFF;
+	private static final int MAX_BYTES = 0x7FFE; // 0x7FFF | UTF8 = NULL
+
+	private final byte[] data;
+
+	private PackedMember(byte[] data) {
+		this.data = data;
+	}
+
+	/**
+	 * Member를 담는 메소드
+	 * @throws IllegalArgumentException 문자열 하나가 32766바이트를 넘는 경우
+	 */
+	public static PackedMember of(Member m) {
+		String phone = m.getPhone();
+		boolean phoneDigits = isDigits(phone);
+		String gender = m.getGender();
+		int genderCode = gender == null ? 0 : "M".equals(gender) ? 1 : "F".equals(gender) ? 2 : GENDER_OTHER;
+
+		// 담을 문자열 (PHONE, GENDER는 숫자/코드로 담지 못했을때만)
+		String[] values = new String[EXTRA + (phoneDigits ? 0 : 1) + (genderCode == GENDER_OTHER ? 1 : 0)];
+		values[USERID] = m.getUserId();
+		values[USERPWD] = m.getUserPwd();
+		values[USERNAME] = m.getUserName();
+		values[EMAIL] = m.getEmail();
+		values[ADDRESS] = m.getAddress();
+		values[HOBBY] = m.getHobby();
+		int extra = EXTRA;
+		if(!phoneDigits) {
+			values[extra++] = phone;
+		}
+		if(genderCode == GENDER_OTHER) {
+			values[extra++] = gender;
+		}
+		byte[][] strings = new byte[values.length][];
+		int utf8 = 0; // UTF-8로 담은 문자열 (비트)
+		int length = STRINGS;
+		for(int i = 0; i < values.length; i++) {
+			if(values[i] != null) {
+				boolean latin1 = isLatin1(values[i]);
+				strings[i] = values[i].getBytes(latin1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+				if(strings[i].length > MAX_BYTES) {
+					throw new IllegalArgumentException("문자열이 너무 깁니다. (" + strings[i].length + "바이트, 최대 " + MAX_BYTES + ")");
+				}
+				utf8 |= latin1 ? 0 : 1 << i;
+				length += strings[i].length;
+			}
+			length += 2;
+		}
+
+		byte[] data = new byte[length];
+		data[FLAGS] = (byte) (phoneDigits ? PHONE_DIGITS : 0);
+		putInt(data, USERNO, m.getUserNo());
+		putInt(data, AGE, m.getAge());
+		putInt(data, ENROLLDATE, m.getEnrollDate() == null ? NO_DATE : (int) m.getEnrollDate().toLocalDate().toEpochDay());
+		data[GENDER] = (byte) genderCode;
+		if(phoneDigits) {
+			data[PHONE_LENGTH] = (byte) phone.length();
+			putLong(data, PHONE, Long.parseLong(phone));
+		}
+		int at = STRINGS;
+		for(int i = 0; i < strings.length; i++) {
+			at = putString(data, at, strings[i], (utf8 >>> i & 1) != 0);
+		}
+		return new PackedMember(data);
+	}
+
+	public int getUserNo() {
+		return getInt(USERNO);
+	}
+
+	public int getAge() {
+		return getInt(AGE);
+	}
+
+	public String getUserId() {
+		return string(find(USERID));
+	}
+
+	public String getUserPwd() {
+		return string(find(USERPWD));
+	}
+
+	public String getUserName() {
+		return string(find(USERNAME));
+	}
+
+	public String getEmail() {
+		return string(find(EMAIL));
+	}
+
+	public String getAddress() {
+		return string(find(ADDRESS));
+	}
+
+	public String getHobby() {
+		return string(find(HOBBY));
+	}
+
+	public String getGender() {
+		switch(data[GENDER]) {
+		case 0: return null;
+		case 1: return "M";
+		case 2: return "F";
+		default: return string(find(isPhoneDigits() ? EXTRA : EXTRA + 1));
+		}
+	}
+
+	public String getPhone() {
+		if(!isPhoneDigits()) {
+			return string(find(EXTRA));
+		}
+		// 자릿수만큼 앞을 0으로 채움
+		byte[] digits = new byte[data[PHONE_LENGTH]];
+		long v = getLong(PHONE);
+		for(int i = digits.length - 1; i >= 0; i--) {
+			digits[i] = (byte) ('0' + v % 10);
+			v /= 10;
+		}
+		return new String(digits, StandardCharsets.ISO_8859_1);
+	}
+
+	public Date getEnrollDate() {
+		int day = getInt(ENROLLDATE);
+		return day == NO_DATE ? null : Date.valueOf(LocalDate.ofEpochDay(day));
+	}
+
+	/**
+	 * 가입일을 1970-01-01부터의 일수로 반환 (없다면 NO_DATE) => Date 객체를 만들지 않음
+	 */
+	public int getEnrollDay() {
+		return getInt(ENROLLDATE);
+	}
+
+	/**
+	 * 담아둔 값으로 새 Member를 만드는 메소드
+	 */
+	public Member toMember() {
+		int at = STRINGS;
+		String[] s = new String[EXTRA];
+		for(int i = 0; i < EXTRA; i++) {
+			s[i] = string(at);
+			at = skip(at);
+		}
+		return new Member(getUserNo(), s[USERID], s[USERPWD], s[USERNAME], getGender(), getAge(),
+				s[EMAIL], getPhone(), s[ADDRESS], s[HOBBY], getEnrollDate());
+	}
+
+	/**
+	 * 차지하는 메모리(바이트)를 어림하는 메소드 (PackedMember 16 + byte[] 머리말 16, 8바이트 단위)
+	 */
+	public int getBytes() {
+		return 16 + (16 + data.length + 7) / 8 * 8;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof PackedMember && Arrays.equals(data, ((PackedMember) o).data);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(data);
+	}
+
+	@Override
+	public String toString() {
+		return toMember().toString();
+	}
+
+	private boolean isPhoneDigits() {
+		return (data[FLAGS] & PHONE_DIGITS) != 0;
+	}
+
+	// n번째 문자열의 위치
+	private int find(int n) {
+		int at = STRINGS;
+		for(int i = 0; i < n; i++) {
+			at = skip(at);
+		}
+		return at;
+	}
+
+	private int skip(int at) {
+		int head = header(at);
+		return at + 2 + (head == NULL ? 0 : head & LENGTH);
+	}
+
+	private int header(int at) {
+		return (data[at] & 0xFF) << 8 | (data[at + 1] & 0xFF);
+	}
+
+	private String string(int at) {
+		int head = header(at);
+		if(head == NULL) {
+			return null;
+		}
+		return new String(data, at + 2, head & LENGTH,
+				(head & UTF8) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+	}
+
+	private static boolean isLatin1(String s) {
+		for(int i = 0; i < s.length(); i++) {
+			if(s.charAt(i) >= 0x100) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int putString(byte[] data, int at, byte[] s, boolean utf8) {
+		int head = s == null ? NULL : s.length | (utf8 ? UTF8 : 0);
+		data[at++] = (byte) (head >>> 8);
+		data[at++] = (byte) head;
+		if(s != null) {
+			System.arraycopy(s, 0, data, at, s.length);
+			at += s.length;
+		}
+		return at;
+	}
+
+	private static boolean isDigits(String s) {
+		if(s == null || s.isEmpty() || s.length() > 18) {
+			return false;
+		}
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int getInt(int at) {
+		return (data[at] & 0xFF) << 24 | (data[at + 1] & 0xFF) << 16 | (data[at + 2] & 0xFF) << 8 | (data[at + 3] & 0xFF);
+	}
+
+	private long getLong(int at) {
+		return (long) getInt(at) << 32 | (getInt(at + 4) & 0xFFFFFFFFL);
+	}
+
+	private static void putInt(byte[] data, int at, int v) {
+		data[at] = (byte) (v >>> 24);
+		data[at + 1] = (byte) (v >>> 16);
+		data[at + 2] = (byte) (v >>> 8);
+		data[at + 3] = (byte) v;
+	}
+
+	private static void putLong(byte[] data, int at, long v) {
+		putInt(data, at, (int) (v >>> 32));
+		putInt(data, at + 4, (int) v);
+	}
+}
@@ -0,0 +1,24 @@
+package com.kh.run;
+
+import com.kh.common.JDBCTemplate;
+import com.kh.model.service.BootstrapService;
+
+/*
+ * MEMBER 테이블 생성 + 가상 회원 추가 실행용 클래스 (driver.properties의 DB에 만든다.)
+ * => 이미 있는 MEMBER 테이블, SEQ_USERNO 시퀀스는 지우고 다시 만든다.
+ * 사용법) java com.kh.run.BootstrapRun [회원수]
+ *   ex) java com.kh.run.BootstrapRun 1000000
+ *   (회원수를 생략하면 driver.properties의 bootstrap.members)
+ * */
+public class BootstrapRun {
+
+	public static void main(String[] args) {
+		int members = args.length > 0 ? Integer.parseInt(args[0]) : JDBCTemplate.getBootstrapMembers();
+		
+		System.out.println("MEMBER 테이블을 다시 만들고 회원 " + members + "명을 넣습니다...");
+		long start = System.nanoTime();
+		int inserted = new BootstrapService().recreate(members);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("완료 : %d명, %.1f초 (초당 %.0f명)%n", inserted, seconds, inserted / seconds);
+	}
+}
@@ -0,0 +1,54 @@
+package com.kh.run;
+
+import com.kh.common.JDBCTemplate;
+import com.kh.model.service.BootstrapService;
+import com.kh.model.service.ChangeFeedService;
+import com.kh.model.vo.MemberChange;
+
+/*
+ * 회원 변경내역 실행용 클래스
+ * 사용법) java com.kh.run.ChangeFeedRun [워터마크] [한번에 조회할 수]
+ *         => 워터마크 이후의 변경내역을 모두 출력하고 마지막에 다음 워터마크를 출력
+ *   ex) java com.kh.run.ChangeFeedRun              (처음부터)
+ *   ex) java com.kh.run.ChangeFeedRun 1520,1498 500
+ *       java com.kh.run.ChangeFeedRun install      (기존 DB에 MEMBER_CHANGE 테이블/시퀀스 만들기)
+ *       java com.kh.run.ChangeFeedRun purge 30     (30일보다 오래된 변경내역 지우기)
+ * */
+public class ChangeFeedRun {
+
+	public static void main(String[] args) {
+		ChangeFeedService service = new ChangeFeedService();
+
+		if(args.length > 0 && args[0].equalsIgnoreCase("install")) {
+			System.out.println("변경내역 테이블을 만든 샤드 수 : " + service.install());
+			return;
+		}
+		if(args.length > 0 && args[0].equalsIgnoreCase("purge")) {
+			int days = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+			System.out.println(days + "일보다 오래된 변경내역 " + service.purge(days) + "건을 지웠습니다.");
+			return;
+		}
+
+		if(JDBCTemplate.getBootstrapMembers() > 0) {
+			new BootstrapService().ensure(JDBCTemplate.getBootstrapMembers());
+		}
+
+		String watermark = args.length > 0 ? args[0] : null;
+		int limit = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int count = 0;
+		ChangeFeedService.Page page;
+		do {
+			page = service.changesSince(watermark, limit);
+			for(MemberChange c : page.getChanges()) {
+				System.out.println(c.isDeleted()
+						? c.getChangeSeq() + " 탈퇴 " + c.getUserNo() + " " + c.getUserId()
+						: c.getChangeSeq() + " " + (MemberChange.INSERT.equals(c.getOp()) ? "추가 " : "변경 ") + c.getMember());
+			}
+			count += page.getChanges().size();
+			watermark = page.getWatermark();
+		} while(page.hasMore());
+
+		System.out.println("변경된 회원 수 : " + count);
+		System.out.println("다음 워터마크 : " + watermark);
+	}
+}
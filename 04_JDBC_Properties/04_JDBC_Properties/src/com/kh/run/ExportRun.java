@@ -0,0 +1,44 @@
+package com.kh.run;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.kh.common.JDBCTemplate;
+import com.kh.export.ExportFormat;
+import com.kh.model.service.BootstrapService;
+import com.kh.model.service.ExportService;
+
+/*
+ * 회원 내보내기 실행용 클래스 (driver.properties의 DB에서 읽는다.)
+ * 사용법) java com.kh.run.ExportRun [csv|jsonl] [파일]
+ *   ex) java com.kh.run.ExportRun                                  (logs/member.csv)
+ *   ex) java com.kh.run.ExportRun jsonl export/member-20241019.jsonl.gz
+ *   파일 이름이 .gz로 끝나면 gzip으로 압축한다.
+ * */
+public class ExportRun {
+
+	public static void main(String[] args) {
+		ExportFormat format = ExportFormat.of(args.length > 0 ? args[0] : "csv");
+		Path file = Paths.get(args.length > 1 ? args[1] : "logs/member." + format.getExtension());
+		boolean gzip = file.toString().endsWith(".gz");
+
+		try {
+			if(file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			if(JDBCTemplate.getBootstrapMembers() > 0) {
+				new BootstrapService().ensure(JDBCTemplate.getBootstrapMembers());
+			}
+
+			long start = System.nanoTime();
+			long rows = new ExportService().exportAll(file, format, gzip);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("완료 : %s, %d행, %.1fMB, %.1f초 (초당 %.0f행)%n",
+					file, rows, Files.size(file) / 1048576.0, seconds, rows / seconds);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.kh.run;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.kh.common.Bulkhead;
+import com.kh.common.JDBCTemplate;
+import com.kh.model.service.BootstrapService;
+import com.kh.model.service.ImportService;
+
+/*
+ * 회원 가져오기 실행용 클래스 (driver.properties의 DB에 넣는다.)
+ * 사용법) java com.kh.run.ImportRun 파일 [reject파일] [분석스레드수] [저장스레드수]
+ *   ex) java com.kh.run.ImportRun partner.csv
+ *   ex) java com.kh.run.ImportRun partner.csv logs/partner-rejects.csv 4 2
+ *   reject파일을 생략하면 원본파일이름.rejects.csv
+ *   분석스레드수를 생략하면 CPU 갯수, 저장스레드수를 생략하면 bulkhead.batch.max
+ *
+ * CSV 첫줄은 컬럼명 => USERID, USERPWD, USERNAME은 필수 (GENDER, AGE, EMAIL, PHONE, ADDRESS, HOBBY는 선택)
+ * */
+public class ImportRun {
+
+	public static void main(String[] args) {
+		if(args.length < 1) {
+			System.out.println("사용법 : ImportRun 파일 [reject파일] [분석스레드수] [저장스레드수]");
+			return;
+		}
+		Path file = Paths.get(args[0]);
+		Path rejects = Paths.get(args.length > 1 ? args[1] : args[0] + ".rejects.csv");
+
+		// driver.properties를 미리 읽어둔다. (bulkhead 설정)
+		JDBCTemplate.getShardCount();
+		int parsers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int writers = args.length > 3 ? Integer.parseInt(args[3]) : Math.max(1, Bulkhead.get(Bulkhead.BATCH).getMax());
+
+		try {
+			if(JDBCTemplate.getBootstrapMembers() > 0) {
+				new BootstrapService().ensure(JDBCTemplate.getBootstrapMembers());
+			}
+
+			System.out.println(file + " 가져오기를 시작합니다... (분석 " + parsers + "개, 저장 " + writers + "개)");
+			ImportService.Result r = new ImportService().importCsv(file, rejects, parsers, writers);
+			System.out.printf("완료 : %d행 중 %d명 추가, %d행 실패(%s), %.1f초 (초당 %.0f행)%n",
+					r.getRead(), r.getInserted(), r.getRejected(), rejects, r.getSeconds(), r.getRead() / r.getSeconds());
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
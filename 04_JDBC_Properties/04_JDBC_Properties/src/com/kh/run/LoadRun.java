@@ -0,0 +1,72 @@
+package com.kh.run;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.kh.common.JDBCTemplate;
+import com.kh.load.LoadGenerator;
+import com.kh.load.SyntheticWorkload;
+import com.kh.load.TraceReplay;
+import com.kh.load.Workload;
+import com.kh.model.service.BootstrapService;
+import com.kh.model.service.MemberCacheSnapshot;
+
+/*
+ * 부하 생성 실행용 클래스 => MemberService에 설정한 비율/속도로 요청을 보내고 작업별 응답시간 백분위수를 출력
+ * 사용법) java com.kh.run.LoadRun [설정파일]
+ *   ex) java com.kh.run.LoadRun                          (resources/load.properties)
+ *   ex) java com.kh.run.LoadRun resources/load-peak.properties
+ *
+ * DB 접속정보는 다른 기능과 같이 resources/driver.properties를 사용한다.
+ * */
+public class LoadRun {
+
+	public static void main(String[] args) {
+		String path = args.length > 0 ? args[0] : "resources/load.properties";
+
+		try {
+			Properties prop = new Properties();
+			try(FileInputStream in = new FileInputStream(path)) {
+				prop.load(in);
+			}
+
+			SyntheticWorkload synthetic = new SyntheticWorkload(prop);
+			Workload workload = synthetic;
+			String replay = prop.getProperty("load.replay.file", "").trim();
+			if(!replay.isEmpty()) {
+				double speed = Double.parseDouble(prop.getProperty("load.replay.speed", "1").trim());
+				TraceReplay trace = new TraceReplay(Paths.get(replay), speed, synthetic);
+				System.out.println(replay + " 에서 요청 " + trace.size() + "건을 읽었습니다. (재생속도 x" + speed + ")");
+				workload = trace;
+			}
+
+			LoadGenerator generator = new LoadGenerator(
+					Integer.parseInt(prop.getProperty("load.threads", "16").trim()),
+					Integer.parseInt(prop.getProperty("load.maxOutstanding", "10000").trim()));
+			long warmup = TimeUnit.SECONDS.toNanos(Long.parseLong(prop.getProperty("load.warmup.seconds", "10").trim()));
+			long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(prop.getProperty("load.duration.seconds", "60").trim()));
+
+			// driver.properties를 미리 읽어둔다. => 첫 요청의 응답시간에 설정파일 읽는 시간이 포함되지 않도록
+			JDBCTemplate.getShardCount();
+			if(JDBCTemplate.getBootstrapMembers() > 0) {
+				int created = new BootstrapService().ensure(JDBCTemplate.getBootstrapMembers());
+				if(created > 0) {
+					System.out.println("가상 회원 " + created + "명을 넣었습니다.");
+				}
+			}
+			// 재시작 직후(캐시가 비어있는) 상태를 재려면 cache.member.snapshot.millis=0
+			MemberCacheSnapshot.start();
+
+			System.out.println("부하 생성을 시작합니다... (" + TimeUnit.NANOSECONDS.toSeconds(duration) + "초)");
+			generator.run(workload, warmup, duration);
+			generator.report(System.out);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
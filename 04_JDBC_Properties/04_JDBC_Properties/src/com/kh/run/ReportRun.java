@@ -0,0 +1,59 @@
+package com.kh.run;
+
+import java.time.YearMonth;
+import java.util.Map;
+
+import com.kh.common.JDBCTemplate;
+import com.kh.model.service.BootstrapService;
+import com.kh.model.service.ReportService;
+import com.kh.store.MemberColumns;
+
+/*
+ * 회원 통계 실행용 클래스 => 회원 전체를 통계용 표(MemberColumns)로 읽어서
+ * 성별 비율, 나이대별 회원 수, 취미별 회원 수, 월별 가입자 수를 출력
+ * 사용법) java com.kh.run.ReportRun [나이대 간격]
+ *   ex) java com.kh.run.ReportRun 10
+ *   (간격을 생략하면 10)
+ * */
+public class ReportRun {
+
+	public static void main(String[] args) throws InterruptedException {
+		int width = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+		if(JDBCTemplate.getBootstrapMembers() > 0) {
+			new BootstrapService().ensure(JDBCTemplate.getBootstrapMembers());
+		}
+
+		long start = System.nanoTime();
+		MemberColumns table = new ReportService().load();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		int total = table.size();
+		System.out.printf("회원 %,d명을 읽었습니다. (%.1f초, 표 크기 약 %,dKB)%n", total, seconds, table.getBytes() / 1024);
+
+		start = System.nanoTime();
+		Map<String, Integer> genders = table.genderCounts();
+		int[] ages = table.ageHistogram(width, null);
+		Map<String, Integer> hobbies = table.hobbyCounts();
+		Map<YearMonth, Integer> months = table.enrollmentsPerMonth();
+		double average = table.averageAge();
+		double millis = (System.nanoTime() - start) / 1e6;
+
+		System.out.println("\n[성별]");
+		genders.forEach((g, n) -> System.out.printf("%-6s %,10d명 (%.1f%%)%n", g, n, n * 100.0 / total));
+
+		System.out.printf("%n[나이대] 평균 %.1f세%n", average);
+		for(int i = 0; i < ages.length; i++) {
+			if(ages[i] > 0) {
+				System.out.printf("%3d ~ %3d세 %,10d명%n", i * width, i * width + width - 1, ages[i]);
+			}
+		}
+
+		System.out.println("\n[취미]");
+		hobbies.forEach((h, n) -> System.out.printf("%-10s %,10d명%n", h, n));
+
+		System.out.println("\n[월별 가입자]");
+		months.forEach((m, n) -> System.out.printf("%s %,10d명%n", m, n));
+
+		System.out.printf("%n통계 계산 : %.1fms%n", millis);
+	}
+}
@@ -0,0 +1,43 @@
+package com.kh.run;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+
+import com.kh.common.DataSourceGroup;
+import com.kh.model.service.ReshardService;
+
+/*
+ * 리샤딩 실행용 클래스
+ * 사용법) java com.kh.run.ReshardRun 이전설정파일 새설정파일
+ *   ex) java com.kh.run.ReshardRun resources/driver.properties resources/driver-new.properties
+ * */
+public class ReshardRun {
+
+	public static void main(String[] args) {
+		if(args.length < 2) {
+			System.out.println("사용법 : ReshardRun 이전설정파일 새설정파일");
+			return;
+		}
+		
+		try {
+			List<DataSourceGroup> from = DataSourceGroup.loadAll(load(args[0]));
+			List<DataSourceGroup> to = DataSourceGroup.loadAll(load(args[1]));
+			
+			System.out.println("샤드 " + from.size() + "개 => " + to.size() + "개로 이동을 시작합니다...");
+			int moved = new ReshardService().reshard(from, to);
+			System.out.println("이동 완료 : " + moved + "명");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	private static Properties load(String path) throws IOException {
+		Properties prop = new Properties();
+		try(FileInputStream in = new FileInputStream(path)) {
+			prop.load(in);
+		}
+		return prop;
+	}
+}
@@ -1,10 +1,32 @@
 package com.kh.run;
 
+import com.kh.common.JDBCTemplate;
+import com.kh.model.service.BootstrapService;
+import com.kh.model.service.MemberCacheSnapshot;
+import com.kh.model.service.MemberIndexService;
+import com.kh.model.service.WriteBehindBuffer;
 import com.kh.view.MemberView;
 
 public class Run {
 
 	public static void main(String[] args) {
+		// driver.properties를 미리 읽어둔다. => 첫 요청 전부터 지표(metrics.port)를 수집할수 있도록
+		JDBCTemplate.getShardCount();
+		
+		// 내장 DB(메모리)라면 실행할때마다 비어있으므로 테이블과 가상 회원을 만들어둔다.
+		if(JDBCTemplate.getBootstrapMembers() > 0) {
+			new BootstrapService().ensure(JDBCTemplate.getBootstrapMembers());
+		}
+		
+		// 지난 실행에서 쓰지 못한 회원정보 변경(writeBehind.journal)이 있다면 먼저 쓴다.
+		WriteBehindBuffer.get();
+		
+		// 지난 실행의 아이디검색 캐시를 채워두고 주기적으로 저장 (cache.member.snapshot.xxx)
+		MemberCacheSnapshot.start();
+		
+		// DB 장애중 아이디검색용 색인 파일 (degraded.index.xxx)
+		MemberIndexService.start();
+		
 		MemberView mv = new MemberView();
 		mv.mainMenu();
 	}
@@ -0,0 +1,43 @@
+package com.kh.run;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.kh.common.JDBCTemplate;
+import com.kh.model.service.BootstrapService;
+import com.kh.model.service.ParallelScanService;
+import com.kh.model.vo.Member;
+
+/*
+ * 회원 전체 나눠읽기 실행용 클래스 => 전체 회원을 읽으면서 성별/나이대별 회원수를 세어서 출력
+ * 사용법) java com.kh.run.ScanRun [동시에 읽을 커넥션수] [ordered|unordered]
+ *   ex) java com.kh.run.ScanRun 4 unordered
+ *   (커넥션수를 생략하면 bulkhead.batch.max, 순서를 생략하면 ordered)
+ * */
+public class ScanRun {
+
+	public static void main(String[] args) throws InterruptedException {
+		int parallelism = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+		boolean ordered = args.length < 2 || !"unordered".equalsIgnoreCase(args[1]);
+
+		if(JDBCTemplate.getBootstrapMembers() > 0) {
+			new BootstrapService().ensure(JDBCTemplate.getBootstrapMembers());
+		}
+
+		Map<String, Integer> stats = new TreeMap<>();
+		int[] last = { Integer.MIN_VALUE };
+		boolean[] sorted = { true };
+
+		long start = System.nanoTime();
+		long rows = new ParallelScanService().scan(parallelism, ordered, (Member m) -> {
+			stats.merge(m.getGender() + " " + (m.getAge() / 10 * 10) + "대", 1, Integer::sum);
+			sorted[0] &= m.getUserNo() > last[0];
+			last[0] = m.getUserNo();
+		});
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		stats.forEach((k, v) -> System.out.printf("%-8s %,10d명%n", k, v));
+		System.out.printf("완료 : %d명, %.1f초 (초당 %.0f명)%s%n", rows, seconds, rows / seconds,
+				ordered ? (sorted[0] ? ", 회원번호 순서 확인" : ", 회원번호 순서가 맞지 않습니다!") : "");
+	}
+}
@@ -0,0 +1,65 @@
+package com.kh.store;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.Date;
+import java.time.LocalDate;
+
+import com.kh.model.vo.Member;
+
+/*
+ * MemberCodec : 회원 한 명을 바이트로 바꾸거나(write) 되돌리는(read) 클래스
+ *               (내장 저장소 MemberLog, 회원 캐시 스냅샷 MemberCacheSnapshot에서 같이 사용)
+ *
+ * 순서 : USERNO int, USERID, USERPWD, USERNAME, GENDER, AGE int, EMAIL, PHONE, ADDRESS, HOBBY, ENROLLDATE
+ * - 문자열은 writeUTF (USERID 외에는 앞에 있음/없음 표시 => null도 그대로 되돌림)
+ * - ENROLLDATE는 있음/없음 표시 + 1970-01-01부터의 일수 long
+ * => 순서를 바꾸면 이미 만들어진 파일을 읽을수 없으므로 바꾸지 말것 (바꿔야 한다면 파일 형식 버전을 올릴것)
+ * */
+public class MemberCodec {
+
+	public static void write(DataOutput out, Member m) throws IOException {
+		out.writeInt(m.getUserNo());
+		out.writeUTF(m.getUserId());
+		writeNullable(out, m.getUserPwd());
+		writeNullable(out, m.getUserName());
+		writeNullable(out, m.getGender());
+		out.writeInt(m.getAge());
+		writeNullable(out, m.getEmail());
+		writeNullable(out, m.getPhone());
+		writeNullable(out, m.getAddress());
+		writeNullable(out, m.getHobby());
+		out.writeBoolean(m.getEnrollDate() != null);
+		if(m.getEnrollDate() != null) {
+			out.writeLong(m.getEnrollDate().toLocalDate().toEpochDay());
+		}
+	}
+
+	public static Member read(DataInput in) throws IOException {
+		Member m = new Member();
+		m.setUserNo(in.readInt());
+		m.setUserId(in.readUTF());
+		m.setUserPwd(readNullable(in));
+		m.setUserName(readNullable(in));
+		m.setGender(readNullable(in));
+		m.setAge(in.readInt());
+		m.setEmail(readNullable(in));
+		m.setPhone(readNullable(in));
+		m.setAddress(readNullable(in));
+		m.setHobby(readNullable(in));
+		m.setEnrollDate(in.readBoolean() ? Date.valueOf(LocalDate.ofEpochDay(in.readLong())) : null);
+		return m;
+	}
+
+	public static void writeNullable(DataOutput out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if(s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	public static String readNullable(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
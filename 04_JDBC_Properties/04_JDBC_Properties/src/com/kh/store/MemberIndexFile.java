@@ -0,0 +1,410 @@
+package com.kh.store;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.DirectoryStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.kh.model.vo.Member;
+
+/*
+ * MemberIndexFile : USERID => 회원 한 명(고정 길이 레코드)을 찾을수 있는 읽기전용 색인 파일
+ *                   (DB 장애중 아이디검색용, MemberIndexService가 주기적으로 다시 만듦)
+ *
+ * 파일 = [머리말 64바이트][레코드 x 회원 수][해시 테이블 int x slots]
+ * - 레코드는 컬럼마다 자리가 정해진 256바이트 (MEMBER 테이블의 컬럼 크기 그대로, 비밀번호는 넣지 않음)
+ *     0 USERNO int / 4 ENROLLDATE int(1970-01-01부터의 일수, -1 = null) / 8 AGE int / 12 GENDER 1바이트(0 = null)
+ *     13 USERID / 29 USERNAME / 50 EMAIL / 81 PHONE / 93 ADDRESS / 194 HOBBY (245 ~ 255 비어있음)
+ *     문자열 = [UTF-8 바이트 수 1바이트(0xFF = null)][UTF-8 바이트, 컬럼 크기만큼 자리]
+ *   => 컬럼 크기(VARCHAR2 n BYTE)보다 긴 값이 있는 회원은 넣지 않는다. (건너뛴 수는 Writer.getSkipped)
+ * - 해시 테이블 : USERID의 UTF-8 바이트 해시(FNV-1a)로 자리를 정하고 겹치면 다음 자리 (값 = 레코드 번호 + 1, 0은 빈 자리)
+ *   slots는 회원 수 x 2 이상인 2의 거듭제곱 => 평균 한두번 만에 찾음
+ * - 파일 전체를 매핑(mmap)해두고 읽는다.
+ *   find()는 매핑된 버퍼에서 USERID 바이트를 그 자리에서 비교하므로 레코드를 객체로 만들지 않는다. (zero-copy)
+ *   필요한 컬럼만 getUserName(rec)처럼 읽고, 회원 전체가 필요할때만 toMember(rec)
+ * - 만들때마다 새 세대 파일(파일명.세대번호)에 쓴다. (Writer는 .tmp 파일에 다 쓴 후 세대 파일로 이름을 바꿈)
+ *   => 매핑된 파일 위에 덮어쓰지 않는다. (윈도우에서는 매핑이 남아있는 파일을 바꾸거나 지울수 없음)
+ *   열려있는 색인(이전 세대의 매핑)은 그대로 사용할수 있고, 지난 세대는 deleteStale()로 지운다. (아직 매핑중이라 못 지우면 다음에)
+ * - 같은 USERID가 여러번 들어오면(리샤딩중) 먼저 들어온 회원을 찾는다.
+ * */
+public class MemberIndexFile {
+
+	private static final int MAGIC = 0x4B484D49; // "KHMI"
+	private static final int VERSION = 1;        // 레코드 자리가 바뀌면 올릴것
+
+	private static final int HEADER = 64;
+	public static final int RECORD = 256;
+
+	private static final int USERNO = 0;
+	private static final int ENROLLDATE = 4;
+	private static final int AGE = 8;
+	private static final int GENDER = 12;
+	private static final int USERID = 13, USERID_MAX = 15;
+	private static final int USERNAME = 29, USERNAME_MAX = 20;
+	private static final int EMAIL = 50, EMAIL_MAX = 30;
+	private static final int PHONE = 81, PHONE_MAX = 11;
+	private static final int ADDRESS = 93, ADDRESS_MAX = 100;
+	private static final int HOBBY = 194, HOBBY_MAX = 50;
+
+	private static final int NULL = 0xFF;
+
+	private final MappedByteBuffer buf;
+	private final long builtAt;
+	private final int count;
+	private final int slots;
+	private final int tableAt;
+
+	private MemberIndexFile(MappedByteBuffer buf) throws IOException {
+		this.buf = buf;
+		if(buf.capacity() < HEADER || buf.getInt(0) != MAGIC) {
+			throw new IOException("회원 색인 파일이 아닙니다.");
+		}
+		if(buf.getInt(4) != VERSION) {
+			throw new IOException("회원 색인 파일의 형식 버전이 다릅니다. : " + buf.getInt(4));
+		}
+		builtAt = buf.getLong(8);
+		count = buf.getInt(16);
+		slots = buf.getInt(20);
+		long table = HEADER + (long) count * RECORD;
+		if(count < 0 || Integer.bitCount(slots) != 1 || table + slots * 4L != buf.capacity()) {
+			throw new IOException("회원 색인 파일이 온전하지 않습니다.");
+		}
+		tableAt = (int) table;
+	}
+
+	/**
+	 * 색인 파일을 매핑해서 여는 메소드 (파일은 닫아도 매핑은 남아있음)
+	 */
+	public static MemberIndexFile open(Path file) throws IOException {
+		try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(ch.size() > Integer.MAX_VALUE) {
+				throw new IOException("회원 색인 파일이 너무 큽니다. : " + ch.size());
+			}
+			return new MemberIndexFile(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+		}
+	}
+
+	/**
+	 * 가장 최근에 만든 세대 파일을 찾는 메소드
+	 * @param file : 색인 파일 이름 (driver.properties의 degraded.index.file)
+	 * @return 세대 파일, 없다면 null
+	 */
+	public static Path latest(Path file) throws IOException {
+		Path latest = null;
+		long max = -1;
+		for(Path p : siblings(file)) {
+			long gen = generationOf(file, p);
+			if(gen > max) {
+				max = gen;
+				latest = p;
+			}
+		}
+		return latest;
+	}
+
+	/**
+	 * keep을 뺀 나머지 세대 파일(만들다 만 .tmp 포함)을 지우는 메소드
+	 * 아직 매핑이 남아있어서 지울수 없는 파일(윈도우)은 그대로 두고 다음에 다시 지운다.
+	 */
+	public static void deleteStale(Path file, Path keep) throws IOException {
+		Path current = keep == null ? null : keep.toAbsolutePath();
+		for(Path p : siblings(file)) {
+			if(p.equals(current) || (generationOf(file, p) < 0 && !p.toString().endsWith(".tmp"))) {
+				continue;
+			}
+			try {
+				Files.deleteIfExists(p);
+			} catch (IOException e) {
+				// 아직 매핑중 => 다음에
+			}
+		}
+	}
+
+	// 파일명.* 인 파일들 (세대 파일, .tmp)
+	private static List<Path> siblings(Path file) throws IOException {
+		List<Path> list = new ArrayList<>();
+		Path dir = file.toAbsolutePath().getParent();
+		if(dir == null || !Files.isDirectory(dir)) {
+			return list;
+		}
+		try(DirectoryStream<Path> ds = Files.newDirectoryStream(dir, file.getFileName() + ".*")) {
+			for(Path p : ds) {
+				list.add(p);
+			}
+		}
+		return list;
+	}
+
+	// "member-index.bin.1700000000000" => 1700000000000, 세대 파일이 아니라면 -1
+	private static long generationOf(Path file, Path p) {
+		String prefix = file.getFileName() + ".";
+		String name = p.getFileName().toString();
+		if(!name.startsWith(prefix) || name.length() == prefix.length()) {
+			return -1;
+		}
+		for(int i = prefix.length(); i < name.length(); i++) {
+			if(name.charAt(i) < '0' || name.charAt(i) > '9') {
+				return -1;
+			}
+		}
+		return name.length() - prefix.length() > 18 ? -1 : Long.parseLong(name.substring(prefix.length()));
+	}
+
+	/**
+	 * USERID에 해당하는 레코드의 위치를 찾는 메소드
+	 * @return 레코드 위치 (getXXX, toMember에 넘겨줌), 없다면 -1
+	 */
+	public int find(String userId) {
+		byte[] key = userId.getBytes(StandardCharsets.UTF_8);
+		if(key.length > USERID_MAX || count == 0) {
+			return -1;
+		}
+		int mask = slots - 1;
+		for(int slot = hash(key, key.length) & mask; ; slot = (slot + 1) & mask) {
+			int no = buf.getInt(tableAt + slot * 4);
+			if(no == 0) {
+				return -1;
+			}
+			int rec = HEADER + (no - 1) * RECORD;
+			if(matches(rec + USERID, key)) {
+				return rec;
+			}
+		}
+	}
+
+	// 레코드의 문자열 컬럼이 key와 같은지 (매핑된 버퍼에서 바로 비교)
+	private boolean matches(int at, byte[] key) {
+		if((buf.get(at) & 0xFF) != key.length) {
+			return false;
+		}
+		for(int i = 0; i < key.length; i++) {
+			if(buf.get(at + 1 + i) != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getUserNo(int rec) {
+		return buf.getInt(rec + USERNO);
+	}
+
+	public int getAge(int rec) {
+		return buf.getInt(rec + AGE);
+	}
+
+	public String getUserId(int rec) {
+		return string(rec + USERID);
+	}
+
+	public String getUserName(int rec) {
+		return string(rec + USERNAME);
+	}
+
+	public String getGender(int rec) {
+		byte g = buf.get(rec + GENDER);
+		return g == 0 ? null : String.valueOf((char) g);
+	}
+
+	public Date getEnrollDate(int rec) {
+		int day = buf.getInt(rec + ENROLLDATE);
+		return day < 0 ? null : Date.valueOf(LocalDate.ofEpochDay(day));
+	}
+
+	/**
+	 * 레코드를 Member로 만드는 메소드 (비밀번호는 null)
+	 */
+	public Member toMember(int rec) {
+		return new Member(getUserNo(rec), getUserId(rec), null, getUserName(rec), getGender(rec), getAge(rec),
+				string(rec + EMAIL), string(rec + PHONE), string(rec + ADDRESS), string(rec + HOBBY), getEnrollDate(rec));
+	}
+
+	// 색인을 만들기 시작한 시각(ms) => 이 시각 이후의 DB 내용
+	public long getBuiltAt() {
+		return builtAt;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	private String string(int at) {
+		int len = buf.get(at) & 0xFF;
+		if(len == NULL) {
+			return null;
+		}
+		byte[] b = new byte[len];
+		for(int i = 0; i < len; i++) {
+			b[i] = buf.get(at + 1 + i);
+		}
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	// FNV-1a (32bit)
+	private static int hash(byte[] b, int len) {
+		int h = 0x811C9DC5;
+		for(int i = 0; i < len; i++) {
+			h ^= b[i] & 0xFF;
+			h *= 0x01000193;
+		}
+		return h ^ (h >>> 16);
+	}
+
+	/*
+	 * 색인 파일을 만드는 객체
+	 * 사용법) try(Writer w = new Writer(file)) { w.add(m); ... w.commit(); open(w.getFile()); } => commit하지 않고 닫으면 버림
+	 * */
+	public static class Writer implements AutoCloseable {
+		private final Path file;
+		private final Path tmp;
+		private final FileChannel channel;
+		private final OutputStream out;
+		private final ByteBuffer record = ByteBuffer.allocate(RECORD);
+		private final long startedAt = System.currentTimeMillis(); // 이 시각 이후에 읽은 내용
+		private int[] hashes = new int[1024];
+		private int count;
+		private int skipped;
+		private boolean committed;
+
+		/**
+		 * @param file : 색인 파일 이름 => 새 세대 파일(file.만들기 시작한 시각)에 쓴다.
+		 */
+		public Writer(Path file) throws IOException {
+			Path dir = file.toAbsolutePath().getParent();
+			if(dir != null) {
+				Files.createDirectories(dir);
+			}
+			Path latest = latest(file);
+			long gen = Math.max(startedAt, latest == null ? 0 : generationOf(file, latest) + 1);
+			this.file = file.resolveSibling(file.getFileName() + "." + gen);
+			this.tmp = file.resolveSibling(this.file.getFileName() + ".tmp");
+			channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.WRITE);
+			channel.position(HEADER);
+			out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+		}
+
+		/**
+		 * 회원 한 명을 레코드로 추가하는 메소드
+		 * @return 컬럼 크기를 넘는 값이 있어서 넣지 못했다면 false
+		 */
+		public boolean add(Member m) throws IOException {
+			Arrays.fill(record.array(), (byte) 0);
+			record.putInt(USERNO, m.getUserNo());
+			record.putInt(ENROLLDATE, m.getEnrollDate() == null ? -1 : (int) m.getEnrollDate().toLocalDate().toEpochDay());
+			record.putInt(AGE, m.getAge());
+			String g = m.getGender();
+			if(g != null && (g.length() != 1 || g.charAt(0) == 0 || g.charAt(0) > 0x7F)) {
+				skipped++;
+				return false;
+			}
+			record.put(GENDER, g == null ? 0 : (byte) g.charAt(0));
+			if(m.getUserId() == null
+					|| !put(USERID, USERID_MAX, m.getUserId()) || !put(USERNAME, USERNAME_MAX, m.getUserName())
+					|| !put(EMAIL, EMAIL_MAX, m.getEmail()) || !put(PHONE, PHONE_MAX, m.getPhone())
+					|| !put(ADDRESS, ADDRESS_MAX, m.getAddress()) || !put(HOBBY, HOBBY_MAX, m.getHobby())) {
+				skipped++;
+				return false;
+			}
+			if((long) HEADER + (count + 1L) * RECORD + nextSlots(count + 1) * 4L > Integer.MAX_VALUE) {
+				throw new IOException("회원이 너무 많아서 색인 파일(2GB)에 넣을수 없습니다.");
+			}
+			out.write(record.array());
+			if(count == hashes.length) {
+				hashes = Arrays.copyOf(hashes, count * 2);
+			}
+			byte[] id = m.getUserId().getBytes(StandardCharsets.UTF_8);
+			hashes[count++] = hash(id, id.length);
+			return true;
+		}
+
+		private boolean put(int at, int max, String s) {
+			if(s == null) {
+				record.put(at, (byte) NULL);
+				return true;
+			}
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			if(b.length > max) {
+				return false;
+			}
+			record.put(at, (byte) b.length);
+			System.arraycopy(b, 0, record.array(), at + 1, b.length);
+			return true;
+		}
+
+		/**
+		 * 해시 테이블과 머리말을 쓰고 세대 파일로 이름을 바꾸는 메소드 (이미 있는 파일 위에 덮어쓰지 않음)
+		 * @return 넣은 회원 수
+		 */
+		public int commit() throws IOException {
+			int slots = nextSlots(count);
+			int[] table = new int[slots];
+			int mask = slots - 1;
+			for(int i = 0; i < count; i++) {
+				int slot = hashes[i] & mask;
+				while(table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = i + 1;
+			}
+			ByteBuffer t = ByteBuffer.allocate(1 << 16);
+			for(int v : table) {
+				if(!t.hasRemaining()) {
+					out.write(t.array(), 0, t.position());
+					t.clear();
+				}
+				t.putInt(v);
+			}
+			out.write(t.array(), 0, t.position());
+			out.flush();
+
+			ByteBuffer head = ByteBuffer.allocate(HEADER);
+			head.putInt(MAGIC).putInt(VERSION).putLong(startedAt).putInt(count).putInt(slots).flip();
+			while(head.hasRemaining()) {
+				channel.write(head, head.position());
+			}
+			channel.force(false);
+			channel.close();
+			Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+			committed = true;
+			return count;
+		}
+
+		// 만든 세대 파일
+		public Path getFile() {
+			return file;
+		}
+
+		// 넣지 못한 회원 수
+		public int getSkipped() {
+			return skipped;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if(!committed) {
+				channel.close();
+				Files.deleteIfExists(tmp);
+			}
+		}
+
+		// 회원 수 x 2 이상인 2의 거듭제곱
+		private static int nextSlots(int n) {
+			return Math.max(16, Integer.highestOneBit(Math.max(1, n * 2 - 1)) << 1);
+		}
+	}
+}
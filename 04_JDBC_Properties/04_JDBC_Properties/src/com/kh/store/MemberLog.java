@@ -0,0 +1,657 @@
+package com.kh.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import com.kh.model.vo.Member;
+
+/*
+ * MemberLog : 오라클 없이 회원을 파일 하나에 저장하는 내장 저장소 (LogMemberDao용)
+ *
+ * - 데이터 파일은 덧붙이기(append)만 한다. => 폴더/member-000001.log
+ *   추가/변경은 회원 전체(PUT), 탈퇴는 아이디(DEL)를 한 건씩 파일 끝에 기록
+ *   한 건 = [길이 int][CRC32 int][내용] (UpdateJournal과 같은 형식)
+ * - 색인은 메모리에만 둔다. (파일 위치 + 길이를 long 하나로)
+ *   byId : USERID => 최신 기록 (HashMap, 아이디검색/변경/탈퇴)
+ *   byNo : USERNO => 최신 기록 + USERNAME (TreeMap, 전체조회/이름검색을 USERNO 내림차순으로)
+ *   => 이름검색은 메모리에서 이름을 먼저 비교하고 맞는 회원만 파일에서 읽는다. (전체를 파일에서 읽으면 읽기잠금이 길어져 쓰기가 밀림)
+ * - 실행시 파일을 처음부터 읽어서(replay) 색인을 다시 만든다.
+ *   => 쓰는 도중 죽어서 잘린(또는 CRC가 맞지 않는) 마지막 기록부터는 버리고 파일을 거기까지 자른다.
+ * - 변경/탈퇴할수록 쓸모없는 기록(garbage)이 쌓이므로 compact()로 살아있는 기록만 새 파일에 옮긴다.
+ *   1) 색인을 복사해두고 잠금없이 복사 (그 동안의 쓰기는 지금 파일에 계속 덧붙임)
+ *   2) 쓰기잠금을 걸고 1) 이후에 덧붙여진 기록만 새 파일에 마저 옮긴 후 파일 교체
+ *   => 새 파일은 member-(다음번호).log.tmp로 쓰고 다 쓰면 이름을 바꾼다. (도중에 죽으면 tmp는 버림)
+ * - 매핑중인 파일은 자르거나 지우지 않는다. (윈도우에서는 매핑이 GC로 풀리기 전까지 실패함)
+ *   clear()도 파일을 자르지 않고 빈 새 파일(다음번호)로 바꾼다.
+ *   예전 파일은 compact/clear 후에 지워보고, 아직 지울수 없다면 다음 실행(open)때 지운다.
+ * - sync=true라면 쓸때마다 디스크에 내려쓴다.(force) false라면 OS에 맡김 (프로세스가 죽는것은 괜찮지만 정전시 유실)
+ * - 동시성 : 쓰기는 한번에 하나(쓰기잠금), 읽기는 동시에 여러 스레드가(읽기잠금, 위치를 지정해서 읽음)
+ * - 읽기는 파일을 메모리에 매핑(mmap)해두고 읽는다. => 한 건마다 read 시스템콜을 하면 전체조회/이름검색이 느림
+ *   매핑한 후에 REMAP_BYTES 이상 덧붙여지면 다시 매핑하고, 그 전까지 새 기록은 파일에서 읽는다. (2GB보다 크면 매핑하지 않음)
+ * */
+public class MemberLog implements AutoCloseable {
+
+	private static final String PREFIX = "member-";
+	private static final String SUFFIX = ".log";
+
+	private static final byte PUT = 1; // 회원 전체
+	private static final byte DEL = 2; // 탈퇴 (USERNO, USERID)
+	private static final byte SEQ = 3; // 마지막 USERNO (compact한 파일의 처음에, 탈퇴한 번호를 다시 쓰지 않도록)
+
+	private static final long REMAP_BYTES = 1 << 20;
+
+	private final Path dir;
+	private final boolean sync;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Object compactLock = new Object(); // compact는 한번에 하나만
+
+	private long generation;
+	private FileChannel channel;
+	private long end;     // 파일 끝 (다음 기록 위치)
+	private long garbage; // 덮어쓰였거나 탈퇴한 기록의 바이트 수
+	private MappedByteBuffer mapped; // 파일의 0 ~ mappedEnd (읽기전용)
+	private long mappedEnd;
+	private int lastUserNo;
+	private HashMap<String, Long> byId = new HashMap<>();
+	private TreeMap<Integer, Slot> byNo = new TreeMap<>();
+
+	/**
+	 * 폴더의 데이터 파일을 열고 색인을 다시 만든다. (없으면 새로 만듦)
+	 * @param dir : 데이터 파일을 둘 폴더
+	 * @param sync : 쓸때마다 디스크에 내려쓸지
+	 */
+	public MemberLog(Path dir, boolean sync) throws IOException {
+		this.dir = dir;
+		this.sync = sync;
+		Files.createDirectories(dir);
+
+		// 가장 큰 번호의 파일이 최신 (compact가 끝난 후 지우지 못한 예전 파일, 쓰다 만 tmp는 지움)
+		TreeMap<Long, Path> files = new TreeMap<>();
+		try(DirectoryStream<Path> ds = Files.newDirectoryStream(dir, PREFIX + "*")) {
+			for(Path p : ds) {
+				String name = p.getFileName().toString();
+				if(!name.endsWith(SUFFIX)) {
+					Files.deleteIfExists(p);
+					continue;
+				}
+				try {
+					files.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), p);
+				} catch (NumberFormatException e) {
+					// 다른 파일
+				}
+			}
+		}
+		generation = files.isEmpty() ? 1 : files.lastKey();
+		for(Path p : files.headMap(generation).values()) {
+			Files.deleteIfExists(p);
+		}
+		channel = FileChannel.open(file(generation), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		replay();
+	}
+
+	// 파일을 처음부터 읽어서 색인 만들기
+	private void replay() throws IOException {
+		long pos = 0;
+		long size = channel.size();
+		try(InputStream raw = new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16)) {
+			DataInputStream in = new DataInputStream(raw);
+			while(pos + 8 <= size) {
+				int len = in.readInt();
+				int crc = in.readInt();
+				if(len <= 0 || len > size - pos - 8) {
+					break; // 기록 도중 잘림
+				}
+				byte[] payload = new byte[len];
+				in.readFully(payload);
+				CRC32 c = new CRC32();
+				c.update(payload);
+				if((int) c.getValue() != crc) {
+					break;
+				}
+				garbage += apply(byId, byNo, payload, pack(pos, 8 + len));
+				lastUserNo = Math.max(lastUserNo, userNoOf(payload));
+				pos += 8 + len;
+			}
+		} catch (EOFException e) {
+			// 기록 도중 잘림
+		}
+		// Channels.newInputStream을 닫으면 channel도 닫히므로 다시 연다.
+		channel = FileChannel.open(file(generation), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		if(pos < size) {
+			System.err.println(file(generation) + " : 마지막 " + (size - pos) + "바이트는 온전하지 않은 기록이므로 버립니다.");
+			channel.truncate(pos);
+			channel.force(false);
+		}
+		end = pos;
+		remap();
+	}
+
+	/**
+	 * 기록 한 건을 색인에 반영하는 메소드 (replay, compact에서 사용)
+	 * => 넘겨받은 색인만 바꾼다. compact는 잠금없이 실행되므로 lastUserNo 등 필드는 건드리지 않을것
+	 *    (lastUserNo는 replay에서, 그 후로는 쓰기잠금 안에서 insert/put이 올린다.)
+	 * @return 이 기록으로 쓸모없어진 바이트 수
+	 */
+	private long apply(Map<String, Long> ids, TreeMap<Integer, Slot> nos, byte[] payload, long packed) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		byte type = in.readByte();
+		int userNo = in.readInt();
+		if(type == SEQ) {
+			return length(packed);
+		}
+		String userId = in.readUTF();
+		String userName = null;
+		if(type == PUT) {
+			MemberCodec.readNullable(in); // USERPWD
+			userName = MemberCodec.readNullable(in);
+		}
+		Long old = type == PUT ? ids.put(userId, packed) : ids.remove(userId);
+		long dead = old == null ? 0 : length(old);
+		if(old != null && type == DEL) {
+			nos.remove(userNo);
+		}
+		if(type == PUT) {
+			nos.put(userNo, new Slot(packed, userName));
+		}else {
+			dead += length(packed); // 탈퇴 기록은 compact하면 필요없음
+		}
+		return dead;
+	}
+
+	// 기록의 USERNO (종류 1바이트 다음)
+	private static int userNoOf(byte[] payload) {
+		return (payload[1] & 0xFF) << 24 | (payload[2] & 0xFF) << 16 | (payload[3] & 0xFF) << 8 | (payload[4] & 0xFF);
+	}
+
+	/**
+	 * 회원을 추가하는 메소드 => USERNO는 마지막 번호 + 1, ENROLLDATE는 오늘
+	 * @return 같은 아이디가 이미 있다면 false
+	 */
+	public boolean insert(Member m) throws IOException {
+		lock.writeLock().lock();
+		try {
+			if(byId.containsKey(m.getUserId())) {
+				return false;
+			}
+			Member row = copy(m);
+			row.setUserNo(lastUserNo + 1);
+			row.setEnrollDate(Date.valueOf(LocalDate.now()));
+			put(row);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 회원번호, 가입일을 그대로 두고 여러명을 한번에 추가하는 메소드 (가상 회원용, 이미 있는 아이디는 건너뜀)
+	 * => 디스크에는 마지막에 한번만 내려쓴다.
+	 * @return 추가한 회원 수
+	 */
+	public int insertAll(List<Member> members) throws IOException {
+		lock.writeLock().lock();
+		try {
+			int inserted = 0;
+			for(Member m : members) {
+				if(!byId.containsKey(m.getUserId())) {
+					long packed = append(PUT, m, false);
+					byId.put(m.getUserId(), packed);
+					byNo.put(m.getUserNo(), new Slot(packed, m.getUserName()));
+					inserted++;
+				}
+			}
+			if(sync) {
+				channel.force(false);
+			}
+			if(end - mappedEnd >= REMAP_BYTES) {
+				remap();
+			}
+			return inserted;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public Member get(String userId) throws IOException {
+		lock.readLock().lock();
+		try {
+			Long packed = byId.get(userId);
+			return packed == null ? null : read(packed);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 이름에 keyword가 포함된 회원을 USERNO 내림차순으로 조회하는 메소드 (keyword가 null이면 전체)
+	 */
+	public ArrayList<Member> scan(String keyword) throws IOException {
+		lock.readLock().lock();
+		try {
+			ArrayList<Member> list = new ArrayList<>();
+			for(Slot slot : byNo.descendingMap().values()) {
+				if(keyword == null || slot.userName != null && slot.userName.contains(keyword)) {
+					list.add(read(slot.packed));
+				}
+			}
+			return list;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 비밀번호, 이메일, 전화번호, 주소를 변경하는 메소드 (MemberDao.updateMember와 같은 컬럼)
+	 * @return 변경된 회원 수 (없는 아이디라면 0)
+	 */
+	public int update(Member m) throws IOException {
+		lock.writeLock().lock();
+		try {
+			Long packed = byId.get(m.getUserId());
+			if(packed == null) {
+				return 0;
+			}
+			Member row = read(packed);
+			row.setUserPwd(m.getUserPwd());
+			row.setEmail(m.getEmail());
+			row.setPhone(m.getPhone());
+			row.setAddress(m.getAddress());
+			put(row);
+			return 1;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 아이디와 비밀번호가 맞는 회원을 탈퇴시키는 메소드
+	 * @return 탈퇴한 회원 수 (아이디가 없거나 비밀번호가 다르면 0)
+	 */
+	public int delete(String userId, String userPwd) throws IOException {
+		lock.writeLock().lock();
+		try {
+			Long packed = byId.get(userId);
+			if(packed == null) {
+				return 0;
+			}
+			Member row = read(packed);
+			if(userPwd == null || !userPwd.equals(row.getUserPwd())) {
+				return 0;
+			}
+			long pos = append(DEL, row, sync);
+			byId.remove(userId);
+			byNo.remove(row.getUserNo());
+			garbage += length(packed) + length(pos);
+			if(end - mappedEnd >= REMAP_BYTES) {
+				remap();
+			}
+			return 1;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 모든 회원을 지우는 메소드 (가상 회원을 다시 넣기 전에)
+	 */
+	public void clear() throws IOException {
+		synchronized (compactLock) {
+			long old;
+			lock.writeLock().lock();
+			try {
+				// 지금 파일은 매핑중일수 있으므로 자르지 않고 빈 새 파일로 바꾼다.
+				long next = generation + 1;
+				FileChannel fresh = FileChannel.open(file(next), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+						StandardOpenOption.READ, StandardOpenOption.WRITE);
+				old = generation;
+				channel.close();
+				channel = fresh;
+				generation = next;
+				mapped = null;
+				mappedEnd = 0;
+				byId.clear();
+				byNo.clear();
+				end = 0;
+				garbage = 0;
+				lastUserNo = 0;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			deleteOld(old);
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return byId.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// 데이터 파일 크기, 그 중 쓸모없는 바이트 수
+	public long getFileSize() {
+		lock.readLock().lock();
+		try {
+			return end;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getGarbage() {
+		lock.readLock().lock();
+		try {
+			return garbage;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 쓸모없는 기록이 파일의 절반 이상이고 minBytes보다 크다면 compact하는 메소드
+	 * @return compact했다면 true
+	 */
+	public boolean compactIfNeeded(long minBytes) throws IOException {
+		long size = getFileSize();
+		long dead = getGarbage();
+		if(dead < minBytes || dead * 2 < size) {
+			return false;
+		}
+		compact();
+		return true;
+	}
+
+	/**
+	 * 살아있는 기록만 새 파일로 옮기고 예전 파일을 지우는 메소드
+	 */
+	public void compact() throws IOException {
+		synchronized (compactLock) {
+			// 1) 지금의 색인과 파일 끝을 복사
+			TreeMap<Integer, Slot> snapshot;
+			long mark;
+			int seq;
+			FileChannel from;
+			lock.readLock().lock();
+			try {
+				snapshot = new TreeMap<>(byNo);
+				mark = end;
+				seq = lastUserNo;
+				from = channel;
+			} finally {
+				lock.readLock().unlock();
+			}
+
+			// 2) 잠금없이 살아있는 기록을 새 파일에 복사 (기록은 덧붙이기만 하므로 mark 앞은 바뀌지 않음)
+			long next = generation + 1;
+			Path tmp = dir.resolve(PREFIX + String.format("%06d", next) + SUFFIX + ".tmp");
+			FileChannel to = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			HashMap<String, Long> ids = new HashMap<>(byIdCapacity(snapshot.size()));
+			TreeMap<Integer, Slot> nos = new TreeMap<>();
+			long pos = 0;
+			boolean done = false;
+			long old = generation;
+			try {
+				OutputStream out = new BufferedOutputStream(Channels.newOutputStream(to), 1 << 16);
+				pos += writeRaw(out, encode(SEQ, seq, null));
+				for(Slot slot : snapshot.values()) {
+					byte[] record = readRaw(from, slot.packed);
+					out.write(record);
+					byte[] payload = new byte[record.length - 8];
+					System.arraycopy(record, 8, payload, 0, payload.length);
+					apply(ids, nos, payload, pack(pos, record.length));
+					pos += record.length;
+				}
+				out.flush();
+
+				// 3) 쓰기잠금을 걸고 그 사이에 덧붙여진 기록을 마저 옮긴 후 교체
+				lock.writeLock().lock();
+				try {
+					long tailGarbage = 0;
+					for(long p = mark; p < end; ) {
+						ByteBuffer head = ByteBuffer.allocate(8);
+						readFully(channel, head, p);
+						int len = head.getInt(0);
+						byte[] record = readRaw(channel, pack(p, 8 + len));
+						out.write(record);
+						byte[] payload = new byte[len];
+						System.arraycopy(record, 8, payload, 0, len);
+						tailGarbage += apply(ids, nos, payload, pack(pos, record.length));
+						pos += record.length;
+						p += record.length;
+					}
+					out.flush();
+					to.force(false);
+					Path target = file(next);
+					Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+					done = true;
+
+					channel.close();
+					channel = to;
+					generation = next;
+					byId = ids;
+					byNo = nos;
+					end = pos;
+					garbage = tailGarbage;
+					remap();
+				} finally {
+					lock.writeLock().unlock();
+				}
+			} finally {
+				if(!done) {
+					to.close();
+					Files.deleteIfExists(tmp);
+				}
+			}
+			deleteOld(old);
+		}
+	}
+
+	// gen번 이하의 예전 파일을 지워보는 메소드 (아직 매핑이 남아있어서 지울수 없다면 다음 실행때 생성자에서 지움)
+	private void deleteOld(long gen) {
+		try(DirectoryStream<Path> ds = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+			for(Path p : ds) {
+				String name = p.getFileName().toString();
+				try {
+					if(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())) <= gen) {
+						Files.deleteIfExists(p);
+					}
+				} catch (NumberFormatException | IOException e) {
+					// 다른 파일, 또는 매핑중 => 다음 실행때
+				}
+			}
+		} catch (IOException e) {
+			// 다음 실행때
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if(channel.isOpen()) {
+				channel.force(false);
+				channel.close();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// 회원 전체를 덧붙이고 색인에 반영 (쓰기잠금 안에서)
+	private void put(Member row) throws IOException {
+		long packed = append(PUT, row, sync);
+		Long old = byId.put(row.getUserId(), packed);
+		byNo.put(row.getUserNo(), new Slot(packed, row.getUserName()));
+		if(old != null) {
+			garbage += length(old);
+		}
+		if(end - mappedEnd >= REMAP_BYTES) {
+			remap();
+		}
+	}
+
+	// 파일 끝에 한 건 덧붙이기 (쓰기잠금 안에서) => 위치 + 길이
+	private long append(byte type, Member m, boolean force) throws IOException {
+		byte[] payload = encode(type, m.getUserNo(), m);
+		ByteBuffer buf = frame(payload);
+		long pos = end;
+		while(buf.hasRemaining()) {
+			pos += channel.write(buf, pos);
+		}
+		if(force) {
+			channel.force(false);
+		}
+		long packed = pack(end, buf.capacity());
+		end = pos;
+		lastUserNo = Math.max(lastUserNo, m.getUserNo());
+		return packed;
+	}
+
+	// 파일의 처음 ~ 끝을 다시 매핑 (쓰기잠금 안에서)
+	private void remap() throws IOException {
+		if(end == 0 || end > Integer.MAX_VALUE) {
+			mapped = null;
+			mappedEnd = 0;
+			return;
+		}
+		mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+		mappedEnd = end;
+	}
+
+	private Member read(long packed) throws IOException {
+		long offset = offset(packed);
+		int len = length(packed);
+		if(offset + len <= mappedEnd) {
+			ByteBuffer view = mapped.duplicate(); // 스레드마다 따로 위치를 가지도록
+			view.position((int) offset + 8);
+			byte[] payload = new byte[len - 8];
+			view.get(payload);
+			return decode(new DataInputStream(new ByteArrayInputStream(payload)));
+		}
+		byte[] record = readRaw(channel, packed);
+		return decode(new DataInputStream(new ByteArrayInputStream(record, 8, record.length - 8)));
+	}
+
+	private static byte[] readRaw(FileChannel ch, long packed) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(length(packed));
+		readFully(ch, buf, offset(packed));
+		return buf.array();
+	}
+
+	private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+		while(buf.hasRemaining()) {
+			int n = ch.read(buf, pos + buf.position());
+			if(n < 0) {
+				throw new EOFException("데이터 파일이 예상보다 짧습니다. : " + pos);
+			}
+		}
+	}
+
+	private static int writeRaw(OutputStream out, byte[] payload) throws IOException {
+		ByteBuffer buf = frame(payload);
+		out.write(buf.array());
+		return buf.capacity();
+	}
+
+	// [길이][CRC32][내용]
+	private static ByteBuffer frame(byte[] payload) {
+		CRC32 c = new CRC32();
+		c.update(payload);
+		ByteBuffer buf = ByteBuffer.allocate(8 + payload.length);
+		buf.putInt(payload.length).putInt((int) c.getValue()).put(payload).flip();
+		return buf;
+	}
+
+	// 종류, USERNO, USERID, 나머지 컬럼 (PUT은 MemberCodec 형식 그대로)
+	private static byte[] encode(byte type, int userNo, Member m) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(type == PUT ? 128 : 32);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(type);
+		if(type == PUT) {
+			MemberCodec.write(out, m);
+		}else {
+			out.writeInt(userNo);
+			if(type == DEL) {
+				out.writeUTF(m.getUserId());
+			}
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static Member decode(DataInputStream in) throws IOException {
+		if(in.readByte() != PUT) {
+			throw new IOException("회원 기록이 아닙니다.");
+		}
+		return MemberCodec.read(in);
+	}
+
+	private static Member copy(Member m) {
+		return new Member(m.getUserNo(), m.getUserId(), m.getUserPwd(), m.getUserName(), m.getGender(), m.getAge(),
+				m.getEmail(), m.getPhone(), m.getAddress(), m.getHobby(), m.getEnrollDate());
+	}
+
+	private Path file(long gen) {
+		return dir.resolve(PREFIX + String.format("%06d", gen) + SUFFIX);
+	}
+
+	private static int byIdCapacity(int size) {
+		return (int) Math.min(Integer.MAX_VALUE, size * 4L / 3 + 16);
+	}
+
+	// USERNO 색인의 값
+	private static final class Slot {
+		final long packed;
+		final String userName;
+
+		Slot(long packed, String userName) {
+			this.packed = packed;
+			this.userName = userName;
+		}
+	}
+
+	// 파일 위치(앞 48비트) + 기록 길이(뒤 16비트)
+	private static long pack(long offset, int length) {
+		if(length >= 1 << 16) {
+			throw new IllegalArgumentException("기록 한 건이 너무 깁니다. : " + length);
+		}
+		return offset << 16 | length;
+	}
+
+	private static long offset(long packed) {
+		return packed >>> 16;
+	}
+
+	private static int length(long packed) {
+		return (int) (packed & 0xFFFF);
+	}
+}
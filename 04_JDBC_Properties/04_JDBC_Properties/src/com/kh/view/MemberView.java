@@ -3,12 +3,16 @@ package com.kh.view;
 import java.util.ArrayList;
 import java.util.Scanner;
 
+import com.kh.common.Tracer;
 import com.kh.controller.MemberController;
 import com.kh.model.vo.Member;
 
 /* 
  * View : 사용자가 보게될 시각전인 요소를 담당(화면 => 입력,출력)
  *      ex) html페이지
+ *
+ * 입력이 끝난 후 컨트롤러를 호출하는 부분부터 요청 하나로 추적(Tracer)한다.
+ * => 사용자가 입력하는 시간은 포함되지 않음
  * */
 
 public class MemberView {
@@ -90,7 +94,7 @@ public class MemberView {
 		Member m = new Member(userId, userPwd, userName, gender, age, email, phone, address, hobby);
 		
 		// 입력받은 정보를 넘겨서 회원 추가 요청 => Controller의 어떤 메소드를 호출하겠다
-		mc.insertMember(m);
+		Tracer.run("MemberView.insertMember", Tracer.VIEW, () -> mc.insertMember(m));
 	}
 	
 	/**
@@ -100,7 +104,7 @@ public class MemberView {
 		System.out.println("----- 회원 전체 조회 -----");
 		
 		// 회원 전체 조회 요청
-		mc.selectAll();
+		Tracer.run("MemberView.selectAll", Tracer.VIEW, () -> mc.selectAll());
 	}
 	
 	/**
@@ -114,7 +118,7 @@ public class MemberView {
 		String userId = sc.nextLine(); 
 		
 		// 입력한 아이디를 회원 아이디 검색 요청시 같이 넘김
-		mc.selectByUserId(userId);
+		Tracer.run("MemberView.selectByUserId", Tracer.VIEW, () -> mc.selectByUserId(userId));
 	}
 	
 	public void selectByUserName() {
@@ -123,7 +127,7 @@ public class MemberView {
 		System.out.print("회원 이름 키워드 입력 : ");
 		String keyword = sc.nextLine();
 		
-		mc.selectByUserName(keyword);
+		Tracer.run("MemberView.selectByUserName", Tracer.VIEW, () -> mc.selectByUserName(keyword));
 	}
 	
 	/**
@@ -149,7 +153,7 @@ public class MemberView {
 		System.out.print("변경할 주소 : ");
 		String address = sc.nextLine();
 		
-		mc.updateMember(userId, userPwd, email, phone, address);
+		Tracer.run("MemberView.updateMember", Tracer.VIEW, () -> mc.updateMember(userId, userPwd, email, phone, address));
 	}
 	
 	/**
@@ -165,7 +169,7 @@ public class MemberView {
 		System.out.print("탈퇴할 회원 PASSWORD :");
 		String userPwd = sc.nextLine();
 				
-		mc.deleteMember(userId,userPwd);
+		Tracer.run("MemberView.deleteMember", Tracer.VIEW, () -> mc.deleteMember(userId,userPwd));
 	}
 	
 	/**
@@ -206,6 +210,10 @@ public class MemberView {
 	
 	public void displayOne(Member m) {
 		System.out.println("\n조회된 데이터는 다음과 같습니다.");
+		if(m.isStale()) {
+			// DB 장애중 색인 파일에서 읽은 경우
+			System.out.println("(DB에 접속할수 없어서 " + m.getStaleAsOf() + " 기준의 정보를 보여드립니다. 최신 정보가 아닐수 있습니다.)");
+		}
 		
 		System.out.println(m);
 	}
@@ -0,0 +1,126 @@
+package com.kh.common;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Properties;
+
+/*
+ * CircuitBreaker + Resilience 확인용 (JUnit 없이 main으로 실행, 실패하면 AssertionError)
+ * 사용법) java com.kh.common.CircuitBreakerTest
+ * */
+public class CircuitBreakerTest {
+
+	public static void main(String[] args) throws Exception {
+		rejectedTrialReleasesHalfOpen();
+		runtimeExceptionTrialReleasesHalfOpen();
+		timeoutIsNotRetriedButCounted();
+		rejectedIsNotRetriedNorCounted();
+		System.out.println("CircuitBreakerTest OK");
+	}
+
+	// 시험 요청이 커넥션 몫 부족으로 끝나도 다음 요청이 다시 시험할수 있어야 한다.
+	static void rejectedTrialReleasesHalfOpen() throws Exception {
+		int shard = open(900);
+		expectFailure(shard, () -> {
+			throw new Bulkhead.RejectedException("test");
+		});
+		check(Resilience.breaker(shard).getState() == CircuitBreaker.State.HALF_OPEN, "rejected trial keeps HALF_OPEN");
+
+		String result = Resilience.write(shard, () -> "ok");
+		check("ok".equals(result), "next trial runs");
+		check(Resilience.breaker(shard).getState() == CircuitBreaker.State.CLOSED, "successful trial closes");
+	}
+
+	// 시험 요청이 RuntimeException으로 끝난 경우도 같다.
+	static void runtimeExceptionTrialReleasesHalfOpen() throws Exception {
+		int shard = open(901);
+		try {
+			Resilience.write(shard, () -> {
+				throw new IllegalStateException("test");
+			});
+			check(false, "RuntimeException expected");
+		} catch (IllegalStateException e) {
+			// 예상한 예외
+		}
+		check("ok".equals(Resilience.write(shard, () -> "ok")), "next trial runs after RuntimeException");
+		check(Resilience.breaker(shard).getState() == CircuitBreaker.State.CLOSED, "successful trial closes");
+	}
+
+	// 타임아웃은 다시 시도하지 않지만(read도 한번만 실행) 서킷브레이커 실패로는 집계한다.
+	static void timeoutIsNotRetriedButCounted() throws Exception {
+		Properties prop = new Properties();
+		prop.setProperty("retry.maxAttempts", "3");
+		prop.setProperty("retry.baseDelay.millis", "1");
+		prop.setProperty("breaker.failureThreshold", "5");
+		Resilience.configure(prop);
+		int shard = 902;
+		for(String state : new String[] {"HYT00", "HYT01", null}) {
+			int[] calls = {0};
+			try {
+				Resilience.read(shard, () -> {
+					calls[0]++;
+					throw state == null ? new SQLTimeoutException("timeout") : new SQLException("timeout", state);
+				});
+				check(false, "DataAccessException expected");
+			} catch (DataAccessException e) {
+				check(!e.isTransient(), state + " is not transient");
+			}
+			check(calls[0] == 1, state + " is not retried (" + calls[0] + " calls)");
+		}
+		check(Resilience.breaker(shard).getConsecutiveFailures() == 3, "timeouts are counted");
+	}
+
+	// 커넥션 몫 부족(Bulkhead 거절)은 일시적인 오류가 아니다. => 재시도하지 않고, 서킷브레이커 실패로도 집계하지 않는다.
+	static void rejectedIsNotRetriedNorCounted() throws Exception {
+		Properties prop = new Properties();
+		prop.setProperty("retry.maxAttempts", "3");
+		prop.setProperty("retry.baseDelay.millis", "1");
+		prop.setProperty("breaker.failureThreshold", "1");
+		Resilience.configure(prop);
+		int shard = 903;
+		int[] calls = {0};
+		try {
+			Resilience.read(shard, () -> {
+				calls[0]++;
+				throw new Bulkhead.RejectedException("test");
+			});
+			check(false, "DataAccessException expected");
+		} catch (DataAccessException e) {
+			check(!e.isTransient(), "rejected is not transient");
+			check(!SqlStates.isDbFailure(e.getCause()), "rejected is not a DB failure");
+		}
+		check(calls[0] == 1, "rejected is not retried (" + calls[0] + " calls)");
+		check(Resilience.breaker(shard).getState() == CircuitBreaker.State.CLOSED, "rejected does not open the breaker");
+	}
+
+	// 차단기를 OPEN으로 만든 후 open.millis(1ms)가 지나기를 기다린다. => 다음 요청이 HALF_OPEN의 시험 요청
+	private static int open(int shard) throws InterruptedException {
+		Properties prop = new Properties();
+		prop.setProperty("retry.maxAttempts", "1");
+		prop.setProperty("breaker.failureThreshold", "1");
+		prop.setProperty("breaker.open.millis", "1");
+		Resilience.configure(prop);
+		expectFailure(shard, () -> {
+			throw new SQLTransientConnectionException("down", "08006");
+		});
+		check(Resilience.breaker(shard).getState() == CircuitBreaker.State.OPEN, "breaker opened");
+		Thread.sleep(5);
+		return shard;
+	}
+
+	private static void expectFailure(int shard, Resilience.SqlWork<Object> work) {
+		try {
+			Resilience.write(shard, work);
+			check(false, "DataAccessException expected");
+		} catch (DataAccessException e) {
+			check(e.getCause() instanceof SQLException, "cause is SQLException");
+		}
+	}
+
+	private static void check(boolean ok, String what) {
+		if(!ok) {
+			throw new AssertionError(what);
+		}
+	}
+}
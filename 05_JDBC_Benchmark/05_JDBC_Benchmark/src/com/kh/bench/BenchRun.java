@@ -0,0 +1,43 @@
+package com.kh.bench;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * 벤치마크 실행용 클래스 (05_JDBC_Benchmark 폴더에서 실행할것 => resources/driver.properties를 읽음)
+ *
+ * - 실행 전에 이클립스에서 01 ~ 05 프로젝트를 모두 빌드해둔다. (05는 JMH 애너테이션 처리 필요)
+ * - 결과는 콘솔 + logs/bench-result.json (jmh.morethan.me 등에서 세대별 비교 그래프로 볼수 있음)
+ * - JMH 옵션을 그대로 넘길수 있다.
+ *   ex) java com.kh.bench.BenchRun -p generation=02_JDBC_PreparedStatement,04_JDBC_Properties -t 4
+ *   ex) java com.kh.bench.BenchRun "MemberBenchmark.crud" -wi 1 -i 3
+ * */
+public class BenchRun {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+
+		OptionsBuilder builder = new OptionsBuilder();
+		if(cmd.getIncludes().isEmpty()) {
+			builder.include(MemberBenchmark.class.getSimpleName());
+		}
+		// 작업 1번당 할당량(gc.alloc.rate.norm), 초당 할당량(gc.alloc.rate), GC 횟수
+		builder.addProfiler(GCProfiler.class);
+		builder.resultFormat(ResultFormatType.JSON);
+		builder.result("logs/bench-result.json");
+
+		// 그 외의 옵션(-p, -t, -wi, -i 등)은 명령행으로 넘긴 값을 사용
+		Options options = builder.parent(cmd).build();
+
+		new File("logs").mkdirs();
+		new Runner(options).run();
+	}
+}
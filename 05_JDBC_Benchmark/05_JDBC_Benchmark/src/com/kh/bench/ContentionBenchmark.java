@@ -0,0 +1,109 @@
+package com.kh.bench;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * ContentionBenchmark : MemberService 요청 하나가 거쳐가는 공통 구간을 따로 떼어서 측정하는 벤치마크
+ *
+ * 스레드 수를 늘려가며(ScalingRun) 실행하면 어느 구간이 동시 요청에서 막히는지(처리량이 늘지 않는지) 알수 있다.
+ *   configCheck      : JDBCTemplate.getShardCount() => 커넥션을 얻을때마다 driver.properties 수정여부 확인
+ *   queryLookup      : QueryCache.get() => SQL문 찾기 (04)
+ *   connectionPooled : JDBCTemplate.getConnection() + close() => 풀에서 빌리고 반납 (04)
+ *   connectionCreate : DriverManager.getConnection() + close() => 요청마다 새로 접속 (01 ~ 03)
+ *   propertiesLoad   : driver.properties 읽기 => 커넥션마다 파일을 읽던 방식 (03 이전의 04)
+ *   xmlParse         : query.xml 읽기 + XML 분석 => new MemberDao()마다 파일을 읽던 방식 (QueryCache 이전)
+ *
+ * 주의) 내장 DB(H2, 메모리)는 접속비용이 오라클(네트워크 + 인증, 수 ms)보다 훨씬 작으므로
+ *       connectionCreate는 실제보다 작게 나온다. (풀 자체의 비용과 비교하는 용도)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentionBenchmark {
+
+	private static final String GENERATION = "04_JDBC_Properties";
+
+	private Generation gen;
+	private MethodHandle getShardCount;  // () -> int
+	private MethodHandle getQuery;       // (String) -> QueryCache.Query
+	private MethodHandle getConnection;  // () -> Connection
+	private MethodHandle close;          // (Connection) -> void
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		StandInDatabase.bootstrap(1000);
+		gen = Generation.load(GENERATION);
+		getShardCount = gen.findStatic("com.kh.common.JDBCTemplate", "getShardCount");
+		getQuery = gen.findStatic("com.kh.common.QueryCache", "get", String.class);
+		getConnection = gen.findStatic("com.kh.common.JDBCTemplate", "getConnection");
+		close = gen.findStatic("com.kh.common.JDBCTemplate", "close", Connection.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		gen.close();
+	}
+
+	@Benchmark
+	public int configCheck() throws Throwable {
+		return (int) getShardCount.invokeExact();
+	}
+
+	@Benchmark
+	public Object queryLookup() throws Throwable {
+		return (Object) getQuery.invokeExact("selectByUserId");
+	}
+
+	@Benchmark
+	public void connectionPooled() throws Throwable {
+		Connection conn = (Connection) getConnection.invokeExact();
+		close.invokeExact(conn);
+	}
+
+	@Benchmark
+	public void connectionCreate() throws Exception {
+		// 01 ~ 03과 같은 방식 (대역 드라이버 > H2)
+		Connection conn = DriverManager.getConnection("jdbc:oracle:thin:@localhost:1521:xe", "JDBC", "JDBC");
+		conn.close();
+	}
+
+	@Benchmark
+	public Properties propertiesLoad() throws IOException {
+		Properties prop = new Properties();
+		try(FileInputStream in = new FileInputStream("resources/driver.properties")) {
+			prop.load(in);
+		}
+		return prop;
+	}
+
+	@Benchmark
+	public Properties xmlParse() throws IOException {
+		Properties prop = new Properties();
+		try(FileInputStream in = new FileInputStream("resources/query.xml")) {
+			prop.loadFromXML(in);
+		}
+		return prop;
+	}
+}
@@ -0,0 +1,146 @@
+package com.kh.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+/*
+ * Generation : 01 ~ 04 프로젝트 중 하나를 불러와서 회원 추가/조회/변경/탈퇴를 호출해주는 객체
+ *
+ * - 네 프로젝트 모두 com.kh.model.vo.Member, com.kh.model.dao.MemberDao 처럼 클래스 이름이 같으므로
+ *   프로젝트마다 별도의 클래스로더로 bin 폴더(이클립스 빌드 결과)를 읽어들인다.
+ * - 호출 대상은 Controller가 부르던 객체 => 01, 02는 MemberDao / 03, 04는 MemberService
+ *   (View/Controller는 콘솔 입출력이므로 제외)
+ * - 세대마다 Member 클래스가 다르므로 Member 객체도 해당 세대의 생성자로 만든다.
+ *
+ * 프로젝트 위치 : bench.root(기본값 ../..)/이름/이름/bin
+ *   ex) ../../02_JDBC_PreparedStatement/02_JDBC_PreparedStatement/bin
+ * */
+public class Generation implements AutoCloseable {
+
+	private final String name;
+	private final URLClassLoader loader;
+
+	private final MethodHandle newMember;        // (String x 4, int, String x 4) -> Member
+	private final MethodHandle insertMember;     // (Member) -> int
+	private final MethodHandle selectByUserId;   // (String) -> Member
+	private final MethodHandle selectByUserName; // (String) -> ArrayList<Member>
+	private final MethodHandle updateMember;     // (Member) -> int
+	private final MethodHandle deleteMember;     // (String, String) -> int
+
+	private Generation(String name, URLClassLoader loader) throws ReflectiveOperationException {
+		this.name = name;
+		this.loader = loader;
+
+		Class<?> member = loader.loadClass("com.kh.model.vo.Member");
+		Class<?> targetClass;
+		try {
+			targetClass = loader.loadClass("com.kh.model.service.MemberService");
+		} catch (ClassNotFoundException e) {
+			targetClass = loader.loadClass("com.kh.model.dao.MemberDao"); // 01, 02 : 서비스가 없음
+		}
+		Object target = targetClass.getConstructor().newInstance();
+
+		// 세대별 타입(Member)을 Object로 바꿔서 모두 같은 형태로 호출할수 있도록 맞춰둔다.
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		newMember = lookup.findConstructor(member, MethodType.methodType(void.class, String.class, String.class,
+								String.class, String.class, int.class, String.class, String.class, String.class, String.class))
+							.asType(MethodType.methodType(Object.class, String.class, String.class,
+								String.class, String.class, int.class, String.class, String.class, String.class, String.class));
+		insertMember = bind(lookup, targetClass, target, "insertMember", int.class, member);
+		selectByUserId = bind(lookup, targetClass, target, "selectByUserId", member, String.class);
+		selectByUserName = bind(lookup, targetClass, target, "selectByUserName", ArrayList.class, String.class);
+		updateMember = bind(lookup, targetClass, target, "updateMember", int.class, member);
+		deleteMember = bind(lookup, targetClass, target, "deleteMember", int.class, String.class, String.class);
+	}
+
+	/**
+	 * 프로젝트 이름으로 불러오는 메소드
+	 * @param name : 01_JDBC_Statement, 02_JDBC_PreparedStatement, 03_JDBC_Template_Service, 04_JDBC_Properties
+	 */
+	public static Generation load(String name) throws IOException, ReflectiveOperationException {
+		File project = new File(new File(System.getProperty("bench.root", "../.."), name), name);
+		File bin = new File(project, "bin");
+		if(!bin.isDirectory()) {
+			throw new IOException(bin + " 폴더가 없습니다. 이클립스에서 " + name + " 프로젝트를 먼저 빌드하세요.");
+		}
+
+		// 04는 실행위치의 resources/query.xml을 읽으므로 04의 SQL문을 그대로 복사해둔다.
+		// (driver.properties는 벤치마크용으로 따로 둠)
+		File query = new File(project, "resources/query.xml");
+		if(query.isFile()) {
+			File copy = new File("resources/query.xml");
+			copy.getParentFile().mkdirs();
+			Files.copy(query.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		URLClassLoader loader = new URLClassLoader(name, new URL[] { bin.toURI().toURL() },
+													Generation.class.getClassLoader());
+		return new Generation(name, loader);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 세대 내부의 public static 메소드를 호출할 MethodHandle (ex. 04의 JDBCTemplate.getShardCount)
+	 * => 반환타입이 세대별 클래스라면 Object로 바뀐다.
+	 */
+	public MethodHandle findStatic(String className, String method, Class<?>... params) throws ReflectiveOperationException {
+		MethodHandle mh = MethodHandles.publicLookup().unreflect(loader.loadClass(className).getMethod(method, params));
+		Class<?> returnType = mh.type().returnType();
+		if(returnType.getClassLoader() == loader) {
+			mh = mh.asType(mh.type().changeReturnType(Object.class));
+		}
+		return mh;
+	}
+
+	public Object newMember(String userId, String userPwd, String userName, String gender, int age,
+							String email, String phone, String address, String hobby) throws Throwable {
+		return (Object) newMember.invokeExact(userId, userPwd, userName, gender, age, email, phone, address, hobby);
+	}
+
+	public int insertMember(Object m) throws Throwable {
+		return (int) insertMember.invokeExact(m);
+	}
+
+	public Object selectByUserId(String userId) throws Throwable {
+		return (Object) selectByUserId.invokeExact(userId);
+	}
+
+	public Object selectByUserName(String keyword) throws Throwable {
+		return (Object) selectByUserName.invokeExact(keyword);
+	}
+
+	public int updateMember(Object m) throws Throwable {
+		return (int) updateMember.invokeExact(m);
+	}
+
+	public int deleteMember(String userId, String userPwd) throws Throwable {
+		return (int) deleteMember.invokeExact(userId, userPwd);
+	}
+
+	@Override
+	public void close() throws IOException {
+		loader.close();
+	}
+
+	// target.메소드이름(...)을 호출하는 MethodHandle => 매개변수/반환타입 중 세대별 클래스는 Object로
+	private static MethodHandle bind(MethodHandles.Lookup lookup, Class<?> targetClass, Object target, String method,
+									Class<?> returnType, Class<?>... params) throws ReflectiveOperationException {
+		MethodHandle mh = lookup.findVirtual(targetClass, method, MethodType.methodType(returnType, params)).bindTo(target);
+		Class<?>[] erased = new Class<?>[params.length];
+		for(int i = 0; i < params.length; i++) {
+			erased[i] = params[i] == String.class ? String.class : Object.class;
+		}
+		return mh.asType(MethodType.methodType(returnType == int.class ? int.class : Object.class, erased));
+	}
+}
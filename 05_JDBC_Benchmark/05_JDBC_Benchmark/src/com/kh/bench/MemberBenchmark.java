@@ -0,0 +1,111 @@
+package com.kh.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/*
+ * MemberBenchmark : 01 ~ 04 세대에 같은 회원 추가/조회/변경/탈퇴 작업을 실행해서 비교하는 JMH 벤치마크
+ *
+ * - generation 매개변수마다 새 JVM(fork)에서 실행되므로 세대끼리 JIT/static 상태가 섞이지 않는다.
+ * - 처리량(Throughput, ops/ms)과 실행시간 분포(SampleTime, ms/op => p50 ~ p99.99)를 같이 측정
+ * - 할당률(gc.alloc.rate.norm => 작업 1번당 할당 byte)은 BenchRun에서 GC 프로파일러를 붙여서 측정
+ *
+ * 벤치마크별 작업)
+ *   selectByUserId   : 미리 넣어둔 회원 중 무작위 1명을 아이디로 조회
+ *   selectByUserName : 무작위 키워드로 이름검색 (결과 1 ~ 수백건)
+ *   updateMember     : 미리 넣어둔 회원 중 무작위 1명의 정보 변경
+ *   crud             : 새 회원 추가 > 아이디조회 > 변경 > 탈퇴 (테이블 크기가 유지됨)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MemberBenchmark {
+
+	@Param({ "01_JDBC_Statement", "02_JDBC_PreparedStatement", "03_JDBC_Template_Service", "04_JDBC_Properties" })
+	public String generation;
+
+	// 미리 넣어둘 회원 수
+	@Param({ "10000" })
+	public int members;
+
+	private Generation gen;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		StandInDatabase.bootstrap(members);
+		gen = Generation.load(generation);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		gen.close();
+	}
+
+	/*
+	 * 스레드별 상태 => crud에서 추가할 회원 아이디를 스레드끼리 겹치지 않게 만든다. (USERID 최대 15byte)
+	 * */
+	@State(Scope.Thread)
+	public static class Session {
+		private String prefix;
+		private long next;
+
+		@Setup(Level.Trial)
+		public void setup(ThreadParams params) {
+			prefix = "b" + params.getThreadIndex() + "_";
+		}
+
+		String nextUserId() {
+			return prefix + Long.toString(next++, 36);
+		}
+	}
+
+	@Benchmark
+	public Object selectByUserId() throws Throwable {
+		return gen.selectByUserId(StandInDatabase.userId(ThreadLocalRandom.current().nextInt(members)));
+	}
+
+	@Benchmark
+	public Object selectByUserName() throws Throwable {
+		// name12 => name12, name120 ~ name129, name1200 ~ name1299 ...
+		return gen.selectByUserName(StandInDatabase.userName(ThreadLocalRandom.current().nextInt(Math.max(1, members / 100))));
+	}
+
+	@Benchmark
+	public int updateMember() throws Throwable {
+		int i = ThreadLocalRandom.current().nextInt(members);
+		Object m = gen.newMember(StandInDatabase.userId(i), "pass" + i, null, null, 0,
+								"bench" + i + "@kh.or.kr", "01099998888", "서울시 중구 " + i, null);
+		return gen.updateMember(m);
+	}
+
+	@Benchmark
+	public void crud(Session session, Blackhole bh) throws Throwable {
+		String userId = session.nextUserId();
+		Object m = gen.newMember(userId, "pass", "벤치", "M", 30, "bench@kh.or.kr", "01012345678", "서울시 강남구", "운동");
+		bh.consume(gen.insertMember(m));
+		bh.consume(gen.selectByUserId(userId));
+
+		m = gen.newMember(userId, "pass", null, null, 0, "crud@kh.or.kr", "01087654321", "서울시 중구", null);
+		bh.consume(gen.updateMember(m));
+		bh.consume(gen.deleteMember(userId, "pass"));
+	}
+}
@@ -0,0 +1,169 @@
+package com.kh.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.Statistics;
+
+/*
+ * 동시성 확장성 측정 실행용 클래스 (05_JDBC_Benchmark 폴더에서 실행)
+ *
+ * - 스레드 수를 1, 2, 4 ... 로 늘려가며 MemberBenchmark(04의 서비스 작업)와 ContentionBenchmark(공통 구간)를 실행
+ * - 작업별로 처리량(ops/ms), 응답시간(p50, p99, p99.9)과 확장효율(= 처리량 / (1스레드 처리량 x 스레드수))을 출력
+ *   => 효율이 크게 떨어지는 작업/구간이 동시 요청에서 막히는 곳이다.
+ * - logs/scaling.csv에도 저장 (스프레드시트 등에서 스레드수-처리량 그래프로 그려볼수 있음)
+ *
+ * 회귀 검사(regression gate)
+ * - baseline=write로 실행하면 결과를 resources/scaling-baseline.csv에 기준값으로 저장
+ * - 그 후 실행할때마다 기준값과 비교해서 처리량이 tolerance(기본 20%) 넘게 떨어진 작업이 있으면
+ *   종료코드 1로 끝난다. (빌드 서버에서 실패로 처리)
+ * - 기준값은 같은 장비에서 만들어야 한다. (장비마다 처리량이 다름)
+ *
+ * 사용법) java com.kh.bench.ScalingRun [threads=1,2,4,8,16] [include=정규식] [generation=04_JDBC_Properties]
+ *                                      [tolerance=0.2] [baseline=write]
+ *   ex) java com.kh.bench.ScalingRun threads=1,4,16 include=ContentionBenchmark
+ * */
+public class ScalingRun {
+
+	private static final File RESULT = new File("logs/scaling.csv");
+	private static final File BASELINE = new File("resources/scaling-baseline.csv");
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		Map<String, String> opt = new LinkedHashMap<>();
+		opt.put("threads", "1,2,4,8,16");
+		opt.put("include", "MemberBenchmark|ContentionBenchmark");
+		opt.put("generation", "04_JDBC_Properties");
+		opt.put("tolerance", "0.2");
+		opt.put("baseline", "");
+		for(String arg : args) {
+			int eq = arg.indexOf('=');
+			if(eq < 0 || !opt.containsKey(arg.substring(0, eq))) {
+				System.out.println("알수 없는 옵션 : " + arg + " (사용가능 : " + opt.keySet() + ")");
+				return;
+			}
+			opt.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+
+		// 작업@스레드수 => 결과 (스레드수 오름차순으로 실행하므로 입력 순서 유지)
+		Map<String, Row> rows = new LinkedHashMap<>();
+		for(String t : opt.get("threads").split(",")) {
+			int threads = Integer.parseInt(t.trim());
+			Options options = new OptionsBuilder()
+					.include(opt.get("include"))
+					.param("generation", opt.get("generation"))
+					.threads(threads)
+					.warmupIterations(2)
+					.warmupTime(TimeValue.seconds(2))
+					.measurementIterations(3)
+					.measurementTime(TimeValue.seconds(2))
+					.forks(1)
+					.build();
+			for(RunResult r : new Runner(options).run()) {
+				String name = r.getParams().getBenchmark();
+				name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1); // 클래스.메소드
+				Row row = rows.computeIfAbsent(name + "@" + threads, k -> new Row());
+				row.benchmark = name;
+				row.threads = threads;
+				if(r.getParams().getMode() == Mode.Throughput) {
+					row.opsPerMs = r.getPrimaryResult().getScore();
+				}else if(r.getParams().getMode() == Mode.SampleTime) {
+					Statistics s = r.getPrimaryResult().getStatistics();
+					row.p50 = s.getPercentile(50);
+					row.p99 = s.getPercentile(99);
+					row.p999 = s.getPercentile(99.9);
+				}
+			}
+		}
+
+		report(rows);
+		save(rows, RESULT);
+
+		if("write".equals(opt.get("baseline"))) {
+			save(rows, BASELINE);
+			System.out.println("기준값을 저장했습니다. => " + BASELINE);
+		}else if(BASELINE.isFile()) {
+			if(!check(rows, Double.parseDouble(opt.get("tolerance")))) {
+				System.exit(1);
+			}
+		}
+	}
+
+	// 결과 표 출력 (응답시간 단위 ms)
+	private static void report(Map<String, Row> rows) {
+		System.out.printf("%n%-40s %7s %12s %7s %10s %10s %10s%n",
+				"작업", "스레드", "처리량(ops/ms)", "효율", "p50", "p99", "p99.9");
+		for(Row row : rows.values()) {
+			Row single = rows.get(row.benchmark + "@1");
+			String efficiency = single == null || single.opsPerMs == 0 ? "-"
+					: String.format("%.0f%%", row.opsPerMs / (single.opsPerMs * row.threads) * 100);
+			System.out.printf("%-40s %7d %12.3f %7s %10.4f %10.4f %10.4f%n",
+					row.benchmark, row.threads, row.opsPerMs, efficiency, row.p50, row.p99, row.p999);
+		}
+	}
+
+	private static void save(Map<String, Row> rows, File file) throws IOException {
+		if(file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		try(PrintWriter pw = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+			pw.println("benchmark,threads,ops_per_ms,p50_ms,p99_ms,p999_ms");
+			for(Row row : rows.values()) {
+				pw.printf("%s,%d,%.6f,%.6f,%.6f,%.6f%n", row.benchmark, row.threads, row.opsPerMs, row.p50, row.p99, row.p999);
+			}
+		}
+	}
+
+	// 기준값보다 처리량이 tolerance 넘게 떨어진 작업이 있는지 검사 => 없으면 true
+	private static boolean check(Map<String, Row> rows, double tolerance) throws IOException {
+		List<String> failures = new ArrayList<>();
+		try(BufferedReader br = Files.newBufferedReader(BASELINE.toPath(), StandardCharsets.UTF_8)) {
+			br.readLine(); // 제목줄
+			String line;
+			while((line = br.readLine()) != null) {
+				String[] cols = line.split(",");
+				Row now = rows.get(cols[0] + "@" + cols[1]);
+				double base = Double.parseDouble(cols[2]);
+				if(now != null && now.opsPerMs < base * (1 - tolerance)) {
+					failures.add(String.format("%s (스레드 %s) : %.3f => %.3f ops/ms (%.0f%%)",
+							cols[0], cols[1], base, now.opsPerMs, (now.opsPerMs / base - 1) * 100));
+				}
+			}
+		}
+		if(failures.isEmpty()) {
+			System.out.printf("회귀 검사 통과 (기준값 대비 처리량 감소 %.0f%% 이내)%n", tolerance * 100);
+			return true;
+		}
+		System.out.println("회귀 검사 실패 : 기준값보다 처리량이 떨어진 작업");
+		for(String f : failures) {
+			System.out.println("  " + f);
+		}
+		return false;
+	}
+
+	/*
+	 * 작업 하나, 스레드 수 하나에 대한 결과
+	 * */
+	private static class Row {
+		private String benchmark;
+		private int threads;
+		private double opsPerMs;
+		private double p50;
+		private double p99;
+		private double p999;
+	}
+}
@@ -0,0 +1,92 @@
+package com.kh.bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/*
+ * StandInDatabase : 오라클 대신 사용할 내장 DB(H2, 오라클 호환모드)
+ *
+ * - 메모리에만 존재하는 DB이므로 디스크/네트워크 영향 없이 세대별 설계 차이만 측정된다.
+ * - MEMBER 테이블과 SEQ_USERNO 시퀀스를 오라클 스크립트와 같은 구조로 만들고
+ *   user0 ~ user(N-1) 회원을 미리 넣어둔다. (조회/변경 벤치마크 대상)
+ * */
+public class StandInDatabase {
+
+	// DB_CLOSE_DELAY=-1 : 마지막 커넥션이 닫혀도 DB(메모리)를 유지
+	public static final String URL = "jdbc:h2:mem:member;MODE=Oracle;DB_CLOSE_DELAY=-1";
+
+	private static final org.h2.Driver H2 = new org.h2.Driver();
+
+	/**
+	 * 대역 드라이버(oracle.jdbc.driver.OracleDriver)에서 호출 => H2와 연결된 Connection 반환
+	 * @param info : user, password (JDBC/JDBC)
+	 */
+	public static Connection connect(Properties info) throws SQLException {
+		return H2.connect(URL, info);
+	}
+
+	public static Connection connect() throws SQLException {
+		Properties info = new Properties();
+		info.setProperty("user", "JDBC");
+		info.setProperty("password", "JDBC");
+		return connect(info);
+	}
+
+	/**
+	 * MEMBER 테이블, SEQ_USERNO 시퀀스를 새로 만들고 회원 members명을 넣어두는 메소드
+	 */
+	public static void bootstrap(int members) throws SQLException {
+		try(Connection conn = connect(); Statement stmt = conn.createStatement()) {
+			stmt.execute("DROP TABLE IF EXISTS MEMBER");
+			stmt.execute("DROP SEQUENCE IF EXISTS SEQ_USERNO");
+			stmt.execute("CREATE TABLE MEMBER("
+						+ "USERNO NUMBER PRIMARY KEY, "
+						+ "USERID VARCHAR2(15) NOT NULL UNIQUE, "
+						+ "USERPWD VARCHAR2(20) NOT NULL, "
+						+ "USERNAME VARCHAR2(20) NOT NULL, "
+						+ "GENDER CHAR(1) CHECK(GENDER IN('M', 'F')), "
+						+ "AGE NUMBER, "
+						+ "EMAIL VARCHAR2(30), "
+						+ "PHONE CHAR(11), "
+						+ "ADDRESS VARCHAR2(100), "
+						+ "HOBBY VARCHAR2(50), "
+						+ "ENROLLDATE DATE DEFAULT SYSDATE NOT NULL)");
+			stmt.execute("CREATE SEQUENCE SEQ_USERNO NOCACHE");
+			// 이름검색(LIKE '%키워드%')은 인덱스를 탈수 없으므로 USERNAME 인덱스는 만들지 않음
+
+			conn.setAutoCommit(false);
+			try(PreparedStatement pstmt = conn.prepareStatement(
+					"INSERT INTO MEMBER VALUES(SEQ_USERNO.NEXTVAL, ?, ?, ?, ?, ?, ?, ?, ?, ?, DEFAULT)")) {
+				for(int i = 0; i < members; i++) {
+					pstmt.setString(1, userId(i));
+					pstmt.setString(2, "pass" + i);
+					pstmt.setString(3, userName(i));
+					pstmt.setString(4, i % 2 == 0 ? "M" : "F");
+					pstmt.setInt(5, 20 + i % 50);
+					pstmt.setString(6, "user" + i + "@kh.or.kr");
+					pstmt.setString(7, String.format("010%08d", i));
+					pstmt.setString(8, "서울시 강남구 " + i);
+					pstmt.setString(9, "독서");
+					pstmt.addBatch();
+					if(i % 1000 == 999) {
+						pstmt.executeBatch();
+					}
+				}
+				pstmt.executeBatch();
+			}
+			conn.commit();
+		}
+	}
+
+	// 미리 넣어둔 i번째 회원의 아이디, 이름
+	public static String userId(int i) {
+		return "user" + i;
+	}
+
+	public static String userName(int i) {
+		return "name" + i;
+	}
+}
@@ -0,0 +1,72 @@
+package oracle.jdbc.driver;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import com.kh.bench.StandInDatabase;
+
+/*
+ * 벤치마크용 대역(stand-in) 오라클 드라이버
+ *
+ * 01 ~ 03은 Class.forName("oracle.jdbc.driver.OracleDriver")와
+ * "jdbc:oracle:thin:@localhost:1521:xe"가 소스코드에 그대로 적혀있어서 오라클 없이는 실행할수 없다.
+ * => 같은 이름의 드라이버를 만들어두고 jdbc:oracle:thin: 주소로 접속하면 내장 DB(H2)로 연결해준다.
+ *
+ * 주의) ojdbc6.jar와 같이 classpath에 두면 안된다. (05_JDBC_Benchmark에만 있음)
+ * */
+public class OracleDriver implements Driver {
+
+	private static final String PREFIX = "jdbc:oracle:thin:";
+
+	static {
+		try {
+			DriverManager.registerDriver(new OracleDriver());
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		if(!acceptsURL(url)) {
+			return null; // 다른 드라이버의 주소라면 null (Driver 규약)
+		}
+		return StandInDatabase.connect(info);
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url != null && url.startsWith(PREFIX);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 11;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 2;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+}